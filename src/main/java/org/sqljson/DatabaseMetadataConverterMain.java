@@ -0,0 +1,54 @@
+package org.sqljson;
+
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import org.sqljson.dbmd.DatabaseMetadata;
+import org.sqljson.dbmd.DatabaseMetadataBinaryFormat;
+import org.sqljson.dbmd.DatabaseMetadataFiles;
+import static org.sqljson.util.AppUtils.throwError;
+
+
+/// Converts a database metadata file between the YAML, JSON and binary formats, with formats determined by the
+/// file extensions.
+public class DatabaseMetadataConverterMain
+{
+   private static void printUsage(PrintStream ps)
+   {
+      ps.println("Expected arguments: <input-dbmd-file> <output-dbmd-file>");
+      ps.println(
+         "File formats are determined by file extension: yaml|yml, json|json5, or " +
+         DatabaseMetadataBinaryFormat.FILE_EXTENSION + " for the binary format."
+      );
+   }
+
+   public static void main(String[] args)
+   {
+      if ( args.length == 1 && (args[0].equals("-h") || args[0].equals("--help")) )
+      {
+         printUsage(System.out);
+         return;
+      }
+
+      try
+      {
+         if ( args.length != 2 )
+            throw new RuntimeException("Expected 2 arguments.");
+
+         Path inputPath = Paths.get(args[0]);
+         if ( !Files.isRegularFile(inputPath) )
+            throwError("Database metadata file not found.");
+
+         DatabaseMetadata dbmd = DatabaseMetadataFiles.readDetached(inputPath);
+
+         DatabaseMetadataFiles.write(dbmd, Paths.get(args[1]));
+      }
+      catch( Exception e )
+      {
+         System.err.println(e.getMessage());
+         System.exit(1);
+      }
+   }
+}
@@ -1,10 +1,22 @@
 package org.sqljson;
 
 import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.DatabaseMetaData;
 import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Properties;
+import java.util.concurrent.TimeUnit;
 import java.util.regex.Pattern;
+import static java.util.Collections.emptyList;
+import static java.util.stream.Collectors.toList;
 
 import org.checkerframework.checker.nullness.qual.Nullable;
 
@@ -14,8 +26,18 @@ import com.fasterxml.jackson.dataformat.yaml.YAMLFactory;
 import com.fasterxml.jackson.datatype.jdk8.Jdk8Module;
 
 import org.sqljson.util.IO;
+import org.sqljson.dbmd.CaseSensitivity;
 import org.sqljson.dbmd.DatabaseMetadata;
+import org.sqljson.dbmd.DatabaseMetadataBinaryFormat;
 import org.sqljson.dbmd.DatabaseMetadataFetcher;
+import org.sqljson.dbmd.DatabaseMetadataFiles;
+import org.sqljson.dbmd.DatabaseMetadataWriter;
+import org.sqljson.dbmd.FetchMetrics.PhaseMetrics;
+import org.sqljson.dbmd.MultiSchemaMetadataFetcher;
+import org.sqljson.dbmd.OracleDictionaryMetadataFetcher;
+import org.sqljson.dbmd.PostgresCatalogMetadataFetcher;
+import org.sqljson.dbmd.RelMetadata;
+import static org.sqljson.sql_dialects.SqlDialect.getDbmsType;
 import static org.sqljson.util.Nullables.*;
 import static org.sqljson.util.Props.getProperty;
 import static org.sqljson.util.Props.requireProperty;
@@ -23,9 +45,22 @@ import static org.sqljson.util.Props.requireProperty;
 
 public class DatabaseMetadataGeneratorMain
 {
+   private static final String incrementalOptPrefix = "--incremental:";
+   private static final String metricsOpt = "--metrics";
+   private static final String metricsOutOptPrefix = "--metrics-out:";
+
    public static void printUsage(PrintStream ps)
    {
-      ps.println("Expected arguments: jdbc-properties-file [dbmd-properties-file] output-file|-");
+      ps.println("Expected arguments: [options] jdbc-properties-file [dbmd-properties-file] output-file|-");
+
+      ps.println("Options:");
+      ps.println("   " + incrementalOptPrefix + "<previous-dbmd-file>  Re-fetch only relations which are new or " +
+         "changed since the previous metadata was fetched, if supported by the metadata source. The previous " +
+         "metadata file may be the output file, and is ignored if it does not exist.");
+      ps.println("   " + metricsOpt + "  Print a summary of the wall time, JDBC metadata calls and rows read for each " +
+         "metadata fetch phase to standard error.");
+      ps.println("   " + metricsOutOptPrefix + "<file>  Write the metadata fetch phase metrics to the given file as " +
+         "JSON.\n");
 
       ps.println(
          "jdbc properties file properties:\n  " +
@@ -39,7 +74,13 @@ public class DatabaseMetadataGeneratorMain
          "dbmd properties file properties:\n  " +
             "  date-mapping (DATES_AS_DRIVER_REPORTED | DATES_AS_TIMESTAMPS | DATES_AS_DATES)\n" +
             "  schema (schema name | *any-owners*)\n" +
-            "  exclude-relations-fqname-regex\n"
+            "  schemas (comma-separated schema names, fetched concurrently instead of schema)\n" +
+            "  max-connections (maximum concurrent connections when fetching multiple schemas, default 4)\n" +
+            "  exclude-relations-fqname-regex\n" +
+            "  metadata-source (native | jdbc)\n" +
+            "  output-format (json | yaml | binary)\n" +
+            "  streaming (true | false, write each relation as it is fetched, for a single schema only)\n" +
+            "  include-table-statistics (true | false, record estimated row counts and sizes of tables, default false)\n"
       );
    }
 
@@ -63,17 +104,38 @@ public class DatabaseMetadataGeneratorMain
          printUsage(System.out);
          return;
       }
-      else if ( args.length < 2 )
+
+      int argIx = 0;
+
+      @Nullable Path prevDbmdPath = null;
+      boolean printMetrics = false;
+      @Nullable Path metricsOutPath = null;
+      for ( ; argIx < args.length && args[argIx].startsWith("--"); ++argIx )
       {
-         throw new RuntimeException("Expected 2 or more arguments");
+         if ( args[argIx].startsWith(incrementalOptPrefix) )
+            prevDbmdPath = Paths.get(args[argIx].substring(incrementalOptPrefix.length()));
+         else if ( args[argIx].equals(metricsOpt) )
+            printMetrics = true;
+         else if ( args[argIx].startsWith(metricsOutOptPrefix) )
+            metricsOutPath = Paths.get(args[argIx].substring(metricsOutOptPrefix.length()));
+         else
+            throw new RuntimeException("Unrecognized option " + args[argIx] + ".");
       }
 
-      int argIx = 0;
+      int reqArgsCount = args.length - argIx;
+      if ( reqArgsCount < 2 || reqArgsCount > 3 )
+         throw new RuntimeException("Expected 2 or 3 non-option arguments");
 
       String jdbcPropsFilePath = args[argIx++];
-      @Nullable String dbmdPropsFilePath = args.length == 3 ? args[argIx++] : null;
+      @Nullable String dbmdPropsFilePath = reqArgsCount == 3 ? args[argIx++] : null;
       String outputFilePath = args[argIx];
 
+      // Read any previous metadata before opening the output file, which may be the same file.
+      @Nullable DatabaseMetadata prevDbmd = null;
+      if ( prevDbmdPath != null && Files.isRegularFile(prevDbmdPath) )
+         prevDbmd = DatabaseMetadataFiles.readDetached(prevDbmdPath);
+      boolean incremental = prevDbmdPath != null;
+
       Properties props = new Properties();
 
       try ( var os = IO.outputStream(outputFilePath);
@@ -108,44 +170,211 @@ public class DatabaseMetadataGeneratorMain
             if ( Objects.equals(relsOwner, "*any-owners*") )
                relsOwner = null;
 
+            @Nullable List<String> schemas = applyIfPresent(getProperty(props, "schemas"), DatabaseMetadataGeneratorMain::parseSchemasList);
+
             @Nullable Pattern excludeRelsPat =
                 applyIfPresent(getProperty(props, "exclude-relations-fqname-regex"), Pattern::compile);
 
-            DatabaseMetadata dbmd =
-               new DatabaseMetadataFetcher(dateMapping)
-               .fetchMetadata(
-                  conn.getMetaData(),
-                  relsOwner,
-                  true,
-                  true,
-                  true,
-                  excludeRelsPat
-               );
+            String metadataSource = valueOr(getProperty(props, "metadata-source"), "native");
+
+            DatabaseMetadataFetcher fetcher = getMetadataFetcher(conn.getMetaData(), metadataSource, dateMapping);
+            fetcher.setIncludeStatistics(Boolean.parseBoolean(getProperty(props, "include-table-statistics")));
 
             String outputFormat = valueOr(props.getProperty("output-format"), "json");
 
-            switch ( outputFormat )
+            long fetchStart = System.nanoTime();
+
+            if ( Boolean.parseBoolean(getProperty(props, "streaming")) )
             {
-               case "json":
-               {
-                  var mapper = new ObjectMapper();
-                  mapper.registerModule(new Jdk8Module());
-                  mapper.enable(SerializationFeature.INDENT_OUTPUT);
-                  mapper.writeValue(os, dbmd);
-                  break;
-               }
-               case "yaml":
+               if ( schemas != null || incremental || outputFormat.equals("binary") )
+                  throw new RuntimeException(
+                     "Streaming output is not supported for multiple schemas, incremental fetches or binary output."
+                  );
+
+               try ( var dbmdWriter = new DatabaseMetadataWriter(os, getOutputObjectMapper(outputFormat)) )
                {
-                  var mapper = new ObjectMapper(new YAMLFactory());
-                  mapper.registerModule(new Jdk8Module());
-                  mapper.writeValue(os, dbmd);
-                  break;
+                  fetcher.fetchMetadata(conn.getMetaData(), relsOwner, true, true, true, excludeRelsPat, dbmdWriter);
                }
-               default:
-                  throw new RuntimeException("output format in property must be json or yaml");
-                }
+
+               reportMetrics(fetcher, metadataSource, fetchStart, printMetrics, metricsOutPath);
+               return;
+            }
+
+            DatabaseMetadata dbmd;
+            if ( schemas != null )
+            {
+               if ( relsOwner != null )
+                  throw new RuntimeException("Properties schema and schemas should not both be specified.");
+
+               int maxConns = applyOr(getProperty(props, "max-connections"), Integer::parseInt, 4);
+
+               dbmd =
+                  new MultiSchemaMetadataFetcher(fetcher, maxConns)
+                  .fetchMetadata(
+                     () -> DriverManager.getConnection(connStr, user, password),
+                     schemas,
+                     true,
+                     true,
+                     true,
+                     excludeRelsPat,
+                     incremental ? valueOr(prevDbmd, emptyDatabaseMetadata()) : null,
+                     System.err::println
+                  );
+            }
+            else if ( incremental )
+               dbmd =
+                  fetcher.fetchMetadataIncrementally(
+                     conn.getMetaData(),
+                     relsOwner,
+                     true,
+                     true,
+                     true,
+                     excludeRelsPat,
+                     prevDbmd
+                  );
+            else
+               dbmd =
+                  fetcher.fetchMetadata(
+                     conn.getMetaData(),
+                     relsOwner,
+                     true,
+                     true,
+                     true,
+                     excludeRelsPat
+                  );
+
+            reportMetrics(fetcher, metadataSource, fetchStart, printMetrics, metricsOutPath);
+
+            if ( incremental )
+               System.err.println(getIncrementalFetchSummary(dbmd, prevDbmd));
+
+            if ( outputFormat.equals("binary") )
+               DatabaseMetadataBinaryFormat.write(dbmd, os);
+            else
+               getOutputObjectMapper(outputFormat).writeValue(os, dbmd);
+         }
+      }
+   }
+
+   private static void reportMetrics
+      (
+         DatabaseMetadataFetcher fetcher,
+         String metadataSource,
+         long fetchStartNanos,
+         boolean printSummary,
+         @Nullable Path metricsOutPath
+      )
+      throws IOException
+   {
+      long totalMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - fetchStartNanos);
+      List<PhaseMetrics> phaseMetrics = fetcher.getMetrics().getPhaseMetrics();
+
+      if ( printSummary )
+      {
+         System.err.println(
+            "Metadata fetched in " + totalMillis + " ms via " + fetcher.getClass().getSimpleName() + ":"
+         );
+         for ( PhaseMetrics pm : phaseMetrics )
+            System.err.println("   " + pm);
+      }
+
+      if ( metricsOutPath != null )
+      {
+         Map<String, Object> report = new LinkedHashMap<>();
+         report.put("fetcher", fetcher.getClass().getSimpleName());
+         report.put("metadataSource", metadataSource);
+         report.put("totalMillis", totalMillis);
+         report.put("phases", phaseMetrics);
+
+         getOutputObjectMapper("json").writeValue(metricsOutPath.toFile(), report);
+      }
+   }
+
+   private static ObjectMapper getOutputObjectMapper(String outputFormat)
+   {
+      switch ( outputFormat )
+      {
+         case "json":
+         {
+            var mapper = new ObjectMapper();
+            mapper.registerModule(new Jdk8Module());
+            mapper.enable(SerializationFeature.INDENT_OUTPUT);
+            return mapper;
+         }
+         case "yaml":
+         {
+            var mapper = new ObjectMapper(new YAMLFactory());
+            mapper.registerModule(new Jdk8Module());
+            return mapper;
+         }
+         default:
+            throw new RuntimeException("output format in property must be json, yaml or binary");
+      }
+   }
+
+   private static DatabaseMetadata emptyDatabaseMetadata()
+   {
+      return new DatabaseMetadata(emptyList(), emptyList(), CaseSensitivity.INSENSITIVE_STORED_LOWER, "", "");
+   }
+
+   private static String getIncrementalFetchSummary
+      (
+         DatabaseMetadata dbmd,
+         @Nullable DatabaseMetadata prevDbmd
+      )
+   {
+      long unchangedCount =
+         dbmd.getRelationMetadatas().stream()
+         .filter(relMd -> {
+            @Nullable RelMetadata prevRelMd =
+               prevDbmd != null ? prevDbmd.getRelationMetadata(relMd.getRelationId()) : null;
+            @Nullable String changeMarker = relMd.getChangeMarker();
+            return prevRelMd != null && changeMarker != null && changeMarker.equals(prevRelMd.getChangeMarker());
+         })
+         .count();
+
+      return
+         "incremental fetch: " + (dbmd.getRelationMetadatas().size() - unchangedCount) + " of " +
+         dbmd.getRelationMetadatas().size() + " relations fetched as new or changed";
+   }
+
+   private static List<String> parseSchemasList(String schemasStr)
+   {
+      List<String> schemas =
+         Arrays.stream(schemasStr.split(","))
+         .map(String::trim)
+         .filter(schema -> !schema.isEmpty())
+         .collect(toList());
+
+      if ( schemas.isEmpty() )
+         throw new RuntimeException("Property schemas should contain at least one schema name.");
+
+      return schemas;
+   }
+
+   /// Get a metadata fetcher reading the database's native catalog if supported, else through JDBC metadata.
+   private static DatabaseMetadataFetcher getMetadataFetcher
+      (
+         DatabaseMetaData dbmd,
+         String metadataSource,
+         DatabaseMetadataFetcher.DateMapping dateMapping
+      )
+      throws SQLException
+   {
+      switch ( metadataSource )
+      {
+         case "native":
+            switch ( getDbmsType(dbmd.getDatabaseProductName()) )
+            {
+               case PG: return new PostgresCatalogMetadataFetcher(dateMapping);
+               case ORA: return new OracleDictionaryMetadataFetcher(dateMapping);
+               default: return new DatabaseMetadataFetcher(dateMapping);
             }
-        }
-    }
+         case "jdbc":
+            return new DatabaseMetadataFetcher(dateMapping);
+         default:
+            throw new RuntimeException("metadata source in property must be native or jdbc");
+      }
+   }
 }
 
@@ -0,0 +1,185 @@
+package org.sqljson;
+
+import java.util.*;
+import static java.util.Collections.unmodifiableList;
+import static java.util.stream.Collectors.toList;
+
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import org.sqljson.dbmd.DatabaseMetadata;
+import org.sqljson.dbmd.ForeignKey;
+import org.sqljson.dbmd.RelId;
+import org.sqljson.dbmd.RelMetadata;
+import org.sqljson.query_specs.*;
+import static org.sqljson.dbmd.ForeignKeyScope.REGISTERED_TABLES_ONLY;
+import static org.sqljson.query_specs.QuerySpecValidations.identifyTable;
+
+
+/// Finds the joins of query specifications whose joined rows cannot be located via an index, which for a child
+/// collection means an index on the child table's foreign key or custom join fields, and for a parent table an
+/// index on the parent's referenced primary key or custom join fields. Without such an index, every row of the
+/// table on the other side of the join may cause a full scan of the joined table.
+public class JoinIndexChecker
+{
+   private final DatabaseMetadata dbmd;
+   private final @Nullable String defaultSchema;
+
+   // Whether any relation joined in the checked queries has index metadata, which is not the case for metadata
+   // fetched without index information.
+   private boolean indexMetadataFound;
+
+   public static class UnindexedJoin
+   {
+      private final SpecLocation specLocation;
+      private final RelId joinedRelId;
+      private final List<String> joinFieldNames;
+
+      public UnindexedJoin
+         (
+            SpecLocation specLocation,
+            RelId joinedRelId,
+            List<String> joinFieldNames
+         )
+      {
+         this.specLocation = specLocation;
+         this.joinedRelId = joinedRelId;
+         this.joinFieldNames = unmodifiableList(new ArrayList<>(joinFieldNames));
+      }
+
+      public SpecLocation getSpecLocation() { return specLocation; }
+
+      public RelId getJoinedRelationId() { return joinedRelId; }
+
+      public List<String> getJoinFieldNames() { return joinFieldNames; }
+
+      @Override
+      public String toString()
+      {
+         return
+            "query '" + specLocation.getQueryName() + "', " + specLocation.getQueryPart() + ": " +
+            joinedRelId + "(" + String.join(", ", joinFieldNames) + ")";
+      }
+   }
+
+   public JoinIndexChecker
+      (
+         DatabaseMetadata dbmd,
+         @Nullable String defaultSchema
+      )
+   {
+      this.dbmd = dbmd;
+      this.defaultSchema = defaultSchema;
+      this.indexMetadataFound = false;
+   }
+
+   /// Whether index metadata was found for any of the relations joined in the queries checked so far. If not, the
+   /// database metadata probably does not include indexes, and any reported unindexed joins are not meaningful
+   /// except where joining on a primary key.
+   public boolean isIndexMetadataFound() { return indexMetadataFound; }
+
+   public List<UnindexedJoin> findUnindexedJoins(QuerySpec querySpec)
+   {
+      List<UnindexedJoin> unindexedJoins = new ArrayList<>();
+
+      addUnindexedJoins(querySpec.getTableJson(), new SpecLocation(querySpec.getQueryName()), unindexedJoins);
+
+      return unindexedJoins;
+   }
+
+   private void addUnindexedJoins
+      (
+         TableJsonSpec tableSpec,
+         SpecLocation specLoc,
+         List<UnindexedJoin> unindexedJoins
+      )
+   {
+      RelId relId = identifyTable(tableSpec.getTable(), defaultSchema, dbmd, specLoc);
+
+      for ( ChildCollectionSpec childSpec : tableSpec.getChildTableCollectionsList() )
+      {
+         SpecLocation childLoc = specLoc.addPart("child collection '" + childSpec.getCollectionName() + "'");
+         RelId childRelId = identifyTable(childSpec.getTableJson().getTable(), defaultSchema, dbmd, childLoc);
+
+         @Nullable CustomJoinCondition customJoinCond = childSpec.getCustomJoinCondition();
+         @Nullable List<String> childFieldNames =
+            customJoinCond != null ?
+               customJoinCond.getEquatedFields().stream()
+               .map(fp -> dbmd.normalizeName(fp.getChildField()))
+               .collect(toList())
+            : foreignKeyFieldNames(childRelId, relId, childSpec.getForeignKeyFieldsSet(), true);
+
+         if ( childFieldNames != null )
+            checkJoin(childRelId, childFieldNames, childLoc, unindexedJoins);
+
+         addUnindexedJoins(childSpec.getTableJson(), childLoc, unindexedJoins);
+      }
+
+      List<ParentSpec> parentSpecs = tableSpec.getParentTablesList();
+      for ( int ix = 0; ix < parentSpecs.size(); ++ix )
+      {
+         ParentSpec parentSpec = parentSpecs.get(ix);
+         SpecLocation parentLoc = specLoc.addPart(
+            "parentTables entry #" + (ix+1) + ", '" + parentSpec.getTableJson().getTable() + "' table"
+         );
+         RelId parentRelId = identifyTable(parentSpec.getTableJson().getTable(), defaultSchema, dbmd, parentLoc);
+
+         @Nullable CustomJoinCondition customJoinCond = parentSpec.getCustomJoinCondition();
+         @Nullable List<String> parentFieldNames =
+            customJoinCond != null ?
+               customJoinCond.getEquatedFields().stream()
+               .map(fp -> dbmd.normalizeName(fp.getParentPrimaryKeyField()))
+               .collect(toList())
+            : foreignKeyFieldNames(relId, parentRelId, parentSpec.getChildForeignKeyFieldsSet(), false);
+
+         if ( parentFieldNames != null )
+            checkJoin(parentRelId, parentFieldNames, parentLoc, unindexedJoins);
+
+         addUnindexedJoins(parentSpec.getTableJson(), parentLoc, unindexedJoins);
+      }
+   }
+
+   /// Get the child or parent side field names of the foreign key between the given tables, or null if there is no
+   /// unique such foreign key, which is reported as an error when generating SQL for the query.
+   private @Nullable List<String> foreignKeyFieldNames
+      (
+         RelId childRelId,
+         RelId parentRelId,
+         @Nullable Set<String> fkFieldNames,
+         boolean childSide
+      )
+   {
+      @Nullable ForeignKey fk;
+      try
+      {
+         fk = dbmd.getForeignKeyFromTo(childRelId, parentRelId, fkFieldNames, REGISTERED_TABLES_ONLY);
+      }
+      catch (IllegalArgumentException e)
+      {
+         return null;
+      }
+
+      if ( fk == null )
+         return null;
+
+      return childSide ? fk.getChildFieldNames() : fk.getParentFieldNames();
+   }
+
+   private void checkJoin
+      (
+         RelId joinedRelId,
+         List<String> joinFieldNames,
+         SpecLocation specLoc,
+         List<UnindexedJoin> unindexedJoins
+      )
+   {
+      @Nullable RelMetadata relMd = dbmd.getRelationMetadata(joinedRelId);
+      if ( relMd == null )
+         return;
+
+      if ( !relMd.getIndexes().isEmpty() )
+         indexMetadataFound = true;
+
+      if ( !relMd.hasIndexSupportingLookupOn(joinFieldNames) )
+         unindexedJoins.add(new UnindexedJoin(specLoc, joinedRelId, joinFieldNames));
+   }
+}
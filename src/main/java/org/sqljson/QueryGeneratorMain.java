@@ -6,6 +6,7 @@ import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.*;
 import java.util.function.Function;
+import static java.util.Collections.emptyList;
 import static java.util.Objects.requireNonNull;
 
 import org.checkerframework.checker.nullness.qual.Nullable;
@@ -20,6 +21,7 @@ import org.sqljson.query_specs.*;
 import org.sqljson.query_specs.SpecError;
 import org.sqljson.util.AppUtils.SplitArgs;
 import org.sqljson.dbmd.DatabaseMetadata;
+import org.sqljson.dbmd.DatabaseMetadataFiles;
 import static org.sqljson.util.AppUtils.splitOptionsAndRequiredArgs;
 import static org.sqljson.util.AppUtils.throwError;
 import static org.sqljson.util.IO.newFileOrStdoutWriter;
@@ -27,6 +29,7 @@ import static org.sqljson.util.IO.readString;
 import static org.sqljson.util.Serialization.getObjectMapper;
 import static org.sqljson.util.Serialization.writeJsonSchema;
 import static org.sqljson.util.StringFuns.fileExtension;
+import static org.sqljson.util.Nullables.applyOr;
 
 
 public class QueryGeneratorMain
@@ -39,6 +42,7 @@ public class QueryGeneratorMain
    private static final String includeSourceGenerationTimestamp = "--include-source-gen-timestamp";
    private static final String javaGenerateGetters = "--java-generate-getters";
    private static final String javaGenerateSetters = "--java-generate-setters";
+   private static final String compactSqlOpt = "--compact-sql";
 
    private static void printUsage()
    {
@@ -60,6 +64,8 @@ public class QueryGeneratorMain
          "top of each generated type's source file (e.g. additional imports for overridden field types).");
       ps.println("   " + includeSourceGenerationTimestamp + "  Whether to include a generation timestamp " +
          "in generated source code.");
+      ps.println("   " + compactSqlOpt + "  Also write each query's SQL in compact form, without comments or " +
+         "indentation, to a file with \"compact\" added to the result representation in its name.");
       ps.println("    --print-spec-json-schema: Print a json schema for the query group spec, to " +
          "facilitate editing.");
    }
@@ -94,17 +100,17 @@ public class QueryGeneratorMain
       if ( !Files.isDirectory(queriesOutputDirPath) ) throwError("Queries output directory not found.");
 
       boolean includeSrcGenTimestamp = args.optional.contains(includeSourceGenerationTimestamp);
+      boolean compactSql = args.optional.contains(compactSqlOpt);
 
       SourceCodeWriter srcWriter = getSourceCodeWriter(args.optional, srcOutputBaseDirPath);
 
-      try ( var dbmdIS = Files.newInputStream(dbmdPath);
-            var queriesSpecIS = Files.newInputStream(queriesSpecFilePath) )
+      try ( var queriesSpecIS = Files.newInputStream(queriesSpecFilePath) )
       {
-         DatabaseMetadata dbmd = getObjectMapper(fileExtension(dbmdPath)).readValue(dbmdIS, DatabaseMetadata.class);
+         DatabaseMetadata dbmd = DatabaseMetadataFiles.read(dbmdPath);
 
          QueryGroupSpec queryGroupSpec = getObjectMapper(fileExtension(queriesSpecFilePath)).readValue(queriesSpecIS, QueryGroupSpec.class);
 
-         generateQueries(queryGroupSpec, queriesOutputDirPath, dbmd, srcWriter, includeSrcGenTimestamp);
+         generateQueries(queryGroupSpec, queriesOutputDirPath, dbmd, srcWriter, includeSrcGenTimestamp, compactSql);
       }
       catch( SpecError sse )
       {
@@ -132,7 +138,8 @@ public class QueryGeneratorMain
          Path queriesOutputDirPath,
          DatabaseMetadata dbmd,
          SourceCodeWriter srcWriter,
-         boolean includeSrcGenTimestamp
+         boolean includeSrcGenTimestamp,
+         boolean compactSql
       )
       throws IOException
    {
@@ -141,9 +148,15 @@ public class QueryGeneratorMain
             dbmd,
             queryGroupSpec.getDefaultSchema(),
             new HashSet<>(queryGroupSpec.getGenerateUnqualifiedNamesForSchemas()),
-            getPropertyNamer(queryGroupSpec)
+            getPropertyNamer(queryGroupSpec),
+            queryGroupSpec.getJsonType()
          );
 
+      // Share subqueries repeated across queries via views, if a file for the views DDL is specified.
+      @Nullable String sharedViewsDdlFile = queryGroupSpec.getSharedViewsDdlFile();
+      if ( sharedViewsDdlFile != null )
+         sqlGenerator.shareSubqueriesAcrossQueries(queryGroupSpec.getQuerySpecs());
+
       var resultTypesGenerator =
          new ResultTypesGenerator(
             dbmd,
@@ -151,13 +164,79 @@ public class QueryGeneratorMain
             getPropertyNamer(queryGroupSpec)
          );
 
+      var joinIndexChecker = new JoinIndexChecker(dbmd, queryGroupSpec.getDefaultSchema());
+      var unindexedJoins = new ArrayList<JoinIndexChecker.UnindexedJoin>();
+
       for ( QuerySpec querySpec : queryGroupSpec.getQuerySpecs() )
       {
          // Generate SQL for each of the query's specified result representations.
          Map<ResultRepr,String> queryReprSqls = sqlGenerator.generateSqls(querySpec);
 
+         unindexedJoins.addAll(joinIndexChecker.findUnindexedJoins(querySpec));
+
+         List<String> paramNames = getParamNames(querySpec.getTableJson());
+
          // Write query SQLs.
-         List<QueryReprSqlPath> sqlPaths = writeQuerySqls(querySpec.getQueryName(), queryReprSqls, queriesOutputDirPath);
+         List<QueryReprSqlPath> sqlPaths =
+            new ArrayList<>(
+               writeQuerySqls(
+                  querySpec.getQueryName(), queryReprSqls, null, paramNames, queriesOutputDirPath, compactSql
+               )
+            );
+
+         // Write first and next page SQL variants for queries with keyset pagination.
+         if ( querySpec.getKeysetPagination() != null )
+         {
+            Map<ResultRepr,String> firstPageSqls = sqlGenerator.generateFirstPageSqls(querySpec);
+            sqlPaths.addAll(
+               writeQuerySqls(
+                  querySpec.getQueryName(), firstPageSqls, "first page",
+                  concat(paramNames, sqlGenerator.getFirstPageParamNames(querySpec)),
+                  queriesOutputDirPath, compactSql
+               )
+            );
+            Map<ResultRepr,String> nextPageSqls = sqlGenerator.generateNextPageSqls(querySpec);
+            sqlPaths.addAll(
+               writeQuerySqls(
+                  querySpec.getQueryName(), nextPageSqls, "next page",
+                  concat(paramNames, sqlGenerator.getNextPageParamNames(querySpec)),
+                  queriesOutputDirPath, compactSql
+               )
+            );
+         }
+
+         // Write SQL variants selecting rows by arrays of primary key values.
+         if ( querySpec.getByKeysVariantOrDefault() )
+         {
+            Map<ResultRepr,String> byKeysSqls = sqlGenerator.generateByKeysSqls(querySpec);
+            sqlPaths.addAll(
+               writeQuerySqls(
+                  querySpec.getQueryName(), byKeysSqls, "by keys",
+                  concat(paramNames, sqlGenerator.getByKeysParamNames(querySpec)),
+                  queriesOutputDirPath, compactSql
+               )
+            );
+         }
+
+         // Write the DDL for the query's materialized view and SQL reading the view by primary key values. The view
+         // query has no parameters, so reading the view binds only the key arrays.
+         if ( querySpec.getMaterializedViewName() != null )
+         {
+            Map<ResultRepr,String> viewDdls = sqlGenerator.generateMaterializedViewDdls(querySpec);
+            sqlPaths.addAll(
+               writeQuerySqls(
+                  querySpec.getQueryName(), viewDdls, "materialized view", emptyList(), queriesOutputDirPath, compactSql
+               )
+            );
+            Map<ResultRepr,String> viewByKeysSqls = sqlGenerator.generateMaterializedViewByKeysSqls(querySpec);
+            sqlPaths.addAll(
+               writeQuerySqls(
+                  querySpec.getQueryName(), viewByKeysSqls, "materialized view by keys",
+                  sqlGenerator.getByKeysParamNames(querySpec),
+                  queriesOutputDirPath, compactSql
+               )
+            );
+         }
 
          if ( querySpec.getGenerateResultTypesOrDefault() )
          {
@@ -166,13 +245,60 @@ public class QueryGeneratorMain
             srcWriter.writeQuerySourceCode(
                querySpec.getQueryName(),
                resultTypes,
-               getParamNames(querySpec),
+               paramNames,
                sqlPaths,
                querySpec.getTypesFileHeader(),
                includeSrcGenTimestamp
             );
          }
       }
+
+      if ( sharedViewsDdlFile != null )
+         writeSharedViewsDdl(sqlGenerator.getSharedViewsDdl(), queriesOutputDirPath.resolve(sharedViewsDdlFile));
+
+      reportUnindexedJoins(unindexedJoins, joinIndexChecker.isIndexMetadataFound());
+   }
+
+   private static void writeSharedViewsDdl
+      (
+         String ddl,
+         Path outputFilePath
+      )
+      throws IOException
+   {
+      try ( BufferedWriter bw = newFileOrStdoutWriter(outputFilePath) )
+      {
+         bw.write(
+            "-- [ THIS FILE WAS AUTO-GENERATED, ANY CHANGES MADE HERE MAY BE LOST. ]\n" +
+            "-- Views shared by the generated queries, which must be created before the queries are used.\n" +
+            ddl
+         );
+      }
+   }
+
+   private static void reportUnindexedJoins
+      (
+         List<JoinIndexChecker.UnindexedJoin> unindexedJoins,
+         boolean indexMetadataFound
+      )
+   {
+      if ( unindexedJoins.isEmpty() )
+         return;
+
+      if ( !indexMetadataFound )
+      {
+         System.err.println(
+            "Join index check skipped: the database metadata contains no indexes for the joined tables " +
+            "(it may have been generated before index metadata was captured)."
+         );
+         return;
+      }
+
+      System.err.println(
+         "Unindexed join paths, where no index supports locating the joined rows by the join fields:"
+      );
+      for ( JoinIndexChecker.UnindexedJoin unindexedJoin : unindexedJoins )
+         System.err.println("   " + unindexedJoin);
    }
 
    private static SourceCodeWriter getSourceCodeWriter
@@ -205,6 +331,8 @@ public class QueryGeneratorMain
             generateJavaGetters = true;
          else if ( opt.equals(javaGenerateSetters) )
             generateJavaSetters = true;
+         else if ( opt.equals(compactSqlOpt) )
+            continue; // SQL output option, not applicable to the source code writer
          else
             throw new RuntimeException("Unrecognized option \"" + opt + "\".");
       }
@@ -238,7 +366,10 @@ public class QueryGeneratorMain
       (
          String queryName,
          Map<ResultRepr,String> resultReprToSqlMap,
-         Path outputDir
+         @Nullable String variant,
+         List<String> paramNames,
+         Path outputDir,
+         boolean compactSql
       )
       throws IOException
    {
@@ -248,27 +379,45 @@ public class QueryGeneratorMain
       {
          ResultRepr repr = entry.getKey();
          String sql = entry.getValue();
-         String fileName = queryName + "(" + repr.toString().toLowerCase().replace('_',' ') + ").sql";
+         String reprDescr = repr.toString().toLowerCase().replace('_',' ') + applyOr(variant, v -> ", " + v, "");
+         String fileName = queryName + "(" + reprDescr + ").sql";
          Path outputFilePath = outputDir.resolve(fileName);
 
          try ( BufferedWriter bw = newFileOrStdoutWriter(outputFilePath) )
          {
             bw.write(
                "-- [ THIS QUERY WAS AUTO-GENERATED, ANY CHANGES MADE HERE MAY BE LOST. ]\n" +
-                  "-- " + repr + " results representation for " + queryName + "\n" +
+                  "-- " + repr + " results representation" + applyOr(variant, v -> " (" + v + ")", "") +
+                  " for " + queryName + "\n" +
                   sql + "\n"
             );
+         }
 
-            res.add(new QueryReprSqlPath(queryName, repr, outputFilePath));
+         // The compact form has no header comments, so that the file content is the statement as sent to the database.
+         @Nullable Path compactOutputFilePath = null;
+         if ( compactSql )
+         {
+            compactOutputFilePath = outputDir.resolve(queryName + "(" + reprDescr + ", compact).sql");
+            try ( BufferedWriter bw = newFileOrStdoutWriter(compactOutputFilePath) )
+            {
+               bw.write(QuerySqlGenerator.compactSql(sql));
+            }
          }
+
+         res.add(new QueryReprSqlPath(
+            queryName, repr, variant, outputFilePath, compactOutputFilePath, QuerySqlGenerator.sqlFingerprint(sql),
+            paramNames
+         ));
       }
 
       return res;
    }
 
-   private static List<String> getParamNames(QuerySpec querySpec)
+   private static List<String> concat(List<String> paramNames, List<String> moreParamNames)
    {
-      return getParamNames(querySpec.getTableJson());
+      Set<String> res = new LinkedHashSet<>(paramNames);
+      res.addAll(moreParamNames);
+      return new ArrayList<>(res);
    }
 
    private static List<String> getParamNames(TableJsonSpec tableSpec)
@@ -276,7 +425,12 @@ public class QueryGeneratorMain
       List<String> paramNames = new ArrayList<>();
 
       for ( var childSpec: tableSpec.getChildTableCollectionsList() )
+      {
+         @Nullable RecordCondition filter = childSpec.getFilter();
+         if ( filter != null && filter.getParamNames() != null )
+            paramNames.addAll(requireNonNull(filter.getParamNames()));
          paramNames.addAll(getParamNames(childSpec.getTableJson()));
+      }
 
       for ( var parentSpec : tableSpec.getParentTablesList() )
          paramNames.addAll(getParamNames(parentSpec.getParentTableJsonSpec()));
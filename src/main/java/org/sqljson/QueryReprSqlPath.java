@@ -1,6 +1,10 @@
 package org.sqljson;
 
 import java.nio.file.Path;
+import java.util.List;
+import static java.util.Collections.emptyList;
+
+import org.checkerframework.checker.nullness.qual.Nullable;
 
 import org.sqljson.query_specs.ResultRepr;
 
@@ -9,24 +13,69 @@ public class QueryReprSqlPath
 {
    private final String queryName;
    private final ResultRepr resultRepr;
+   private final @Nullable String variant;
    private final Path sqlPath;
+   private final @Nullable Path compactSqlPath;
+   private final @Nullable String sqlFingerprint;
+   private final List<String> paramNames;
+
+   public QueryReprSqlPath
+      (
+         String queryName,
+         ResultRepr resultRepr,
+         Path sqlPath
+      )
+   {
+      this(queryName, resultRepr, null, sqlPath, null, null, emptyList());
+   }
 
+   /// Describes the SQL file for a variant of a query result representation,
+   /// such as "first page" or "next page" for queries with keyset pagination.
    public QueryReprSqlPath
       (
          String queryName,
          ResultRepr resultRepr,
+         @Nullable String variant,
          Path sqlPath
       )
+   {
+      this(queryName, resultRepr, variant, sqlPath, null, null, emptyList());
+   }
+
+   /// Describes the SQL file for a result representation or variant, together with an optional compacted form of
+   /// the SQL written to its own file, a fingerprint of the SQL statement, and the names of the parameters which the
+   /// statement binds.
+   public QueryReprSqlPath
+      (
+         String queryName,
+         ResultRepr resultRepr,
+         @Nullable String variant,
+         Path sqlPath,
+         @Nullable Path compactSqlPath,
+         @Nullable String sqlFingerprint,
+         List<String> paramNames
+      )
    {
       this.queryName = queryName;
       this.resultRepr = resultRepr;
+      this.variant = variant;
       this.sqlPath = sqlPath;
+      this.compactSqlPath = compactSqlPath;
+      this.sqlFingerprint = sqlFingerprint;
+      this.paramNames = paramNames;
    }
 
    public String getQueryName() { return queryName; }
 
    public ResultRepr getResultRepr() { return resultRepr; }
 
+   public @Nullable String getVariant() { return variant; }
+
    public Path getSqlPath() { return sqlPath; }
-}
 
+   public @Nullable Path getCompactSqlPath() { return compactSqlPath; }
+
+   public @Nullable String getSqlFingerprint() { return sqlFingerprint; }
+
+   public List<String> getParamNames() { return paramNames; }
+}
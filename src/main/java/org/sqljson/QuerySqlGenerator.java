@@ -1,7 +1,13 @@
 package org.sqljson;
 
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Types;
 import java.util.*;
 import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
 import static java.util.Collections.*;
 import static java.util.Objects.requireNonNull;
 import static java.util.function.Function.identity;
@@ -11,12 +17,18 @@ import org.checkerframework.checker.nullness.qual.Nullable;
 
 import org.sqljson.util.StringFuns;
 import org.sqljson.dbmd.DatabaseMetadata;
+import org.sqljson.dbmd.Field;
 import org.sqljson.dbmd.ForeignKey;
 import org.sqljson.dbmd.RelId;
+import org.sqljson.dbmd.RelMetadata;
 import org.sqljson.query_specs.*;
 import org.sqljson.sql_dialects.SqlDialect;
+import static org.sqljson.QuerySqlGenerator.SelectEntry.Source.HIDDEN_FK;
+import static org.sqljson.QuerySqlGenerator.SelectEntry.Source.HIDDEN_KEY;
 import static org.sqljson.QuerySqlGenerator.SelectEntry.Source.HIDDEN_PK;
 import static org.sqljson.QuerySqlGenerator.SelectEntry.Source.NATIVE_FIELD;
+import static org.sqljson.query_specs.ReferencedParentStrategy.LEFT_JOIN;
+import static org.sqljson.query_specs.ResultRepr.JSON_OBJECT_ROWS;
 import static org.sqljson.query_specs.ResultRepr.MULTI_COLUMN_ROWS;
 import static org.sqljson.query_specs.SpecError.specError;
 import static org.sqljson.util.Nullables.*;
@@ -28,16 +40,39 @@ import static org.sqljson.dbmd.ForeignKeyScope.REGISTERED_TABLES_ONLY;
 public class QuerySqlGenerator
 {
    private final DatabaseMetadata dbmd;
-   private final SqlDialect sqlDialect;
    private final @Nullable String defaultSchema;
    private final Set<String> unqualifiedNamesSchemas; // Use unqualified names for objects in these schemas.
    private final int indentSpaces;
    private final Function<String,String> defaultPropNameFn; // default output property naming function
+   private final JsonType defaultJsonType;
+   private @Nullable SharedViews sharedViews; // if present, subqueries repeated across queries are shared via views
 
    private static final String HIDDEN_PK_PREFIX = "_";
+   private static final String HIDDEN_FK_PREFIX = "_fk_";
+   private static final String HIDDEN_KEY_PREFIX = "_key_";
+   private static final String ROW_NUMBER_COLUMN = "\"_rn\"";
+
+   private static final String PAGE_AFTER_PARAM_PREFIX = "after";
+   private static final String PAGE_LIMIT_PARAM = "limit";
+
+   private static final Set<ResultRepr> BY_KEYS_RESULT_REPRS = EnumSet.of(JSON_OBJECT_ROWS, MULTI_COLUMN_ROWS);
 
    private static final String DEFAULT_TABLE_ALIAS_VAR = "$$";
 
+   private static final int SQL_FINGERPRINT_BYTES = 16;
+   private static final int VIEW_NAME_FINGERPRINT_DIGITS = 16; // 64 bits
+
+   // Comment lines made by the lineComment* functions, and the header lines of the SQL files written by
+   // QueryGeneratorMain, which compactSql() removes.
+   private static final Pattern GENERATED_COMMENT_LINE = Pattern.compile(
+      "-- (row object builder for table|base query for table|aggregated row objects builder for table|" +
+      "records from child table|parent table|field\\(s\\) inlined from parent table) '.*|" +
+      "-- \\[ THIS QUERY WAS AUTO-GENERATED, .*|" +
+      "-- [A-Z_]+ results representation( \\(.*\\))? for .*"
+   );
+
+   private static final int NUMERIC_OR_TEMPORAL_MAX_JSON_LENGTH = 64;
+
    /*
    Note: field name quoting
    - A field name from the database metadata (DBMD) is quoted iff its interpretation by the database would change
@@ -58,47 +93,471 @@ public class QuerySqlGenerator
          Set<String> unqualifiedNamesSchemas,
          Function<String,String> defaultPropNameFn
       )
+   {
+      this(dbmd, defaultSchema, unqualifiedNamesSchemas, defaultPropNameFn, JsonType.JSONB);
+   }
+
+   public QuerySqlGenerator
+      (
+         DatabaseMetadata dbmd,
+         @Nullable String defaultSchema,
+         Set<String> unqualifiedNamesSchemas,
+         Function<String,String> defaultPropNameFn,
+         JsonType defaultJsonType
+      )
    {
       this.dbmd = dbmd;
       this.indentSpaces = 2;
-      this.sqlDialect = SqlDialect.fromDatabaseMetadata(this.dbmd, this.indentSpaces);
       this.defaultSchema = defaultSchema;
       this.unqualifiedNamesSchemas = unqualifiedNamesSchemas.stream().map(dbmd::normalizeName).collect(toSet());
       this.defaultPropNameFn = defaultPropNameFn;
+      this.defaultJsonType = defaultJsonType;
+      this.sharedViews = null;
    }
 
    public Map<ResultRepr,String> generateSqls(QuerySpec querySpec)
+   {
+      return generateSqls(querySpec, null);
+   }
+
+   /// Make a compact form of generated SQL, without the comment lines added by the generator and without
+   /// indentation, and with its lines joined. Text within string literals, quoted identifiers and comments, such as
+   /// may appear in field expressions or conditions of the query specification, is left as is, and a line ending in
+   /// a comment remains ended by a line break, so the compact SQL has the same meaning as the generated SQL.
+   public static String compactSql(String sql)
+   {
+      var sb = new StringBuilder();
+      boolean lineStart = true;
+      boolean lineBreakNeeded = false;
+      int i = 0;
+
+      while ( i < sql.length() )
+      {
+         char c = sql.charAt(i);
+         if ( lineStart )
+         {
+            int textStart = i;
+            while ( textStart < sql.length() && isSqlLineSpace(sql.charAt(textStart)) ) ++textStart;
+            int lineEnd = sql.indexOf('\n', textStart);
+            if ( lineEnd == -1 )
+               lineEnd = sql.length();
+            String line = sql.substring(textStart, lineEnd).trim();
+            if ( line.isEmpty() || GENERATED_COMMENT_LINE.matcher(line).matches() )
+            {
+               i = lineEnd + 1;
+               continue;
+            }
+
+            if ( lineBreakNeeded )
+               sb.append('\n');
+            else if ( sb.length() > 0 && sb.charAt(sb.length() - 1) != '(' && !line.startsWith(")") )
+               sb.append(' ');
+
+            lineStart = false;
+            lineBreakNeeded = false;
+            i = textStart;
+         }
+         else if ( c == '\n' )
+         {
+            // Drop trailing space of the line, which is outside of any quoted text since a newline follows.
+            while ( sb.length() > 0 && isSqlLineSpace(sb.charAt(sb.length() - 1)) ) sb.setLength(sb.length() - 1);
+            lineStart = true;
+            ++i;
+         }
+         else
+         {
+            int textEnd = quotedOrCommentTextEnd(sql, i);
+            sb.append(sql, i, textEnd);
+            if ( sql.startsWith("--", i) )
+               lineBreakNeeded = true;
+            i = textEnd;
+         }
+      }
+
+      return sb.toString();
+   }
+
+   /// Get the end position of the string literal, quoted identifier or comment starting at the given position of the
+   /// SQL, or else the position following the character there. Postgres escape and dollar quoted strings and Oracle
+   /// alternative quoted strings are recognized, so that their contents are not mistaken for SQL.
+   private static int quotedOrCommentTextEnd(String sql, int start)
+   {
+      char c = sql.charAt(start);
+      char prev = start > 0 ? sql.charAt(start - 1) : ' ';
+      char prev2 = start > 1 ? sql.charAt(start - 2) : ' ';
+      if ( sql.startsWith("--", start) )
+      {
+         int lineEnd = sql.indexOf('\n', start);
+         return lineEnd == -1 ? sql.length() : lineEnd;
+      }
+      else if ( sql.startsWith("/*", start) )
+      {
+         int close = sql.indexOf("*/", start + 2);
+         return close == -1 ? sql.length() : close + 2;
+      }
+      else if ( c == '"' )
+         return quotedTextEnd(sql, start, '"', false);
+      else if ( c == '\'' && (prev == 'q' || prev == 'Q') && !isSqlIdentifierChar(prev2) && start + 1 < sql.length() )
+      {
+         char openDelim = sql.charAt(start + 1);
+         int closeDelimIx = "([{<".indexOf(openDelim);
+         char closeDelim = closeDelimIx != -1 ? ")]}>".charAt(closeDelimIx) : openDelim;
+         int close = sql.indexOf(closeDelim + "'", start + 2);
+         return close == -1 ? sql.length() : close + 2;
+      }
+      else if ( c == '\'' )
+         return quotedTextEnd(sql, start, '\'', (prev == 'E' || prev == 'e') && !isSqlIdentifierChar(prev2));
+      else if ( c == '$' && !isSqlIdentifierChar(prev) )
+      {
+         int tagEnd = start + 1;
+         while ( tagEnd < sql.length() && isSqlIdentifierChar(sql.charAt(tagEnd)) && sql.charAt(tagEnd) != '$' )
+            ++tagEnd;
+         if ( tagEnd < sql.length() && sql.charAt(tagEnd) == '$' && !Character.isDigit(sql.charAt(start + 1)) )
+         {
+            String tag = sql.substring(start, tagEnd + 1);
+            int close = sql.indexOf(tag, tagEnd + 1);
+            return close == -1 ? sql.length() : close + tag.length();
+         }
+      }
+      return start + 1;
+   }
+
+   private static int quotedTextEnd
+      (
+         String sql,
+         int start,
+         char quote,
+         boolean backslashEscapes
+      )
+   {
+      int i = start + 1;
+      while ( i < sql.length() )
+      {
+         char c = sql.charAt(i);
+         if ( backslashEscapes && c == '\\' )
+            i += 2;
+         else if ( c == quote && i + 1 < sql.length() && sql.charAt(i + 1) == quote )
+            i += 2;
+         else if ( c == quote )
+            return i + 1;
+         else
+            ++i;
+      }
+      return sql.length();
+   }
+
+   private static boolean isSqlLineSpace(char c)
+   {
+      return c == ' ' || c == '\t' || c == '\r';
+   }
+
+   private static boolean isSqlIdentifierChar(char c)
+   {
+      return Character.isLetterOrDigit(c) || c == '_' || c == '$' || c == '#';
+   }
+
+   /// Make a fingerprint of a SQL statement, as a hex encoded hash of its compact form (see compactSql()), which
+   /// identifies the statement independently of its formatting and comments, such as for keying statement caches.
+   public static String sqlFingerprint(String sql)
+   {
+      try
+      {
+         byte[] hash =
+            MessageDigest.getInstance("SHA-256")
+            .digest(compactSql(sql).getBytes(StandardCharsets.UTF_8));
+
+         var sb = new StringBuilder();
+         for ( int i = 0; i < SQL_FINGERPRINT_BYTES; ++i )
+            sb.append(String.format("%02x", hash[i]));
+         return sb.toString();
+      }
+      catch (NoSuchAlgorithmException e)
+      {
+         throw new RuntimeException(e);
+      }
+   }
+
+   /// Share the referenced parent and child collection subqueries which occur in more than one of the given queries
+   /// as database views, which the SQL generated afterward for the queries selects from instead of repeating the
+   /// subqueries. Subqueries having parameters are not shared. The views are defined by the DDL returned from
+   /// getSharedViewsDdl() once SQL has been generated for all of the queries.
+   public void shareSubqueriesAcrossQueries(List<QuerySpec> querySpecs)
+   {
+      var countingStage = new SharedViews(SqlDialect.fromDatabaseMetadata(dbmd, indentSpaces).getMaxIdentifierLength());
+      this.sharedViews = countingStage;
+
+      for ( QuerySpec querySpec : querySpecs )
+         generateSqls(querySpec);
+
+      this.sharedViews = countingStage.sharingStage();
+   }
+
+   /// Get the DDL creating the views for subqueries shared across queries (see shareSubqueriesAcrossQueries())
+   /// which have been used in SQL generated so far, with each view defined after any views that it depends on.
+   public String getSharedViewsDdl()
+   {
+      return applyOr(sharedViews, SharedViews::getDdl, "");
+   }
+
+   /// Generate SQL for the rows having given primary key values, for the JSON_OBJECT_ROWS and MULTI_COLUMN_ROWS
+   /// result representations of a query specifying byKeysVariant. The keys are passed in the parameters named by
+   /// getByKeysParamNames(), in the form required by the database (see SqlDialect.getKeysParamNames()). Result rows
+   /// include the primary key values in trailing columns named for the primary key fields with prefix "_key_", so
+   /// callers can associate the rows with their keys.
+   public Map<ResultRepr,String> generateByKeysSqls(QuerySpec querySpec)
+   {
+      return generateSqls(querySpec, KeyedVariant.BY_KEYS);
+   }
+
+   /// Get the names of the key parameters of the by-keys SQL variant of a query specifying byKeysVariant, which are
+   /// also those of the SQL reading its materialized view by keys if materializedViewName is specified, or else an
+   /// empty list.
+   public List<String> getByKeysParamNames(QuerySpec querySpec)
+   {
+      if ( !querySpec.getByKeysVariantOrDefault() && querySpec.getMaterializedViewName() == null )
+         return emptyList();
+
+      SpecLocation specLoc = new SpecLocation(querySpec.getQueryName(), "by keys variant");
+      return sqlDialect(querySpec).getKeysParamNames(byKeysKeyFields(querySpec, specLoc));
+   }
+
+   /// Generate the DDL creating the materialized view of a query specifying materializedViewName, which stores the
+   /// query's JSON_OBJECT_ROWS results (column "json") together with the primary key values of the top table in
+   /// columns named for the primary key fields with prefix "_key_". The view has a unique index on the key columns,
+   /// as needed for refreshing the view concurrently in Postgres. The DDL is the only entry in the returned map,
+   /// for the JSON_OBJECT_ROWS result representation.
+   public Map<ResultRepr,String> generateMaterializedViewDdls(QuerySpec querySpec)
+   {
+      String viewName = materializedViewName(querySpec);
+      SpecLocation specLoc = new SpecLocation(querySpec.getQueryName(), "materialized view");
+      if ( querySpec.getForUpdateOrDefault() )
+         throw new SpecError(specLoc, "A materialized view cannot be generated for a FOR UPDATE query.");
+      if ( hasParams(querySpec.getTableJson()) )
+         throw new SpecError(specLoc, "A materialized view cannot be generated for a query having parameters.");
+
+      String query = requireNonNull(generateSqls(querySpec, KeyedVariant.MATERIALIZED_VIEW).get(JSON_OBJECT_ROWS));
+      List<String> keyColumns = materializedViewKeyColumns(querySpec, specLoc);
+
+      return singletonMap(JSON_OBJECT_ROWS, sqlDialect(querySpec).getMaterializedViewDdl(viewName, query, keyColumns));
+   }
+
+   /// Generate SQL reading the rows of the materialized view of a query specifying materializedViewName (see
+   /// generateMaterializedViewDdls()) which have primary key values given in array parameters, named as given by
+   /// getByKeysParamNames(). The SQL is the only entry in the returned map, for the JSON_OBJECT_ROWS result
+   /// representation.
+   public Map<ResultRepr,String> generateMaterializedViewByKeysSqls(QuerySpec querySpec)
+   {
+      String viewName = materializedViewName(querySpec);
+      SpecLocation specLoc = new SpecLocation(querySpec.getQueryName(), "materialized view");
+      List<String> keyColumns = materializedViewKeyColumns(querySpec, specLoc);
+      List<String> keyExpressions = keyColumns.stream().map(kc -> "mv." + kc).collect(toList());
+      SqlDialect sqlDialect = sqlDialect(querySpec);
+      List<String> paramExpressions =
+         sqlDialect.getKeysParamNames(byKeysKeyFields(querySpec, specLoc)).stream().map(p -> ":" + p).collect(toList());
+
+      String sql =
+         "select\n" +
+            indent("mv.json,\n" + String.join(",\n", keyExpressions)) + "\n" +
+         "from " + viewName + " mv\n" +
+         "where " + sqlDialect.getKeysInParamsCondition(keyExpressions, paramExpressions);
+
+      return singletonMap(JSON_OBJECT_ROWS, sql);
+   }
+
+   private static String materializedViewName(QuerySpec querySpec)
+   {
+      @Nullable String viewName = querySpec.getMaterializedViewName();
+      if ( viewName == null )
+         throw specError(querySpec, "materializedViewName", "Materialized view SQL requested for query without a view name.");
+      return viewName;
+   }
+
+   private List<String> materializedViewKeyColumns
+      (
+         QuerySpec querySpec,
+         SpecLocation specLoc
+      )
+   {
+      var keyedRows = new KeyedRows(byKeysKeyFields(querySpec, specLoc), KeyedVariant.MATERIALIZED_VIEW, false, true);
+      return keyedRows.getHiddenKeyFieldNames(dbmd);
+   }
+
+   /// Generate SQL for the first page of results for each result representation of a query specifying keyset
+   /// pagination, reading up to a number of rows given by the "limit" parameter in key order.
+   public Map<ResultRepr,String> generateFirstPageSqls(QuerySpec querySpec)
+   {
+      return generateSqls(querySpec, KeyedVariant.FIRST_PAGE);
+   }
+
+   /// Generate SQL for pages of results after the first for each result representation of a query specifying keyset
+   /// pagination, reading up to a number of rows given by the "limit" parameter which follow the key given by the
+   /// "after" key parameters (see getNextPageParamNames()).
+   public Map<ResultRepr,String> generateNextPageSqls(QuerySpec querySpec)
+   {
+      return generateSqls(querySpec, KeyedVariant.NEXT_PAGE);
+   }
+
+   /// Get the names of the parameters which the first page SQL variant of a query specifying keyset pagination adds
+   /// to those of the query itself, being just the "limit" parameter, or else an empty list.
+   public List<String> getFirstPageParamNames(QuerySpec querySpec)
+   {
+      return querySpec.getKeysetPagination() != null ? singletonList(PAGE_LIMIT_PARAM) : emptyList();
+   }
+
+   /// Get the names of the parameters which the next page SQL variant of a query specifying keyset pagination adds
+   /// to those of the query itself, being the "after" key parameters followed by the "limit" parameter, or else an
+   /// empty list.
+   public List<String> getNextPageParamNames(QuerySpec querySpec)
+   {
+      @Nullable KeysetPagination pagination = querySpec.getKeysetPagination();
+      if ( pagination == null )
+         return emptyList();
+
+      SpecLocation specLoc = new SpecLocation(querySpec.getQueryName(), "keyset pagination");
+      List<String> paramNames = new ArrayList<>(pageKeyAfterParamNames(pageKeyFields(querySpec, pagination, specLoc)));
+      paramNames.add(PAGE_LIMIT_PARAM);
+      return paramNames;
+   }
+
+   private Map<ResultRepr,String> generateSqls
+      (
+         QuerySpec querySpec,
+         @Nullable KeyedVariant keyedVariant
+      )
    {
       // This query spec may customize the default output field name making function.
       Function<String,String> propNameFn =
          applyOr(querySpec.getPropertyNameDefault(), PropertyNameDefault::toFunctionOfFieldName,
                  this.defaultPropNameFn);
 
-       return
-         querySpec.getResultRepresentationsList().stream()
-         .collect(toMap(identity(), repr -> queryResultReprSql(querySpec, repr, propNameFn)));
+      QueryOptions queryOpts =
+         new QueryOptions(
+            sqlDialect(querySpec),
+            propNameFn,
+            valueOr(querySpec.getChildCollectionStrategy(), ChildCollectionStrategy.SELECT_SUBQUERY),
+            valueOr(querySpec.getReferencedParentStrategy(), ReferencedParentStrategy.SELECT_SUBQUERY),
+            null,
+            sharedViews
+         );
+
+      // Materialized views store the json object rows.
+      List<ResultRepr> resultReprs =
+         keyedVariant == KeyedVariant.MATERIALIZED_VIEW ? singletonList(JSON_OBJECT_ROWS)
+         : querySpec.getResultRepresentationsList();
+
+      return
+         resultReprs.stream()
+         .filter(repr -> keyedVariant != KeyedVariant.BY_KEYS || BY_KEYS_RESULT_REPRS.contains(repr))
+         .collect(toMap(identity(), repr ->
+            querySpec.getShareRepeatedSubqueriesOrDefault() ?
+               queryResultReprSqlWithSharedSubqueries(querySpec, repr, keyedVariant, queryOpts)
+               : queryResultReprSql(querySpec, repr, keyedVariant, queryOpts)
+         ));
+   }
+
+   private SqlDialect sqlDialect(QuerySpec querySpec)
+   {
+      return SqlDialect.fromDatabaseMetadata(dbmd, indentSpaces, valueOr(querySpec.getJsonType(), defaultJsonType));
+   }
+
+   private String queryResultReprSqlWithSharedSubqueries
+      (
+         QuerySpec querySpec,
+         ResultRepr resultRepr,
+         @Nullable KeyedVariant keyedVariant,
+         QueryOptions queryOpts
+      )
+   {
+      if ( querySpec.getForUpdateOrDefault() )
+         throw specError(querySpec, "for update clause", "FOR UPDATE cannot be combined with shared subqueries.");
+
+      // Shared subqueries are named to avoid any table names, which they would otherwise hide within the query.
+      Set<String> avoidNames =
+         dbmd.getRelationMetadatas().stream()
+         .map(relMd -> relMd.getRelationId().getName().toLowerCase())
+         .collect(toSet());
+
+      var countingStage = new SharedSubqueries(avoidNames, indentSpaces);
+      queryResultReprSql(querySpec, resultRepr, keyedVariant, queryOpts.withSharedSubqueries(countingStage));
+
+      var sharingStage = countingStage.sharingStage();
+      String sql = queryResultReprSql(querySpec, resultRepr, keyedVariant, queryOpts.withSharedSubqueries(sharingStage));
+
+      return sharingStage.getWithClause() + sql;
    }
 
    private String queryResultReprSql
       (
          QuerySpec querySpec,
          ResultRepr resultRepr,
-         Function<String,String> propNameFn
+         @Nullable KeyedVariant keyedVariant,
+         QueryOptions queryOpts
       )
    {
       TableJsonSpec tjs = querySpec.getTableJson();
       SpecLocation specLoc = new SpecLocation(querySpec.getQueryName()); // for error reporting
       if ( querySpec.getForUpdateOrDefault() && resultRepr != MULTI_COLUMN_ROWS )
          throw specError(querySpec, "for update clause", "FOR UPDATE only allowed with MULTI_COLUMN_ROWS");
+      if ( querySpec.getForUpdateOrDefault() &&
+           tjs.getChildTableCollectionsList().stream()
+           .anyMatch(childSpec -> childCollectionStrategy(childSpec, queryOpts) != ChildCollectionStrategy.SELECT_SUBQUERY) )
+         throw specError(querySpec, "for update clause",
+            "FOR UPDATE cannot be combined with joined (LATERAL_JOIN or GROUPED_AGGREGATION) child collections " +
+            "of the top table");
+      if ( querySpec.getForUpdateOrDefault() &&
+           tjs.getReferencedParentTablesList().stream()
+           .anyMatch(parentSpec -> referencedParentStrategy(parentSpec, queryOpts) == LEFT_JOIN) )
+         throw specError(querySpec, "for update clause",
+            "FOR UPDATE cannot be combined with LEFT_JOIN referenced parents of the top table");
+
+      @Nullable KeyedRows keyedRows = null;
+      @Nullable String orderBy = querySpec.getOrderBy();
+      if ( keyedVariant == KeyedVariant.BY_KEYS )
+      {
+         if ( !BY_KEYS_RESULT_REPRS.contains(resultRepr) )
+            throw specError(querySpec, "resultRepresentations", "By keys SQL is not available for " + resultRepr + ".");
+         // The keys are exported as result columns for associating result rows with keys.
+         keyedRows = new KeyedRows(byKeysKeyFields(querySpec, specLoc), keyedVariant, false, true);
+      }
+      else if ( keyedVariant == KeyedVariant.MATERIALIZED_VIEW )
+      {
+         // The keys are exported as result columns for the view's unique key, and the view's rows are unordered.
+         keyedRows = new KeyedRows(byKeysKeyFields(querySpec, specLoc), keyedVariant, false, true);
+         orderBy = null;
+      }
+      else if ( keyedVariant != null )
+      {
+         @Nullable KeysetPagination pagination = querySpec.getKeysetPagination();
+         if ( pagination == null )
+            throw specError(querySpec, "keysetPagination", "Page SQL requested for query without keyset pagination.");
+         if ( orderBy != null )
+            throw specError(querySpec, "orderBy",
+               "Query orderBy cannot be combined with keyset pagination, whose key fields determine the order.");
+         SpecLocation pageLoc = specLoc.addPart("keyset pagination");
+         // Page rows are wrapped by the json representations, which need the key fields for ordering the results.
+         boolean exportKeyFieldsHidden = resultRepr != MULTI_COLUMN_ROWS;
+         keyedRows = new KeyedRows(
+            pageKeyFields(querySpec, pagination, pageLoc),
+            keyedVariant,
+            pagination.getDescendingOrDefault(),
+            exportKeyFieldsHidden
+         );
+         if ( exportKeyFieldsHidden )
+            orderBy = keyedRows.getKeyFieldsOrderBy(DEFAULT_TABLE_ALIAS_VAR, dbmd);
+      }
 
       switch ( resultRepr )
       {
          case JSON_OBJECT_ROWS:
-            return jsonObjectRowsSql(tjs, null, querySpec.getOrderBy(), propNameFn, specLoc);
+            return jsonObjectRowsSql(tjs, null, orderBy, keyedRows, queryOpts, specLoc);
          case JSON_ARRAY_ROW:
-            return jsonArrayRowSql(tjs, null, false, querySpec.getOrderBy(), propNameFn, specLoc);
+            return jsonArrayRowSql(tjs, null, null, false, orderBy, null, keyedRows, queryOpts, specLoc);
+         case JSON_ARRAY_CHUNKS:
+            if ( querySpec.getJsonArrayChunkSizeOrDefault() < 1 )
+               throw specError(querySpec, "jsonArrayChunkSize", "Chunk size must be positive.");
+            return jsonArrayChunksSql(tjs, orderBy, keyedRows, querySpec.getJsonArrayChunkSizeOrDefault(), queryOpts, specLoc);
          case MULTI_COLUMN_ROWS:
-            return baseQuery(tjs, null, false, querySpec.getOrderBy(), propNameFn, specLoc).sql
+            return baseQuery(tjs, null, null, false, emptyList(), orderBy, keyedRows, queryOpts, specLoc).sql
                    + (querySpec.getForUpdateOrDefault() ? "\nfor update" : "");
          default:
             throw specError(querySpec, "resultRepresentations", "Result representation is not valid.");
@@ -113,6 +572,9 @@ public class QuerySqlGenerator
     * @param parentChildCond
     *    A filter condition on this table from a parent or child table whose
     *    alias (accessible from the condition) can be assumed to be in context.
+    * @param childFilter
+    *    A condition on this table's rows from the specification of the child
+    *    collection for which the table is being queried, if any.
     * @param exportPkFieldsHidden
     *    If enabled then all primary key fields will be added to the SQL select
     *    clause but not are not listed in the result columns list which
@@ -120,6 +582,15 @@ public class QuerySqlGenerator
     *    columns added for this option have prefixed output names to avoid name
     *    collisions. This is useful for filtering results of this base query
     *    such as for parent child relationship conditions.
+    * @param hiddenFkFields
+    *    Foreign key fields to be added to the select clause with prefixed output
+    *    names, and like hidden primary key fields not listed in the result
+    *    columns. These allow grouping the rows by parent when pre-aggregating
+    *    child collections.
+    * @param keyedRows
+    *    If present, the restriction of the query's rows to a page of rows in
+    *    key order or to rows having given keys, which is applied in this query
+    *    so the database can find the rows via an index on the key fields.
     * @return
     *    A BaseQuery structure containing the generated SQL and some metadata
     *    about the query (e.g. column names).
@@ -128,9 +599,12 @@ public class QuerySqlGenerator
       (
          TableJsonSpec tableSpec,
          @Nullable ParentChildCondition parentChildCond,
+         @Nullable RecordCondition childFilter,
          boolean exportPkFieldsHidden,
+         List<String> hiddenFkFields,
          @Nullable String orderBy,
-         Function<String,String> propNameFn,
+         @Nullable KeyedRows keyedRows,
+         QueryOptions queryOpts,
          SpecLocation specLoc
       )
    {
@@ -147,19 +621,21 @@ public class QuerySqlGenerator
       if ( exportPkFieldsHidden )
          q.selectEntries.addAll(hiddenPkSelectEntries(relId, alias));
 
+      q.selectEntries.addAll(hiddenFkSelectEntries(hiddenFkFields, alias));
+
       q.selectEntries.addAll(
-         tableFieldExpressionSelectEntries(tableSpec, alias, propNameFn, specLoc)
+         tableFieldExpressionSelectEntries(tableSpec, alias, queryOpts, specLoc)
       );
 
       q.addParts(
-         inlineParentsSqlParts(tableSpec, relId, alias, q.aliasesInScope, propNameFn, specLoc)
+         inlineParentsSqlParts(tableSpec, relId, alias, q.aliasesInScope, queryOpts, specLoc)
       );
       q.addParts(
-         referencedParentsSqlParts(tableSpec, relId, alias, propNameFn, specLoc)
+         referencedParentsSqlParts(tableSpec, relId, alias, q.aliasesInScope, queryOpts, specLoc)
       );
 
-      q.selectEntries.addAll(
-         childCollectionSelectEntries(tableSpec, relId, alias, propNameFn, specLoc)
+      q.addParts(
+         childCollectionsSqlParts(tableSpec, relId, alias, q.aliasesInScope, queryOpts, specLoc)
       );
 
       // Add parent/child relationship filter condition if any to the where clause.
@@ -171,16 +647,59 @@ public class QuerySqlGenerator
          q.whereEntries::add
       );
 
+      ifPresent(childFilter, filter ->
+         q.whereEntries.add(conditionSql(filter, alias))
+      );
+
       if ( orderBy != null )
          q.orderBy = orderBy;
 
+      if ( keyedRows != null )
+      {
+         if ( keyedRows.exportKeyFieldsHidden )
+            q.selectEntries.addAll(keyedRows.getHiddenKeySelectEntries(alias, dbmd));
+         switch ( keyedRows.variant )
+         {
+            case FIRST_PAGE:
+            case NEXT_PAGE:
+               if ( keyedRows.variant == KeyedVariant.NEXT_PAGE )
+               {
+                  q.whereEntries.add(
+                     queryOpts.sqlDialect.getKeysetSeekCondition(
+                        keyedRows.getKeyExpressions(alias, dbmd),
+                        pageKeyAfterParamNames(keyedRows.keyFields).stream().map(p -> ":" + p).collect(toList()),
+                        keyedRows.descending
+                     )
+                  );
+               }
+               q.orderBy = keyedRows.getKeyFieldsOrderBy(alias, dbmd);
+               q.rowLimitClause = queryOpts.sqlDialect.getRowLimitClause(":" + PAGE_LIMIT_PARAM, null);
+               break;
+            case BY_KEYS:
+               q.whereEntries.add(
+                  queryOpts.sqlDialect.getKeysInParamsCondition(
+                     keyedRows.getKeyExpressions(alias, dbmd),
+                     queryOpts.sqlDialect.getKeysParamNames(keyedRows.keyFields).stream()
+                     .map(p -> ":" + p).collect(toList())
+                  )
+               );
+               break;
+            case MATERIALIZED_VIEW:
+               break;
+         }
+      }
+
       List<String> columnNames =
          q.selectEntries.stream()
-         .filter(e -> e.getSource() != HIDDEN_PK)
+         .filter(e -> e.getSource() != HIDDEN_PK && e.getSource() != HIDDEN_FK && e.getSource() != HIDDEN_KEY)
          .map(SelectEntry::getName)
          .collect(toList());
 
-      return new BaseQuery(q.toSql(indentSpaces), columnNames);
+      return new BaseQuery(
+         q.toSql(indentSpaces),
+         columnNames,
+         rowObjectMaxJsonLength(tableSpec, queryOpts, specLoc)
+      );
    }
 
    private List<SelectEntry> hiddenPkSelectEntries(RelId relId, String alias)
@@ -195,11 +714,23 @@ public class QuerySqlGenerator
          .collect(toList());
    }
 
+   private List<SelectEntry> hiddenFkSelectEntries(List<String> fkFieldNames, String alias)
+   {
+      return
+         fkFieldNames.stream()
+         .map(fkFieldName -> {
+            String fkFieldDbName = dbmd.quoteIfNeeded(fkFieldName);
+            String fkFieldOutputName = dbmd.quoteIfNeeded(HIDDEN_FK_PREFIX + fkFieldName);
+            return new SelectEntry(alias + "." + fkFieldDbName, fkFieldOutputName, HIDDEN_FK);
+         })
+         .collect(toList());
+   }
+
    private List<SelectEntry> tableFieldExpressionSelectEntries
       (
          TableJsonSpec tableSpec,
          String alias,
-         Function<String,String> propNameFn,
+         QueryOptions queryOpts,
          SpecLocation specLoc
       )
    {
@@ -215,7 +746,7 @@ public class QuerySqlGenerator
          {
             var tfe = fieldExprs.get(ix);
             var loc = specLoc.addPart("fieldExpressions entry #" + (ix+1) + " of table " + tableSpec.getTable());
-            String propName = dbmd.quoteIfNeeded(this.jsonPropertyName(tfe, propNameFn, loc));
+            String propName = dbmd.quoteIfNeeded(this.jsonPropertyName(tfe, queryOpts.propNameFn, loc));
             String sqlExpr = this.tableFieldExpressionSql(tfe, alias, loc);
             res.add(new SelectEntry(sqlExpr, propName, NATIVE_FIELD));
          }
@@ -223,6 +754,137 @@ public class QuerySqlGenerator
       }
    }
 
+   /// Get an upper bound for the length in bytes of the json object made from a row of the table's base query, if
+   /// within the largest length for which the dialect builds objects of a bounded type (see
+   /// SqlDialect.getBoundedJsonMaxLength()). Returns null if the dialect does not use bounded types, or if the
+   /// object is unbounded or too large for a bounded type, as when it includes child collections, expressions of
+   /// unknown size, or a referenced parent object which is itself too large. An object containing a parent object
+   /// that is too large is then built as an unbounded type itself, as the parent object is.
+   private @Nullable Integer rowObjectMaxJsonLength
+      (
+         TableJsonSpec tableSpec,
+         QueryOptions queryOpts,
+         SpecLocation specLoc
+      )
+   {
+      @Nullable Integer boundedMaxLength = queryOpts.sqlDialect.getBoundedJsonMaxLength();
+      if ( boundedMaxLength == null )
+         return null;
+
+      @Nullable List<Integer> propertyLengths = propertiesMaxJsonLengths(tableSpec, queryOpts, specLoc);
+      if ( propertyLengths == null )
+         return null;
+
+      // braces and separating commas, with the properties
+      int maxLength = 2 + Math.max(propertyLengths.size() - 1, 0) + propertyLengths.stream().mapToInt(l -> l).sum();
+
+      return maxLength <= boundedMaxLength ? maxLength : null;
+   }
+
+   /// Get upper bounds for the serialized lengths of the json object properties of the table's base query rows,
+   /// including property names, or null if any property is unbounded.
+   private @Nullable List<Integer> propertiesMaxJsonLengths
+      (
+         TableJsonSpec tableSpec,
+         QueryOptions queryOpts,
+         SpecLocation specLoc
+      )
+   {
+      if ( !tableSpec.getChildTableCollectionsList().isEmpty() )
+         return null;
+
+      var res = new ArrayList<Integer>();
+
+      @Nullable List<TableFieldExpr> fieldExprs = tableSpec.getFieldExpressions();
+      if ( fieldExprs != null && !fieldExprs.isEmpty() )
+      {
+         RelId relId = identifyTable(tableSpec.getTable(), specLoc);
+         @Nullable RelMetadata relMd = dbmd.getRelationMetadata(relId);
+         if ( relMd == null )
+            return null;
+         Map<String,Field> fieldsByName = relMd.getFields().stream().collect(toMap(Field::getName, identity()));
+
+         for ( TableFieldExpr tfe : fieldExprs )
+         {
+            @Nullable String fieldName = tfe.getField();
+            if ( fieldName == null )
+               return null;
+            @Nullable Field field = fieldsByName.get(dbmd.normalizeName(fieldName));
+            @Nullable Integer valueLength = field != null ? fieldValueMaxJsonLength(field) : null;
+            if ( valueLength == null )
+               return null;
+            String propName = jsonPropertyName(tfe, queryOpts.propNameFn, specLoc);
+            res.add(propertyNameMaxJsonLength(propName) + 1 + valueLength);
+         }
+      }
+
+      for ( ParentSpec parentSpec : tableSpec.getParentTablesList() )
+      {
+         @Nullable String refName = parentSpec.getReferenceName();
+         if ( refName == null ) // inline parent, whose properties are included directly
+         {
+            @Nullable List<Integer> parentPropLengths =
+               propertiesMaxJsonLengths(parentSpec.getTableJson(), queryOpts, specLoc);
+            if ( parentPropLengths == null )
+               return null;
+            res.addAll(parentPropLengths);
+         }
+         else
+         {
+            @Nullable Integer parentLength = rowObjectMaxJsonLength(parentSpec.getTableJson(), queryOpts, specLoc);
+            if ( parentLength == null )
+               return null;
+            res.add(propertyNameMaxJsonLength(refName) + 1 + parentLength);
+         }
+      }
+
+      return res;
+   }
+
+   /// Upper bound for the serialized length of a json property name, allowing for escapes of all characters.
+   private static int propertyNameMaxJsonLength(String propName)
+   {
+      return 2 + 6 * propName.length();
+   }
+
+   /// Get an upper bound for the serialized length in bytes of a json value from the given field, or null if not
+   /// known. Character values are allowed 6 bytes per character, the length of a json unicode escape sequence, which
+   /// also covers the at most 4 bytes of a character's UTF-8 encoding. This assumes that the field length counts
+   /// characters (or bytes), and that non-ASCII characters are not escaped in the json output (as they are by
+   /// Oracle's json_object only if its ASCII option is given), since an escaped supplementary character takes 12
+   /// bytes. Numeric and date/time values are bounded by the generous fixed length NUMERIC_OR_TEMPORAL_MAX_JSON_LENGTH.
+   private static @Nullable Integer fieldValueMaxJsonLength(Field field)
+   {
+      switch ( field.getJdbcTypeCode() )
+      {
+         case Types.CHAR:
+         case Types.VARCHAR:
+         case Types.NCHAR:
+         case Types.NVARCHAR:
+            return applyIfPresent(field.getLength(), length -> 2 + 6 * length);
+         case Types.TINYINT:
+         case Types.SMALLINT:
+         case Types.INTEGER:
+         case Types.BIGINT:
+         case Types.DECIMAL:
+         case Types.NUMERIC:
+         case Types.FLOAT:
+         case Types.REAL:
+         case Types.DOUBLE:
+         case Types.DATE:
+         case Types.TIME:
+         case Types.TIME_WITH_TIMEZONE:
+         case Types.TIMESTAMP:
+         case Types.TIMESTAMP_WITH_TIMEZONE:
+            return NUMERIC_OR_TEMPORAL_MAX_JSON_LENGTH;
+         case Types.BIT:
+         case Types.BOOLEAN:
+            return 5; // "false"
+         default:
+            return null;
+      }
+   }
+
    private String tableFieldExpressionSql
       (
          TableFieldExpr tableFieldExpr,
@@ -248,7 +910,7 @@ public class QuerySqlGenerator
          RelId relId,
          String alias,
          Set<String> aliasesInScope,
-         Function<String,String> propNameFn,
+         QueryOptions queryOpts,
          SpecLocation specLoc
       )
    {
@@ -262,7 +924,7 @@ public class QuerySqlGenerator
             "inline parentTables entry #" + (ix+1) + ", '" + parentSpec.getTableJson().getTable() + "' table"
          );
          sqlParts.addParts(
-            inlineParentSqlParts(parentSpec, relId, alias, sqlParts.aliasesInScope, propNameFn, parentLoc)
+            inlineParentSqlParts(parentSpec, relId, alias, sqlParts.aliasesInScope, queryOpts, parentLoc)
          );
       }
 
@@ -275,16 +937,23 @@ public class QuerySqlGenerator
          RelId childRelId,
          String childAlias,
          Set<String> avoidAliases,
-         Function<String,String> propNameFn,
+         QueryOptions queryOpts,
          SpecLocation specLoc
       )
    {
       assert inlineParentSpec.getReferenceName() == null;
 
-      SqlParts q = new SqlParts();
+      if ( inlineParentSpec.getStrategy() != null )
+         throw new SpecError(specLoc, "Inline parents cannot specify a strategy, which only applies to referenced parents.");
 
       TableJsonSpec ptjSpec = inlineParentSpec.getTableJson();
-      BaseQuery fromClauseQuery = baseQuery(ptjSpec, null, true, null, propNameFn, specLoc);
+
+      if ( isDirectlyJoinable(ptjSpec) )
+         return directlyJoinedInlineParentSqlParts(inlineParentSpec, childRelId, childAlias, avoidAliases, queryOpts, specLoc);
+
+      SqlParts q = new SqlParts();
+
+      BaseQuery fromClauseQuery = baseQuery(ptjSpec, null, null, true, emptyList(), null, null, queryOpts, specLoc);
 
       String fromClauseQueryAlias = StringFuns.makeNameNotInSet("q", avoidAliases);
       q.aliasesInScope.add(fromClauseQueryAlias);
@@ -314,6 +983,64 @@ public class QuerySqlGenerator
       return q;
    }
 
+   /// Join the inline parent's table itself instead of a query for it, selecting the parent's fields directly.
+   /// This requires that the parent table spec is directly joinable as determined by isDirectlyJoinable().
+   private SqlParts directlyJoinedInlineParentSqlParts
+      (
+         ParentSpec inlineParentSpec,
+         RelId childRelId,
+         String childAlias,
+         Set<String> avoidAliases,
+         QueryOptions queryOpts,
+         SpecLocation specLoc
+      )
+   {
+      SqlParts q = new SqlParts();
+
+      TableJsonSpec ptjSpec = inlineParentSpec.getTableJson();
+      RelId parentRelId = identifyTable(ptjSpec.getTable(), specLoc);
+
+      String parentAlias =
+         StringFuns.makeNameNotInSet(StringFuns.lowercaseInitials(parentRelId.getName(), "_"), avoidAliases);
+      q.aliasesInScope.add(parentAlias);
+
+      List<SelectEntry> fieldEntries = tableFieldExpressionSelectEntries(ptjSpec, parentAlias, queryOpts, specLoc);
+      for (int i = 0; i < fieldEntries.size(); ++i )
+      {
+         SelectEntry fieldEntry = fieldEntries.get(i);
+         q.selectEntries.add(new SelectEntry(
+            fieldEntry.getValueExpression(),
+            fieldEntry.getName(),
+            SelectEntry.Source.INLINE_PARENT,
+            (i == 0 ? lineCommentInlineParentFieldsBegin(inlineParentSpec): null)
+         ));
+      }
+
+      String joinCond =
+         getParentPkCondition(inlineParentSpec, childRelId, childAlias, specLoc)
+         .asEquationConditionOn(parentAlias, dbmd);
+
+      q.fromEntries.add(
+         lineCommentJoinToParent(inlineParentSpec) + "\n" +
+         "left join " + minimalRelIdentifier(parentRelId) + " " + parentAlias + " on " + joinCond
+      );
+
+      return q;
+   }
+
+   /// Determine whether an inline parent's table can be joined directly instead of via a query for the parent.
+   /// This requires that the parent has no record condition, parents or child collections of its own, and that
+   /// its field expressions are all simple fields, because general expressions could be non-null for child rows
+   /// having no parent when evaluated over the outer join instead of within the parent query.
+   private static boolean isDirectlyJoinable(TableJsonSpec parentTableSpec)
+   {
+      return
+         parentTableSpec.getRecordCondition() == null &&
+         parentTableSpec.getParentTablesList().isEmpty() &&
+         parentTableSpec.getChildTableCollectionsList().isEmpty() &&
+         parentTableSpec.getFieldExpressionsList().stream().allMatch(tfe -> tfe.getField() != null);
+   }
+
    private ParentPkCondition getParentPkCondition
       (
          ParentSpec parentSpec,
@@ -362,11 +1089,12 @@ public class QuerySqlGenerator
          TableJsonSpec tableSpec,
          RelId relId,
          String alias,
-         Function<String,String> propNameFn,
+         Set<String> aliasesInScope,
+         QueryOptions queryOpts,
          SpecLocation specLoc
       )
    {
-      var sqlParts = new SqlParts();
+      var sqlParts = new SqlParts(emptyList(), emptyList(), emptyList(), null, aliasesInScope);
 
       var parentSpecs = tableSpec.getReferencedParentTablesList();
       for (int ix=0; ix < parentSpecs.size(); ++ix )
@@ -376,7 +1104,7 @@ public class QuerySqlGenerator
             "referencedParentTables entry #" + (ix+1) + ", '" + parentSpec.getTableJson().getTable() + "' table"
          );
          sqlParts.addParts(
-            referencedParentSqlParts(parentSpec, relId, alias, propNameFn, parentLoc)
+            referencedParentSqlParts(parentSpec, relId, alias, sqlParts.aliasesInScope, queryOpts, parentLoc)
          );
       }
 
@@ -388,7 +1116,8 @@ public class QuerySqlGenerator
          ParentSpec parentSpec,
          RelId childRelId,
          String childAlias,
-         Function<String,String> propNameFn,
+         Set<String> avoidAliases,
+         QueryOptions queryOpts,
          SpecLocation specLoc
       )
    {
@@ -396,50 +1125,355 @@ public class QuerySqlGenerator
 
       var parentPkCond = getParentPkCondition(parentSpec, childRelId, childAlias, specLoc);
 
-      var selectEntries = singletonList(new SelectEntry(
-         lineCommentReferencedParent(parentSpec) + "\n" +
-            "(\n" +
-               indent(
-                  jsonObjectRowsSql(parentSpec.getTableJson(), parentPkCond, null, propNameFn, specLoc)
-               ) + "\n" +
-            ")",
-         dbmd.quoteIfNeeded(refName),
-         SelectEntry.Source.PARENT_REFERENCE,
-         null
-      ));
-
-      return new SqlParts(selectEntries, emptyList(), emptyList(), null, emptySet());
-   }
+      @Nullable SharedViews sharedViews = queryOpts.sharedViews;
+      if ( sharedViews != null && !hasParams(parentSpec.getTableJson()) )
+      {
+         TableJsonSpec ptjSpec = parentSpec.getTableJson();
+         String unsharedSubquery = referencedParentObjectsQuery(ptjSpec, queryOpts.withoutSharing(), specLoc);
+         if ( sharedViews.isShared(unsharedSubquery, specLoc.getQueryName()) )
+         {
+            String viewName = sharedViews.getViewName(
+               unsharedSubquery,
+               identifyTable(ptjSpec.getTable(), specLoc).getName().toLowerCase() + "_objects",
+               () -> referencedParentObjectsQuery(ptjSpec, queryOpts.withSharedSubqueries(null), specLoc)
+            );
+            if ( referencedParentStrategy(parentSpec, queryOpts) == LEFT_JOIN )
+               return sharedReferencedParentSqlParts(parentSpec, parentPkCond, viewName, avoidAliases);
+
+            String parentQueryAlias = StringFuns.makeNameNotInSet("rp", avoidAliases);
+            var selectEntries = singletonList(new SelectEntry(
+               lineCommentReferencedParent(parentSpec) + "\n" +
+                  "(select " + parentQueryAlias + ".json from " + viewName + " " + parentQueryAlias + " where " +
+                  parentPkCond.asEquationConditionOn(parentQueryAlias, dbmd, HIDDEN_PK_PREFIX) + ")",
+               dbmd.quoteIfNeeded(refName),
+               SelectEntry.Source.PARENT_REFERENCE,
+               null
+            ));
+            return new SqlParts(selectEntries, emptyList(), emptyList(), null, emptySet());
+         }
+      }
 
-   private List<SelectEntry> childCollectionSelectEntries
-      (
+      @Nullable SharedSubqueries sharedSubqueries = queryOpts.sharedSubqueries;
+      if ( sharedSubqueries != null )
+      {
+         TableJsonSpec ptjSpec = parentSpec.getTableJson();
+         String unsharedSubquery = referencedParentObjectsQuery(ptjSpec, queryOpts.withSharedSubqueries(null), specLoc);
+         if ( sharedSubqueries.isShared(unsharedSubquery) )
+         {
+            String cteName = sharedSubqueries.getCteName(
+               unsharedSubquery,
+               identifyTable(ptjSpec.getTable(), specLoc).getName().toLowerCase() + "_objects",
+               () -> referencedParentObjectsQuery(ptjSpec, queryOpts, specLoc)
+            );
+            return sharedReferencedParentSqlParts(parentSpec, parentPkCond, cteName, avoidAliases);
+         }
+      }
+
+      switch ( referencedParentStrategy(parentSpec, queryOpts) )
+      {
+         case SELECT_SUBQUERY:
+         {
+            // Shared subqueries are not joined within the correlated subquery, which would evaluate them per row.
+            QueryOptions subqueryOpts = queryOpts.withSharedSubqueries(null);
+            var selectEntries = singletonList(new SelectEntry(
+               lineCommentReferencedParent(parentSpec) + "\n" +
+                  "(\n" +
+                     indent(
+                        jsonObjectRowsSql(parentSpec.getTableJson(), parentPkCond, null, null, subqueryOpts, specLoc)
+                     ) + "\n" +
+                  ")",
+               dbmd.quoteIfNeeded(refName),
+               SelectEntry.Source.PARENT_REFERENCE,
+               null
+            ));
+
+            return new SqlParts(selectEntries, emptyList(), emptyList(), null, emptySet());
+         }
+         case LEFT_JOIN:
+            return joinedReferencedParentSqlParts(parentSpec, parentPkCond, avoidAliases, queryOpts, specLoc);
+         default:
+            throw new SpecError(specLoc, "Referenced parent strategy is not valid.");
+      }
+   }
+
+   /// Left join the referenced parent's query, which exports the parent's primary key fields as hidden fields for
+   /// the join, and build the parent object in the select clause from the joined columns. The object is null when
+   /// the child row has no parent row satisfying the parent query, as it would be for the scalar subquery form.
+   private SqlParts joinedReferencedParentSqlParts
+      (
+         ParentSpec parentSpec,
+         ParentPkCondition parentPkCond,
+         Set<String> avoidAliases,
+         QueryOptions queryOpts,
+         SpecLocation specLoc
+      )
+   {
+      SqlParts q = new SqlParts();
+
+      TableJsonSpec ptjSpec = parentSpec.getTableJson();
+      BaseQuery parentQuery = baseQuery(ptjSpec, null, null, true, emptyList(), null, null, queryOpts, specLoc);
+
+      String parentQueryAlias = StringFuns.makeNameNotInSet("rp", avoidAliases);
+      q.aliasesInScope.add(parentQueryAlias);
+
+      String joinedPkField =
+         parentQueryAlias + "." + dbmd.quoteIfNeeded(HIDDEN_PK_PREFIX + parentPkCond.getPrimaryKeyFieldNames().get(0));
+
+      q.selectEntries.add(new SelectEntry(
+         "case when " + joinedPkField + " is null then null else\n" +
+            indent(queryOpts.sqlDialect.getRowObjectExpression(
+               parentQuery.resultColumnNames, parentQueryAlias, parentQuery.rowObjectMaxJsonLength
+            )) + "\n" +
+         "end",
+         dbmd.quoteIfNeeded(requireNonNull(parentSpec.getReferenceName())),
+         SelectEntry.Source.PARENT_REFERENCE,
+         lineCommentReferencedParent(parentSpec)
+      ));
+
+      q.fromEntries.add(
+         lineCommentJoinToReferencedParent(parentSpec) + "\n" +
+         "left join (\n" +
+            indent(parentQuery.sql) + "\n" +
+         ") " + parentQueryAlias + " on " +
+         parentPkCond.asEquationConditionOn(parentQueryAlias, dbmd, HIDDEN_PK_PREFIX)
+      );
+
+      return q;
+   }
+
+   /// Make a query of the json objects for all rows of a referenced parent (column "json"), together with the
+   /// parent's primary key fields as hidden fields for joining, for sharing among the parent's references.
+   private String referencedParentObjectsQuery
+      (
+         TableJsonSpec ptjSpec,
+         QueryOptions queryOpts,
+         SpecLocation specLoc
+      )
+   {
+      RelId parentRelId = identifyTable(ptjSpec.getTable(), specLoc);
+      BaseQuery parentQuery = baseQuery(ptjSpec, null, null, true, emptyList(), null, null, queryOpts, specLoc);
+
+      String hiddenPkFields =
+         dbmd.getPrimaryKeyFieldNames(parentRelId).stream()
+         .map(pkField -> "q." + dbmd.quoteIfNeeded(HIDDEN_PK_PREFIX + pkField))
+         .collect(joining(",\n"));
+
+      return
+         "select\n" +
+            indent(hiddenPkFields) + ",\n" +
+            indent(lineCommentTableRowObject(ptjSpec)) + "\n" +
+            indent(queryOpts.sqlDialect.getRowObjectExpression(
+               parentQuery.resultColumnNames, "q", parentQuery.rowObjectMaxJsonLength
+            )) + " json\n" +
+         "from (\n" +
+            indent(lineCommentBaseTableQuery(ptjSpec)) + "\n" +
+            indent(parentQuery.sql) + "\n" +
+         ") q";
+   }
+
+   /// Left join the shared query of the referenced parent's objects, for the object of the child row's parent.
+   private SqlParts sharedReferencedParentSqlParts
+      (
+         ParentSpec parentSpec,
+         ParentPkCondition parentPkCond,
+         String cteName,
+         Set<String> avoidAliases
+      )
+   {
+      SqlParts q = new SqlParts();
+
+      String parentQueryAlias = StringFuns.makeNameNotInSet("rp", avoidAliases);
+      q.aliasesInScope.add(parentQueryAlias);
+
+      q.selectEntries.add(new SelectEntry(
+         parentQueryAlias + ".json",
+         dbmd.quoteIfNeeded(requireNonNull(parentSpec.getReferenceName())),
+         SelectEntry.Source.PARENT_REFERENCE,
+         lineCommentReferencedParent(parentSpec)
+      ));
+
+      q.fromEntries.add(
+         lineCommentJoinToReferencedParent(parentSpec) + "\n" +
+         "left join " + cteName + " " + parentQueryAlias + " on " +
+         parentPkCond.asEquationConditionOn(parentQueryAlias, dbmd, HIDDEN_PK_PREFIX)
+      );
+
+      return q;
+   }
+
+   private static ReferencedParentStrategy referencedParentStrategy
+      (
+         ParentSpec parentSpec,
+         QueryOptions queryOpts
+      )
+   {
+      return valueOr(parentSpec.getStrategy(), queryOpts.referencedParentStrategy);
+   }
+
+   private SqlParts childCollectionsSqlParts
+      (
          TableJsonSpec tableSpec,
          RelId relId,
          String alias,
-         Function<String,String> propNameFn,
+         Set<String> aliasesInScope,
+         QueryOptions queryOpts,
          SpecLocation specLoc
       )
    {
-      @Nullable List<ChildCollectionSpec> childSpecs = tableSpec.getChildTableCollections();
+      var sqlParts = new SqlParts(emptyList(), emptyList(), emptyList(), null, aliasesInScope);
 
-      if ( childSpecs == null )
-         return emptyList();
-      return
-         childSpecs.stream()
-         .map(childSpec -> {
-            SpecLocation loc =  specLoc.addPart("child collection '" + childSpec.getCollectionName() + "'");
-            return new SelectEntry(
-               lineCommentChildCollectionSelectExpression(childSpec) + "\n" +
-                  "(" + "\n" +
-                     indent(
-                        childCollectionQuery(childSpec, relId, alias, propNameFn, loc)
-                     ) + "\n" +
-                  ")",
-               dbmd.quoteIfNeeded(childSpec.getCollectionName()),
-               SelectEntry.Source.CHILD_COLLECTION
-            );
-         })
-         .collect(toList());
+      for ( ChildCollectionSpec childSpec : tableSpec.getChildTableCollectionsList() )
+      {
+         SpecLocation loc =  specLoc.addPart("child collection '" + childSpec.getCollectionName() + "'");
+         String collectionName = dbmd.quoteIfNeeded(childSpec.getCollectionName());
+
+         @Nullable SharedViews sharedViews = queryOpts.sharedViews;
+         if ( sharedViews != null && !hasParams(childSpec) )
+         {
+            RelId childRelId = identifyTable(childSpec.getTableJson().getTable(), loc);
+            var pcCond = getChildFkCondition(childSpec, childRelId, relId, alias, loc);
+            String unsharedSubquery = groupedChildCollectionQuery(childSpec, pcCond, queryOpts.withoutSharing(), loc);
+            if ( sharedViews.isShared(unsharedSubquery, loc.getQueryName()) )
+            {
+               String viewName = sharedViews.getViewName(
+                  unsharedSubquery,
+                  childRelId.getName().toLowerCase() + "_collections",
+                  () -> groupedChildCollectionQuery(childSpec, pcCond, queryOpts.withSharedSubqueries(null), loc)
+               );
+               boolean joined = childCollectionStrategy(childSpec, queryOpts) == ChildCollectionStrategy.GROUPED_AGGREGATION;
+               addSharedChildCollection(sqlParts, childSpec, pcCond, viewName, joined, queryOpts, loc);
+               continue;
+            }
+         }
+
+         @Nullable SharedSubqueries sharedSubqueries = queryOpts.sharedSubqueries;
+         if ( sharedSubqueries != null )
+         {
+            RelId childRelId = identifyTable(childSpec.getTableJson().getTable(), loc);
+            var pcCond = getChildFkCondition(childSpec, childRelId, relId, alias, loc);
+            String unsharedSubquery = groupedChildCollectionQuery(childSpec, pcCond, queryOpts.withSharedSubqueries(null), loc);
+            if ( sharedSubqueries.isShared(unsharedSubquery) )
+            {
+               String cteName = sharedSubqueries.getCteName(
+                  unsharedSubquery,
+                  childRelId.getName().toLowerCase() + "_collections",
+                  () -> groupedChildCollectionQuery(childSpec, pcCond, queryOpts, loc)
+               );
+               addSharedChildCollection(sqlParts, childSpec, pcCond, cteName, true, queryOpts, loc);
+               continue;
+            }
+         }
+
+         // Shared subqueries are not joined within correlated child queries, which would evaluate them per row.
+         QueryOptions correlatedQueryOpts = queryOpts.withSharedSubqueries(null);
+
+         switch ( childCollectionStrategy(childSpec, queryOpts) )
+         {
+            case SELECT_SUBQUERY:
+               sqlParts.selectEntries.add(new SelectEntry(
+                  lineCommentChildCollectionSelectExpression(childSpec) + "\n" +
+                     "(" + "\n" +
+                        indent(childCollectionQuery(childSpec, relId, alias, correlatedQueryOpts, loc)) + "\n" +
+                     ")",
+                  collectionName,
+                  SelectEntry.Source.CHILD_COLLECTION
+               ));
+               break;
+            case LATERAL_JOIN:
+            {
+               // The aggregate child query always yields exactly one row, so joining it laterally produces the same
+               // collection value for each parent row as selecting it as a scalar subquery.
+               String childQuery = childCollectionQuery(childSpec, relId, alias, correlatedQueryOpts, loc);
+               String childQueryAlias = StringFuns.makeNameNotInSet("cc", sqlParts.aliasesInScope);
+               sqlParts.aliasesInScope.add(childQueryAlias);
+               sqlParts.fromEntries.add(
+                  lineCommentChildCollectionSelectExpression(childSpec) + "\n" +
+                  queryOpts.sqlDialect.getLateralJoinFromEntry(childQuery, childQueryAlias)
+               );
+               sqlParts.selectEntries.add(new SelectEntry(
+                  childQueryAlias + ".json",
+                  collectionName,
+                  SelectEntry.Source.CHILD_COLLECTION
+               ));
+               break;
+            }
+            case GROUPED_AGGREGATION:
+            {
+               // Parents without child rows have no matching row in the grouped child query, so their collection
+               // value is defaulted to what aggregating no child rows would have produced.
+               String childQueryAlias = StringFuns.makeNameNotInSet("cc", sqlParts.aliasesInScope);
+               sqlParts.aliasesInScope.add(childQueryAlias);
+               sqlParts.fromEntries.add(
+                  lineCommentChildCollectionSelectExpression(childSpec) + "\n" +
+                  groupedChildCollectionJoin(childSpec, relId, alias, childQueryAlias, queryOpts, loc)
+               );
+               sqlParts.selectEntries.add(new SelectEntry(
+                  queryOpts.sqlDialect.getPreAggregatedCollectionExpression(
+                     childQueryAlias + ".json",
+                     unwrapChildValues(childSpec, loc)
+                  ),
+                  collectionName,
+                  SelectEntry.Source.CHILD_COLLECTION
+               ));
+               break;
+            }
+            default:
+               throw new SpecError(loc, "Child collection strategy is not valid.");
+         }
+      }
+
+      return sqlParts;
+   }
+
+   /// Add the collection values of a child collection from the shared query of the given name, which has the
+   /// child's collection values (column "json") grouped by the child's foreign key fields. The shared query is either
+   /// left joined or else selected from in a scalar subquery for the collection value.
+   private void addSharedChildCollection
+      (
+         SqlParts sqlParts,
+         ChildCollectionSpec childSpec,
+         ChildFkCondition pcCond,
+         String sharedQueryName,
+         boolean joined,
+         QueryOptions queryOpts,
+         SpecLocation specLoc
+      )
+   {
+      String childQueryAlias = StringFuns.makeNameNotInSet("cc", sqlParts.aliasesInScope);
+
+      String collectionValuesExpr;
+      if ( joined )
+      {
+         sqlParts.aliasesInScope.add(childQueryAlias);
+         sqlParts.fromEntries.add(
+            lineCommentChildCollectionSelectExpression(childSpec) + "\n" +
+            "left join " + sharedQueryName + " " + childQueryAlias + " on " +
+            pcCond.asEquationConditionOn(childQueryAlias, dbmd, HIDDEN_FK_PREFIX)
+         );
+         collectionValuesExpr = childQueryAlias + ".json";
+      }
+      else
+         collectionValuesExpr =
+            "(select " + childQueryAlias + ".json from " + sharedQueryName + " " + childQueryAlias + " where " +
+            pcCond.asEquationConditionOn(childQueryAlias, dbmd, HIDDEN_FK_PREFIX) + ")";
+
+      sqlParts.selectEntries.add(new SelectEntry(
+         queryOpts.sqlDialect.getPreAggregatedCollectionExpression(
+            collectionValuesExpr,
+            unwrapChildValues(childSpec, specLoc)
+         ),
+         dbmd.quoteIfNeeded(childSpec.getCollectionName()),
+         SelectEntry.Source.CHILD_COLLECTION
+      ));
+   }
+
+   private static ChildCollectionStrategy childCollectionStrategy
+      (
+         ChildCollectionSpec childSpec,
+         QueryOptions queryOpts
+      )
+   {
+      return valueOr(childSpec.getStrategy(), queryOpts.childCollectionStrategy);
    }
 
    private String childCollectionQuery
@@ -447,7 +1481,7 @@ public class QuerySqlGenerator
          ChildCollectionSpec childSpec,
          RelId parentRelId,
          String parentAlias,
-         Function<String,String> propNameFn,
+         QueryOptions queryOpts,
          SpecLocation specLoc
       )
    {
@@ -457,11 +1491,170 @@ public class QuerySqlGenerator
 
       var pcCond = getChildFkCondition(childSpec, childRelId, parentRelId, parentAlias, specLoc);
 
+      boolean unwrapChildValues = unwrapChildValues(childSpec, specLoc);
+
+      @Nullable Integer limit = childRowLimit(childSpec, specLoc);
+      @Nullable String rowLimitClause =
+         limit == null ? null
+         : queryOpts.sqlDialect.getRowLimitClause(
+            String.valueOf(limit),
+            applyIfPresent(childSpec.getOffset(), String::valueOf)
+         );
+
+      return jsonArrayRowSql(
+         tableSpec,
+         pcCond,
+         childSpec.getFilter(),
+         unwrapChildValues,
+         childSpec.getOrderBy(),
+         rowLimitClause,
+         null,
+         queryOpts,
+         specLoc
+      );
+   }
+
+   /// Validate and return the maximum number of child rows to be included in the collection for each parent row, if
+   /// limited. The limited rows are the first in the collection's order, after skipping any offset number of rows.
+   private static @Nullable Integer childRowLimit
+      (
+         ChildCollectionSpec childSpec,
+         SpecLocation specLoc
+      )
+   {
+      @Nullable Integer limit = childSpec.getLimit();
+      @Nullable Integer offset = childSpec.getOffset();
+
+      if ( limit == null )
+      {
+         if ( offset != null )
+            throw new SpecError(specLoc, "Child collection offset requires a limit.");
+         return null;
+      }
+      if ( limit < 0 || (offset != null && offset < 0) )
+         throw new SpecError(specLoc, "Child collection limit and offset cannot be negative.");
+      if ( childSpec.getOrderBy() == null )
+         throw new SpecError(specLoc, "Child collection limit requires an orderBy to determine which rows are included.");
+
+      return limit;
+   }
+
+   /// Make a from clause entry left joining the parent to the child collection values of all parent rows, as a
+   /// query of the child table's collection values (column "json") grouped by the child's foreign key fields.
+   /// The child query does not refer to the parent, so it is evaluated once for all parent rows.
+   private String groupedChildCollectionJoin
+      (
+         ChildCollectionSpec childSpec,
+         RelId parentRelId,
+         String parentAlias,
+         String childQueryAlias,
+         QueryOptions queryOpts,
+         SpecLocation specLoc
+      )
+   {
+      RelId childRelId = identifyTable(childSpec.getTableJson().getTable(), specLoc);
+
+      var pcCond = getChildFkCondition(childSpec, childRelId, parentRelId, parentAlias, specLoc);
+
+      return
+         "left join (\n" +
+            indent(groupedChildCollectionQuery(childSpec, pcCond, queryOpts, specLoc)) + "\n" +
+         ") " + childQueryAlias + " on " + pcCond.asEquationConditionOn(childQueryAlias, dbmd, HIDDEN_FK_PREFIX);
+   }
+
+   /// Make a query of the child collection values (column "json") of all parent rows, grouped by the child's
+   /// foreign key fields, which are exported as hidden fields for joining to the parent.
+   private String groupedChildCollectionQuery
+      (
+         ChildCollectionSpec childSpec,
+         ChildFkCondition pcCond,
+         QueryOptions queryOpts,
+         SpecLocation specLoc
+      )
+   {
+      TableJsonSpec tableSpec = childSpec.getTableJson();
+
+      boolean unwrapChildValues = unwrapChildValues(childSpec, specLoc);
+
+      List<String> fkFields = pcCond.getForeignKeyFieldNames();
+
+      BaseQuery baseQuery =
+         baseQuery(tableSpec, null, childSpec.getFilter(), false, fkFields, null, null, queryOpts, specLoc);
+
+      List<String> groupByFieldsList =
+         fkFields.stream()
+         .map(fkField -> "q." + dbmd.quoteIfNeeded(HIDDEN_FK_PREFIX + fkField))
+         .collect(toList());
+      String groupByFields = String.join(", ", groupByFieldsList);
+
+      String fromQuery = indent(lineCommentBaseTableQuery(tableSpec)) + "\n" + indent(baseQuery.sql);
+      String rowsCondition = "";
+
+      @Nullable Integer limit = childRowLimit(childSpec, specLoc);
+      if ( limit != null )
+      {
+         // Number the child rows within each parent's rows, to select the rows in the limit and offset window.
+         int offset = valueOr(childSpec.getOffset(), 0);
+         String orderBy = requireNonNull(childSpec.getOrderBy()).replace("$$", "q");
+         String rowNumber = queryOpts.sqlDialect.getRowNumberExpression(groupByFieldsList, orderBy);
+         fromQuery = indent(
+            "select\n" +
+               indent("q.*,\n" + rowNumber + " " + ROW_NUMBER_COLUMN) + "\n" +
+            "from (\n" +
+               fromQuery + "\n" +
+            ") q"
+         );
+         long windowEnd = (long) offset + limit; // may exceed the int range
+         rowsCondition =
+            "where q." + ROW_NUMBER_COLUMN + " > " + offset + " and q." + ROW_NUMBER_COLUMN + " <= " + windowEnd + "\n";
+      }
+
+      return
+         "select\n" +
+            indent(groupByFields) + ",\n" +
+            indent(lineCommentAggregatedRowObjects(tableSpec)) + "\n" +
+            indent(
+               aggregatedRowsExpression(baseQuery, unwrapChildValues, childSpec.getOrderBy(), queryOpts, specLoc)
+            ) + " json\n" +
+         "from (\n" +
+            fromQuery + "\n" +
+         ") q\n" +
+         rowsCondition +
+         "group by " + groupByFields;
+   }
+
+   /// Determine whether the query of a table or of any of its parent or child tables has parameters.
+   private static boolean hasParams(TableJsonSpec tableSpec)
+   {
+      if ( hasParams(tableSpec.getRecordCondition()) )
+         return true;
+
+      return
+         tableSpec.getChildTableCollectionsList().stream().anyMatch(QuerySqlGenerator::hasParams) ||
+         tableSpec.getParentTablesList().stream().anyMatch(parentSpec -> hasParams(parentSpec.getParentTableJsonSpec()));
+   }
+
+   /// Determine whether the query of a child collection, including its filter, has parameters.
+   private static boolean hasParams(ChildCollectionSpec childSpec)
+   {
+      return hasParams(childSpec.getFilter()) || hasParams(childSpec.getTableJson());
+   }
+
+   private static boolean hasParams(@Nullable RecordCondition cond)
+   {
+      return cond != null && !valueOr(cond.getParamNames(), Collections.<String>emptyList()).isEmpty();
+   }
+
+   private static boolean unwrapChildValues
+      (
+         ChildCollectionSpec childSpec,
+         SpecLocation specLoc
+      )
+   {
       boolean unwrapChildValues = valueOr(childSpec.getUnwrap(), false);
       if ( unwrapChildValues && childSpec.getTableJson().getJsonPropertiesCount() > 1 )
          throw new SpecError(specLoc, "Unwrapped child collection option is incompatible with multiple field expressions.");
-
-      return jsonArrayRowSql(tableSpec, pcCond, unwrapChildValues, childSpec.getOrderBy(), propNameFn, specLoc);
+      return unwrapChildValues;
    }
 
    private ChildFkCondition getChildFkCondition
@@ -513,36 +1706,106 @@ public class QuerySqlGenerator
     * @param tableSpec  The output specification for this table, the subject of the query.
     * @param parentChildCond A filter condition on this table (always) from a parent or child table whose alias
     *                        (accessible from the condition) can be assumed to be in context.
+    * @param childFilter A condition on this table's rows from a child collection specification, if any.
+    * @param rowLimitClause A clause limiting the rows to be aggregated, which requires an orderBy.
     * @return the generated SQL query
     */
    private String jsonArrayRowSql
       (
          TableJsonSpec tableSpec,
          @Nullable ParentChildCondition parentChildCond,
+         @Nullable RecordCondition childFilter,
          boolean unwrap,
          @Nullable String orderBy,
-         Function<String, String> propNameFn,
+         @Nullable String rowLimitClause,
+         @Nullable KeyedRows keyedRows,
+         QueryOptions queryOpts,
          SpecLocation specLoc
       )
    {
-      BaseQuery baseQuery = baseQuery(tableSpec, parentChildCond, false, null, propNameFn, specLoc);
-
-      if ( unwrap && baseQuery.resultColumnNames.size() != 1 )
-         throw new SpecError(specLoc, "Unwrapped child collections cannot have multiple field expressions.");
+      BaseQuery baseQuery =
+         baseQuery(tableSpec, parentChildCond, childFilter, false, emptyList(), null, keyedRows, queryOpts, specLoc);
+
+      String fromQuery = indent(lineCommentBaseTableQuery(tableSpec)) + "\n" + indent(baseQuery.sql);
+
+      if ( rowLimitClause != null )
+         fromQuery = indent(
+            "select q.*\n" +
+            "from (\n" +
+               fromQuery + "\n" +
+            ") q\n" +
+            "order by " + requireNonNull(orderBy).replace("$$", "q") + "\n" +
+            rowLimitClause
+         );
 
       return
          "select\n" +
             indent(lineCommentAggregatedRowObjects(tableSpec)) + "\n" +
             indent(
-               (unwrap ? sqlDialect.getAggregatedColumnValuesExpression(baseQuery.resultColumnNames.get(0), orderBy, "q")
-                       : sqlDialect.getAggregatedRowObjectsExpression(baseQuery.resultColumnNames, orderBy, "q"))
+               aggregatedRowsExpression(baseQuery, unwrap, orderBy, queryOpts, specLoc)
             ) + " json\n" +
          "from (\n" +
-            indent(lineCommentBaseTableQuery(tableSpec)) + "\n" +
-            indent(baseQuery.sql) + "\n" +
+            fromQuery + "\n" +
          ") q";
    }
 
+   /// Make a query returning the json objects for the rows of the given table as json arrays of up to the given chunk
+   /// size, with one json array per result row. Objects are ordered within and across the chunks by the given order.
+   private String jsonArrayChunksSql
+      (
+         TableJsonSpec tableSpec,
+         @Nullable String orderBy,
+         @Nullable KeyedRows keyedRows,
+         int chunkSize,
+         QueryOptions queryOpts,
+         SpecLocation specLoc
+      )
+   {
+      BaseQuery baseQuery = baseQuery(tableSpec, null, null, false, emptyList(), null, keyedRows, queryOpts, specLoc);
+
+      String rowNumber = queryOpts.sqlDialect.getRowNumberExpression(emptyList(), applyIfPresent(orderBy, ob -> ob.replace("$$", "q")));
+      String chunkNumber = queryOpts.sqlDialect.getRowChunkNumberExpression("q." + ROW_NUMBER_COLUMN, chunkSize);
+
+      return
+         "select\n" +
+            indent(lineCommentAggregatedRowObjects(tableSpec)) + "\n" +
+            indent(
+               aggregatedRowsExpression(baseQuery, false, "$$." + ROW_NUMBER_COLUMN, queryOpts, specLoc)
+            ) + " json\n" +
+         "from (\n" +
+            indent(
+               "select\n" +
+                  indent("q.*,\n" + rowNumber + " " + ROW_NUMBER_COLUMN) + "\n" +
+               "from (\n" +
+                  indent(lineCommentBaseTableQuery(tableSpec)) + "\n" +
+                  indent(baseQuery.sql) + "\n" +
+               ") q"
+            ) + "\n" +
+         ") q\n" +
+         "group by " + chunkNumber + "\n" +
+         "order by " + chunkNumber;
+   }
+
+   /// Make the aggregate expression building a json array from the rows of the given base query, aliased as "q".
+   private String aggregatedRowsExpression
+      (
+         BaseQuery baseQuery,
+         boolean unwrap,
+         @Nullable String orderBy,
+         QueryOptions queryOpts,
+         SpecLocation specLoc
+      )
+   {
+      if ( unwrap && baseQuery.resultColumnNames.size() != 1 )
+         throw new SpecError(specLoc, "Unwrapped child collections cannot have multiple field expressions.");
+
+      return
+         unwrap ? queryOpts.sqlDialect.getAggregatedColumnValuesExpression(baseQuery.resultColumnNames.get(0), orderBy, "q")
+                : queryOpts.sqlDialect.getAggregatedRowObjectsExpression(
+                   baseQuery.resultColumnNames, orderBy, "q", baseQuery.rowObjectMaxJsonLength
+                );
+   }
+
    /** Make a query having JSON object result values at the top level of the
     *  result set. The query returns a JSON value in a single column and with
     *  any number of result rows.
@@ -556,18 +1819,28 @@ public class QuerySqlGenerator
          TableJsonSpec tjSpec,
          @Nullable ParentChildCondition parentChildCond,
          @Nullable String orderBy,
-         Function<String, String> propNameFn,
+         @Nullable KeyedRows keyedRows,
+         QueryOptions queryOpts,
          SpecLocation specLoc
       )
    {
-      BaseQuery baseQuery = baseQuery(tjSpec, parentChildCond, false, null, propNameFn, specLoc);
+      BaseQuery baseQuery = baseQuery(tjSpec, parentChildCond, null, false, emptyList(), null, keyedRows, queryOpts, specLoc);
+
+      // Rows selected by keys include their keys, for associating the rows with the keys.
+      String keyColumns =
+         keyedRows != null &&
+         (keyedRows.variant == KeyedVariant.BY_KEYS || keyedRows.variant == KeyedVariant.MATERIALIZED_VIEW) ?
+            keyedRows.getHiddenKeyFieldNames(dbmd).stream().map(kf -> ",\n" + indent("q." + kf)).collect(joining())
+            : "";
 
       return
          "select\n" +
             indent(lineCommentTableRowObject(tjSpec)) + "\n" +
             indent(
-               sqlDialect.getRowObjectExpression(baseQuery.resultColumnNames, "q")
-            ) + " json\n" +
+               queryOpts.sqlDialect.getRowObjectExpression(
+                  baseQuery.resultColumnNames, "q", baseQuery.rowObjectMaxJsonLength
+               )
+            ) + " json" + keyColumns + "\n" +
          "from (\n" +
             indent(lineCommentBaseTableQuery(tjSpec)) + "\n" +
             indent(baseQuery.sql) + "\n" +
@@ -575,20 +1848,85 @@ public class QuerySqlGenerator
          (orderBy != null ? "\norder by " + orderBy.replace("$$", "q") : "");
    }
 
+   /// Get the key fields of the top table for keyset pagination, as the key fields specified (else the primary key
+   /// fields), followed by any primary key fields not already included so that keys are unique.
+   private List<String> pageKeyFields
+      (
+         QuerySpec querySpec,
+         KeysetPagination pagination,
+         SpecLocation specLoc
+      )
+   {
+      RelId relId = identifyTable(querySpec.getTableJson().getTable(), specLoc);
+      @Nullable RelMetadata relMd = dbmd.getRelationMetadata(relId);
+      if ( relMd == null )
+         throw new SpecError(specLoc, "Table " + relId + " not found.");
+
+      List<String> keyFields = new ArrayList<>();
+      for ( String keyField : valueOr(pagination.getKeyFields(), Collections.<String>emptyList()) )
+      {
+         @Nullable Field field =
+            relMd.getFields().stream()
+            .filter(f -> f.getName().equals(dbmd.normalizeName(keyField)))
+            .findAny().orElse(null);
+         if ( field == null )
+            throw new SpecError(specLoc, "Key field '" + keyField + "' not found in table " + relId + ".");
+         if ( valueOr(field.getNullable(), true) )
+            throw new SpecError(specLoc, "Key field '" + keyField + "' must be non-nullable.");
+         keyFields.add(field.getName());
+      }
+
+      for ( String pkFieldName : relMd.getPrimaryKeyFieldNames() )
+      {
+         if ( !keyFields.contains(pkFieldName) )
+            keyFields.add(pkFieldName);
+      }
+
+      if ( keyFields.isEmpty() )
+         throw new SpecError(specLoc, "Key fields must be specified for a table without a primary key.");
+
+      return keyFields;
+   }
+
+   /// Get the key fields of the top table for the by-keys variant, being its primary key fields.
+   private List<String> byKeysKeyFields
+      (
+         QuerySpec querySpec,
+         SpecLocation specLoc
+      )
+   {
+      RelId relId = identifyTable(querySpec.getTableJson().getTable(), specLoc);
+      List<String> pkFields = dbmd.getPrimaryKeyFieldNames(relId);
+      if ( pkFields.isEmpty() )
+         throw new SpecError(specLoc, "By keys variant requires a primary key for table " + relId + ".");
+      return pkFields;
+   }
+
+   private static List<String> pageKeyAfterParamNames(List<String> keyFields)
+   {
+      return
+         keyFields.stream()
+         .map(kf -> PAGE_AFTER_PARAM_PREFIX + StringFuns.upperCamelCase(kf))
+         .collect(toList());
+   }
+
    private @Nullable String recordConditionSql
       (
          TableJsonSpec tableSpec,
          String tableAlias
       )
    {
-      @Nullable RecordCondition cond = tableSpec.getRecordCondition();
-      if ( cond != null )
-      {
-         String tableAliasVar = valueOr(cond.getWithTableAliasAs(), DEFAULT_TABLE_ALIAS_VAR);
-         return "(" + cond.getSql().replace(tableAliasVar, tableAlias) + ")";
-      }
-      else
-         return null;
+      return applyIfPresent(tableSpec.getRecordCondition(), cond -> conditionSql(cond, tableAlias));
+   }
+
+   private static String conditionSql
+      (
+         RecordCondition cond,
+         String tableAlias
+      )
+   {
+      String tableAliasVar = valueOr(cond.getWithTableAliasAs(), DEFAULT_TABLE_ALIAS_VAR);
+      return "(" + cond.getSql().replace(tableAliasVar, tableAlias) + ")";
    }
 
    private ForeignKey getForeignKey
@@ -680,6 +2018,13 @@ public class QuerySqlGenerator
       return "-- field(s) inlined from parent table '" + parentSpec.getTableJson().getTable() + "'";
    }
 
+   private static String lineCommentJoinToReferencedParent(ParentSpec parentSpec)
+   {
+      return
+         "-- parent table '" + parentSpec.getTableJson().getTable() + "'" +
+         ", joined for reference '" + parentSpec.getReferenceName() + "'";
+   }
+
    private static String lineCommentReferencedParent(ParentSpec parentSpec)
    {
       return
@@ -697,15 +2042,325 @@ public class QuerySqlGenerator
    // utility types
    ///////////////////////////////////////////////////
 
+   /// Options applying throughout the SQL generated for a query, as customized by the query specification.
+   private static class QueryOptions
+   {
+      final SqlDialect sqlDialect; // as configured for the query's json type
+      final Function<String,String> propNameFn; // output property naming function
+      final ChildCollectionStrategy childCollectionStrategy; // for child collections not specifying a strategy
+      final ReferencedParentStrategy referencedParentStrategy; // for referenced parents not specifying a strategy
+      final @Nullable SharedSubqueries sharedSubqueries; // if present, repeated subqueries are shared via CTEs
+      final @Nullable SharedViews sharedViews; // if present, subqueries repeated across queries are shared via views
+
+      QueryOptions
+         (
+            SqlDialect sqlDialect,
+            Function<String,String> propNameFn,
+            ChildCollectionStrategy childCollectionStrategy,
+            ReferencedParentStrategy referencedParentStrategy,
+            @Nullable SharedSubqueries sharedSubqueries,
+            @Nullable SharedViews sharedViews
+         )
+      {
+         this.sqlDialect = sqlDialect;
+         this.propNameFn = propNameFn;
+         this.childCollectionStrategy = childCollectionStrategy;
+         this.referencedParentStrategy = referencedParentStrategy;
+         this.sharedSubqueries = sharedSubqueries;
+         this.sharedViews = sharedViews;
+      }
+
+      QueryOptions withSharedSubqueries(@Nullable SharedSubqueries sharedSubqueries)
+      {
+         return new QueryOptions(
+            sqlDialect, propNameFn, childCollectionStrategy, referencedParentStrategy, sharedSubqueries, sharedViews
+         );
+      }
+
+      QueryOptions withoutSharing()
+      {
+         return new QueryOptions(
+            sqlDialect, propNameFn, childCollectionStrategy, referencedParentStrategy, null, null
+         );
+      }
+   }
+
+   /// Subqueries for referenced parents and child collections which are shared as common table expressions where
+   /// they occur more than once within a query. The subqueries are uncorrelated, joined to the referencing table
+   /// rows on the parent's primary key or the child collection's foreign key, and are identified by their SQL as
+   /// generated without sharing. The query is generated once in counting mode to find the subqueries that repeat,
+   /// then again to share them. Only occurrences outside of correlated subqueries are shared, since a common table
+   /// expression joined within a correlated subquery would be scanned again for each row of the outer query.
+   private static class SharedSubqueries
+   {
+      private final Map<String,Integer> occurrenceCounts; // by subquery SQL as generated without sharing
+      private final boolean counting;
+      private final Map<String,String> cteNamesBySubquery;
+      private final List<String> cteDefinitions;
+      private final Set<String> avoidNames;
+      private final int indentSpaces;
+
+      SharedSubqueries
+         (
+            Set<String> avoidNames,
+            int indentSpaces
+         )
+      {
+         this(new HashMap<>(), true, avoidNames, indentSpaces);
+      }
+
+      private SharedSubqueries
+         (
+            Map<String,Integer> occurrenceCounts,
+            boolean counting,
+            Set<String> avoidNames,
+            int indentSpaces
+         )
+      {
+         this.occurrenceCounts = occurrenceCounts;
+         this.counting = counting;
+         this.indentSpaces = indentSpaces;
+         this.cteNamesBySubquery = new HashMap<>();
+         this.cteDefinitions = new ArrayList<>();
+         this.avoidNames = new HashSet<>(avoidNames);
+      }
+
+      /// Make the sharing stage which follows this counting stage.
+      SharedSubqueries sharingStage()
+      {
+         return new SharedSubqueries(occurrenceCounts, false, avoidNames, indentSpaces);
+      }
+
+      /// Record an occurrence of the given subquery when counting, returning whether the subquery should be shared.
+      boolean isShared(String unsharedSubquery)
+      {
+         if ( counting )
+         {
+            occurrenceCounts.merge(unsharedSubquery, 1, Integer::sum);
+            return false;
+         }
+         return valueOr(occurrenceCounts.get(unsharedSubquery), 0) > 1;
+      }
+
+      /// Get the name of the common table expression for a shared subquery, defining it via the given function on
+      /// first use. Any shared subqueries used within the definition are defined before it.
+      String getCteName
+         (
+            String unsharedSubquery,
+            String baseName,
+            Supplier<String> makeDefinition
+         )
+      {
+         @Nullable String existingName = cteNamesBySubquery.get(unsharedSubquery);
+         if ( existingName != null )
+            return existingName;
+
+         String definition = makeDefinition.get();
+         String name = StringFuns.makeNameNotInSet(baseName, avoidNames);
+         avoidNames.add(name);
+         cteNamesBySubquery.put(unsharedSubquery, name);
+         cteDefinitions.add(name + " as (\n" + indentLines(definition, indentSpaces) + "\n)");
+         return name;
+      }
+
+      String getWithClause()
+      {
+         return cteDefinitions.isEmpty() ? "" : "with\n" + String.join(",\n", cteDefinitions) + "\n";
+      }
+   }
+
+   /// Subqueries for referenced parents and child collections which are shared as database views where they occur in
+   /// more than one query of a group. As with shared common table expressions, the subqueries are uncorrelated and
+   /// identified by their SQL as generated without sharing. The queries are generated once in counting mode to find
+   /// the subqueries that are repeated across queries, after which SQL generated for the queries uses the views.
+   /// Unlike common table expressions, views may be used within correlated subqueries, since the database can push
+   /// the correlating condition down into the view's query.
+   private static class SharedViews
+   {
+      private final Map<String,Set<String>> queryNamesBySubquery; // by subquery SQL as generated without sharing
+      private final boolean counting;
+      private final int maxNameLength; // in bytes
+      private final Map<String,String> viewNamesBySubquery;
+      private final List<String> viewDefinitions;
+
+      SharedViews(int maxNameLength)
+      {
+         this(new HashMap<>(), true, maxNameLength);
+      }
+
+      private SharedViews
+         (
+            Map<String,Set<String>> queryNamesBySubquery,
+            boolean counting,
+            int maxNameLength
+         )
+      {
+         this.queryNamesBySubquery = queryNamesBySubquery;
+         this.counting = counting;
+         this.maxNameLength = maxNameLength;
+         this.viewNamesBySubquery = new HashMap<>();
+         this.viewDefinitions = new ArrayList<>();
+      }
+
+      /// Make the sharing stage which follows this counting stage.
+      SharedViews sharingStage()
+      {
+         return new SharedViews(queryNamesBySubquery, false, maxNameLength);
+      }
+
+      /// Record an occurrence of the given subquery in the named query when counting, returning whether the subquery
+      /// should be shared.
+      boolean isShared
+         (
+            String unsharedSubquery,
+            String queryName
+         )
+      {
+         if ( counting )
+         {
+            queryNamesBySubquery.computeIfAbsent(unsharedSubquery, sq -> new HashSet<>()).add(queryName);
+            return false;
+         }
+         return applyOr(queryNamesBySubquery.get(unsharedSubquery), queryNames -> queryNames.size() > 1, false);
+      }
+
+      /// Get the name of the view for a shared subquery, defining it via the given function on first use. The name
+      /// is suffixed with the leading hex digits of the subquery's SQL fingerprint (see sqlFingerprint()), so it
+      /// depends only on the subquery itself, and does not change when other queries of the group change or vary
+      /// with the order of the query specifications. The base name is shortened as needed for the whole name to fit
+      /// within the database's maximum identifier length, which databases may otherwise silently truncate it to.
+      /// Since the views are created via "create or replace view", generation fails rather than let two different
+      /// subqueries share a name.
+      String getViewName
+         (
+            String unsharedSubquery,
+            String baseName,
+            Supplier<String> makeDefinition
+         )
+      {
+         @Nullable String existingName = viewNamesBySubquery.get(unsharedSubquery);
+         if ( existingName != null )
+            return existingName;
+
+         String suffix = "_" + sqlFingerprint(unsharedSubquery).substring(0, VIEW_NAME_FINGERPRINT_DIGITS);
+         String name = truncateUtf8(baseName, maxNameLength - suffix.length()) + suffix;
+         if ( viewNamesBySubquery.containsValue(name) )
+            throw new RuntimeException(
+               "Shared view name " + name + " was generated for two different subqueries, with the second being:\n" +
+               unsharedSubquery
+            );
+
+         String definition = makeDefinition.get();
+         viewNamesBySubquery.put(unsharedSubquery, name);
+         viewDefinitions.add("create or replace view " + name + " as\n" + definition + ";\n");
+         return name;
+      }
+
+      String getDdl()
+      {
+         return String.join("\n", viewDefinitions);
+      }
+
+      /// Shorten the given name if necessary to at most the given number of bytes in UTF-8, without splitting any
+      /// character.
+      private static String truncateUtf8
+         (
+            String name,
+            int maxBytes
+         )
+      {
+         int bytes = 0;
+         int end = 0;
+         while ( end < name.length() )
+         {
+            int codePoint = name.codePointAt(end);
+            bytes += new String(Character.toChars(codePoint)).getBytes(StandardCharsets.UTF_8).length;
+            if ( bytes > maxBytes )
+               break;
+            end += Character.charCount(codePoint);
+         }
+         return name.substring(0, end);
+      }
+   }
+
+   /// Variants of a query's SQL which select the top table rows by key, or which include the keys of the top table
+   /// rows for a materialized view.
+   private enum KeyedVariant { FIRST_PAGE, NEXT_PAGE, BY_KEYS, MATERIALIZED_VIEW }
+
+   /// Keyset pagination or selection by keys as applied to the base query of the top table.
+   private static class KeyedRows
+   {
+      final List<String> keyFields; // field names of the top table, as in database metadata
+      final KeyedVariant variant;
+      final boolean descending; // key order of pages
+      final boolean exportKeyFieldsHidden; // whether key fields are selected as hidden fields
+
+      KeyedRows
+         (
+            List<String> keyFields,
+            KeyedVariant variant,
+            boolean descending,
+            boolean exportKeyFieldsHidden
+         )
+      {
+         this.keyFields = List.copyOf(keyFields);
+         this.variant = variant;
+         this.descending = descending;
+         this.exportKeyFieldsHidden = exportKeyFieldsHidden;
+      }
+
+      List<String> getKeyExpressions(String alias, DatabaseMetadata dbmd)
+      {
+         return keyFields.stream().map(kf -> alias + "." + dbmd.quoteIfNeeded(kf)).collect(toList());
+      }
+
+      List<SelectEntry> getHiddenKeySelectEntries(String alias, DatabaseMetadata dbmd)
+      {
+         return
+            keyFields.stream()
+            .map(kf -> new SelectEntry(alias + "." + dbmd.quoteIfNeeded(kf), hiddenKeyFieldName(kf, dbmd), HIDDEN_KEY))
+            .collect(toList());
+      }
+
+      /// Order by clause contents for the key fields in the base query (with the given table alias), or for the
+      /// hidden key fields exported from the base query if the alias is that of the base query.
+      String getKeyFieldsOrderBy(String alias, DatabaseMetadata dbmd)
+      {
+         String dir = descending ? " desc" : "";
+         return
+            keyFields.stream()
+            .map(kf -> alias + "." + (exportKeyFieldsHidden && alias.equals(DEFAULT_TABLE_ALIAS_VAR) ?
+                                        hiddenKeyFieldName(kf, dbmd) : dbmd.quoteIfNeeded(kf)) + dir)
+            .collect(joining(", "));
+      }
+
+      List<String> getHiddenKeyFieldNames(DatabaseMetadata dbmd)
+      {
+         return keyFields.stream().map(kf -> hiddenKeyFieldName(kf, dbmd)).collect(toList());
+      }
+
+      private static String hiddenKeyFieldName(String keyField, DatabaseMetadata dbmd)
+      {
+         return dbmd.quoteIfNeeded(HIDDEN_KEY_PREFIX + keyField);
+      }
+   }
+
    private static class BaseQuery
    {
       final String sql;
       final List<String> resultColumnNames;
+      final @Nullable Integer rowObjectMaxJsonLength; // max length of json objects made from rows, if bounded
 
-      BaseQuery(String sql, List<String> resultColumnNames)
+      BaseQuery
+         (
+            String sql,
+            List<String> resultColumnNames,
+            @Nullable Integer rowObjectMaxJsonLength
+         )
       {
          this.sql = sql;
          this.resultColumnNames = List.copyOf(resultColumnNames);
+         this.rowObjectMaxJsonLength = rowObjectMaxJsonLength;
       }
    }
 
@@ -739,6 +2394,11 @@ public class QuerySqlGenerator
 
       public String getOtherTableAlias() { return childAlias; }
 
+      public List<String> getPrimaryKeyFieldNames()
+      {
+         return matchedFields.stream().map(ForeignKey.Component::getPrimaryKeyFieldName).collect(toList());
+      }
+
       public String asEquationConditionOn
          (
             String parentAlias,
@@ -783,15 +2443,30 @@ public class QuerySqlGenerator
 
       public String getOtherTableAlias() { return parentAlias; }
 
+      public List<String> getForeignKeyFieldNames()
+      {
+         return matchedFields.stream().map(ForeignKey.Component::getForeignKeyFieldName).collect(toList());
+      }
+
       public String asEquationConditionOn
          (
             String childAlias,
             DatabaseMetadata dbmd
          )
+      {
+         return asEquationConditionOn(childAlias, dbmd, "");
+      }
+
+      public String asEquationConditionOn
+         (
+            String childAlias,
+            DatabaseMetadata dbmd,
+            String childFkPrefix
+         )
       {
          return
             matchedFields.stream()
-               .map(mf -> childAlias + "." + dbmd.quoteIfNeeded(mf.getForeignKeyFieldName()) + " = " +
+               .map(mf -> childAlias + "." + dbmd.quoteIfNeeded(childFkPrefix + mf.getForeignKeyFieldName()) + " = " +
                   parentAlias + "." + dbmd.quoteIfNeeded(mf.getPrimaryKeyFieldName()))
                .collect(joining(" and "));
       }
@@ -799,7 +2474,7 @@ public class QuerySqlGenerator
 
    static class SelectEntry
    {
-      enum Source { NATIVE_FIELD, INLINE_PARENT, PARENT_REFERENCE, CHILD_COLLECTION, HIDDEN_PK }
+      enum Source { NATIVE_FIELD, INLINE_PARENT, PARENT_REFERENCE, CHILD_COLLECTION, HIDDEN_PK, HIDDEN_FK, HIDDEN_KEY }
 
       private final String valueExpression;
       private final String name;
@@ -836,6 +2511,7 @@ public class QuerySqlGenerator
       private final List<String> fromEntries;
       private final List<String> whereEntries;
       private @Nullable String orderBy;
+      private @Nullable String rowLimitClause;
       private final Set<String> aliasesInScope;
 
       SqlParts()
@@ -844,6 +2520,7 @@ public class QuerySqlGenerator
          this.fromEntries = new ArrayList<>();
          this.whereEntries = new ArrayList<>();
          this.orderBy = null;
+         this.rowLimitClause = null;
          this.aliasesInScope = new HashSet<>();
       }
 
@@ -860,6 +2537,7 @@ public class QuerySqlGenerator
          this.fromEntries = new ArrayList<>(fromEntries);
          this.whereEntries = new ArrayList<>(whereEntries);
          this.orderBy = orderBy;
+         this.rowLimitClause = null;
          this.aliasesInScope = new HashSet<>(aliasesInScope);
       }
 
@@ -898,7 +2576,8 @@ public class QuerySqlGenerator
                "where (\n" +
                   indentLines(whereEntriesStr, indentSpaces) + "\n" +
                ")") +
-            (orderBy != null ? "\norder by " + orderBy: "");
+            (orderBy != null ? "\norder by " + orderBy: "") +
+            (rowLimitClause != null ? "\n" + rowLimitClause : "");
       }
 
       // Make sql string for a select clause entry.
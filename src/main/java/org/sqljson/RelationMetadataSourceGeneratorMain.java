@@ -16,7 +16,8 @@ import org.sqljson.util.AppUtils.SplitArgs;
 import static org.sqljson.util.AppUtils.splitOptionsAndRequiredArgs;
 import static org.sqljson.util.AppUtils.throwError;
 import static org.sqljson.util.Nullables.ifPresent;
-import org.sqljson.dbmd.DatabaseMetadata;
+import org.sqljson.dbmd.DatabaseMetadataFiles;
+import org.sqljson.dbmd.DatabaseMetadataReader;
 import org.sqljson.dbmd.source_writers.JavaWriter;
 import org.sqljson.dbmd.source_writers.SourceCodeWriter;
 import org.sqljson.dbmd.source_writers.TypeScriptWriter;
@@ -68,20 +69,30 @@ public class RelationMetadataSourceGeneratorMain
 
       @Nullable Path outputDir = args.required.size() > 1 ? Paths.get(args.required.get(1)) : null;
 
-      try ( var dbmdIS = Files.newInputStream(dbmdPath) )
+      try
       {
-         ObjectMapper yamlMapper = new ObjectMapper(new YAMLFactory());
-         yamlMapper.registerModule(new Jdk8Module());
-
-         DatabaseMetadata dbmd = yamlMapper.readValue(dbmdIS, DatabaseMetadata.class);
-
          ifPresent(outputDir, path ->  {
             if ( !Files.isDirectory(path) ) throwError("Source output directory not found.");
          });
 
          SourceCodeWriter srcWriter = getSourceCodeWriter(args, outputDir);
          boolean includeTimestamp = args.optional.contains(includeSourceGenerationTimestamp);
-         srcWriter.writeRelationDefinitions(dbmd, includeTimestamp);
+
+         if ( DatabaseMetadataFiles.isBinaryFormatFile(dbmdPath) )
+            srcWriter.writeRelationDefinitions(DatabaseMetadataFiles.read(dbmdPath), includeTimestamp);
+         else
+         {
+            ObjectMapper yamlMapper = new ObjectMapper(new YAMLFactory());
+            yamlMapper.registerModule(new Jdk8Module());
+
+            // Relation metadatas are read one at a time as the definitions are written, to support very large
+            // catalogs.
+            try ( var dbmdIS = Files.newInputStream(dbmdPath);
+                  var dbmdReader = new DatabaseMetadataReader(dbmdIS, yamlMapper) )
+            {
+               srcWriter.writeRelationDefinitions(dbmdReader.relationMetadatas(), includeTimestamp);
+            }
+         }
       }
       catch( Exception e )
       {
@@ -1,6 +1,7 @@
 package org.sqljson.dbmd;
 
 import java.util.*;
+import java.util.function.Function;
 import java.util.function.Predicate;
 import java.util.regex.Pattern;
 import static java.util.Collections.emptyList;
@@ -33,6 +34,10 @@ public class DatabaseMetadata
 
    private final List<ForeignKey> foreignKeys;
 
+   // Lookup of relation metadata by relation id, used instead of a map of all relation metadatas when the
+   // relation metadatas are decoded lazily.
+   private final @Nullable Function<RelId, @Nullable RelMetadata> relMdLookup;
+
 
    private static final Predicate<String> lc_ = Pattern.compile("^[a-z_]+$").asPredicate();
    private static final Predicate<String> uc_ = Pattern.compile("^[A-Z_]+$").asPredicate();
@@ -59,6 +64,28 @@ public class DatabaseMetadata
       this.caseSensitivity = requireNonNull(caseSensitivity);
       this.dbmsName = requireNonNull(dbmsName);
       this.dbmsVersion = requireNonNull(dbmsVersion);
+      this.relMdLookup = null;
+   }
+
+   /// Construct database metadata from relation metadatas which are already in sorted order, such as a lazily
+   /// decoded list, with relation metadatas looked up by relation id via the given function rather than by a
+   /// map of all relation metadatas, so that lookups do not require all relation metadatas to be decoded.
+   DatabaseMetadata
+      (
+         List<RelMetadata> sortedRelationMetadatas,
+         Function<RelId, @Nullable RelMetadata> relMdLookup,
+         List<ForeignKey> foreignKeys,
+         CaseSensitivity caseSensitivity,
+         String dbmsName,
+         String dbmsVersion
+      )
+   {
+      this.relationMetadatas = unmodifiableList(requireNonNull(sortedRelationMetadatas));
+      this.relMdLookup = requireNonNull(relMdLookup);
+      this.foreignKeys = sortedFks(requireNonNull(foreignKeys));
+      this.caseSensitivity = requireNonNull(caseSensitivity);
+      this.dbmsName = requireNonNull(dbmsName);
+      this.dbmsVersion = requireNonNull(dbmsVersion);
    }
 
    DatabaseMetadata()
@@ -68,6 +95,7 @@ public class DatabaseMetadata
       caseSensitivity = INSENSITIVE_STORED_LOWER;
       dbmsName = "";
       dbmsVersion = "";
+      relMdLookup = null;
    }
 
    public List<RelMetadata> getRelationMetadatas() { return relationMetadatas; }
@@ -82,6 +110,9 @@ public class DatabaseMetadata
 
    public @Nullable RelMetadata getRelationMetadata(RelId relId)
    {
+      if ( relMdLookup != null )
+         return relMdLookup.apply(relId);
+
       return relMDsByRelId().get(relId);
    }
 
@@ -183,7 +214,7 @@ public class DatabaseMetadata
    /**
     * Return a new copy of the input list, with its foreign keys sorted by source and target relation names and source and target field names.
     */
-   private static List<ForeignKey> sortedFks(List<ForeignKey> foreignKeys)
+   static List<ForeignKey> sortedFks(List<ForeignKey> foreignKeys)
    {
       List<ForeignKey> fks = new ArrayList<>(foreignKeys);
 
@@ -262,8 +293,11 @@ public class DatabaseMetadata
       fksByParentRelId = new HashMap<>();
       fksByChildRelId = new HashMap<>();
 
-      for ( RelMetadata relMd : relationMetadatas)
-         relMDsByRelId.put(relMd.getRelationId(), relMd);
+      if ( relMdLookup == null )
+      {
+         for ( RelMetadata relMd : relationMetadatas)
+            relMDsByRelId.put(relMd.getRelationId(), relMd);
+      }
 
       for ( ForeignKey fk : foreignKeys )
       {
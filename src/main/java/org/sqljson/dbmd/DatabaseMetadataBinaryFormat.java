@@ -0,0 +1,415 @@
+package org.sqljson.dbmd;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import static java.util.Objects.requireNonNull;
+
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import org.sqljson.dbmd.RelMetadata.RelType;
+
+
+/// A compact binary database metadata format, loaded by memory-mapping the file and decoding relation metadatas
+/// lazily as they are accessed, so that loading the metadata for a large catalog does not require parsing all of
+/// it. The file layout is:
+///   - magic number and format version
+///   - header: dbms name, dbms version, case sensitivity
+///   - relation metadata records, in the sorted order of DatabaseMetadata, with indexes following the fields (as
+///     of format version 2) and statistics following the indexes (as of format version 3)
+///   - foreign keys section: count, followed by the foreign keys
+///   - relations index: count, followed by the offset of each relation metadata record
+///   - trailer: offsets of the foreign keys section and of the relations index
+/// Strings are written as a UTF-8 byte count (-1 for null) followed by the bytes, and optional numbers, booleans
+/// and statistics are preceded by a presence byte.
+public final class DatabaseMetadataBinaryFormat
+{
+   public static final String FILE_EXTENSION = "dbmdb";
+
+   private static final int MAGIC = 0x44424D44; // "DBMD"
+   private static final int FORMAT_VERSION = 3;
+   private static final int MIN_READABLE_FORMAT_VERSION = 1;
+   private static final int TRAILER_SIZE = 16;
+
+   /// Write the database metadata in binary format to the given output stream, which is flushed but not closed.
+   public static void write
+      (
+         DatabaseMetadata dbmd,
+         OutputStream os
+      )
+      throws IOException
+   {
+      DataOutputStream out = new DataOutputStream(new BufferedOutputStream(os));
+
+      out.writeInt(MAGIC);
+      out.writeInt(FORMAT_VERSION);
+      writeString(out, dbmd.getDbmsName());
+      writeString(out, dbmd.getDbmsVersion());
+      writeString(out, dbmd.getCaseSensitivity().name());
+
+      List<RelMetadata> relMds = dbmd.getRelationMetadatas();
+      long[] relMdOffsets = new long[relMds.size()];
+      for ( int i = 0; i < relMds.size(); ++i )
+      {
+         relMdOffsets[i] = out.size();
+         writeRelMetadata(out, relMds.get(i));
+      }
+
+      long fksOffset = out.size();
+      out.writeInt(dbmd.getForeignKeys().size());
+      for ( ForeignKey fk : dbmd.getForeignKeys() )
+         writeForeignKey(out, fk);
+
+      long indexOffset = out.size();
+      out.writeInt(relMdOffsets.length);
+      for ( long relMdOffset : relMdOffsets )
+         out.writeLong(relMdOffset);
+
+      out.writeLong(fksOffset);
+      out.writeLong(indexOffset);
+
+      if ( out.size() == Integer.MAX_VALUE ) // size saturates at the maximum int value
+         throw new IOException("Database metadata is too large for the binary format.");
+
+      out.flush();
+   }
+
+   /// Load database metadata from a binary format file by memory-mapping it. Foreign keys are decoded on load,
+   /// while relation metadatas are decoded when first accessed, either by position in the relation metadatas list
+   /// or via DatabaseMetadata.getRelationMetadata(), which locates relations by binary search over the index.
+   public static DatabaseMetadata read(Path dbmdPath) throws IOException
+   {
+      MappedByteBuffer buf;
+      try ( FileChannel channel = FileChannel.open(dbmdPath, StandardOpenOption.READ) )
+      {
+         if ( channel.size() > Integer.MAX_VALUE )
+            throw new IOException("Database metadata file " + dbmdPath + " is too large for the binary format.");
+         buf = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+      }
+
+      if ( buf.limit() < 8 + TRAILER_SIZE || buf.getInt(0) != MAGIC )
+         throw new IOException("File " + dbmdPath + " is not a binary database metadata file.");
+      int formatVersion = buf.getInt(4);
+      if ( formatVersion < MIN_READABLE_FORMAT_VERSION || formatVersion > FORMAT_VERSION )
+         throw new IOException(
+            "Binary database metadata file " + dbmdPath + " has unsupported format version " + formatVersion + "."
+         );
+
+      ByteBuffer header = at(buf, 8);
+      String dbmsName = requireNonNull(readString(header));
+      String dbmsVersion = requireNonNull(readString(header));
+      CaseSensitivity caseSens = CaseSensitivity.valueOf(requireNonNull(readString(header)));
+
+      int fksOffset = (int) buf.getLong(buf.limit() - TRAILER_SIZE);
+      int indexOffset = (int) buf.getLong(buf.limit() - TRAILER_SIZE + 8);
+
+      ByteBuffer fksBuf = at(buf, fksOffset);
+      int fksCount = fksBuf.getInt();
+      List<ForeignKey> fks = new ArrayList<>(fksCount);
+      for ( int i = 0; i < fksCount; ++i )
+         fks.add(readForeignKey(fksBuf));
+
+      LazyRelMetadatas relMds = new LazyRelMetadatas(buf, indexOffset, formatVersion);
+
+      return new DatabaseMetadata(relMds, relMds::find, fks, caseSens, dbmsName, dbmsVersion);
+   }
+
+   /// Relation metadatas decoded from the memory-mapped file on first access by index.
+   private static class LazyRelMetadatas extends AbstractList<RelMetadata> implements RandomAccess
+   {
+      private final ByteBuffer buf;
+      private final int indexOffset;
+      private final int formatVersion;
+      private final @Nullable RelMetadata[] decoded;
+
+      LazyRelMetadatas
+         (
+            ByteBuffer buf,
+            int indexOffset,
+            int formatVersion
+         )
+      {
+         this.buf = buf;
+         this.indexOffset = indexOffset;
+         this.formatVersion = formatVersion;
+         this.decoded = new RelMetadata[buf.getInt(indexOffset)];
+      }
+
+      @Override
+      public int size() { return decoded.length; }
+
+      @Override
+      public RelMetadata get(int i)
+      {
+         @Nullable RelMetadata relMd = decoded[i];
+         if ( relMd == null )
+         {
+            relMd = readRelMetadata(at(buf, recordOffset(i)), formatVersion);
+            decoded[i] = relMd;
+         }
+         return relMd;
+      }
+
+      /// Find relation metadata by binary search on the relation id strings of the records, decoding only the
+      /// relation ids of the probed records.
+      @Nullable RelMetadata find(RelId relId)
+      {
+         String idString = relId.getIdString();
+         int lo = 0, hi = decoded.length - 1;
+         while ( lo <= hi )
+         {
+            int mid = (lo + hi) >>> 1;
+            RelId midRelId = readRelId(at(buf, recordOffset(mid)));
+            int comp = midRelId.getIdString().compareTo(idString);
+            if ( comp < 0 )
+               lo = mid + 1;
+            else if ( comp > 0 )
+               hi = mid - 1;
+            else
+               return midRelId.equals(relId) ? get(mid) : null;
+         }
+         return null;
+      }
+
+      private int recordOffset(int i)
+      {
+         if ( i < 0 || i >= decoded.length )
+            throw new IndexOutOfBoundsException("Relation index " + i + " out of range.");
+         return (int) buf.getLong(indexOffset + 4 + 8 * i);
+      }
+   }
+
+   private static void writeRelMetadata
+      (
+         DataOutputStream out,
+         RelMetadata relMd
+      )
+      throws IOException
+   {
+      writeRelId(out, relMd.getRelationId());
+      writeString(out, relMd.getRelationType().name());
+      writeString(out, relMd.getChangeMarker());
+      out.writeInt(relMd.getFields().size());
+      for ( Field f : relMd.getFields() )
+      {
+         writeString(out, f.getName());
+         out.writeInt(f.getJdbcTypeCode());
+         writeString(out, f.getDatabaseType());
+         writeOptionalInt(out, f.getLength());
+         writeOptionalInt(out, f.getPrecision());
+         writeOptionalInt(out, f.getPrecisionRadix());
+         writeOptionalInt(out, f.getFractionalDigits());
+         writeOptionalBoolean(out, f.getNullable());
+         writeOptionalInt(out, f.getPrimaryKeyPartNumber());
+      }
+      out.writeInt(relMd.getIndexes().size());
+      for ( Index idx : relMd.getIndexes() )
+      {
+         writeString(out, idx.getName());
+         out.writeInt(idx.getFieldNames().size());
+         for ( String fieldName : idx.getFieldNames() )
+            writeString(out, fieldName);
+         out.writeBoolean(idx.isUnique());
+         writeString(out, idx.getPredicate());
+      }
+      @Nullable RelStatistics stats = relMd.getStatistics();
+      out.writeBoolean(stats != null);
+      if ( stats != null )
+      {
+         writeOptionalLong(out, stats.getEstimatedRowCount());
+         writeOptionalLong(out, stats.getEstimatedSizeBytes());
+      }
+   }
+
+   private static RelMetadata readRelMetadata
+      (
+         ByteBuffer in,
+         int formatVersion
+      )
+   {
+      RelId relId = readRelId(in);
+      RelType relType = RelType.valueOf(requireNonNull(readString(in)));
+      @Nullable String changeMarker = readString(in);
+      int fieldsCount = in.getInt();
+      List<Field> fields = new ArrayList<>(fieldsCount);
+      for ( int i = 0; i < fieldsCount; ++i )
+      {
+         String name = requireNonNull(readString(in));
+         int jdbcTypeCode = in.getInt();
+         String databaseType = requireNonNull(readString(in));
+         @Nullable Integer length = readOptionalInt(in);
+         @Nullable Integer precision = readOptionalInt(in);
+         @Nullable Integer precisionRadix = readOptionalInt(in);
+         @Nullable Integer fractionalDigits = readOptionalInt(in);
+         @Nullable Boolean nullable = readOptionalBoolean(in);
+         @Nullable Integer pkPartNum = readOptionalInt(in);
+         fields.add(new Field(
+            name, jdbcTypeCode, databaseType, length, precision, precisionRadix, fractionalDigits, nullable, pkPartNum
+         ));
+      }
+      int indexesCount = formatVersion >= 2 ? in.getInt() : 0;
+      List<Index> indexes = new ArrayList<>(indexesCount);
+      for ( int i = 0; i < indexesCount; ++i )
+      {
+         String name = requireNonNull(readString(in));
+         int fieldNamesCount = in.getInt();
+         List<String> fieldNames = new ArrayList<>(fieldNamesCount);
+         for ( int j = 0; j < fieldNamesCount; ++j )
+            fieldNames.add(requireNonNull(readString(in)));
+         boolean unique = in.get() != 0;
+         @Nullable String predicate = readString(in);
+         indexes.add(new Index(name, fieldNames, unique, predicate));
+      }
+      @Nullable RelStatistics stats =
+         formatVersion >= 3 && in.get() != 0 ? new RelStatistics(readOptionalLong(in), readOptionalLong(in)) : null;
+      return new RelMetadata(relId, relType, fields, indexes, stats, changeMarker);
+   }
+
+   private static void writeForeignKey
+      (
+         DataOutputStream out,
+         ForeignKey fk
+      )
+      throws IOException
+   {
+      writeString(out, fk.getConstraintName());
+      writeRelId(out, fk.getForeignKeyRelationId());
+      writeRelId(out, fk.getPrimaryKeyRelationId());
+      out.writeInt(fk.getForeignKeyComponents().size());
+      for ( ForeignKey.Component comp : fk.getForeignKeyComponents() )
+      {
+         writeString(out, comp.getForeignKeyFieldName());
+         writeString(out, comp.getPrimaryKeyFieldName());
+      }
+   }
+
+   private static ForeignKey readForeignKey(ByteBuffer in)
+   {
+      @Nullable String constraintName = readString(in);
+      RelId fkRelId = readRelId(in);
+      RelId pkRelId = readRelId(in);
+      int compsCount = in.getInt();
+      List<ForeignKey.Component> comps = new ArrayList<>(compsCount);
+      for ( int i = 0; i < compsCount; ++i )
+      {
+         String fkFieldName = requireNonNull(readString(in));
+         String pkFieldName = requireNonNull(readString(in));
+         comps.add(new ForeignKey.Component(fkFieldName, pkFieldName));
+      }
+      return new ForeignKey(constraintName, fkRelId, pkRelId, comps);
+   }
+
+   private static void writeRelId
+      (
+         DataOutputStream out,
+         RelId relId
+      )
+      throws IOException
+   {
+      writeString(out, relId.getSchema());
+      writeString(out, relId.getName());
+   }
+
+   private static RelId readRelId(ByteBuffer in)
+   {
+      @Nullable String schema = readString(in);
+      String name = requireNonNull(readString(in));
+      return new RelId(schema, name);
+   }
+
+   private static void writeString
+      (
+         DataOutputStream out,
+         @Nullable String s
+      )
+      throws IOException
+   {
+      if ( s == null )
+         out.writeInt(-1);
+      else
+      {
+         byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+         out.writeInt(bytes.length);
+         out.write(bytes);
+      }
+   }
+
+   private static @Nullable String readString(ByteBuffer in)
+   {
+      int len = in.getInt();
+      if ( len == -1 )
+         return null;
+      byte[] bytes = new byte[len];
+      in.get(bytes);
+      return new String(bytes, StandardCharsets.UTF_8);
+   }
+
+   private static void writeOptionalInt
+      (
+         DataOutputStream out,
+         @Nullable Integer i
+      )
+      throws IOException
+   {
+      out.writeBoolean(i != null);
+      if ( i != null )
+         out.writeInt(i);
+   }
+
+   private static @Nullable Integer readOptionalInt(ByteBuffer in)
+   {
+      return in.get() != 0 ? in.getInt() : null;
+   }
+
+   private static void writeOptionalLong
+      (
+         DataOutputStream out,
+         @Nullable Long l
+      )
+      throws IOException
+   {
+      out.writeBoolean(l != null);
+      if ( l != null )
+         out.writeLong(l);
+   }
+
+   private static @Nullable Long readOptionalLong(ByteBuffer in)
+   {
+      return in.get() != 0 ? in.getLong() : null;
+   }
+
+   private static void writeOptionalBoolean
+      (
+         DataOutputStream out,
+         @Nullable Boolean b
+      )
+      throws IOException
+   {
+      out.writeByte(b == null ? -1 : b ? 1 : 0);
+   }
+
+   private static @Nullable Boolean readOptionalBoolean(ByteBuffer in)
+   {
+      byte b = in.get();
+      return b == -1 ? null : b == 1;
+   }
+
+   /// Return an independent view of the buffer, positioned at the given offset.
+   private static ByteBuffer at
+      (
+         ByteBuffer buf,
+         int offset
+      )
+   {
+      ByteBuffer view = buf.duplicate();
+      view.position(offset);
+      return view;
+   }
+
+   private DatabaseMetadataBinaryFormat() {}
+}
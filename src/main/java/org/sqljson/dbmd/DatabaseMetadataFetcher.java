@@ -1,19 +1,28 @@
 package org.sqljson.dbmd;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.sql.*;
 import java.util.*;
+import java.util.function.Consumer;
+import java.util.function.UnaryOperator;
 import java.util.regex.Pattern;
 import static java.util.Collections.emptyList;
+import static java.util.Collections.emptyMap;
 import static java.util.Objects.requireNonNull;
 import static java.util.function.Function.identity;
+import static java.util.stream.Collectors.toList;
 import static java.util.stream.Collectors.toMap;
+import static java.util.stream.Collectors.toSet;
 
 import org.checkerframework.checker.nullness.qual.Nullable;
 
 import org.sqljson.util.StringFuns;
 import org.sqljson.dbmd.RelMetadata.RelType;
+import static org.sqljson.dbmd.FetchMetrics.Phase.*;
 import static org.sqljson.dbmd.RelMetadata.RelType.Table;
 import static org.sqljson.dbmd.RelMetadata.RelType.View;
+import static org.sqljson.util.Nullables.valueOr;
 
 public class DatabaseMetadataFetcher
 {
@@ -21,11 +30,26 @@ public class DatabaseMetadataFetcher
 
    private final DateMapping dateMapping;
 
+   private final FetchMetrics metrics;
+
+   private boolean includeStatistics;
+
    public DatabaseMetadataFetcher(DateMapping mapping)
    {
       this.dateMapping = mapping;
+      this.metrics = new FetchMetrics();
+      this.includeStatistics = false;
    }
 
+   /// Metrics for the fetch phases of all fetches made by this fetcher.
+   public FetchMetrics getMetrics() { return metrics; }
+
+   /// Whether table size statistics are recorded in fetched relation metadata. They are not recorded by default,
+   /// so that metadata fetched from an unchanged schema is the same regardless of changes to the data.
+   public boolean isIncludeStatistics() { return includeStatistics; }
+
+   public void setIncludeStatistics(boolean includeStatistics) { this.includeStatistics = includeStatistics; }
+
    public DatabaseMetadata fetchMetadata
       (
          DatabaseMetaData dbmd,
@@ -43,7 +67,12 @@ public class DatabaseMetadataFetcher
 
       List<RelDescr> relDescrs = fetchRelationDescriptions(dbmd, nSchema, includeTables, includeViews, excludeRelsPat);
 
-      List<RelMetadata> relMds = fetchRelationMetadatas(relDescrs, nSchema, dbmd);
+      UnaryOperator<RelMetadata> addStatistics = statisticsAdder(relDescrs, nSchema, dbmd);
+
+      List<RelMetadata> relMds =
+         fetchRelationMetadatas(relDescrs, nSchema, dbmd).stream()
+         .map(addStatistics)
+         .collect(toList());
 
       List<ForeignKey> fks = includeFks ? fetchForeignKeys(nSchema, dbmd, excludeRelsPat) : emptyList();
 
@@ -53,6 +82,134 @@ public class DatabaseMetadataFetcher
       return new DatabaseMetadata(relMds, fks, caseSens, dbmsName, dbmsVer);
    }
 
+   /// Fetch metadata as in fetchMetadata(), but writing each relation's metadata to the given writer as soon as it
+   /// has been fetched instead of accumulating the metadata for all relations in memory. Relations are written in
+   /// the order in which they are reported by the database catalog, which for the native Postgres and Oracle
+   /// fetchers is the same as the sorted order of DatabaseMetadata. The writer is not closed.
+   public void fetchMetadata
+      (
+         DatabaseMetaData dbmd,
+         @Nullable String schema,
+         boolean includeTables,
+         boolean includeViews,
+         boolean includeFks,
+         @Nullable Pattern excludeRelsPat,
+         DatabaseMetadataWriter dbmdWriter
+      )
+      throws SQLException, IOException
+   {
+      CaseSensitivity caseSens = getDatabaseCaseSensitivity(dbmd);
+
+      @Nullable String nSchema = schema != null ? normalizeDatabaseIdentifier(schema, caseSens) : null;
+
+      dbmdWriter.writeHeader(dbmd.getDatabaseProductName(), dbmd.getDatabaseProductVersion(), caseSens);
+
+      List<RelDescr> relDescrs = fetchRelationDescriptions(dbmd, nSchema, includeTables, includeViews, excludeRelsPat);
+
+      UnaryOperator<RelMetadata> addStatistics = statisticsAdder(relDescrs, nSchema, dbmd);
+
+      try
+      {
+         fetchRelationMetadatas(relDescrs, nSchema, dbmd, relMd -> {
+            try { dbmdWriter.writeRelationMetadata(addStatistics.apply(relMd)); }
+            catch (IOException e) { throw new UncheckedIOException(e); }
+         });
+      }
+      catch (UncheckedIOException e)
+      {
+         throw e.getCause();
+      }
+
+      dbmdWriter.writeForeignKeys(includeFks ? fetchForeignKeys(nSchema, dbmd, excludeRelsPat) : emptyList());
+   }
+
+   /// Fetch metadata as in fetchMetadata(), but re-fetching relation metadata only for relations which are new or
+   /// whose change markers differ from those recorded in the previous metadata, with metadata for other relations
+   /// taken from the previous metadata. Foreign keys are only re-fetched if any relation has changed or been
+   /// removed. Change markers are recorded in the returned metadata for use in later incremental fetches. If
+   /// there is no previous metadata or change markers are not supported by this fetcher, then all relations are
+   /// fetched. Statistics, if included, are fetched for all relations, since they change without any change to
+   /// the relations' definitions.
+   public DatabaseMetadata fetchMetadataIncrementally
+      (
+         DatabaseMetaData dbmd,
+         @Nullable String schema,
+         boolean includeTables,
+         boolean includeViews,
+         boolean includeFks,
+         @Nullable Pattern excludeRelsPat,
+         @Nullable DatabaseMetadata prevDbmd
+      )
+      throws SQLException
+   {
+      CaseSensitivity caseSens = getDatabaseCaseSensitivity(dbmd);
+
+      @Nullable String nSchema = schema != null ? normalizeDatabaseIdentifier(schema, caseSens) : null;
+
+      List<RelDescr> relDescrs = fetchRelationDescriptions(dbmd, nSchema, includeTables, includeViews, excludeRelsPat);
+
+      Map<RelId,String> changeMarkers = fetchRelationChangeMarkers(dbmd, nSchema);
+
+      List<RelMetadata> relMds = new ArrayList<>();
+      List<RelDescr> changedRelDescrs = new ArrayList<>();
+
+      for ( RelDescr relDescr : relDescrs )
+      {
+         RelId relId = relDescr.getRelationId();
+         @Nullable RelMetadata prevRelMd = prevDbmd != null ? prevDbmd.getRelationMetadata(relId) : null;
+         @Nullable String changeMarker = changeMarkers.get(relId);
+
+         if ( prevRelMd != null && changeMarker != null && changeMarker.equals(prevRelMd.getChangeMarker()) &&
+              prevRelMd.getRelationType() == relDescr.getRelationType() )
+            relMds.add(prevRelMd);
+         else
+            changedRelDescrs.add(relDescr);
+      }
+
+      Set<RelId> relIds = relDescrs.stream().map(RelDescr::getRelationId).collect(toSet());
+
+      // Whether relations of the previous metadata in the fetched schema(s) no longer exist.
+      boolean relsRemoved =
+         prevDbmd == null ||
+         prevDbmd.getRelationMetadatas().stream()
+         .map(RelMetadata::getRelationId)
+         .anyMatch(relId -> (nSchema == null || nSchema.equals(relId.getSchema())) && !relIds.contains(relId));
+
+      if ( !changedRelDescrs.isEmpty() )
+      {
+         for ( RelMetadata relMd : fetchRelationMetadatas(changedRelDescrs, nSchema, dbmd) )
+            relMds.add(relMd.withChangeMarker(changeMarkers.get(relMd.getRelationId())));
+      }
+
+      relMds.replaceAll(statisticsAdder(relDescrs, nSchema, dbmd));
+
+      List<ForeignKey> fks =
+         !includeFks ? emptyList()
+         : changedRelDescrs.isEmpty() && !relsRemoved ?
+            requireNonNull(prevDbmd).getForeignKeys().stream()
+            .filter(fk -> relIds.contains(fk.getForeignKeyRelationId()))
+            .collect(toList())
+         : fetchForeignKeys(nSchema, dbmd, excludeRelsPat);
+
+      String dbmsName = dbmd.getDatabaseProductName();
+      String dbmsVer = dbmd.getDatabaseProductVersion();
+
+      return new DatabaseMetadata(relMds, fks, caseSens, dbmsName, dbmsVer);
+   }
+
+   /// Fetch change markers by relation id for relations in the given schema, or in all schemas if null. A
+   /// relation's change marker is any value which changes whenever the relation's definition, including its
+   /// primary and foreign keys, is changed. Change markers are not supported for JDBC metadata in general, so
+   /// this implementation returns an empty map, which causes all relations to be fetched in incremental mode.
+   public Map<RelId,String> fetchRelationChangeMarkers
+      (
+         DatabaseMetaData dbmd,
+         @Nullable String schema
+      )
+      throws SQLException
+   {
+      return emptyMap();
+   }
 
    public List<RelDescr> fetchRelationDescriptions
       (
@@ -92,20 +249,22 @@ public class DatabaseMetadataFetcher
       if ( includeViews )
          relTypes.add("VIEW");
 
-      ResultSet rs = dbmd.getTables(null, schema, null, relTypes.toArray(new String[0]));
-
-      while ( rs.next() )
+      try ( ResultSet rs = metrics.track(RELATION_DESCRIPTIONS, () ->
+               dbmd.getTables(null, schema, null, relTypes.toArray(new String[0]))) )
       {
-         @Nullable String relSchema = rs.getString("TABLE_SCHEM");
-         String relName = requireNonNull(rs.getString("TABLE_NAME"));
+         while ( rs.next() )
+         {
+            @Nullable String relSchema = rs.getString("TABLE_SCHEM");
+            String relName = requireNonNull(rs.getString("TABLE_NAME"));
 
-         RelId relId = new RelId(relSchema, relName);
+            RelId relId = new RelId(relSchema, relName);
 
-         if ( !StringFuns.matches(excludeRelsPattern, relId.getIdString()) )
-         {
-            RelType relType = requireNonNull(rs.getString("TABLE_TYPE")).toLowerCase().equals("table") ? Table : View;
+            if ( !StringFuns.matches(excludeRelsPattern, relId.getIdString()) )
+            {
+               RelType relType = requireNonNull(rs.getString("TABLE_TYPE")).toLowerCase().equals("table") ? Table : View;
 
-            relDescrs.add(new RelDescr(relId, relType, rs.getString("REMARKS")));
+               relDescrs.add(new RelDescr(relId, relType, rs.getString("REMARKS")));
+            }
          }
       }
 
@@ -130,12 +289,33 @@ public class DatabaseMetadataFetcher
          DatabaseMetaData dbmd
       )
       throws SQLException
+   {
+      List<RelMetadata> relMds = new ArrayList<>();
+
+      fetchRelationMetadatas(relDescrs, schema, dbmd, relMds::add);
+
+      return relMds;
+   }
+
+   /// Fetch metadata for the given relations, passing the metadata for each relation to the given consumer as soon
+   /// as it has been read, without retaining metadata for previously read relations.
+   public void fetchRelationMetadatas
+      (
+         List<RelDescr> relDescrs, // descriptions of relations to include
+         @Nullable String schema,
+         DatabaseMetaData dbmd,
+         Consumer<RelMetadata> relMdConsumer
+      )
+      throws SQLException
    {
       Map<RelId,RelDescr> relDescrsByRelId = relDescrs.stream().collect(toMap(RelDescr::getRelationId, identity()));
 
-      try ( ResultSet colsRS = dbmd.getColumns(null, schema, "%", "%") )
+      Map<RelId,Map<String,Integer>> pkPartNumsByRelId = fetchPrimaryKeyPartNumbers(relDescrs, schema, dbmd);
+
+      Map<RelId,List<Index>> indexesByRelId = fetchIndexes(relDescrs, schema, dbmd);
+
+      try ( ResultSet colsRS = metrics.track(COLUMNS, () -> dbmd.getColumns(null, schema, "%", "%")) )
       {
-         List<RelMetadata> relMds = new ArrayList<>();
          @Nullable RelMetadataBuilder rmdBldr = null;
 
          while ( colsRS.next() )
@@ -148,29 +328,193 @@ public class DatabaseMetadataFetcher
             @Nullable RelDescr relDescr = relDescrsByRelId.get(relId);
             if ( relDescr != null ) // Include this relation?
             {
-               Field f = makeField(colsRS, dbmd);
-
                // Relation changed ?
                if ( rmdBldr == null || !relId.equals(rmdBldr.getRelId()) )
                {
                   // finalize previous if any
                   if ( rmdBldr != null )
-                     relMds.add(rmdBldr.build());
-
-                  rmdBldr = new RelMetadataBuilder(relId, relDescr.getRelationType());
+                     relMdConsumer.accept(rmdBldr.build());
+
+                  rmdBldr = new RelMetadataBuilder(
+                     relId,
+                     relDescr.getRelationType(),
+                     valueOr(pkPartNumsByRelId.get(relId), emptyMap()),
+                     valueOr(indexesByRelId.get(relId), emptyList())
+                  );
                }
 
-               rmdBldr.addField(f);
+               rmdBldr.addField(makeField(colsRS, rmdBldr));
             }
          }
 
          if ( rmdBldr != null )
-            relMds.add(rmdBldr.build());
+            relMdConsumer.accept(rmdBldr.build());
+      }
+   }
 
-         return relMds;
+   /// Fetch primary key part numbers by field name for the given relations, using a single schema-wide primary
+   /// keys call where the driver supports it. If no primary keys at all are reported that way, then the primary
+   /// keys are fetched separately for each table, for drivers that require the table name to be specified.
+   public Map<RelId,Map<String,Integer>> fetchPrimaryKeyPartNumbers
+      (
+         List<RelDescr> relDescrs, // descriptions of relations to include
+         @Nullable String schema,
+         DatabaseMetaData dbmd
+      )
+      throws SQLException
+   {
+      Set<RelId> relIds = relDescrs.stream().map(RelDescr::getRelationId).collect(toSet());
+
+      Map<RelId,Map<String,Integer>> pkPartNumsByRelId = new HashMap<>();
+
+      // Ignore warning about table-name (third) arg being null, as with the imported keys call below.
+      try ( @SuppressWarnings("nullness") ResultSet pkRS =
+               metrics.track(PRIMARY_KEYS, () -> dbmd.getPrimaryKeys(null, schema, null)) )
+      {
+         addPrimaryKeyPartNumbers(pkRS, relIds, pkPartNumsByRelId);
+      }
+
+      if ( pkPartNumsByRelId.isEmpty() )
+      {
+         for ( RelDescr relDescr : relDescrs )
+         {
+            if ( relDescr.getRelationType() != Table )
+               continue;
+
+            RelId relId = relDescr.getRelationId();
+
+            try ( ResultSet pkRS = metrics.track(PRIMARY_KEYS, () ->
+                     dbmd.getPrimaryKeys(null, relId.getSchema(), relId.getName())) )
+            {
+               addPrimaryKeyPartNumbers(pkRS, relIds, pkPartNumsByRelId);
+            }
+         }
+      }
+
+      return pkPartNumsByRelId;
+   }
+
+   private static void addPrimaryKeyPartNumbers
+      (
+         ResultSet pkRS,
+         Set<RelId> includeRelIds,
+         Map<RelId,Map<String,Integer>> pkPartNumsByRelId
+      )
+      throws SQLException
+   {
+      while ( pkRS.next() )
+      {
+         RelId relId = new RelId(pkRS.getString("TABLE_SCHEM"), requireNonNull(pkRS.getString("TABLE_NAME")));
+
+         if ( includeRelIds.contains(relId) )
+         {
+            pkPartNumsByRelId
+               .computeIfAbsent(relId, k -> new HashMap<>())
+               .put(requireNonNull(pkRS.getString("COLUMN_NAME")), pkRS.getInt("KEY_SEQ"));
+         }
       }
    }
 
+   /// Fetch the indexes of the given relations by relation id, with each relation's indexes ordered by name. Index
+   /// information is fetched separately for each table, since drivers generally require the table name to be
+   /// specified.
+   public Map<RelId,List<Index>> fetchIndexes
+      (
+         List<RelDescr> relDescrs, // descriptions of relations to include
+         @Nullable String schema,
+         DatabaseMetaData dbmd
+      )
+      throws SQLException
+   {
+      Map<RelId,Map<String,IndexBuilder>> idxBldrsByRelId = new HashMap<>();
+
+      for ( RelDescr relDescr : relDescrs )
+      {
+         if ( relDescr.getRelationType() != Table )
+            continue;
+
+         RelId relId = relDescr.getRelationId();
+
+         try ( ResultSet rs = metrics.track(INDEXES, () ->
+                  dbmd.getIndexInfo(null, relId.getSchema(), relId.getName(), false, true)) )
+         {
+            while ( rs.next() )
+            {
+               @Nullable String indexName = rs.getString("INDEX_NAME");
+               @Nullable String fieldName = rs.getString("COLUMN_NAME");
+               if ( rs.getShort("TYPE") == DatabaseMetaData.tableIndexStatistic || indexName == null || fieldName == null )
+                  continue;
+
+               boolean unique = !rs.getBoolean("NON_UNIQUE");
+               @Nullable String predicate = rs.getString("FILTER_CONDITION");
+
+               idxBldrsByRelId
+                  .computeIfAbsent(relId, k -> new HashMap<>())
+                  .computeIfAbsent(indexName, k -> new IndexBuilder(k, unique, predicate))
+                  .addFieldName(fieldName);
+            }
+         }
+      }
+
+      return IndexBuilder.buildIndexes(idxBldrsByRelId);
+   }
+
+   /// Fetch size statistics by relation id for the given tables, from the table statistic rows of the driver's
+   /// getIndexInfo() for each table. Drivers report row counts and page counts there if at all, so no size in
+   /// bytes is recorded.
+   public Map<RelId,RelStatistics> fetchRelationStatistics
+      (
+         List<RelDescr> relDescrs, // descriptions of relations to include
+         @Nullable String schema,
+         DatabaseMetaData dbmd
+      )
+      throws SQLException
+   {
+      Map<RelId,RelStatistics> statsByRelId = new HashMap<>();
+
+      for ( RelDescr relDescr : relDescrs )
+      {
+         if ( relDescr.getRelationType() != Table )
+            continue;
+
+         RelId relId = relDescr.getRelationId();
+
+         try ( ResultSet rs = metrics.track(STATISTICS, () ->
+                  dbmd.getIndexInfo(null, relId.getSchema(), relId.getName(), false, true)) )
+         {
+            while ( rs.next() )
+            {
+               if ( rs.getShort("TYPE") != DatabaseMetaData.tableIndexStatistic )
+                  continue;
+
+               long rowCount = rs.getLong("CARDINALITY");
+               if ( !rs.wasNull() )
+                  statsByRelId.put(relId, new RelStatistics(rowCount, null));
+            }
+         }
+      }
+
+      return statsByRelId;
+   }
+
+   /// Get a function adding fetched statistics to relation metadatas of the given relations if statistics are to
+   /// be included, else the identity function.
+   private UnaryOperator<RelMetadata> statisticsAdder
+      (
+         List<RelDescr> relDescrs,
+         @Nullable String schema,
+         DatabaseMetaData dbmd
+      )
+      throws SQLException
+   {
+      if ( !includeStatistics )
+         return UnaryOperator.identity();
+
+      Map<RelId,RelStatistics> statsByRelId = fetchRelationStatistics(relDescrs, schema, dbmd);
+
+      return relMd -> relMd.withStatistics(statsByRelId.get(relMd.getRelationId()));
+   }
+
    public List<ForeignKey> fetchForeignKeys
       (
          @Nullable String schema,
@@ -194,7 +538,8 @@ public class DatabaseMetadataFetcher
 
       // Ignore warning about table-name (third) arg being null, which ora/pg drivers allow. In the future it may be
       // necessary to fetch tables for the schema first and call for the imported keys for each separately.
-      try ( @SuppressWarnings("nullness") ResultSet rs = dbmd.getImportedKeys(null, schema, null) )
+      try ( @SuppressWarnings("nullness") ResultSet rs =
+               metrics.track(FOREIGN_KEYS, () -> dbmd.getImportedKeys(null, schema, null)) )
       {
          @Nullable ForeignKeyBuilder fkBldr = null;
 
@@ -274,44 +619,56 @@ public class DatabaseMetadataFetcher
    protected Field makeField
       (
          ResultSet colsRS,
-         DatabaseMetaData dbmd
+         RelMetadataBuilder rmdBldr
       )
       throws SQLException
    {
+      String name = requireNonNull(colsRS.getString("COLUMN_NAME"));
 
-      try ( ResultSet pkRS = dbmd.getPrimaryKeys(colsRS.getString(1), colsRS.getString(2), requireNonNull(colsRS.getString(3))) )
-      {
-         // Fetch the primary key field names and part numbers for this relation
-         Map<String, Integer> pkSeqNumsByName = new HashMap<>();
-         while (pkRS.next())
-            pkSeqNumsByName.put(requireNonNull(pkRS.getString(4)), pkRS.getInt(5));
-         pkRS.close();
-
-         String name = requireNonNull(colsRS.getString("COLUMN_NAME"));
-         int typeCode = colsRS.getInt("DATA_TYPE");
-         String dbType = requireNonNull(colsRS.getString("TYPE_NAME"));
-
-         // Handle special cases/conversions for the type code.
-         if ( typeCode == Types.DATE || typeCode == Types.TIMESTAMP )
-            typeCode = getTypeCodeForDateOrTimestampColumn(typeCode, dbType);
-         else if ( "XMLTYPE".equals(dbType)  || "SYS.XMLTYPE".equals(dbType) )
-            // Oracle uses proprietary "OPAQUE" code of 2007 as of 11.2, should be Types.SQLXML = 2009.
-            typeCode = Types.SQLXML;
-
-         @Nullable Integer size = getRSInt(colsRS, "COLUMN_SIZE");
-         @Nullable Integer length = Field.isJdbcTypeChar(typeCode) ? size : null;
-         @Nullable Integer nullableCode = getRSInt(colsRS, "NULLABLE");
-         @Nullable Boolean nullable =
-            nullableCode != null && nullableCode == ResultSetMetaData.columnNullable ? Boolean.TRUE
-            : nullableCode != null && nullableCode == ResultSetMetaData.columnNoNulls ? Boolean.FALSE
-            : null;
-         @Nullable Integer fracDigs = Field.isJdbcTypeNumeric(typeCode) ? getRSInt(colsRS, "DECIMAL_DIGITS") : null;
-         @Nullable Integer prec = Field.isJdbcTypeNumeric(typeCode) ? size : null;
-         @Nullable Integer precRadix = null; // TODO: Radix column?
-         @Nullable Integer pkPart = pkSeqNumsByName.get(name);
-
-         return new Field(name, typeCode, dbType, length, prec, precRadix, fracDigs, nullable, pkPart);
-      }
+      return
+         makeField(
+            name,
+            colsRS.getInt("DATA_TYPE"),
+            requireNonNull(colsRS.getString("TYPE_NAME")),
+            getRSInt(colsRS, "COLUMN_SIZE"),
+            getRSInt(colsRS, "DECIMAL_DIGITS"),
+            getRSInt(colsRS, "NULLABLE"),
+            rmdBldr.getPrimaryKeyPartNumber(name)
+         );
+   }
+
+   /// Make a field from column properties in the form reported by JDBC DatabaseMetaData.getColumns(), applying
+   /// the date mapping and other type code adjustments.
+   protected Field makeField
+      (
+         String name,
+         int driverTypeCode,
+         String dbType,
+         @Nullable Integer size,
+         @Nullable Integer decimalDigits,
+         @Nullable Integer nullableCode,
+         @Nullable Integer pkPart
+      )
+   {
+      int typeCode = driverTypeCode;
+
+      // Handle special cases/conversions for the type code.
+      if ( typeCode == Types.DATE || typeCode == Types.TIMESTAMP )
+         typeCode = getTypeCodeForDateOrTimestampColumn(typeCode, dbType);
+      else if ( "XMLTYPE".equals(dbType)  || "SYS.XMLTYPE".equals(dbType) )
+         // Oracle uses proprietary "OPAQUE" code of 2007 as of 11.2, should be Types.SQLXML = 2009.
+         typeCode = Types.SQLXML;
+
+      @Nullable Integer length = Field.isJdbcTypeChar(typeCode) ? size : null;
+      @Nullable Boolean nullable =
+         nullableCode != null && nullableCode == ResultSetMetaData.columnNullable ? Boolean.TRUE
+         : nullableCode != null && nullableCode == ResultSetMetaData.columnNoNulls ? Boolean.FALSE
+         : null;
+      @Nullable Integer fracDigs = Field.isJdbcTypeNumeric(typeCode) ? decimalDigits : null;
+      @Nullable Integer prec = Field.isJdbcTypeNumeric(typeCode) ? size : null;
+      @Nullable Integer precRadix = null; // TODO: Radix column?
+
+      return new Field(name, typeCode, dbType, length, prec, precRadix, fracDigs, nullable, pkPart);
    }
 
    private int getTypeCodeForDateOrTimestampColumn
@@ -0,0 +1,77 @@
+package org.sqljson.dbmd;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import static org.sqljson.util.Serialization.getObjectMapper;
+import static org.sqljson.util.StringFuns.fileExtension;
+
+
+/// Reading and writing of database metadata files in any of the supported formats, as determined by file
+/// extension: YAML ("yaml", "yml"), JSON ("json", "json5"), or the binary format of DatabaseMetadataBinaryFormat.
+public final class DatabaseMetadataFiles
+{
+   public static boolean isBinaryFormatFile(Path dbmdPath)
+   {
+      return fileExtension(dbmdPath).equalsIgnoreCase(DatabaseMetadataBinaryFormat.FILE_EXTENSION);
+   }
+
+   public static DatabaseMetadata read(Path dbmdPath) throws IOException
+   {
+      if ( isBinaryFormatFile(dbmdPath) )
+         return DatabaseMetadataBinaryFormat.read(dbmdPath);
+
+      try ( InputStream dbmdIS = Files.newInputStream(dbmdPath) )
+      {
+         return getObjectMapper(fileExtension(dbmdPath)).readValue(dbmdIS, DatabaseMetadata.class);
+      }
+   }
+
+   /// Read database metadata as in read(), but with all relation metadatas decoded and none backed by the file,
+   /// so that the file may be replaced while the metadata is in use.
+   public static DatabaseMetadata readDetached(Path dbmdPath) throws IOException
+   {
+      DatabaseMetadata dbmd = read(dbmdPath);
+
+      if ( !isBinaryFormatFile(dbmdPath) )
+         return dbmd;
+
+      return
+         new DatabaseMetadata(
+            new ArrayList<>(dbmd.getRelationMetadatas()),
+            dbmd.getForeignKeys(),
+            dbmd.getCaseSensitivity(),
+            dbmd.getDbmsName(),
+            dbmd.getDbmsVersion()
+         );
+   }
+
+   public static void write
+      (
+         DatabaseMetadata dbmd,
+         Path dbmdPath
+      )
+      throws IOException
+   {
+      try ( OutputStream os = Files.newOutputStream(dbmdPath) )
+      {
+         if ( isBinaryFormatFile(dbmdPath) )
+            DatabaseMetadataBinaryFormat.write(dbmd, os);
+         else
+         {
+            ObjectMapper mapper = getObjectMapper(fileExtension(dbmdPath));
+            mapper.enable(SerializationFeature.INDENT_OUTPUT);
+            mapper.writeValue(os, dbmd);
+         }
+      }
+   }
+
+   private DatabaseMetadataFiles() {}
+}
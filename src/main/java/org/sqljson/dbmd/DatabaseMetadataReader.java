@@ -0,0 +1,190 @@
+package org.sqljson.dbmd;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.*;
+import static java.util.Objects.requireNonNull;
+
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+
+/// Reads database metadata as written by serializing a DatabaseMetadata instance or by DatabaseMetadataWriter,
+/// one relation at a time, so that the metadata for all relations need never be held in memory at once. The
+/// header properties (dbmsName, dbmsVersion, caseSensitivity) are read on construction and must precede the
+/// relation metadatas in the input, as they do in all written metadata. Foreign keys are available once all
+/// relation metadatas have been read.
+public class DatabaseMetadataReader implements Closeable
+{
+   private final ObjectMapper mapper;
+
+   private final JsonParser parser;
+
+   private final String dbmsName;
+
+   private final String dbmsVersion;
+
+   private final CaseSensitivity caseSensitivity;
+
+   private @Nullable List<ForeignKey> foreignKeys;
+
+   private boolean relationsEnded;
+
+   public DatabaseMetadataReader
+      (
+         InputStream is,
+         ObjectMapper mapper
+      )
+      throws IOException
+   {
+      this.mapper = mapper;
+      this.parser = mapper.createParser(is);
+
+      expectToken(parser.nextToken(), JsonToken.START_OBJECT);
+
+      @Nullable String dbmsName = null;
+      @Nullable String dbmsVersion = null;
+      @Nullable CaseSensitivity caseSensitivity = null;
+      boolean relationsStarted = false;
+
+      while ( !relationsStarted && parser.nextToken() == JsonToken.FIELD_NAME )
+      {
+         String fieldName = parser.getCurrentName();
+         JsonToken valueToken = parser.nextToken();
+         switch ( fieldName )
+         {
+            case "dbmsName": dbmsName = parser.getValueAsString(); break;
+            case "dbmsVersion": dbmsVersion = parser.getValueAsString(); break;
+            case "caseSensitivity": caseSensitivity = mapper.readValue(parser, CaseSensitivity.class); break;
+            case "foreignKeys": foreignKeys = readForeignKeys(parser, mapper); break;
+            case "relationMetadatas":
+               expectToken(valueToken, JsonToken.START_ARRAY);
+               relationsStarted = true;
+               break;
+            default: parser.skipChildren();
+         }
+      }
+
+      if ( dbmsName == null || dbmsVersion == null || caseSensitivity == null )
+         throw new IOException(
+            "Database metadata properties dbmsName, dbmsVersion and caseSensitivity are required before " +
+            "relationMetadatas for streamed reading."
+         );
+
+      this.dbmsName = dbmsName;
+      this.dbmsVersion = dbmsVersion;
+      this.caseSensitivity = caseSensitivity;
+      this.relationsEnded = !relationsStarted;
+   }
+
+   public String getDbmsName() { return dbmsName; }
+
+   public String getDbmsVersion() { return dbmsVersion; }
+
+   public CaseSensitivity getCaseSensitivity() { return caseSensitivity; }
+
+   /// Read the next relation metadata, or return null if all relation metadatas have been read.
+   public @Nullable RelMetadata nextRelationMetadata() throws IOException
+   {
+      if ( relationsEnded )
+         return null;
+
+      if ( parser.nextToken() == JsonToken.END_ARRAY )
+      {
+         relationsEnded = true;
+         readRemainingProperties();
+         return null;
+      }
+
+      return mapper.readValue(parser, RelMetadata.class);
+   }
+
+   /// Return an iterator over the relation metadatas not yet read, with any read error thrown as an
+   /// UncheckedIOException.
+   public Iterator<RelMetadata> relationMetadatas()
+   {
+      return new Iterator<RelMetadata>()
+      {
+         private @Nullable RelMetadata next = null;
+
+         @Override
+         public boolean hasNext()
+         {
+            if ( next == null )
+            {
+               try { next = nextRelationMetadata(); }
+               catch (IOException e) { throw new UncheckedIOException(e); }
+            }
+            return next != null;
+         }
+
+         @Override
+         public RelMetadata next()
+         {
+            if ( !hasNext() )
+               throw new NoSuchElementException();
+            RelMetadata relMd = requireNonNull(next);
+            next = null;
+            return relMd;
+         }
+      };
+   }
+
+   /// Return the foreign keys, which are only available once all relation metadatas have been read.
+   public List<ForeignKey> getForeignKeys()
+   {
+      if ( !relationsEnded )
+         throw new IllegalStateException("Foreign keys are only available after all relations have been read.");
+
+      return foreignKeys != null ? foreignKeys : Collections.emptyList();
+   }
+
+   private void readRemainingProperties() throws IOException
+   {
+      while ( parser.nextToken() == JsonToken.FIELD_NAME )
+      {
+         String fieldName = parser.getCurrentName();
+         parser.nextToken();
+         if ( fieldName.equals("foreignKeys") )
+            foreignKeys = readForeignKeys(parser, mapper);
+         else
+            parser.skipChildren();
+      }
+   }
+
+   private static List<ForeignKey> readForeignKeys
+      (
+         JsonParser parser,
+         ObjectMapper mapper
+      )
+      throws IOException
+   {
+      if ( parser.currentToken() == JsonToken.VALUE_NULL )
+         return Collections.emptyList();
+
+      return mapper.readValue(parser, new TypeReference<List<ForeignKey>>(){});
+   }
+
+   private static void expectToken
+      (
+         @Nullable JsonToken token,
+         JsonToken expectedToken
+      )
+      throws IOException
+   {
+      if ( token != expectedToken )
+         throw new IOException("Expected " + expectedToken + " in database metadata but found " + token + ".");
+   }
+
+   @Override
+   public void close() throws IOException
+   {
+      parser.close();
+   }
+}
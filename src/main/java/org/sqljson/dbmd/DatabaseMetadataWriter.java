@@ -0,0 +1,103 @@
+package org.sqljson.dbmd;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+
+/// Writes database metadata incrementally, one relation at a time, in the same document structure as is produced
+/// by serializing a DatabaseMetadata instance with the same object mapper, so that the metadata for all relations
+/// need never be held in memory at once. The header must be written first, followed by any number of relation
+/// metadatas, and finally the foreign keys. Relation metadatas are written in the order given, which should be the
+/// sorted order of DatabaseMetadata for the output to be the same as that of the serialized DatabaseMetadata.
+public class DatabaseMetadataWriter implements Closeable
+{
+   private enum State { INITIAL, RELATIONS, FINISHED }
+
+   private final ObjectWriter objWriter;
+
+   private final JsonGenerator gen;
+
+   private State state;
+
+   public DatabaseMetadataWriter
+      (
+         OutputStream os,
+         ObjectMapper mapper
+      )
+      throws IOException
+   {
+      this.objWriter = mapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+      this.gen = objWriter.createGenerator(os);
+      this.gen.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+      this.state = State.INITIAL;
+   }
+
+   public void writeHeader
+      (
+         String dbmsName,
+         String dbmsVersion,
+         CaseSensitivity caseSensitivity
+      )
+      throws IOException
+   {
+      requireState(State.INITIAL, "header");
+
+      gen.writeStartObject();
+      gen.writeStringField("dbmsName", dbmsName);
+      gen.writeStringField("dbmsVersion", dbmsVersion);
+      gen.writeFieldName("caseSensitivity");
+      objWriter.writeValue(gen, caseSensitivity);
+      gen.writeFieldName("relationMetadatas");
+      gen.writeStartArray();
+
+      state = State.RELATIONS;
+   }
+
+   public void writeRelationMetadata(RelMetadata relMd) throws IOException
+   {
+      requireState(State.RELATIONS, "relation metadata");
+
+      objWriter.writeValue(gen, relMd);
+   }
+
+   /// Write the foreign keys, in the sorted order of DatabaseMetadata, completing the document.
+   public void writeForeignKeys(List<ForeignKey> foreignKeys) throws IOException
+   {
+      requireState(State.RELATIONS, "foreign keys");
+
+      gen.writeEndArray();
+      gen.writeFieldName("foreignKeys");
+      gen.writeStartArray();
+      for ( ForeignKey fk : DatabaseMetadata.sortedFks(foreignKeys) )
+         objWriter.writeValue(gen, fk);
+      gen.writeEndArray();
+      gen.writeEndObject();
+
+      state = State.FINISHED;
+   }
+
+   private void requireState
+      (
+         State requiredState,
+         String writing
+      )
+   {
+      if ( state != requiredState )
+         throw new IllegalStateException("Cannot write " + writing + " in state " + state + ".");
+   }
+
+   /// Flush and close the generator, leaving the underlying output stream open.
+   @Override
+   public void close() throws IOException
+   {
+      gen.flush();
+      gen.close();
+   }
+}
@@ -0,0 +1,203 @@
+package org.sqljson.dbmd;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import static java.util.Objects.requireNonNull;
+
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import static org.sqljson.util.Nullables.valueOr;
+
+
+/// Instrumentation of metadata fetching, recording for each fetch phase the wall time, the number of JDBC metadata
+/// calls or catalog queries made, and the number of result rows read. A phase's wall time is the time from the
+/// start of each of its calls until the call's result set is closed, summed over the phase's calls, so it includes
+/// the processing of rows as they are read but not work done between calls. When schemas are fetched concurrently
+/// the times of concurrent calls are summed. Metrics are accumulated over all fetches made until reset.
+public class FetchMetrics
+{
+   public enum Phase { RELATION_DESCRIPTIONS, COLUMNS, PRIMARY_KEYS, INDEXES, STATISTICS, FOREIGN_KEYS, CHANGE_MARKERS }
+
+   public interface ResultSetCall
+   {
+      ResultSet call() throws SQLException;
+   }
+
+   public static class PhaseMetrics
+   {
+      private final Phase phase;
+      private final long wallMillis;
+      private final long jdbcCalls;
+      private final long rowsRead;
+
+      public PhaseMetrics
+         (
+            Phase phase,
+            long wallMillis,
+            long jdbcCalls,
+            long rowsRead
+         )
+      {
+         this.phase = phase;
+         this.wallMillis = wallMillis;
+         this.jdbcCalls = jdbcCalls;
+         this.rowsRead = rowsRead;
+      }
+
+      public Phase getPhase() { return phase; }
+
+      public long getWallMillis() { return wallMillis; }
+
+      public long getJdbcCalls() { return jdbcCalls; }
+
+      public long getRowsRead() { return rowsRead; }
+
+      @Override
+      public String toString()
+      {
+         return phase + ": " + wallMillis + " ms, " + jdbcCalls + " calls, " + rowsRead + " rows";
+      }
+   }
+
+   private static class Counters
+   {
+      final LongAdder nanos = new LongAdder();
+      final LongAdder calls = new LongAdder();
+      final LongAdder rows = new LongAdder();
+   }
+
+   /// Delegates to a result set, counting rows read and recording the time of the call when closed.
+   private static class TrackedResultSetHandler implements InvocationHandler
+   {
+      private final ResultSet rs;
+      private final Counters counters;
+      private final long startNanos;
+      private boolean closed;
+
+      TrackedResultSetHandler
+         (
+            ResultSet rs,
+            Counters counters,
+            long startNanos
+         )
+      {
+         this.rs = rs;
+         this.counters = counters;
+         this.startNanos = startNanos;
+      }
+
+      // Delegated methods may return null and may be passed null arguments (as null args for no-arg methods).
+      @Override
+      @SuppressWarnings("nullness")
+      public Object invoke
+         (
+            Object proxy,
+            Method method,
+            Object[] args
+         )
+         throws Throwable
+      {
+         Object res;
+         try
+         {
+            res = method.invoke(rs, args);
+         }
+         catch (InvocationTargetException e)
+         {
+            throw valueOr(e.getCause(), e);
+         }
+
+         if ( method.getName().equals("next") && Boolean.TRUE.equals(res) )
+            counters.rows.increment();
+         else if ( method.getName().equals("close") && !closed )
+         {
+            closed = true;
+            counters.nanos.add(System.nanoTime() - startNanos);
+         }
+
+         return res;
+      }
+   }
+
+   private final Map<Phase, Counters> countersByPhase;
+
+   public FetchMetrics()
+   {
+      countersByPhase = new EnumMap<>(Phase.class);
+      for ( Phase phase : Phase.values() )
+         countersByPhase.put(phase, new Counters());
+   }
+
+   /// Make a JDBC call producing a result set, recording the call and the rows read from the returned result set
+   /// against the given phase. The returned result set must be closed for the call's time to be recorded.
+   public ResultSet track
+      (
+         Phase phase,
+         ResultSetCall resultSetCall
+      )
+      throws SQLException
+   {
+      Counters counters = counters(phase);
+      long start = System.nanoTime();
+
+      ResultSet rs;
+      try
+      {
+         rs = resultSetCall.call();
+      }
+      catch (SQLException | RuntimeException e)
+      {
+         counters.calls.increment();
+         counters.nanos.add(System.nanoTime() - start);
+         throw e;
+      }
+
+      counters.calls.increment();
+
+      return (ResultSet) Proxy.newProxyInstance(
+         requireNonNull(FetchMetrics.class.getClassLoader()),
+         new Class<?>[]{ ResultSet.class },
+         new TrackedResultSetHandler(rs, counters, start)
+      );
+   }
+
+   public List<PhaseMetrics> getPhaseMetrics()
+   {
+      List<PhaseMetrics> phaseMetrics = new ArrayList<>();
+
+      for ( Phase phase : Phase.values() )
+      {
+         Counters counters = counters(phase);
+         phaseMetrics.add(new PhaseMetrics(
+            phase,
+            TimeUnit.NANOSECONDS.toMillis(counters.nanos.sum()),
+            counters.calls.sum(),
+            counters.rows.sum()
+         ));
+      }
+
+      return phaseMetrics;
+   }
+
+   public void reset()
+   {
+      for ( Counters counters : countersByPhase.values() )
+      {
+         counters.nanos.reset();
+         counters.calls.reset();
+         counters.rows.reset();
+      }
+   }
+
+   private Counters counters(Phase phase)
+   {
+      return requireNonNull(countersByPhase.get(phase));
+   }
+}
@@ -0,0 +1,64 @@
+package org.sqljson.dbmd;
+
+import java.util.*;
+import static java.util.Collections.emptyList;
+import static java.util.Collections.unmodifiableList;
+import static java.util.Objects.requireNonNull;
+
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+
+@JsonPropertyOrder({"name", "fieldNames", "unique", "predicate"})
+public class Index
+{
+   private final String name;
+
+   // Indexed fields in index order, with any index expressions in the form reported by the database.
+   private final List<String> fieldNames;
+
+   private final boolean unique;
+
+   // Condition restricting the rows which are indexed, for a partial index.
+   @JsonInclude(JsonInclude.Include.NON_NULL)
+   private final @Nullable String predicate;
+
+   public Index
+      (
+         String name,
+         List<String> fieldNames,
+         boolean unique,
+         @Nullable String predicate
+      )
+   {
+      this.name = requireNonNull(name);
+      this.fieldNames = unmodifiableList(new ArrayList<>(requireNonNull(fieldNames)));
+      this.unique = unique;
+      this.predicate = predicate;
+   }
+
+   Index()
+   {
+      this.name = "";
+      this.fieldNames = emptyList();
+      this.unique = false;
+      this.predicate = null;
+   }
+
+   public String getName() { return name; }
+
+   public List<String> getFieldNames() { return fieldNames; }
+
+   public boolean isUnique() { return unique; }
+
+   public @Nullable String getPredicate() { return predicate; }
+
+   /// Whether the index can be used to look up rows by equality on the given fields, which requires the leading
+   /// field of the index to be one of them. A partial index is not considered usable, since its predicate is not
+   /// generally implied by a join condition.
+   public boolean supportsLookupOn(Collection<String> lookupFieldNames)
+   {
+      return predicate == null && !fieldNames.isEmpty() && lookupFieldNames.contains(fieldNames.get(0));
+   }
+}
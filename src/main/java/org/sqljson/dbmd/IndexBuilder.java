@@ -0,0 +1,50 @@
+package org.sqljson.dbmd;
+
+import java.util.*;
+
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+class IndexBuilder
+{
+   private final String name;
+   private final boolean unique;
+   private final @Nullable String predicate;
+   private final List<String> fieldNames;
+
+   public IndexBuilder
+      (
+         String name,
+         boolean unique,
+         @Nullable String predicate
+      )
+   {
+      this.name = name;
+      this.unique = unique;
+      this.predicate = predicate;
+      this.fieldNames = new ArrayList<>();
+   }
+
+   Index build() { return new Index(name, fieldNames, unique, predicate); }
+
+   void addFieldName(String fieldName) { fieldNames.add(fieldName); }
+
+   /// Build the indexes of each relation from the given builders by relation id and index name, with each
+   /// relation's indexes ordered by name.
+   static Map<RelId,List<Index>> buildIndexes(Map<RelId,Map<String,IndexBuilder>> idxBldrsByRelId)
+   {
+      Map<RelId,List<Index>> indexesByRelId = new HashMap<>();
+
+      for ( var relEntry : idxBldrsByRelId.entrySet() )
+      {
+         List<Index> indexes = new ArrayList<>();
+         for ( IndexBuilder idxBldr : relEntry.getValue().values() )
+            indexes.add(idxBldr.build());
+
+         indexes.sort(Comparator.comparing(Index::getName));
+
+         indexesByRelId.put(relEntry.getKey(), indexes);
+      }
+
+      return indexesByRelId;
+   }
+}
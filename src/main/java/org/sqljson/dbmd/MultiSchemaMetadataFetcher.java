@@ -0,0 +1,242 @@
+package org.sqljson.dbmd;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+import static java.util.Objects.requireNonNull;
+
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+
+/// Fetches metadata for multiple schemas concurrently, each schema being fetched by the given metadata fetcher on
+/// a connection taken from a bounded pool, with the results merged into a single database metadata instance.
+public class MultiSchemaMetadataFetcher
+{
+   public interface ConnectionFactory
+   {
+      Connection connect() throws SQLException;
+   }
+
+   public static class SchemaFetchStats
+   {
+      private final String schema;
+      private final int relationsCount;
+      private final int foreignKeysCount;
+      private final long elapsedMillis;
+
+      public SchemaFetchStats
+         (
+            String schema,
+            int relationsCount,
+            int foreignKeysCount,
+            long elapsedMillis
+         )
+      {
+         this.schema = schema;
+         this.relationsCount = relationsCount;
+         this.foreignKeysCount = foreignKeysCount;
+         this.elapsedMillis = elapsedMillis;
+      }
+
+      public String getSchema() { return schema; }
+
+      public int getRelationsCount() { return relationsCount; }
+
+      public int getForeignKeysCount() { return foreignKeysCount; }
+
+      public long getElapsedMillis() { return elapsedMillis; }
+
+      @Override
+      public String toString()
+      {
+         return
+            "schema " + schema + ": " + relationsCount + " relations, " + foreignKeysCount + " foreign keys in " +
+            elapsedMillis + " ms";
+      }
+   }
+
+   private final DatabaseMetadataFetcher fetcher;
+
+   private final int maxConnections;
+
+   public MultiSchemaMetadataFetcher
+      (
+         DatabaseMetadataFetcher fetcher,
+         int maxConnections
+      )
+   {
+      if ( maxConnections < 1 )
+         throw new IllegalArgumentException("At least one connection is required for fetching metadata.");
+      this.fetcher = fetcher;
+      this.maxConnections = maxConnections;
+   }
+
+   /// Fetch and merge metadata for the given schemas, with at most maxConnections schemas being fetched at once.
+   /// If previous metadata is given, then each schema is fetched incrementally relative to it, as described in
+   /// DatabaseMetadataFetcher.fetchMetadataIncrementally(). Stats for each schema are passed to the given listener
+   /// as each schema's fetch is completed, from the thread which fetched the schema.
+   public DatabaseMetadata fetchMetadata
+      (
+         ConnectionFactory connFactory,
+         List<String> schemas,
+         boolean includeTables,
+         boolean includeViews,
+         boolean includeFks,
+         @Nullable Pattern excludeRelsPat,
+         @Nullable DatabaseMetadata prevDbmd,
+         Consumer<SchemaFetchStats> statsListener
+      )
+      throws SQLException
+   {
+      if ( schemas.isEmpty() )
+         throw new IllegalArgumentException("At least one schema is required for fetching metadata.");
+
+      int poolSize = Math.min(maxConnections, schemas.size());
+
+      List<Connection> conns = new ArrayList<>();
+      BlockingQueue<Connection> connPool = new ArrayBlockingQueue<>(poolSize);
+      ExecutorService executor = Executors.newFixedThreadPool(poolSize);
+
+      try
+      {
+         for ( int i = 0; i < poolSize; ++i )
+         {
+            Connection conn = connFactory.connect();
+            conns.add(conn);
+            connPool.add(conn);
+         }
+
+         List<Future<DatabaseMetadata>> schemaDbmdFutures = new ArrayList<>();
+         for ( String schema : schemas )
+         {
+            schemaDbmdFutures.add(executor.submit(() -> {
+               Connection conn = connPool.take();
+               try
+               {
+                  long start = System.nanoTime();
+
+                  DatabaseMetadata schemaDbmd =
+                     prevDbmd != null ?
+                        fetcher.fetchMetadataIncrementally(
+                           conn.getMetaData(),
+                           schema,
+                           includeTables,
+                           includeViews,
+                           includeFks,
+                           excludeRelsPat,
+                           prevDbmd
+                        )
+                     : fetcher.fetchMetadata(
+                        conn.getMetaData(),
+                        schema,
+                        includeTables,
+                        includeViews,
+                        includeFks,
+                        excludeRelsPat
+                     );
+
+                  long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+                  statsListener.accept(new SchemaFetchStats(
+                     schema,
+                     schemaDbmd.getRelationMetadatas().size(),
+                     schemaDbmd.getForeignKeys().size(),
+                     elapsedMillis
+                  ));
+
+                  return schemaDbmd;
+               }
+               finally
+               {
+                  connPool.put(conn);
+               }
+            }));
+         }
+
+         List<RelMetadata> relMds = new ArrayList<>();
+         List<ForeignKey> fks = new ArrayList<>();
+         @Nullable DatabaseMetadata firstSchemaDbmd = null;
+
+         for ( Future<DatabaseMetadata> schemaDbmdFuture : schemaDbmdFutures )
+         {
+            DatabaseMetadata schemaDbmd = getFetchResult(schemaDbmdFuture);
+
+            if ( firstSchemaDbmd == null )
+               firstSchemaDbmd = schemaDbmd;
+
+            relMds.addAll(schemaDbmd.getRelationMetadatas());
+            fks.addAll(schemaDbmd.getForeignKeys());
+         }
+
+         DatabaseMetadata firstDbmd = requireNonNull(firstSchemaDbmd);
+
+         // The merged metadata is sorted on construction, so the output does not depend on fetch completion order.
+         return
+            new DatabaseMetadata(
+               relMds,
+               fks,
+               firstDbmd.getCaseSensitivity(),
+               firstDbmd.getDbmsName(),
+               firstDbmd.getDbmsVersion()
+            );
+      }
+      finally
+      {
+         // Connections are only closed once no fetch task can still be using them.
+         shutdownAndAwaitTermination(executor);
+
+         for ( Connection conn : conns )
+            conn.close();
+      }
+   }
+
+   /// Cancel the fetch tasks which have not completed, interrupting those that are running, and wait for all of the
+   /// tasks to finish however long that takes. An interrupt received while waiting is restored afterward.
+   private static void shutdownAndAwaitTermination(ExecutorService executor)
+   {
+      executor.shutdownNow();
+
+      boolean interrupted = false;
+      boolean terminated = false;
+      while ( !terminated )
+      {
+         try
+         {
+            terminated = executor.awaitTermination(1, TimeUnit.MINUTES);
+         }
+         catch (InterruptedException e)
+         {
+            interrupted = true;
+         }
+      }
+
+      if ( interrupted )
+         Thread.currentThread().interrupt();
+   }
+
+   private static DatabaseMetadata getFetchResult(Future<DatabaseMetadata> schemaDbmdFuture) throws SQLException
+   {
+      try
+      {
+         return schemaDbmdFuture.get();
+      }
+      catch (InterruptedException e)
+      {
+         Thread.currentThread().interrupt();
+         throw new RuntimeException(e);
+      }
+      catch (ExecutionException e)
+      {
+         @Nullable Throwable cause = e.getCause();
+         if ( cause instanceof SQLException )
+            throw (SQLException) cause;
+         else if ( cause instanceof RuntimeException )
+            throw (RuntimeException) cause;
+         else
+            throw new RuntimeException(cause);
+      }
+   }
+}
@@ -0,0 +1,584 @@
+package org.sqljson.dbmd;
+
+import java.sql.*;
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+import static java.util.Collections.emptyList;
+import static java.util.Collections.emptyMap;
+import static java.util.Objects.requireNonNull;
+import static java.util.function.Function.identity;
+import static java.util.stream.Collectors.toMap;
+import static java.util.stream.Collectors.toSet;
+
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import org.sqljson.util.StringFuns;
+import static org.sqljson.dbmd.FetchMetrics.Phase.*;
+import static org.sqljson.dbmd.RelMetadata.RelType.Table;
+import static org.sqljson.dbmd.RelMetadata.RelType.View;
+import static org.sqljson.util.Nullables.valueOr;
+
+
+/// Fetches database metadata for Oracle via bulk queries on the ALL_* data dictionary views, instead of through
+/// the driver's DatabaseMetaData implementation, which is very slow for large schemas at the driver's default fetch
+/// size. Results are the same as those of the JDBC-based fetcher, with type codes, sizes and decimal digits derived
+/// from the dictionary columns as the driver's getColumns() does.
+public class OracleDictionaryMetadataFetcher extends DatabaseMetadataFetcher
+{
+   public static final int DEFAULT_FETCH_SIZE = 5000;
+
+   // Oracle-specific type codes as reported by the driver (oracle.jdbc.OracleTypes).
+   private static final int ORA_TIMESTAMPTZ = -101;
+   private static final int ORA_TIMESTAMPLTZ = -102;
+   private static final int ORA_INTERVALYM = -103;
+   private static final int ORA_INTERVALDS = -104;
+   private static final int ORA_BFILE = -13;
+   private static final int ORA_BINARY_FLOAT = 100;
+   private static final int ORA_BINARY_DOUBLE = 101;
+
+   // Relations are listed in the column and primary key queries when a schema is specified and there are at most
+   // this many of them, as when re-fetching changed relations in an incremental fetch.
+   private static final int MAX_LISTED_RELATIONS = 1000;
+
+   // ORA-00942, raised when querying a dba view without privileges to read it.
+   private static final int TABLE_OR_VIEW_DOES_NOT_EXIST_ERROR_CODE = 942;
+
+   private final int fetchSize;
+
+   public OracleDictionaryMetadataFetcher(DateMapping mapping)
+   {
+      this(mapping, DEFAULT_FETCH_SIZE);
+   }
+
+   public OracleDictionaryMetadataFetcher
+      (
+         DateMapping mapping,
+         int fetchSize
+      )
+   {
+      super(mapping);
+      this.fetchSize = fetchSize;
+   }
+
+   @Override
+   public List<RelDescr> fetchRelationDescriptions
+      (
+         DatabaseMetaData dbmd,
+         @Nullable String schema,
+         boolean includeTables,
+         boolean includeViews,
+         @Nullable Pattern excludeRelsPattern
+      )
+      throws SQLException
+   {
+      List<RelDescr> relDescrs = new ArrayList<>();
+
+      if ( !includeTables && !includeViews )
+         return relDescrs;
+
+      String relTypeCond =
+         includeTables && includeViews ? "tc.table_type in ('TABLE','VIEW')"
+         : includeTables ? "tc.table_type = 'TABLE'"
+         : "tc.table_type = 'VIEW'";
+
+      // Dropped tables remaining in the recycle bin are not reported by the driver.
+      String sql =
+         "select tc.owner, tc.table_name, tc.table_type, tc.comments\n" +
+         "from all_tab_comments tc\n" +
+         "where " + relTypeCond + " and tc.table_name not like 'BIN$%'" +
+         (schema != null ? " and tc.owner = ?" : "");
+
+      try ( PreparedStatement stmt = prepareSchemaQuery(dbmd, sql, schema);
+            ResultSet rs = getMetrics().track(RELATION_DESCRIPTIONS, stmt::executeQuery) )
+      {
+         while ( rs.next() )
+         {
+            RelId relId = new RelId(rs.getString("owner"), requireNonNull(rs.getString("table_name")));
+
+            if ( !StringFuns.matches(excludeRelsPattern, relId.getIdString()) )
+            {
+               RelMetadata.RelType relType = "TABLE".equals(rs.getString("table_type")) ? Table : View;
+
+               relDescrs.add(new RelDescr(relId, relType, rs.getString("comments")));
+            }
+         }
+      }
+
+      return relDescrs;
+   }
+
+   @Override
+   public void fetchRelationMetadatas
+      (
+         List<RelDescr> relDescrs, // descriptions of relations to include
+         @Nullable String schema,
+         DatabaseMetaData dbmd,
+         Consumer<RelMetadata> relMdConsumer
+      )
+      throws SQLException
+   {
+      Map<RelId,RelDescr> relDescrsByRelId = relDescrs.stream().collect(toMap(RelDescr::getRelationId, identity()));
+
+      Map<RelId,Map<String,Integer>> pkPartNumsByRelId = fetchPrimaryKeyPartNumbers(relDescrs, schema, dbmd);
+
+      Map<RelId,List<Index>> indexesByRelId = fetchIndexes(relDescrs, schema, dbmd);
+
+      // The type code for user-defined types depends on the type's kind, which is looked up as the driver does.
+      String sql =
+         "select t.owner, t.table_name, t.column_name, t.data_type, t.data_length, t.char_length,\n" +
+         "  t.data_precision, t.data_scale, t.nullable,\n" +
+         "  case when t.data_type_owner is not null then\n" +
+         "    (select a.typecode from all_types a where a.type_name = t.data_type and a.owner = t.data_type_owner)\n" +
+         "  end type_typecode\n" +
+         "from all_tab_columns t\n" +
+         (schema != null ? "where t.owner = ?" + listedRelationsCond("t.table_name", relDescrs) + "\n" : "") +
+         "order by t.owner, t.table_name, t.column_id";
+
+      try ( PreparedStatement stmt = prepareRelationsQuery(dbmd, sql, schema, relDescrs);
+            ResultSet colsRS = getMetrics().track(COLUMNS, stmt::executeQuery) )
+      {
+         @Nullable RelMetadataBuilder rmdBldr = null;
+
+         while ( colsRS.next() )
+         {
+            RelId relId = new RelId(colsRS.getString("owner"), requireNonNull(colsRS.getString("table_name")));
+
+            @Nullable RelDescr relDescr = relDescrsByRelId.get(relId);
+            if ( relDescr != null ) // Include this relation?
+            {
+               // Relation changed ?
+               if ( rmdBldr == null || !relId.equals(rmdBldr.getRelId()) )
+               {
+                  // finalize previous if any
+                  if ( rmdBldr != null )
+                     relMdConsumer.accept(rmdBldr.build());
+
+                  rmdBldr = new RelMetadataBuilder(
+                     relId,
+                     relDescr.getRelationType(),
+                     valueOr(pkPartNumsByRelId.get(relId), emptyMap()),
+                     valueOr(indexesByRelId.get(relId), emptyList())
+                  );
+               }
+
+               rmdBldr.addField(makeDictionaryColumnField(colsRS, rmdBldr));
+            }
+         }
+
+         if ( rmdBldr != null )
+            relMdConsumer.accept(rmdBldr.build());
+      }
+   }
+
+   @Override
+   public Map<RelId,Map<String,Integer>> fetchPrimaryKeyPartNumbers
+      (
+         List<RelDescr> relDescrs, // descriptions of relations to include
+         @Nullable String schema,
+         DatabaseMetaData dbmd
+      )
+      throws SQLException
+   {
+      Set<RelId> relIds = relDescrs.stream().map(RelDescr::getRelationId).collect(toSet());
+
+      Map<RelId,Map<String,Integer>> pkPartNumsByRelId = new HashMap<>();
+
+      String sql =
+         "select c.owner, c.table_name, cc.column_name, cc.position\n" +
+         "from all_constraints c\n" +
+         "join all_cons_columns cc on cc.owner = c.owner and cc.constraint_name = c.constraint_name\n" +
+         "where c.constraint_type = 'P'" +
+         (schema != null ? " and c.owner = ?" + listedRelationsCond("c.table_name", relDescrs) : "");
+
+      try ( PreparedStatement stmt = prepareRelationsQuery(dbmd, sql, schema, relDescrs);
+            ResultSet rs = getMetrics().track(PRIMARY_KEYS, stmt::executeQuery) )
+      {
+         while ( rs.next() )
+         {
+            RelId relId = new RelId(rs.getString("owner"), requireNonNull(rs.getString("table_name")));
+
+            if ( relIds.contains(relId) )
+            {
+               pkPartNumsByRelId
+                  .computeIfAbsent(relId, k -> new HashMap<>())
+                  .put(requireNonNull(rs.getString("column_name")), rs.getInt("position"));
+            }
+         }
+      }
+
+      return pkPartNumsByRelId;
+   }
+
+   /// Fetch indexes of the given tables in a single dictionary query. Oracle has no partial indexes, and the
+   /// columns of function-based indexes are reported under their system-generated names, as by the driver.
+   @Override
+   public Map<RelId,List<Index>> fetchIndexes
+      (
+         List<RelDescr> relDescrs, // descriptions of relations to include
+         @Nullable String schema,
+         DatabaseMetaData dbmd
+      )
+      throws SQLException
+   {
+      Set<RelId> relIds = relDescrs.stream().map(RelDescr::getRelationId).collect(toSet());
+
+      Map<RelId,Map<String,IndexBuilder>> idxBldrsByRelId = new HashMap<>();
+
+      String sql =
+         "select i.table_owner, i.table_name, i.index_name, i.uniqueness, ic.column_name\n" +
+         "from all_indexes i\n" +
+         "join all_ind_columns ic on ic.index_owner = i.owner and ic.index_name = i.index_name\n" +
+         "where i.table_type = 'TABLE'" +
+         (schema != null ? " and i.table_owner = ?" + listedRelationsCond("i.table_name", relDescrs) : "") + "\n" +
+         "order by i.table_owner, i.table_name, i.index_name, ic.column_position";
+
+      try ( PreparedStatement stmt = prepareRelationsQuery(dbmd, sql, schema, relDescrs);
+            ResultSet rs = getMetrics().track(INDEXES, stmt::executeQuery) )
+      {
+         while ( rs.next() )
+         {
+            RelId relId = new RelId(rs.getString("table_owner"), requireNonNull(rs.getString("table_name")));
+
+            if ( relIds.contains(relId) )
+            {
+               boolean unique = "UNIQUE".equals(rs.getString("uniqueness"));
+
+               idxBldrsByRelId
+                  .computeIfAbsent(relId, k -> new HashMap<>())
+                  .computeIfAbsent(requireNonNull(rs.getString("index_name")), k -> new IndexBuilder(k, unique, null))
+                  .addFieldName(requireNonNull(rs.getString("column_name")));
+            }
+         }
+      }
+
+      return IndexBuilder.buildIndexes(idxBldrsByRelId);
+   }
+
+   /// Fetch size statistics of the given tables as last gathered by the optimizer statistics, with the size being
+   /// the number of blocks below the table's high water mark times the block size of its tablespace. No statistics
+   /// are recorded for tables which have not been analyzed, and no size for partitioned tables, which have no
+   /// tablespace of their own. Block sizes are read from dba_tablespaces, or from user_tablespaces if the user
+   /// cannot read the dba views, in which case tables in tablespaces not listed there (where the user has no
+   /// quota) have no size.
+   @Override
+   public Map<RelId,RelStatistics> fetchRelationStatistics
+      (
+         List<RelDescr> relDescrs, // descriptions of relations to include
+         @Nullable String schema,
+         DatabaseMetaData dbmd
+      )
+      throws SQLException
+   {
+      Set<RelId> relIds = relDescrs.stream().map(RelDescr::getRelationId).collect(toSet());
+
+      Map<RelId,RelStatistics> statsByRelId = new HashMap<>();
+
+      try
+      {
+         readRelationStatistics("dba_tablespaces", relIds, schema, relDescrs, dbmd, statsByRelId);
+      }
+      catch (SQLException e)
+      {
+         if ( e.getErrorCode() != TABLE_OR_VIEW_DOES_NOT_EXIST_ERROR_CODE )
+            throw e;
+         readRelationStatistics("user_tablespaces", relIds, schema, relDescrs, dbmd, statsByRelId);
+      }
+
+      return statsByRelId;
+   }
+
+   private void readRelationStatistics
+      (
+         String tablespacesView,
+         Set<RelId> relIds,
+         @Nullable String schema,
+         List<RelDescr> relDescrs,
+         DatabaseMetaData dbmd,
+         Map<RelId,RelStatistics> statsByRelId
+      )
+      throws SQLException
+   {
+      String sql =
+         "select t.owner, t.table_name, t.num_rows, t.blocks * ts.block_size size_bytes\n" +
+         "from all_tables t\n" +
+         "left join " + tablespacesView + " ts on ts.tablespace_name = t.tablespace_name\n" +
+         "where t.num_rows is not null" +
+         (schema != null ? " and t.owner = ?" + listedRelationsCond("t.table_name", relDescrs) : "");
+
+      try ( PreparedStatement stmt = prepareRelationsQuery(dbmd, sql, schema, relDescrs);
+            ResultSet rs = getMetrics().track(STATISTICS, stmt::executeQuery) )
+      {
+         while ( rs.next() )
+         {
+            RelId relId = new RelId(rs.getString("owner"), requireNonNull(rs.getString("table_name")));
+
+            if ( relIds.contains(relId) )
+            {
+               long rowCount = rs.getLong("num_rows");
+               long sizeBytes = rs.getLong("size_bytes");
+               statsByRelId.put(relId, new RelStatistics(rowCount, rs.wasNull() ? null : sizeBytes));
+            }
+         }
+      }
+   }
+
+   /// The change marker for a relation is its last DDL time, which is updated by any change to the relation's
+   /// definition including its constraints, or the last DDL time of any of its indexes if later.
+   @Override
+   public Map<RelId,String> fetchRelationChangeMarkers
+      (
+         DatabaseMetaData dbmd,
+         @Nullable String schema
+      )
+      throws SQLException
+   {
+      Map<RelId,String> changeMarkers = new HashMap<>();
+
+      String sql =
+         "select o.owner, o.object_name,\n" +
+         "  to_char(greatest(o.last_ddl_time, coalesce(\n" +
+         "    (select max(io.last_ddl_time)\n" +
+         "     from all_indexes i\n" +
+         "     join all_objects io on io.owner = i.owner and io.object_name = i.index_name and io.object_type = 'INDEX'\n" +
+         "     where i.table_owner = o.owner and i.table_name = o.object_name),\n" +
+         "    o.last_ddl_time)), 'YYYY-MM-DD\"T\"HH24:MI:SS') change_marker\n" +
+         "from all_objects o\n" +
+         "where o.object_type in ('TABLE','VIEW')" +
+         (schema != null ? " and o.owner = ?" : "");
+
+      try ( PreparedStatement stmt = prepareSchemaQuery(dbmd, sql, schema);
+            ResultSet rs = getMetrics().track(CHANGE_MARKERS, stmt::executeQuery) )
+      {
+         while ( rs.next() )
+         {
+            RelId relId = new RelId(rs.getString("owner"), requireNonNull(rs.getString("object_name")));
+            changeMarkers.put(relId, requireNonNull(rs.getString("change_marker")));
+         }
+      }
+
+      return changeMarkers;
+   }
+
+   @Override
+   public List<ForeignKey> fetchForeignKeys
+      (
+         @Nullable String schema,
+         DatabaseMetaData dbmd,
+         @Nullable Pattern excludeRelsPattern
+      )
+      throws SQLException
+   {
+      List<ForeignKey> fks = new ArrayList<>();
+
+      String sql =
+         "select fc.owner fk_owner, fc.table_name fk_table_name, pc.owner pk_owner, pc.table_name pk_table_name,\n" +
+         "  fcc.column_name fk_column_name, pcc.column_name pk_column_name, fcc.position comp_num\n" +
+         "from all_constraints fc\n" +
+         "join all_constraints pc on pc.owner = fc.r_owner and pc.constraint_name = fc.r_constraint_name\n" +
+         "join all_cons_columns fcc on fcc.owner = fc.owner and fcc.constraint_name = fc.constraint_name\n" +
+         "join all_cons_columns pcc on pcc.owner = pc.owner and pcc.constraint_name = pc.constraint_name\n" +
+         "  and pcc.position = fcc.position\n" +
+         "where fc.constraint_type = 'R'" +
+         (schema != null ? " and fc.owner = ?" : "") + "\n" +
+         "order by fc.owner, fc.constraint_name, fcc.position";
+
+      try ( PreparedStatement stmt = prepareSchemaQuery(dbmd, sql, schema);
+            ResultSet rs = getMetrics().track(FOREIGN_KEYS, stmt::executeQuery) )
+      {
+         @Nullable ForeignKeyBuilder fkBldr = null;
+
+         while ( rs.next() )
+         {
+            if ( rs.getInt("comp_num") == 1 ) // starting new fk
+            {
+               // Finalize previous fk if any.
+               if ( fkBldr != null && fkBldr.neitherRelMatches(excludeRelsPattern) )
+                  fks.add(fkBldr.build());
+
+               fkBldr = new ForeignKeyBuilder(
+                  null,
+                  new RelId(rs.getString("fk_owner"), requireNonNull(rs.getString("fk_table_name"))),
+                  new RelId(rs.getString("pk_owner"), requireNonNull(rs.getString("pk_table_name")))
+               );
+            }
+
+            requireNonNull(fkBldr).addComponent(
+               new ForeignKey.Component(
+                  requireNonNull(rs.getString("fk_column_name")),
+                  requireNonNull(rs.getString("pk_column_name"))
+               )
+            );
+         }
+
+         if ( fkBldr != null && fkBldr.neitherRelMatches(excludeRelsPattern) )
+            fks.add(fkBldr.build());
+      }
+
+      return fks;
+   }
+
+   /// Make a field from a row of the ALL_TAB_COLUMNS query, deriving the type code, column size and decimal
+   /// digits in the same way as the driver's getColumns() implementation (in its default non-J2EE13 mode).
+   private Field makeDictionaryColumnField
+      (
+         ResultSet colsRS,
+         RelMetadataBuilder rmdBldr
+      )
+      throws SQLException
+   {
+      String name = requireNonNull(colsRS.getString("column_name"));
+      String dataType = requireNonNull(colsRS.getString("data_type"));
+      @Nullable Integer dataPrecision = getRSInt(colsRS, "data_precision");
+      @Nullable Integer dataScale = getRSInt(colsRS, "data_scale");
+
+      @Nullable Integer columnSize;
+      @Nullable Integer decimalDigits;
+      switch ( dataType )
+      {
+         case "CHAR":
+         case "VARCHAR":
+         case "VARCHAR2":
+         case "NVARCHAR2":
+         case "NCHAR":
+            columnSize = dataPrecision != null ? dataPrecision : getRSInt(colsRS, "char_length");
+            decimalDigits = dataScale;
+            break;
+         case "NUMBER":
+            columnSize = dataPrecision != null ? dataPrecision : dataScale == null ? 0 : 38;
+            decimalDigits = dataPrecision == null && dataScale == null ? Integer.valueOf(-127) : dataScale;
+            break;
+         default:
+            columnSize = dataPrecision != null ? dataPrecision : getRSInt(colsRS, "data_length");
+            decimalDigits = dataScale;
+      }
+
+      int nullableCode = "N".equals(colsRS.getString("nullable")) ?
+         DatabaseMetaData.columnNoNulls
+         : DatabaseMetaData.columnNullable;
+
+      return
+         makeField(
+            name,
+            getDriverTypeCode(dataType, colsRS.getString("type_typecode")),
+            dataType,
+            columnSize,
+            decimalDigits,
+            nullableCode,
+            rmdBldr.getPrimaryKeyPartNumber(name)
+         );
+   }
+
+   /// Get the type code which the driver reports for a column of the given dictionary data type, where the type
+   /// kind (typecode in ALL_TYPES) is given for user-defined types.
+   static int getDriverTypeCode
+      (
+         String dataType,
+         @Nullable String userTypeKind
+      )
+   {
+      if ( dataType.startsWith("TIMESTAMP") )
+      {
+         if ( dataType.contains(" WITH LOCAL TIME ZONE") )
+            return ORA_TIMESTAMPLTZ;
+         else if ( dataType.contains(" WITH TIME ZONE") )
+            return ORA_TIMESTAMPTZ;
+         else
+            return Types.TIMESTAMP;
+      }
+      else if ( dataType.startsWith("INTERVAL DAY") )
+         return ORA_INTERVALDS;
+      else if ( dataType.startsWith("INTERVAL YEAR") )
+         return ORA_INTERVALYM;
+
+      switch ( dataType )
+      {
+         case "BINARY_DOUBLE": return ORA_BINARY_DOUBLE;
+         case "BINARY_FLOAT": return ORA_BINARY_FLOAT;
+         case "BFILE": return ORA_BFILE;
+         case "BLOB": return Types.BLOB;
+         case "CHAR": return Types.CHAR;
+         case "CLOB": return Types.CLOB;
+         case "COLLECTION": return Types.ARRAY;
+         case "DATE": return Types.TIMESTAMP; // as the driver reports with its default of mapDateToTimestamp
+         case "FLOAT": return Types.FLOAT;
+         case "LONG": return Types.LONGVARCHAR;
+         case "LONG RAW": return Types.LONGVARBINARY;
+         case "NCHAR": return Types.NCHAR;
+         case "NCLOB": return Types.NCLOB;
+         case "NUMBER": return Types.NUMERIC;
+         case "NVARCHAR": return Types.NVARCHAR;
+         case "NVARCHAR2": return Types.NVARCHAR;
+         case "OBJECT": return Types.STRUCT;
+         case "OPAQUE/XMLTYPE": return Types.SQLXML;
+         case "RAW": return Types.VARBINARY;
+         case "REF": return Types.REF;
+         case "ROWID": return Types.ROWID;
+         case "SQLXML": return Types.SQLXML;
+         case "UROWID": return Types.ROWID;
+         case "VARCHAR2": return Types.VARCHAR;
+         case "VARRAY": return Types.ARRAY;
+         case "XMLTYPE": return Types.SQLXML;
+         default:
+            return
+               "OBJECT".equals(userTypeKind) ? Types.STRUCT
+               : "COLLECTION".equals(userTypeKind) ? Types.ARRAY
+               : Types.OTHER;
+      }
+   }
+
+   /// Get a condition restricting the given table name column to the names of the given relations, if there are
+   /// no more than MAX_LISTED_RELATIONS of them, else an empty string.
+   private static String listedRelationsCond
+      (
+         String tableNameCol,
+         List<RelDescr> relDescrs
+      )
+   {
+      if ( relDescrs.isEmpty() || relDescrs.size() > MAX_LISTED_RELATIONS )
+         return "";
+
+      return " and " + tableNameCol + " in (" + String.join(",", Collections.nCopies(relDescrs.size(), "?")) + ")";
+   }
+
+   /// Prepare a query having a schema parameter if the schema is not null, followed by parameters for the names
+   /// of the given relations as added by listedRelationsCond() when the schema is specified.
+   private PreparedStatement prepareRelationsQuery
+      (
+         DatabaseMetaData dbmd,
+         String sql,
+         @Nullable String schema,
+         List<RelDescr> relDescrs
+      )
+      throws SQLException
+   {
+      PreparedStatement stmt = prepareSchemaQuery(dbmd, sql, schema);
+
+      if ( schema != null && !listedRelationsCond("", relDescrs).isEmpty() )
+      {
+         int paramIx = 2;
+         for ( RelDescr relDescr : relDescrs )
+            stmt.setString(paramIx++, relDescr.getRelationId().getName());
+      }
+
+      return stmt;
+   }
+
+   private PreparedStatement prepareSchemaQuery
+      (
+         DatabaseMetaData dbmd,
+         String sql,
+         @Nullable String schema
+      )
+      throws SQLException
+   {
+      PreparedStatement stmt = dbmd.getConnection().prepareStatement(sql);
+
+      stmt.setFetchSize(fetchSize);
+
+      if ( schema != null )
+         stmt.setString(1, schema);
+
+      return stmt;
+   }
+}
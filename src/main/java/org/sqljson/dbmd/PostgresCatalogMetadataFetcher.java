@@ -0,0 +1,519 @@
+package org.sqljson.dbmd;
+
+import java.sql.*;
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+import static java.util.Collections.emptyList;
+import static java.util.Collections.emptyMap;
+import static java.util.Objects.requireNonNull;
+import static java.util.function.Function.identity;
+import static java.util.stream.Collectors.toMap;
+import static java.util.stream.Collectors.toSet;
+
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.postgresql.core.BaseConnection;
+import org.postgresql.core.Oid;
+import org.postgresql.core.TypeInfo;
+
+import org.sqljson.util.StringFuns;
+import static org.sqljson.dbmd.FetchMetrics.Phase.*;
+import static org.sqljson.dbmd.RelMetadata.RelType.Table;
+import static org.sqljson.dbmd.RelMetadata.RelType.View;
+import static org.sqljson.util.Nullables.valueOr;
+
+
+/// Fetches database metadata for Postgres via set-based queries on the system catalogs, instead of through the
+/// much more general (and expensive) catalog queries behind the driver's DatabaseMetaData implementation. Results
+/// are the same as those of the JDBC-based fetcher, including the driver's type codes, names and sizes.
+public class PostgresCatalogMetadataFetcher extends DatabaseMetadataFetcher
+{
+   // System schemas are excluded as they are in the driver's "TABLE" and "VIEW" relation types.
+   private static final String USER_SCHEMAS_COND =
+      "n.nspname !~ '^pg_' and n.nspname <> 'information_schema'";
+
+   // Relations are listed in the column and primary key queries when there are at most this many of them, as when
+   // re-fetching changed relations in an incremental fetch.
+   private static final int MAX_LISTED_RELATIONS = 1000;
+
+   public PostgresCatalogMetadataFetcher(DateMapping mapping)
+   {
+      super(mapping);
+   }
+
+   @Override
+   public List<RelDescr> fetchRelationDescriptions
+      (
+         DatabaseMetaData dbmd,
+         @Nullable String schema,
+         boolean includeTables,
+         boolean includeViews,
+         @Nullable Pattern excludeRelsPattern
+      )
+      throws SQLException
+   {
+      List<RelDescr> relDescrs = new ArrayList<>();
+
+      if ( !includeTables && !includeViews )
+         return relDescrs;
+
+      String relKindCond =
+         includeTables && includeViews ? "c.relkind in ('r','v')"
+         : includeTables ? "c.relkind = 'r'"
+         : "c.relkind = 'v'";
+
+      String sql =
+         "select n.nspname rel_schema, c.relname rel_name, c.relkind rel_kind,\n" +
+         "  pg_catalog.obj_description(c.oid, 'pg_class') rel_comment\n" +
+         "from pg_catalog.pg_class c\n" +
+         "join pg_catalog.pg_namespace n on n.oid = c.relnamespace\n" +
+         "where " + relKindCond + " and " + USER_SCHEMAS_COND +
+         (schema != null ? " and n.nspname = ?" : "");
+
+      try ( PreparedStatement stmt = prepareSchemaQuery(dbmd, sql, schema);
+            ResultSet rs = getMetrics().track(RELATION_DESCRIPTIONS, stmt::executeQuery) )
+      {
+         while ( rs.next() )
+         {
+            RelId relId = new RelId(rs.getString("rel_schema"), requireNonNull(rs.getString("rel_name")));
+
+            if ( !StringFuns.matches(excludeRelsPattern, relId.getIdString()) )
+            {
+               RelMetadata.RelType relType = "r".equals(rs.getString("rel_kind")) ? Table : View;
+
+               relDescrs.add(new RelDescr(relId, relType, rs.getString("rel_comment")));
+            }
+         }
+      }
+
+      return relDescrs;
+   }
+
+   @Override
+   public void fetchRelationMetadatas
+      (
+         List<RelDescr> relDescrs, // descriptions of relations to include
+         @Nullable String schema,
+         DatabaseMetaData dbmd,
+         Consumer<RelMetadata> relMdConsumer
+      )
+      throws SQLException
+   {
+      Map<RelId,RelDescr> relDescrsByRelId = relDescrs.stream().collect(toMap(RelDescr::getRelationId, identity()));
+
+      Map<RelId,Map<String,Integer>> pkPartNumsByRelId = fetchPrimaryKeyPartNumbers(relDescrs, schema, dbmd);
+
+      Map<RelId,List<Index>> indexesByRelId = fetchIndexes(relDescrs, schema, dbmd);
+
+      TypeInfo typeInfo = dbmd.getConnection().unwrap(BaseConnection.class).getTypeInfo();
+
+      String sql =
+         "select n.nspname rel_schema, c.relname rel_name, a.attname col_name, a.atttypid type_oid,\n" +
+         "  a.atttypmod type_mod, a.attnotnull or (t.typtype = 'd' and t.typnotnull) not_null,\n" +
+         "  t.typtype, t.typbasetype, t.typtypmod,\n" +
+         "  coalesce(pg_catalog.pg_get_expr(d.adbin, d.adrelid) like '%nextval(%', false) has_nextval_default\n" +
+         "from pg_catalog.pg_class c\n" +
+         "join pg_catalog.pg_namespace n on n.oid = c.relnamespace\n" +
+         "join pg_catalog.pg_attribute a on a.attrelid = c.oid\n" +
+         "join pg_catalog.pg_type t on t.oid = a.atttypid\n" +
+         "left join pg_catalog.pg_attrdef d on d.adrelid = a.attrelid and d.adnum = a.attnum\n" +
+         "where c.relkind in ('r','v') and a.attnum > 0 and not a.attisdropped and " + USER_SCHEMAS_COND +
+         (schema != null ? " and n.nspname = ?" : "") +
+         (relDescrs.size() <= MAX_LISTED_RELATIONS ? " and n.nspname || '.' || c.relname = any(?)" : "") + "\n" +
+         "order by n.nspname, c.relname, a.attnum";
+
+      try ( PreparedStatement stmt = prepareRelationsQuery(dbmd, sql, schema, relDescrs);
+            ResultSet colsRS = getMetrics().track(COLUMNS, stmt::executeQuery) )
+      {
+         @Nullable RelMetadataBuilder rmdBldr = null;
+
+         while ( colsRS.next() )
+         {
+            RelId relId = new RelId(colsRS.getString("rel_schema"), requireNonNull(colsRS.getString("rel_name")));
+
+            @Nullable RelDescr relDescr = relDescrsByRelId.get(relId);
+            if ( relDescr != null ) // Include this relation?
+            {
+               // Relation changed ?
+               if ( rmdBldr == null || !relId.equals(rmdBldr.getRelId()) )
+               {
+                  // finalize previous if any
+                  if ( rmdBldr != null )
+                     relMdConsumer.accept(rmdBldr.build());
+
+                  rmdBldr = new RelMetadataBuilder(
+                     relId,
+                     relDescr.getRelationType(),
+                     valueOr(pkPartNumsByRelId.get(relId), emptyMap()),
+                     valueOr(indexesByRelId.get(relId), emptyList())
+                  );
+               }
+
+               rmdBldr.addField(makeField(colsRS, rmdBldr, typeInfo));
+            }
+         }
+
+         if ( rmdBldr != null )
+            relMdConsumer.accept(rmdBldr.build());
+      }
+   }
+
+   @Override
+   public Map<RelId,Map<String,Integer>> fetchPrimaryKeyPartNumbers
+      (
+         List<RelDescr> relDescrs, // descriptions of relations to include
+         @Nullable String schema,
+         DatabaseMetaData dbmd
+      )
+      throws SQLException
+   {
+      Set<RelId> relIds = relDescrs.stream().map(RelDescr::getRelationId).collect(toSet());
+
+      Map<RelId,Map<String,Integer>> pkPartNumsByRelId = new HashMap<>();
+
+      String sql =
+         "select n.nspname rel_schema, c.relname rel_name, a.attname col_name, k.ord key_seq\n" +
+         "from pg_catalog.pg_constraint con\n" +
+         "join pg_catalog.pg_class c on c.oid = con.conrelid\n" +
+         "join pg_catalog.pg_namespace n on n.oid = c.relnamespace\n" +
+         "cross join lateral unnest(con.conkey) with ordinality k(attnum, ord)\n" +
+         "join pg_catalog.pg_attribute a on a.attrelid = con.conrelid and a.attnum = k.attnum\n" +
+         "where con.contype = 'p'" +
+         (schema != null ? " and n.nspname = ?" : "") +
+         (relDescrs.size() <= MAX_LISTED_RELATIONS ? " and n.nspname || '.' || c.relname = any(?)" : "");
+
+      try ( PreparedStatement stmt = prepareRelationsQuery(dbmd, sql, schema, relDescrs);
+            ResultSet rs = getMetrics().track(PRIMARY_KEYS, stmt::executeQuery) )
+      {
+         while ( rs.next() )
+         {
+            RelId relId = new RelId(rs.getString("rel_schema"), requireNonNull(rs.getString("rel_name")));
+
+            if ( relIds.contains(relId) )
+            {
+               pkPartNumsByRelId
+                  .computeIfAbsent(relId, k -> new HashMap<>())
+                  .put(requireNonNull(rs.getString("col_name")), rs.getInt("key_seq"));
+            }
+         }
+      }
+
+      return pkPartNumsByRelId;
+   }
+
+   /// Fetch indexes of the given tables in a single catalog query, with index columns and predicates described
+   /// as in the driver's getIndexInfo(). Only the key columns of an index are recorded, not the non-key columns of
+   /// a covering index's include clause, which the index stores but cannot be searched on.
+   @Override
+   public Map<RelId,List<Index>> fetchIndexes
+      (
+         List<RelDescr> relDescrs, // descriptions of relations to include
+         @Nullable String schema,
+         DatabaseMetaData dbmd
+      )
+      throws SQLException
+   {
+      Set<RelId> relIds = relDescrs.stream().map(RelDescr::getRelationId).collect(toSet());
+
+      Map<RelId,Map<String,IndexBuilder>> idxBldrsByRelId = new HashMap<>();
+
+      // Included (non-key) columns follow the key columns in indkey, from Postgres 11 which introduced them.
+      String keyColumnsCond = dbmd.getDatabaseMajorVersion() >= 11 ? " and k.ord <= i.indnkeyatts" : "";
+
+      String sql =
+         "select n.nspname rel_schema, c.relname rel_name, ci.relname index_name, i.indisunique is_unique,\n" +
+         "  pg_catalog.pg_get_expr(i.indpred, i.indrelid) predicate,\n" +
+         "  pg_catalog.pg_get_indexdef(i.indexrelid, k.ord::int, false) col_name\n" +
+         "from pg_catalog.pg_index i\n" +
+         "join pg_catalog.pg_class c on c.oid = i.indrelid\n" +
+         "join pg_catalog.pg_class ci on ci.oid = i.indexrelid\n" +
+         "join pg_catalog.pg_namespace n on n.oid = c.relnamespace\n" +
+         "cross join lateral unnest(i.indkey::int2[]) with ordinality k(attnum, ord)\n" +
+         "where c.relkind = 'r' and " + USER_SCHEMAS_COND + keyColumnsCond +
+         (schema != null ? " and n.nspname = ?" : "") +
+         (relDescrs.size() <= MAX_LISTED_RELATIONS ? " and n.nspname || '.' || c.relname = any(?)" : "") + "\n" +
+         "order by n.nspname, c.relname, ci.relname, k.ord";
+
+      try ( PreparedStatement stmt = prepareRelationsQuery(dbmd, sql, schema, relDescrs);
+            ResultSet rs = getMetrics().track(INDEXES, stmt::executeQuery) )
+      {
+         while ( rs.next() )
+         {
+            RelId relId = new RelId(rs.getString("rel_schema"), requireNonNull(rs.getString("rel_name")));
+
+            if ( relIds.contains(relId) )
+            {
+               boolean unique = rs.getBoolean("is_unique");
+               @Nullable String predicate = rs.getString("predicate");
+
+               idxBldrsByRelId
+                  .computeIfAbsent(relId, k -> new HashMap<>())
+                  .computeIfAbsent(requireNonNull(rs.getString("index_name")), k -> new IndexBuilder(k, unique, predicate))
+                  .addFieldName(requireNonNull(rs.getString("col_name")));
+            }
+         }
+      }
+
+      return IndexBuilder.buildIndexes(idxBldrsByRelId);
+   }
+
+   /// Fetch size statistics of the given tables from the planner's estimates in pg_class, as last updated by
+   /// vacuum, analyze or index creation. The size is the number of pages times the block size. The driver does
+   /// not report table statistics, so unlike other metadata these are not available from the JDBC-based fetcher.
+   /// No statistics are recorded for tables which have never been vacuumed or analyzed. Before Postgres 14 such
+   /// tables cannot be told apart from analyzed empty tables, so no statistics are reported for either.
+   @Override
+   public Map<RelId,RelStatistics> fetchRelationStatistics
+      (
+         List<RelDescr> relDescrs, // descriptions of relations to include
+         @Nullable String schema,
+         DatabaseMetaData dbmd
+      )
+      throws SQLException
+   {
+      Set<RelId> relIds = relDescrs.stream().map(RelDescr::getRelationId).collect(toSet());
+
+      Map<RelId,RelStatistics> statsByRelId = new HashMap<>();
+
+      // Tables never vacuumed or analyzed have reltuples -1 from Postgres 14, but 0 with no pages before then.
+      String statsRecordedCond =
+         dbmd.getDatabaseMajorVersion() >= 14 ? "c.reltuples >= 0" : "not (c.reltuples = 0 and c.relpages = 0)";
+
+      String sql =
+         "select n.nspname rel_schema, c.relname rel_name, c.reltuples::int8 row_count,\n" +
+         "  c.relpages::int8 * current_setting('block_size')::int8 size_bytes\n" +
+         "from pg_catalog.pg_class c\n" +
+         "join pg_catalog.pg_namespace n on n.oid = c.relnamespace\n" +
+         "where c.relkind = 'r' and " + statsRecordedCond + " and " + USER_SCHEMAS_COND +
+         (schema != null ? " and n.nspname = ?" : "") +
+         (relDescrs.size() <= MAX_LISTED_RELATIONS ? " and n.nspname || '.' || c.relname = any(?)" : "");
+
+      try ( PreparedStatement stmt = prepareRelationsQuery(dbmd, sql, schema, relDescrs);
+            ResultSet rs = getMetrics().track(STATISTICS, stmt::executeQuery) )
+      {
+         while ( rs.next() )
+         {
+            RelId relId = new RelId(rs.getString("rel_schema"), requireNonNull(rs.getString("rel_name")));
+
+            if ( relIds.contains(relId) )
+               statsByRelId.put(relId, new RelStatistics(rs.getLong("row_count"), rs.getLong("size_bytes")));
+         }
+      }
+
+      return statsByRelId;
+   }
+
+   /// The change marker for a relation is derived from the transaction ids which last wrote the relation's own
+   /// catalog row and those of its columns, constraints and indexes, together with the relation's file node, which
+   /// changes on table rewrites.
+   @Override
+   public Map<RelId,String> fetchRelationChangeMarkers
+      (
+         DatabaseMetaData dbmd,
+         @Nullable String schema
+      )
+      throws SQLException
+   {
+      Map<RelId,String> changeMarkers = new HashMap<>();
+
+      String sql =
+         "select n.nspname rel_schema, c.relname rel_name,\n" +
+         "  c.xmin::text || '.' || c.relfilenode || '.' || md5(\n" +
+         "    coalesce((select string_agg(a.attnum || ':' || a.xmin::text, ',' order by a.attnum)\n" +
+         "              from pg_catalog.pg_attribute a where a.attrelid = c.oid), '') || ';' ||\n" +
+         "    coalesce((select string_agg(con.oid || ':' || con.xmin::text, ',' order by con.oid)\n" +
+         "              from pg_catalog.pg_constraint con where con.conrelid = c.oid), '') || ';' ||\n" +
+         "    coalesce((select string_agg(i.indexrelid || ':' || i.xmin::text, ',' order by i.indexrelid)\n" +
+         "              from pg_catalog.pg_index i where i.indrelid = c.oid), '')\n" +
+         "  ) change_marker\n" +
+         "from pg_catalog.pg_class c\n" +
+         "join pg_catalog.pg_namespace n on n.oid = c.relnamespace\n" +
+         "where c.relkind in ('r','v') and " + USER_SCHEMAS_COND +
+         (schema != null ? " and n.nspname = ?" : "");
+
+      try ( PreparedStatement stmt = prepareSchemaQuery(dbmd, sql, schema);
+            ResultSet rs = getMetrics().track(CHANGE_MARKERS, stmt::executeQuery) )
+      {
+         while ( rs.next() )
+         {
+            RelId relId = new RelId(rs.getString("rel_schema"), requireNonNull(rs.getString("rel_name")));
+            changeMarkers.put(relId, requireNonNull(rs.getString("change_marker")));
+         }
+      }
+
+      return changeMarkers;
+   }
+
+   @Override
+   public List<ForeignKey> fetchForeignKeys
+      (
+         @Nullable String schema,
+         DatabaseMetaData dbmd,
+         @Nullable Pattern excludeRelsPattern
+      )
+      throws SQLException
+   {
+      List<ForeignKey> fks = new ArrayList<>();
+
+      String sql =
+         "select fkn.nspname fk_rel_schema, fkc.relname fk_rel_name, pkn.nspname pk_rel_schema,\n" +
+         "  pkc.relname pk_rel_name, fka.attname fk_col_name, pka.attname pk_col_name, k.ord comp_num\n" +
+         "from pg_catalog.pg_constraint con\n" +
+         "join pg_catalog.pg_class fkc on fkc.oid = con.conrelid\n" +
+         "join pg_catalog.pg_namespace fkn on fkn.oid = fkc.relnamespace\n" +
+         "join pg_catalog.pg_class pkc on pkc.oid = con.confrelid\n" +
+         "join pg_catalog.pg_namespace pkn on pkn.oid = pkc.relnamespace\n" +
+         "cross join lateral unnest(con.conkey, con.confkey) with ordinality k(fk_attnum, pk_attnum, ord)\n" +
+         "join pg_catalog.pg_attribute fka on fka.attrelid = con.conrelid and fka.attnum = k.fk_attnum\n" +
+         "join pg_catalog.pg_attribute pka on pka.attrelid = con.confrelid and pka.attnum = k.pk_attnum\n" +
+         "where con.contype = 'f'" +
+         (schema != null ? " and fkn.nspname = ?" : "") + "\n" +
+         "order by con.oid, k.ord";
+
+      try ( PreparedStatement stmt = prepareSchemaQuery(dbmd, sql, schema);
+            ResultSet rs = getMetrics().track(FOREIGN_KEYS, stmt::executeQuery) )
+      {
+         @Nullable ForeignKeyBuilder fkBldr = null;
+
+         while ( rs.next() )
+         {
+            if ( rs.getInt("comp_num") == 1 ) // starting new fk
+            {
+               // Finalize previous fk if any.
+               if ( fkBldr != null && fkBldr.neitherRelMatches(excludeRelsPattern) )
+                  fks.add(fkBldr.build());
+
+               fkBldr = new ForeignKeyBuilder(
+                  null,
+                  new RelId(rs.getString("fk_rel_schema"), requireNonNull(rs.getString("fk_rel_name"))),
+                  new RelId(rs.getString("pk_rel_schema"), requireNonNull(rs.getString("pk_rel_name")))
+               );
+            }
+
+            requireNonNull(fkBldr).addComponent(
+               new ForeignKey.Component(
+                  requireNonNull(rs.getString("fk_col_name")),
+                  requireNonNull(rs.getString("pk_col_name"))
+               )
+            );
+         }
+
+         if ( fkBldr != null && fkBldr.neitherRelMatches(excludeRelsPattern) )
+            fks.add(fkBldr.build());
+      }
+
+      return fks;
+   }
+
+   /// Make a field from a row of the columns catalog query, deriving the type code, type name, size and decimal
+   /// digits in the same way as the driver's getColumns() implementation.
+   private Field makeField
+      (
+         ResultSet colsRS,
+         RelMetadataBuilder rmdBldr,
+         TypeInfo typeInfo
+      )
+      throws SQLException
+   {
+      String name = requireNonNull(colsRS.getString("col_name"));
+      int typeOid = (int) colsRS.getLong("type_oid");
+      int typeMod = colsRS.getInt("type_mod");
+      @Nullable String typType = colsRS.getString("typtype");
+
+      int sqlType =
+         "c".equals(typType) ? Types.STRUCT
+         : "d".equals(typType) ? Types.DISTINCT
+         : "e".equals(typType) ? Types.VARCHAR
+         : typeInfo.getSQLType(typeOid);
+
+      String pgType = requireNonNull(typeInfo.getPGType(typeOid));
+      if ( colsRS.getBoolean("has_nextval_default") )
+      {
+         switch ( pgType )
+         {
+            case "int4": pgType = "serial"; break;
+            case "int8": pgType = "bigserial"; break;
+            case "int2": pgType = "smallserial"; break;
+            default: break;
+         }
+      }
+
+      int decimalDigits;
+      int columnSize;
+      if ( sqlType == Types.DISTINCT ) // domain
+      {
+         int baseTypeOid = (int) colsRS.getLong("typbasetype");
+         int typTypeMod = colsRS.getInt("typtypmod");
+         decimalDigits = typeInfo.getScale(baseTypeOid, typeMod);
+         if ( typTypeMod == -1 )
+            columnSize = typeInfo.getPrecision(baseTypeOid, typeMod);
+         else if ( baseTypeOid == Oid.NUMERIC )
+         {
+            decimalDigits = typeInfo.getScale(baseTypeOid, typTypeMod);
+            columnSize = typeInfo.getPrecision(baseTypeOid, typTypeMod);
+         }
+         else
+            columnSize = typTypeMod;
+      }
+      else
+      {
+         decimalDigits = typeInfo.getScale(typeOid, typeMod);
+         columnSize = typeInfo.getPrecision(typeOid, typeMod);
+         if ( sqlType != Types.NUMERIC && columnSize == 0 )
+            columnSize = typeInfo.getDisplaySize(typeOid, typeMod);
+      }
+
+      boolean unsetNumericScale = (sqlType == Types.NUMERIC || sqlType == Types.DECIMAL) && typeMod == -1;
+
+      int nullableCode = colsRS.getBoolean("not_null") ? DatabaseMetaData.columnNoNulls : DatabaseMetaData.columnNullable;
+
+      return
+         makeField(
+            name,
+            sqlType,
+            pgType,
+            columnSize,
+            unsetNumericScale ? null : decimalDigits,
+            nullableCode,
+            rmdBldr.getPrimaryKeyPartNumber(name)
+         );
+   }
+
+   /// Prepare a query having a schema parameter if the schema is not null, followed by a parameter for the array
+   /// of qualified names of the given relations if there are no more than MAX_LISTED_RELATIONS of them.
+   private static PreparedStatement prepareRelationsQuery
+      (
+         DatabaseMetaData dbmd,
+         String sql,
+         @Nullable String schema,
+         List<RelDescr> relDescrs
+      )
+      throws SQLException
+   {
+      PreparedStatement stmt = prepareSchemaQuery(dbmd, sql, schema);
+
+      if ( relDescrs.size() <= MAX_LISTED_RELATIONS )
+      {
+         Object[] relNames = relDescrs.stream().map(rd -> rd.getRelationId().getIdString()).toArray();
+         stmt.setArray(schema != null ? 2 : 1, dbmd.getConnection().createArrayOf("text", relNames));
+      }
+
+      return stmt;
+   }
+
+   private static PreparedStatement prepareSchemaQuery
+      (
+         DatabaseMetaData dbmd,
+         String sql,
+         @Nullable String schema
+      )
+      throws SQLException
+   {
+      PreparedStatement stmt = dbmd.getConnection().prepareStatement(sql);
+
+      if ( schema != null )
+         stmt.setString(1, schema);
+
+      return stmt;
+   }
+}
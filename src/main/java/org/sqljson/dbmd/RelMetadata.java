@@ -9,9 +9,10 @@ import static java.util.stream.Collectors.toList;
 import org.checkerframework.checker.nullness.qual.Nullable;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonPropertyOrder;
 
-@JsonPropertyOrder({"relationId", "relationType", "fields"})
+@JsonPropertyOrder({"relationId", "relationType", "fields", "indexes", "statistics", "changeMarker"})
 public class RelMetadata
 {
    private final RelId relationId;
@@ -20,6 +21,17 @@ public class RelMetadata
 
    private final List<Field> fields;
 
+   @JsonInclude(JsonInclude.Include.NON_EMPTY)
+   private final List<Index> indexes;
+
+   // Size estimates, if requested when fetching the metadata.
+   @JsonInclude(JsonInclude.Include.NON_NULL)
+   private final @Nullable RelStatistics statistics;
+
+   // Value which changes whenever the relation's definition changes, if recorded for incremental fetching.
+   @JsonInclude(JsonInclude.Include.NON_NULL)
+   private final @Nullable String changeMarker;
+
    public enum RelType { Table, View, Unknown }
 
 
@@ -29,10 +41,49 @@ public class RelMetadata
          RelType relationType,
          List<Field> fields
       )
+   {
+      this(relationId, relationType, fields, emptyList(), null);
+   }
+
+   public RelMetadata
+      (
+         RelId relationId,
+         RelType relationType,
+         List<Field> fields,
+         @Nullable String changeMarker
+      )
+   {
+      this(relationId, relationType, fields, emptyList(), changeMarker);
+   }
+
+   public RelMetadata
+      (
+         RelId relationId,
+         RelType relationType,
+         List<Field> fields,
+         List<Index> indexes,
+         @Nullable String changeMarker
+      )
+   {
+      this(relationId, relationType, fields, indexes, null, changeMarker);
+   }
+
+   public RelMetadata
+      (
+         RelId relationId,
+         RelType relationType,
+         List<Field> fields,
+         List<Index> indexes,
+         @Nullable RelStatistics statistics,
+         @Nullable String changeMarker
+      )
    {
       this.relationId = requireNonNull(relationId);
       this.relationType = requireNonNull(relationType);
       this.fields = unmodifiableList(new ArrayList<>(requireNonNull(fields)));
+      this.indexes = unmodifiableList(new ArrayList<>(requireNonNull(indexes)));
+      this.statistics = statistics;
+      this.changeMarker = changeMarker;
    }
 
    RelMetadata()
@@ -40,6 +91,9 @@ public class RelMetadata
       this.relationId = RelId.DUMMY_INSTANCE;
       this.relationType = RelType.Table;
       this.fields = emptyList();
+      this.indexes = emptyList();
+      this.statistics = null;
+      this.changeMarker = null;
    }
 
    public RelId getRelationId() { return relationId; }
@@ -48,6 +102,33 @@ public class RelMetadata
 
    public List<Field> getFields() { return fields; }
 
+   public List<Index> getIndexes() { return indexes; }
+
+   public @Nullable RelStatistics getStatistics() { return statistics; }
+
+   public @Nullable String getChangeMarker() { return changeMarker; }
+
+   public RelMetadata withChangeMarker(@Nullable String changeMarker)
+   {
+      return new RelMetadata(relationId, relationType, fields, indexes, statistics, changeMarker);
+   }
+
+   public RelMetadata withStatistics(@Nullable RelStatistics statistics)
+   {
+      return new RelMetadata(relationId, relationType, fields, indexes, statistics, changeMarker);
+   }
+
+   /// Whether rows of the relation can be looked up by equality on the given fields via an index, which may be
+   /// the primary key's index, as described in Index.supportsLookupOn().
+   public boolean hasIndexSupportingLookupOn(Collection<String> fieldNames)
+   {
+      List<String> pkFieldNames = getPrimaryKeyFieldNames();
+      if ( !pkFieldNames.isEmpty() && fieldNames.contains(pkFieldNames.get(0)) )
+         return true;
+
+      return indexes.stream().anyMatch(idx -> idx.supportsLookupOn(fieldNames));
+   }
+
    @JsonIgnore()
    public List<Field> getPrimaryKeyFields()
    {
@@ -2,8 +2,11 @@ package org.sqljson.dbmd;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import static java.util.Objects.requireNonNull;
 
+import org.checkerframework.checker.nullness.qual.Nullable;
+
 
 class RelMetadataBuilder
 {
@@ -11,26 +14,36 @@ class RelMetadataBuilder
 
    private final RelMetadata.RelType relType;
 
+   private final Map<String,Integer> pkPartNumsByFieldName;
+
+   private final List<Index> indexes;
+
    private final List<Field> fields;
 
    public RelMetadataBuilder
       (
          RelId relId,
-         RelMetadata.RelType relType
+         RelMetadata.RelType relType,
+         Map<String,Integer> pkPartNumsByFieldName,
+         List<Index> indexes
       )
    {
       this.relId = requireNonNull(relId);
       this.relType = requireNonNull(relType);
+      this.pkPartNumsByFieldName = requireNonNull(pkPartNumsByFieldName);
+      this.indexes = requireNonNull(indexes);
       this.fields = new ArrayList<>();
    }
 
    public RelId getRelId() { return relId; }
 
+   public @Nullable Integer getPrimaryKeyPartNumber(String fieldName) { return pkPartNumsByFieldName.get(fieldName); }
+
    public void addField(Field f) { fields.add(f); }
 
    public RelMetadata build()
    {
-      return new RelMetadata(relId, relType, fields);
+      return new RelMetadata(relId, relType, fields, indexes, null);
    }
 }
 
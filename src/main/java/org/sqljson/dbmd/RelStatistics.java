@@ -0,0 +1,38 @@
+package org.sqljson.dbmd;
+
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+
+/// Size estimates for a table as last recorded by the database's statistics gathering, which may be stale or
+/// missing for tables that have not been analyzed.
+@JsonPropertyOrder({"estimatedRowCount", "estimatedSizeBytes"})
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class RelStatistics
+{
+   private final @Nullable Long estimatedRowCount;
+
+   // Estimated on-disk size of the table's data, not including its indexes.
+   private final @Nullable Long estimatedSizeBytes;
+
+   public RelStatistics
+      (
+         @Nullable Long estimatedRowCount,
+         @Nullable Long estimatedSizeBytes
+      )
+   {
+      this.estimatedRowCount = estimatedRowCount;
+      this.estimatedSizeBytes = estimatedSizeBytes;
+   }
+
+   RelStatistics()
+   {
+      this.estimatedRowCount = null;
+      this.estimatedSizeBytes = null;
+   }
+
+   public @Nullable Long getEstimatedRowCount() { return estimatedRowCount; }
+
+   public @Nullable Long getEstimatedSizeBytes() { return estimatedSizeBytes; }
+}
@@ -7,11 +7,9 @@ import java.io.BufferedWriter;
 import java.io.IOException;
 import java.nio.file.Path;
 import java.time.Instant;
-import static java.util.stream.Collectors.groupingBy;
 
 import org.checkerframework.checker.nullness.qual.Nullable;
 
-import org.sqljson.dbmd.DatabaseMetadata;
 import org.sqljson.dbmd.Field;
 import org.sqljson.dbmd.RelMetadata;
 import org.sqljson.dbmd.RelId;
@@ -40,7 +38,7 @@ public class JavaWriter implements SourceCodeWriter
    @Override
    public void writeRelationDefinitions
       (
-         DatabaseMetadata dbmd,
+         Iterator<RelMetadata> relMds,
          boolean includeTimestamp
       )
       throws IOException
@@ -60,7 +58,7 @@ public class JavaWriter implements SourceCodeWriter
       {
          writeCommonHeaderAndPackageDeclaration(bw, includeTimestamp);
 
-         writeRelationsClass(bw, topClassName, dbmd);
+         writeRelationsClass(bw, topClassName, relMds);
       }
       finally
       {
@@ -73,30 +71,41 @@ public class JavaWriter implements SourceCodeWriter
       (
          BufferedWriter bw,
          String relationsClassName,
-         DatabaseMetadata dbmd
+         Iterator<RelMetadata> relMds
       )
       throws IOException
    {
       bw.write("public class " + relationsClassName + "\n{\n\n");
 
-      Map<String, List<RelMetadata>> relMdsBySchema =
-         dbmd.getRelationMetadatas().stream()
-         .collect(groupingBy(rmd -> valueOr(rmd.getRelationId().getSchema(), "DEFAULT")));
+      @Nullable String schema = null;
+      Set<String> writtenSchemas = new HashSet<>();
 
-      for ( String schema : relMdsBySchema.keySet() )
+      while ( relMds.hasNext() )
       {
-         bw.write("   public static class " + schema + "\n");
-         bw.write("   {\n\n");
+         RelMetadata relMd = relMds.next();
+         String relSchema = valueOr(relMd.getRelationId().getSchema(), "DEFAULT");
 
-         for ( RelMetadata relMd : relMdsBySchema.get(schema) )
+         if ( !relSchema.equals(schema) )
          {
-            bw.write(indentLines(getRelationClassSource(relMd), 6));
-            bw.write("\n\n");
+            if ( schema != null )
+               bw.write("   }\n\n"); // close schema class
+
+            if ( !writtenSchemas.add(relSchema) )
+               throw new RuntimeException("Relations of schema " + relSchema + " are not contiguous.");
+
+            bw.write("   public static class " + relSchema + "\n");
+            bw.write("   {\n\n");
+
+            schema = relSchema;
          }
 
-         bw.write("   }\n\n"); // close schema class
+         bw.write(indentLines(getRelationClassSource(relMd), 6));
+         bw.write("\n\n");
       }
 
+      if ( schema != null )
+         bw.write("   }\n\n"); // close schema class
+
       bw.write("}\n"); // close top relations class
    }
 
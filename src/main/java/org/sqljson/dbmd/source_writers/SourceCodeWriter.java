@@ -1,17 +1,31 @@
 package org.sqljson.dbmd.source_writers;
 
 import java.io.IOException;
+import java.util.Iterator;
 
 import org.sqljson.dbmd.DatabaseMetadata;
+import org.sqljson.dbmd.RelMetadata;
 
 
 public interface SourceCodeWriter
 {
-   void writeRelationDefinitions
+   default void writeRelationDefinitions
       (
          DatabaseMetadata dbmd,
          boolean includeTimestamp
       )
+      throws IOException
+   {
+      writeRelationDefinitions(dbmd.getRelationMetadatas().iterator(), includeTimestamp);
+   }
+
+   /// Write relation definitions for the given relation metadatas, which are consumed one at a time so that they
+   /// may be read incrementally. Relations of the same schema must be contiguous, as they are in the sorted order
+   /// of DatabaseMetadata.
+   void writeRelationDefinitions
+      (
+         Iterator<RelMetadata> relMds,
+         boolean includeTimestamp
+      )
       throws IOException;
 }
-
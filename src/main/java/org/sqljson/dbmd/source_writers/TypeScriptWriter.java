@@ -6,11 +6,9 @@ import java.io.BufferedWriter;
 import java.io.IOException;
 import java.nio.file.Path;
 import java.time.Instant;
-import static java.util.stream.Collectors.groupingBy;
 
 import org.checkerframework.checker.nullness.qual.Nullable;
 
-import org.sqljson.dbmd.DatabaseMetadata;
 import org.sqljson.dbmd.Field;
 import org.sqljson.dbmd.RelId;
 import org.sqljson.dbmd.RelMetadata;
@@ -48,7 +46,7 @@ public class TypeScriptWriter implements SourceCodeWriter
    @Override
    public void writeRelationDefinitions
       (
-         DatabaseMetadata dbmd,
+         Iterator<RelMetadata> relMds,
          boolean includeTimestamp
       )
       throws IOException
@@ -61,7 +59,7 @@ public class TypeScriptWriter implements SourceCodeWriter
       {
          writeCommonSourceFileHeader(bw, includeTimestamp);
 
-         writeRelationsModule(bw, dbmd);
+         writeRelationsModule(bw, relMds);
       }
       finally
       {
@@ -73,26 +71,37 @@ public class TypeScriptWriter implements SourceCodeWriter
    private void writeRelationsModule
       (
          BufferedWriter bw,
-         DatabaseMetadata dbmd
+         Iterator<RelMetadata> relMds
       )
       throws IOException
    {
-      Map<String, List<RelMetadata>> relMdsBySchema =
-         dbmd.getRelationMetadatas().stream()
-         .collect(groupingBy(rmd -> valueOr(rmd.getRelationId().getSchema(), "DEFAULT")));
+      @Nullable String schema = null;
+      Set<String> writtenSchemas = new HashSet<>();
 
-      for ( String schema : relMdsBySchema.keySet() )
+      while ( relMds.hasNext() )
       {
-         bw.write("export const " + schema + " = {\n");
+         RelMetadata relMd = relMds.next();
+         String relSchema = valueOr(relMd.getRelationId().getSchema(), "DEFAULT");
 
-         for ( RelMetadata relMd : relMdsBySchema.get(schema) )
+         if ( !relSchema.equals(schema) )
          {
-            bw.write(indentLines(getRelationMetadataSource(relMd), 3));
-            bw.write("\n");
+            if ( schema != null )
+               bw.write("};\n"); // close schema object
+
+            if ( !writtenSchemas.add(relSchema) )
+               throw new RuntimeException("Relations of schema " + relSchema + " are not contiguous.");
+
+            bw.write("export const " + relSchema + " = {\n");
+
+            schema = relSchema;
          }
 
-         bw.write("};\n"); // close schema object
+         bw.write(indentLines(getRelationMetadataSource(relMd), 3));
+         bw.write("\n");
       }
+
+      if ( schema != null )
+         bw.write("};\n"); // close schema object
    }
 
    private String getRelationMetadataSource(RelMetadata relMd)
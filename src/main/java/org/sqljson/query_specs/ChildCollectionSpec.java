@@ -15,9 +15,12 @@ public final class ChildCollectionSpec
    private final TableJsonSpec tableJson;
    private final @Nullable List<String> foreignKeyFields;
    private final @Nullable CustomJoinCondition customJoinCondition;
-   private final @Nullable String filter;
+   private final @Nullable RecordCondition filter; // condition on the child rows, within the child query
    private final @Nullable Boolean unwrap;
    private final @Nullable String orderBy;
+   private final @Nullable Integer limit; // maximum number of child records per parent, in orderBy order
+   private final @Nullable Integer offset; // number of leading child records per parent to skip, requires limit
+   private final @Nullable ChildCollectionStrategy strategy; // defaults to the query's child collection strategy
 
    private ChildCollectionSpec()
    {
@@ -28,6 +31,9 @@ public final class ChildCollectionSpec
       this.filter = null;
       this.unwrap = false;
       this.orderBy = null;
+      this.limit = null;
+      this.offset = null;
+      this.strategy = null;
    }
 
    public ChildCollectionSpec
@@ -35,7 +41,7 @@ public final class ChildCollectionSpec
          String collectionName,
          TableJsonSpec tableJson,
          @Nullable List<String> fkFields,
-         @Nullable String filter,
+         @Nullable RecordCondition filter,
          @Nullable Boolean unwrap,
          @Nullable String orderBy
       )
@@ -47,6 +53,9 @@ public final class ChildCollectionSpec
       this.filter = filter;
       this.unwrap = unwrap;
       this.orderBy = orderBy;
+      this.limit = null;
+      this.offset = null;
+      this.strategy = null;
    }
 
    public ChildCollectionSpec
@@ -54,7 +63,7 @@ public final class ChildCollectionSpec
          String collectionName,
          TableJsonSpec tableJson,
          CustomJoinCondition customJoinCondition,
-         @Nullable String filter,
+         @Nullable RecordCondition filter,
          @Nullable Boolean unwrap,
          @Nullable String orderBy
       )
@@ -66,6 +75,9 @@ public final class ChildCollectionSpec
       this.filter = filter;
       this.unwrap = unwrap;
       this.orderBy = orderBy;
+      this.limit = null;
+      this.offset = null;
+      this.strategy = null;
    }
 
    public String getCollectionName() { return collectionName; }
@@ -82,9 +94,15 @@ public final class ChildCollectionSpec
       return applyIfPresent(foreignKeyFields, HashSet::new);
    }
 
-   public @Nullable String getFilter() { return filter; }
+   public @Nullable RecordCondition getFilter() { return filter; }
 
    public @Nullable Boolean getUnwrap() { return unwrap; }
 
    public @Nullable String getOrderBy() { return orderBy; }
+
+   public @Nullable Integer getLimit() { return limit; }
+
+   public @Nullable Integer getOffset() { return offset; }
+
+   public @Nullable ChildCollectionStrategy getStrategy() { return strategy; }
 }
@@ -0,0 +1,20 @@
+package org.sqljson.query_specs;
+
+
+/// How the SQL for a child collection is joined to its parent table's query.
+public enum ChildCollectionStrategy
+{
+   /// The child collection is selected as a correlated scalar subquery in the parent's select clause.
+   SELECT_SUBQUERY,
+
+   /// The child collection query is joined laterally in the parent's from clause ("left join lateral" for
+   /// Postgres, "outer apply" for Oracle), making it a join source for the planner instead of a subplan of the
+   /// select clause.
+   LATERAL_JOIN,
+
+   /// The child table is aggregated once for all parents, as a derived table of collection values grouped by the
+   /// child's foreign key fields, which is left joined to the parent table's query. This lets the database scan
+   /// and group the child rows in one pass instead of evaluating a subquery per parent row, which is usually
+   /// faster when many parent rows are selected but slower when only a few are.
+   GROUPED_AGGREGATION
+}
@@ -0,0 +1,16 @@
+package org.sqljson.query_specs;
+
+
+/// The type of json values built by generated queries, where the database offers a choice. Only Postgres
+/// currently makes a distinction, between its text-based json and binary jsonb types.
+public enum JsonType
+{
+   /// Json values are built as binary jsonb, which normalizes objects (sorting their keys and removing duplicates)
+   /// while building them, and must be serialized back to text for the client.
+   JSONB,
+
+   /// Json values are built as text, preserving the order of object properties. This is cheaper to build and
+   /// return when the results are only to be read by the client, but such values do not support comparisons or
+   /// most of the other json operators.
+   JSON
+}
@@ -0,0 +1,46 @@
+package org.sqljson.query_specs;
+
+import java.util.List;
+
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import static org.sqljson.util.Nullables.valueOr;
+
+
+/// Requests SQL variants of a query which read its results a page at a time, ordered by the given key fields of the
+/// top table. The first page variant reads up to "limit" rows in key order, and the next page variant reads up to
+/// "limit" rows following a given key (the key of the last row of the prior page), passed as "after" parameters
+/// named for the key fields.
+public class KeysetPagination
+{
+   private final @Nullable List<String> keyFields; // top table fields ordering the rows, defaults to primary key
+   private final @Nullable Boolean descending;
+
+   private KeysetPagination()
+   {
+      this.keyFields = null;
+      this.descending = null;
+   }
+
+   public KeysetPagination
+      (
+         @Nullable List<String> keyFields,
+         @Nullable Boolean descending
+      )
+   {
+      this.keyFields = keyFields;
+      this.descending = descending;
+   }
+
+   public @Nullable List<String> getKeyFields() { return keyFields; }
+
+   public @Nullable Boolean getDescending() { return descending; }
+
+   @JsonIgnore
+   public boolean getDescendingOrDefault()
+   {
+      return valueOr(descending, false);
+   }
+}
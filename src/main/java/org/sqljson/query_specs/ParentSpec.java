@@ -17,6 +17,7 @@ public final class ParentSpec
    private final @Nullable String referenceName;
    private final @Nullable List<String> viaForeignKeyFields;
    private final @Nullable CustomJoinCondition customJoinCondition;
+   private final @Nullable ReferencedParentStrategy strategy; // for referenced parents, defaults to query's strategy
 
    private ParentSpec()
    {
@@ -45,6 +46,7 @@ public final class ParentSpec
       this.referenceName = referenceName;
       this.viaForeignKeyFields = viaForeignKeyFields;
       this.customJoinCondition = customJoinCondition;
+      this.strategy = null;
    }
    public TableJsonSpec getTableJson() { return getParentTableJsonSpec(); }
 
@@ -54,6 +56,8 @@ public final class ParentSpec
 
    public @Nullable CustomJoinCondition getCustomJoinCondition() { return customJoinCondition; }
 
+   public @Nullable ReferencedParentStrategy getStrategy() { return strategy; }
+
    @JsonIgnore
    public TableJsonSpec getParentTableJsonSpec() { return tableJson; }
 
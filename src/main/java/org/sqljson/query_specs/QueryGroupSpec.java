@@ -7,6 +7,7 @@ import static java.util.Collections.unmodifiableList;
 
 import org.checkerframework.checker.nullness.qual.Nullable;
 
+import static org.sqljson.query_specs.JsonType.JSONB;
 import static org.sqljson.query_specs.PropertyNameDefault.CAMELCASE;
 
 
@@ -14,8 +15,10 @@ public final class QueryGroupSpec
 {
    private @Nullable String defaultSchema = null;
    private PropertyNameDefault propertyNameDefault = CAMELCASE;
+   private JsonType jsonType = JSONB;
    private List<String> generateUnqualifiedNamesForSchemas = emptyList();
    private List<QuerySpec> querySpecs = emptyList();
+   private @Nullable String sharedViewsDdlFile = null;
 
    private QueryGroupSpec() {}
 
@@ -24,13 +27,17 @@ public final class QueryGroupSpec
          @Nullable String defaultSchema,
          PropertyNameDefault propertyNameDefault,
          List<String> generateUnqualifiedNamesForSchemas,
-         List<QuerySpec> querySpecs
+         List<QuerySpec> querySpecs,
+         JsonType jsonType,
+         @Nullable String sharedViewsDdlFile
       )
    {
       this.defaultSchema = defaultSchema;
       this.propertyNameDefault = propertyNameDefault;
       this.generateUnqualifiedNamesForSchemas = generateUnqualifiedNamesForSchemas;
       this.querySpecs = unmodifiableList(new ArrayList<>(querySpecs));
+      this.jsonType = jsonType;
+      this.sharedViewsDdlFile = sharedViewsDdlFile;
    }
 
    public @Nullable String getDefaultSchema() { return defaultSchema; }
@@ -40,5 +47,12 @@ public final class QueryGroupSpec
    public List<String> getGenerateUnqualifiedNamesForSchemas() { return generateUnqualifiedNamesForSchemas; }
 
    public List<QuerySpec> getQuerySpecs() { return querySpecs; }
+
+   /// Type of json values built by queries which do not specify their own json type.
+   public JsonType getJsonType() { return jsonType; }
+
+   /// Name of a file to be written in the SQL output directory with DDL for views which share the referenced parent
+   /// and child collection subqueries occurring in more than one of the queries, which then select from the views.
+   public @Nullable String getSharedViewsDdlFile() { return sharedViewsDdlFile; }
 }
 
@@ -23,6 +23,16 @@ public final class QuerySpec
    private final @Nullable String orderBy;
    private final @Nullable Boolean forUpdate;
    private final @Nullable String typesFileHeader;
+   private final @Nullable ChildCollectionStrategy childCollectionStrategy;
+   private final @Nullable ReferencedParentStrategy referencedParentStrategy;
+   private final @Nullable JsonType jsonType;
+   private final @Nullable KeysetPagination keysetPagination;
+   private final @Nullable Integer jsonArrayChunkSize;
+   private final @Nullable Boolean shareRepeatedSubqueries;
+   private final @Nullable Boolean byKeysVariant;
+   private final @Nullable String materializedViewName;
+
+   public static final int DEFAULT_JSON_ARRAY_CHUNK_SIZE = 1000;
 
    private QuerySpec()
    {
@@ -35,6 +45,14 @@ public final class QuerySpec
       this.orderBy = null;
       this.forUpdate = false;
       this.typesFileHeader = null;
+      this.childCollectionStrategy = null;
+      this.referencedParentStrategy = null;
+      this.jsonType = null;
+      this.keysetPagination = null;
+      this.jsonArrayChunkSize = null;
+      this.shareRepeatedSubqueries = null;
+      this.byKeysVariant = null;
+      this.materializedViewName = null;
    }
 
    public QuerySpec
@@ -47,7 +65,15 @@ public final class QuerySpec
          @Nullable PropertyNameDefault propertyNameDefault,
          @Nullable String orderBy,
          @Nullable Boolean forUpdate,
-         @Nullable String typesFileHeader
+         @Nullable String typesFileHeader,
+         @Nullable ChildCollectionStrategy childCollectionStrategy,
+         @Nullable ReferencedParentStrategy referencedParentStrategy,
+         @Nullable JsonType jsonType,
+         @Nullable KeysetPagination keysetPagination,
+         @Nullable Integer jsonArrayChunkSize,
+         @Nullable Boolean shareRepeatedSubqueries,
+         @Nullable Boolean byKeysVariant,
+         @Nullable String materializedViewName
       )
    {
       this.queryName = queryName;
@@ -61,6 +87,14 @@ public final class QuerySpec
       this.orderBy = orderBy;
       this.forUpdate = forUpdate;
       this.typesFileHeader = typesFileHeader;
+      this.childCollectionStrategy = childCollectionStrategy;
+      this.referencedParentStrategy = referencedParentStrategy;
+      this.jsonType = jsonType;
+      this.keysetPagination = keysetPagination;
+      this.jsonArrayChunkSize = jsonArrayChunkSize;
+      this.shareRepeatedSubqueries = shareRepeatedSubqueries;
+      this.byKeysVariant = byKeysVariant;
+      this.materializedViewName = materializedViewName;
       if ( valueOr(generateResultTypes, true) && !valueOr(generateSource, true) )
          throw new RuntimeException(
             "In query \"" + queryName + "\", cannot generate result types without " +
@@ -110,4 +144,49 @@ public final class QuerySpec
    }
 
    public @Nullable String getTypesFileHeader() { return typesFileHeader; }
+
+   /// Strategy for child collections which do not specify their own, with SELECT_SUBQUERY as the default.
+   public @Nullable ChildCollectionStrategy getChildCollectionStrategy() { return childCollectionStrategy; }
+
+   /// Strategy for referenced parents which do not specify their own, with SELECT_SUBQUERY as the default.
+   public @Nullable ReferencedParentStrategy getReferencedParentStrategy() { return referencedParentStrategy; }
+
+   /// Type of json values built by the query, defaulting to the query group's json type.
+   public @Nullable JsonType getJsonType() { return jsonType; }
+
+   /// If present, first and next page variants of the query's SQL are generated in addition to the unpaged SQL.
+   public @Nullable KeysetPagination getKeysetPagination() { return keysetPagination; }
+
+   /// Maximum number of json objects in each json array row of the JSON_ARRAY_CHUNKS result representation.
+   public @Nullable Integer getJsonArrayChunkSize() { return jsonArrayChunkSize; }
+
+   @JsonIgnore
+   public int getJsonArrayChunkSizeOrDefault()
+   {
+      return valueOr(jsonArrayChunkSize, DEFAULT_JSON_ARRAY_CHUNK_SIZE);
+   }
+
+   /// Whether referenced parents and child collections which occur more than once in the query with identical
+   /// specifications are built once for all of their occurrences, in common table expressions.
+   public @Nullable Boolean getShareRepeatedSubqueries() { return shareRepeatedSubqueries; }
+
+   @JsonIgnore
+   public boolean getShareRepeatedSubqueriesOrDefault()
+   {
+      return valueOr(shareRepeatedSubqueries, false);
+   }
+
+   /// Whether a variant of the query's SQL is generated which selects the top table rows having primary key values
+   /// given in array parameters, for the JSON_OBJECT_ROWS and MULTI_COLUMN_ROWS result representations.
+   public @Nullable Boolean getByKeysVariant() { return byKeysVariant; }
+
+   @JsonIgnore
+   public boolean getByKeysVariantOrDefault()
+   {
+      return valueOr(byKeysVariant, false);
+   }
+
+   /// If present, DDL is generated for a materialized view of this name storing the query's JSON_OBJECT_ROWS results
+   /// keyed by the top table's primary key, together with SQL reading rows of the view by arrays of key values.
+   public @Nullable String getMaterializedViewName() { return materializedViewName; }
 }
@@ -1,10 +1,21 @@
 package org.sqljson.query_specs;
 
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.List;
 
 import org.checkerframework.checker.nullness.qual.Nullable;
 
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.node.JsonNodeType;
 
+
+@JsonDeserialize(using = RecordConditionDeserializer.class) // Allow deserializing from simple String as "sql" property.
 public class RecordCondition
 {
    private final String sql;
@@ -37,3 +48,29 @@ public class RecordCondition
    public @Nullable String getWithTableAliasAs() { return withTableAliasAs; }
 }
 
+/// Allow simple String to be deserialized to a RecordCondition with the value as the "sql" property and other
+/// values null.
+class RecordConditionDeserializer extends JsonDeserializer<RecordCondition>
+{
+   @Override
+   public RecordCondition deserialize(JsonParser jsonParser, DeserializationContext deserializationContext) throws IOException, JsonProcessingException
+   {
+      JsonNode node = jsonParser.readValueAs(JsonNode.class);
+
+      if ( node.getNodeType() == JsonNodeType.STRING )
+         return new RecordCondition(node.textValue(), null, null);
+      else
+      {
+         String sql = node.has("sql") ? node.get("sql").textValue(): "";
+         @Nullable List<String> paramNames = null;
+         if ( node.has("paramNames") )
+         {
+            paramNames = new ArrayList<>();
+            for ( JsonNode paramName : node.get("paramNames") )
+               paramNames.add(paramName.textValue());
+         }
+         @Nullable String withTableAliasAs = node.has("withTableAliasAs") ? node.get("withTableAliasAs").textValue(): null;
+         return new RecordCondition(sql, paramNames, withTableAliasAs);
+      }
+   }
+}
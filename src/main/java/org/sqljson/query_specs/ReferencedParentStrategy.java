@@ -0,0 +1,14 @@
+package org.sqljson.query_specs;
+
+
+/// How the SQL for a referenced parent's object is joined to its child table's query.
+public enum ReferencedParentStrategy
+{
+   /// The parent object is selected as a correlated scalar subquery in the child's select clause.
+   SELECT_SUBQUERY,
+
+   /// The parent's query is left joined in the child's from clause, and the parent object is built in the child's
+   /// select clause from the joined columns, or is null where no parent row was joined. This lets the database
+   /// join the parent rows as a set instead of evaluating a subquery for each child row.
+   LEFT_JOIN
+}
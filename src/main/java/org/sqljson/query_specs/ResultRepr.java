@@ -5,5 +5,8 @@ public enum ResultRepr
 {
    MULTI_COLUMN_ROWS,
    JSON_OBJECT_ROWS,
-   JSON_ARRAY_ROW
+   JSON_ARRAY_ROW,
+   /// Rows each having a single json array value of up to a configured number of the json objects which would be
+   /// returned as rows in JSON_OBJECT_ROWS, in the same order.
+   JSON_ARRAY_CHUNKS
 }
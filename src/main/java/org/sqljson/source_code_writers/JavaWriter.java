@@ -12,6 +12,7 @@ import org.checkerframework.checker.nullness.qual.Nullable;
 
 import org.sqljson.QueryReprSqlPath;
 import org.sqljson.result_types.*;
+import org.sqljson.util.StringFuns;
 import static org.sqljson.util.IO.newFileOrStdoutWriter;
 import static org.sqljson.util.IO.writeString;
 import static org.sqljson.util.Nullables.*;
@@ -169,13 +170,42 @@ public class JavaWriter implements SourceCodeWriter
       )
       throws IOException
    {
-      // Write members holding resource/file names for the result representations that were written for this query.
+      boolean multipleReprs = sqlPaths.stream().map(QueryReprSqlPath::getResultRepr).distinct().count() > 1;
+
+      Set<String> variantsWithParamsWritten = new HashSet<>();
+
+      // Write members holding resource/file names and statement fingerprints for the result representations
+      // that were written for this query, and the parameter names of query variants.
       for ( QueryReprSqlPath queryReprSqlPath: sqlPaths )
       {
-         String memberName = sqlPaths.size() == 1 ? "sqlResource" :
-            "sqlResource" + upperCamelCase(queryReprSqlPath.getResultRepr().toString());
+         String memberSuffix =
+            (multipleReprs ? upperCamelCase(queryReprSqlPath.getResultRepr().toString()) : "") +
+            applyOr(queryReprSqlPath.getVariant(), StringFuns::upperCamelCase, "");
+         String memberName = "sqlResource" + memberSuffix;
          String resourceName = sqlResourceNamePrefix + queryReprSqlPath.getSqlPath().getFileName();
          bw.write("   public static final String " + memberName + " = \"" + resourceName + "\";\n");
+
+         @Nullable Path compactSqlPath = queryReprSqlPath.getCompactSqlPath();
+         if ( compactSqlPath != null )
+         {
+            String compactResourceName = sqlResourceNamePrefix + compactSqlPath.getFileName();
+            bw.write("   public static final String " + memberName + "Compact = \"" + compactResourceName + "\";\n");
+         }
+
+         @Nullable String sqlFingerprint = queryReprSqlPath.getSqlFingerprint();
+         if ( sqlFingerprint != null )
+            bw.write("   public static final String sqlFingerprint" + memberSuffix + " = \"" + sqlFingerprint + "\";\n");
+
+         // Write the parameter names of each variant once, since they do not depend on the result representation.
+         @Nullable String variant = queryReprSqlPath.getVariant();
+         if ( variant != null && variantsWithParamsWritten.add(variant) )
+         {
+            for ( String paramName : queryReprSqlPath.getParamNames() )
+            {
+               String paramMemberName = paramName + "Param" + upperCamelCase(variant);
+               bw.write("   public static final String " + paramMemberName + " = \"" + paramName + "\";\n");
+            }
+         }
       }
       bw.write("\n");
    }
@@ -11,6 +11,7 @@ import org.checkerframework.checker.nullness.qual.Nullable;
 
 import org.sqljson.QueryReprSqlPath;
 import org.sqljson.result_types.*;
+import org.sqljson.util.StringFuns;
 import org.sqljson.util.IO;
 import static org.sqljson.util.IO.writeString;
 import static org.sqljson.util.Nullables.*;
@@ -138,13 +139,42 @@ public class TypeScriptWriter implements SourceCodeWriter
       )
       throws IOException
    {
-      // Write members holding resource/file names for the result representations that were written for this query.
+      boolean multipleReprs = sqlPaths.stream().map(QueryReprSqlPath::getResultRepr).distinct().count() > 1;
+
+      Set<String> variantsWithParamsWritten = new HashSet<>();
+
+      // Write members holding resource/file names and statement fingerprints for the result representations
+      // that were written for this query, and the parameter names of query variants.
       for ( QueryReprSqlPath queryReprSqlPath: sqlPaths )
       {
-         String memberName = sqlPaths.size() == 1 ? "sqlResource" :
-            "sqlResource" + upperCamelCase(queryReprSqlPath.getResultRepr().toString());
+         String memberSuffix =
+            (multipleReprs ? upperCamelCase(queryReprSqlPath.getResultRepr().toString()) : "") +
+            applyOr(queryReprSqlPath.getVariant(), StringFuns::upperCamelCase, "");
+         String memberName = "sqlResource" + memberSuffix;
          String resourceName = sqlResourceNamePrefix + queryReprSqlPath.getSqlPath().getFileName();
          bw.write("export const " + memberName + " = \"" + resourceName + "\";\n");
+
+         @Nullable Path compactSqlPath = queryReprSqlPath.getCompactSqlPath();
+         if ( compactSqlPath != null )
+         {
+            String compactResourceName = sqlResourceNamePrefix + compactSqlPath.getFileName();
+            bw.write("export const " + memberName + "Compact = \"" + compactResourceName + "\";\n");
+         }
+
+         @Nullable String sqlFingerprint = queryReprSqlPath.getSqlFingerprint();
+         if ( sqlFingerprint != null )
+            bw.write("export const sqlFingerprint" + memberSuffix + " = \"" + sqlFingerprint + "\";\n");
+
+         // Write the parameter names of each variant once, since they do not depend on the result representation.
+         @Nullable String variant = queryReprSqlPath.getVariant();
+         if ( variant != null && variantsWithParamsWritten.add(variant) )
+         {
+            for ( String paramName : queryReprSqlPath.getParamNames() )
+            {
+               String paramMemberName = paramName + "Param" + upperCamelCase(variant);
+               bw.write("export const " + paramMemberName + " = '" + paramName + "';\n");
+            }
+         }
       }
       bw.write("\n");
    }
@@ -1,7 +1,9 @@
 package org.sqljson.sql_dialects;
 
 import java.util.List;
+import static java.util.Collections.singletonList;
 import static java.util.stream.Collectors.joining;
+import static java.util.stream.IntStream.range;
 
 import org.checkerframework.checker.nullness.qual.Nullable;
 
@@ -12,6 +14,13 @@ public class OracleDialect implements SqlDialect
 {
    private final int indentSpaces;
 
+   /// Largest varchar2 length usable for json construction with the default (STANDARD) max_string_size setting,
+   /// beyond which json values are returned as clobs. Databases configured with an extended max_string_size allow
+   /// longer varchar2 values, which are not assumed here. The maximum json lengths given for objects are in bytes,
+   /// so they hold under the default byte length semantics of varchar2 and also under char semantics, where a
+   /// varchar2 value of a given declared length holds at least that many bytes, up to the same 4000 byte limit.
+   private static final int MAX_VARCHAR2_JSON_LENGTH = 4000;
+
    public OracleDialect(int indentSpaces)
    {
       this.indentSpaces = indentSpaces;
@@ -21,7 +30,8 @@ public class OracleDialect implements SqlDialect
    public String getRowObjectExpression
       (
          List<String> columnNames,
-         String fromAlias
+         String fromAlias,
+         @Nullable Integer maxJsonLength
       )
    {
       String objectFieldDecls =
@@ -32,21 +42,37 @@ public class OracleDialect implements SqlDialect
       return
          "json_object(\n" +
             indentLines(objectFieldDecls, indentSpaces) + "\n" +
-            "  returning clob\n" +
+            "  " + getReturningClause(maxJsonLength) + "\n" +
          ")";
    }
 
+   /// Return small enough json values as varchar2, avoiding the creation of temporary LOBs for them.
+   private static String getReturningClause(@Nullable Integer maxJsonLength)
+   {
+      return maxJsonLength != null && maxJsonLength <= MAX_VARCHAR2_JSON_LENGTH ?
+         "returning varchar2(" + maxJsonLength + ")"
+         : "returning clob";
+   }
+
+   @Override
+   public @Nullable Integer getBoundedJsonMaxLength()
+   {
+      return MAX_VARCHAR2_JSON_LENGTH;
+   }
+
    @Override
    public String getAggregatedRowObjectsExpression
       (
          List<String> columnNames,
          @Nullable String orderBy,
-         String fromAlias
+         String fromAlias,
+         @Nullable Integer rowObjectMaxJsonLength
       )
    {
+      // The aggregated array is unbounded so is always a clob, though its row objects may be varchar2 values.
       return
          "treat(coalesce(json_arrayagg(" +
-            getRowObjectExpression(columnNames, fromAlias) +
+            getRowObjectExpression(columnNames, fromAlias, rowObjectMaxJsonLength) +
             (orderBy != null ? " order by " + orderBy.replace("$$", fromAlias) : "") +
             " returning clob" +
          "), to_clob('[]')) as json)";
@@ -67,5 +93,148 @@ public class OracleDialect implements SqlDialect
             " returning clob" +
          "), to_clob('[]')) as json)";
    }
-}
 
+   @Override
+   public String getLateralJoinFromEntry
+      (
+         String query,
+         String alias
+      )
+   {
+      return
+         "outer apply (\n" +
+            indentLines(query, indentSpaces) + "\n" +
+         ") " + alias;
+   }
+
+   @Override
+   public String getPreAggregatedCollectionExpression
+      (
+         String aggregateColumn,
+         boolean columnValuesAggregated
+      )
+   {
+      // The aggregate column is already treated as json (see getAggregatedRowObjectsExpression()), so the empty array
+      // for parents without child rows is treated likewise, giving both coalesce arguments the same type.
+      return "coalesce(" + aggregateColumn + ", treat(to_clob('[]') as json))";
+   }
+
+   @Override
+   public String getKeysetSeekCondition
+      (
+         List<String> keyExpressions,
+         List<String> valueExpressions,
+         boolean descending
+      )
+   {
+      // Oracle lacks row value comparisons other than equality, so the comparison is expanded field by field, as
+      //   k1 > v1 or (k1 = v1 and (k2 > v2 or (k2 = v2 and ...))).
+      String op = descending ? " < " : " > ";
+      int last = keyExpressions.size() - 1;
+      String cond = keyExpressions.get(last) + op + valueExpressions.get(last);
+      for ( int i = last - 1; i >= 0; --i )
+      {
+         String k = keyExpressions.get(i), v = valueExpressions.get(i);
+         cond = k + op + v + " or (" + k + " = " + v + " and (" + cond + "))";
+      }
+      return "(" + cond + ")";
+   }
+
+   @Override
+   public String getRowLimitClause
+      (
+         String limitExpression,
+         @Nullable String offsetExpression
+      )
+   {
+      return
+         (offsetExpression != null ? "offset " + offsetExpression + " rows " : "") +
+         "fetch first " + limitExpression + " rows only";
+   }
+
+   /// A single field key is passed as a SQL collection of the key values (such as sys.odcinumberlist). A composite
+   /// key is passed as a single "keys" parameter holding a json array of the keys, each being an array of its field
+   /// values in key field order, such as [[1, "a"], [2, "b"]], so that the values of each key are read together from
+   /// one element. The key values are read as varchar2 text, which is converted implicitly for comparison with the
+   /// key fields, so keys having date or timestamp fields should give those values in the session's default format.
+   @Override
+   public List<String> getKeysParamNames(List<String> keyFieldNames)
+   {
+      if ( keyFieldNames.size() == 1 )
+         return singletonList(lowerCamelCase(keyFieldNames.get(0)) + "s");
+      else
+         return singletonList("keys");
+   }
+
+   @Override
+   public String getKeysInParamsCondition
+      (
+         List<String> keyExpressions,
+         List<String> keysParamExpressions
+      )
+   {
+      if ( keyExpressions.size() == 1 )
+         return keyExpressions.get(0) + " in (select column_value from table(" + keysParamExpressions.get(0) + "))";
+
+      String keyColumns =
+         range(0, keyExpressions.size())
+         .mapToObj(i -> "k" + (i + 1) + " path '$[" + i + "]'")
+         .collect(joining(", "));
+      String keyValues =
+         range(0, keyExpressions.size())
+         .mapToObj(i -> "k.k" + (i + 1))
+         .collect(joining(", "));
+
+      return
+         "(" + String.join(", ", keyExpressions) + ") in " +
+         "(select " + keyValues + " from json_table(" + keysParamExpressions.get(0) + ", '$[*]' " +
+         "columns (" + keyColumns + ")) k)";
+   }
+
+   @Override
+   public String getMaterializedViewDdl
+      (
+         String viewName,
+         String query,
+         List<String> keyColumns
+      )
+   {
+      // The view is refreshed on demand (via dbms_mview.refresh), as fast refresh is not possible for json queries.
+      return
+         "create materialized view " + viewName + "\n" +
+         "build immediate\n" +
+         "refresh complete on demand\n" +
+         "as\n" +
+         query + ";\n\n" +
+         "create unique index " + viewName + "_key_ix on " + viewName + " (" + String.join(", ", keyColumns) + ");\n";
+   }
+
+   @Override
+   public int getMaxIdentifierLength()
+   {
+      return 128; // from Oracle 12.2, which is also required for the json functions used here
+   }
+
+   @Override
+   public String getRowNumberExpression
+      (
+         List<String> partitionByExpressions,
+         @Nullable String orderBy
+      )
+   {
+      String partitionBy =
+         partitionByExpressions.isEmpty() ? "" : "partition by " + String.join(", ", partitionByExpressions) + " ";
+      // Oracle requires an ordering for row_number().
+      return "row_number() over (" + partitionBy + "order by " + (orderBy != null ? orderBy : "null") + ")";
+   }
+
+   @Override
+   public String getRowChunkNumberExpression
+      (
+         String rowNumberExpression,
+         int chunkSize
+      )
+   {
+      return "floor((" + rowNumberExpression + " - 1) / " + chunkSize + ")";
+   }
+}
@@ -2,26 +2,40 @@ package org.sqljson.sql_dialects;
 
 import java.util.List;
 import static java.util.stream.Collectors.joining;
+import static java.util.stream.Collectors.toList;
 
 import org.checkerframework.checker.nullness.qual.Nullable;
 
+import org.sqljson.query_specs.JsonType;
 import org.sqljson.util.StringFuns;
 
 
 public class PostgresDialect implements SqlDialect
 {
    private final int indentSpaces;
+   private final String jsonTypeName; // "json" or "jsonb", which also prefixes the names of the json functions used
 
    public PostgresDialect(int indentSpaces)
+   {
+      this(indentSpaces, JsonType.JSONB);
+   }
+
+   public PostgresDialect
+      (
+         int indentSpaces,
+         JsonType jsonType
+      )
    {
       this.indentSpaces = indentSpaces;
+      this.jsonTypeName = jsonType == JsonType.JSON ? "json" : "jsonb";
    }
 
    @Override
    public String getRowObjectExpression
       (
          List<String> columnNames,
-         String fromAlias
+         String fromAlias,
+         @Nullable Integer maxJsonLength
       )
    {
       String objectFieldDecls =
@@ -30,25 +44,32 @@ public class PostgresDialect implements SqlDialect
          .collect(joining(",\n"));
 
          return
-            "jsonb_build_object(\n" +
+            jsonTypeName + "_build_object(\n" +
                StringFuns.indentLines(objectFieldDecls, indentSpaces) + "\n" +
             ")";
    }
 
+   @Override
+   public @Nullable Integer getBoundedJsonMaxLength()
+   {
+      return null;
+   }
+
    @Override
    public String getAggregatedRowObjectsExpression
       (
          List<String> columnNames,
          @Nullable String orderBy,
-         String fromAlias
+         String fromAlias,
+         @Nullable Integer rowObjectMaxJsonLength
       )
    {
 
       return
-         "coalesce(jsonb_agg(" +
-            getRowObjectExpression(columnNames, fromAlias) +
+         "coalesce(" + jsonTypeName + "_agg(" +
+            getRowObjectExpression(columnNames, fromAlias, rowObjectMaxJsonLength) +
             (orderBy != null ? " order by " + orderBy.replace("$$", fromAlias) : "") +
-         "),'[]'::jsonb)";
+         "),'[]'::" + jsonTypeName + ")";
    }
 
    @Override
@@ -60,10 +81,128 @@ public class PostgresDialect implements SqlDialect
       )
    {
       return
-         "coalesce(jsonb_agg(" +
+         "coalesce(" + jsonTypeName + "_agg(" +
             fromAlias + "." + columnName +
             (orderBy != null ? " order by " + orderBy.replace("$$", fromAlias) : "") +
          "))";
    }
-}
 
+   @Override
+   public String getLateralJoinFromEntry
+      (
+         String query,
+         String alias
+      )
+   {
+      return
+         "left join lateral (\n" +
+            StringFuns.indentLines(query, indentSpaces) + "\n" +
+         ") " + alias + " on true";
+   }
+
+   @Override
+   public String getPreAggregatedCollectionExpression
+      (
+         String aggregateColumn,
+         boolean columnValuesAggregated
+      )
+   {
+      // Aggregated column values are not defaulted to an empty array, see getAggregatedColumnValuesExpression().
+      return columnValuesAggregated ? aggregateColumn : "coalesce(" + aggregateColumn + ",'[]'::" + jsonTypeName + ")";
+   }
+
+   @Override
+   public String getKeysetSeekCondition
+      (
+         List<String> keyExpressions,
+         List<String> valueExpressions,
+         boolean descending
+      )
+   {
+      // A row value comparison is used for compound keys, which Postgres can apply as a single index range condition.
+      String op = descending ? " < " : " > ";
+      if ( keyExpressions.size() == 1 )
+         return keyExpressions.get(0) + op + valueExpressions.get(0);
+      else
+         return "(" + String.join(", ", keyExpressions) + ")" + op + "(" + String.join(", ", valueExpressions) + ")";
+   }
+
+   @Override
+   public String getRowLimitClause
+      (
+         String limitExpression,
+         @Nullable String offsetExpression
+      )
+   {
+      return "limit " + limitExpression + (offsetExpression != null ? " offset " + offsetExpression : "");
+   }
+
+   /// The keys are passed as arrays, one for each key field, with the values of a key at the same position in each
+   /// array.
+   @Override
+   public List<String> getKeysParamNames(List<String> keyFieldNames)
+   {
+      return keyFieldNames.stream().map(kf -> StringFuns.lowerCamelCase(kf) + "s").collect(toList());
+   }
+
+   @Override
+   public String getKeysInParamsCondition
+      (
+         List<String> keyExpressions,
+         List<String> keysParamExpressions
+      )
+   {
+      if ( keyExpressions.size() == 1 )
+         return keyExpressions.get(0) + " = any(" + keysParamExpressions.get(0) + ")";
+      else // unnest with multiple arrays yields their elements at the same positions together in rows
+         return
+            "(" + String.join(", ", keyExpressions) + ") in " +
+            "(select * from unnest(" + String.join(", ", keysParamExpressions) + "))";
+   }
+
+   @Override
+   public String getMaterializedViewDdl
+      (
+         String viewName,
+         String query,
+         List<String> keyColumns
+      )
+   {
+      // The unique index is required for "refresh materialized view concurrently", and is created in the view's schema.
+      String indexName = viewName.substring(viewName.lastIndexOf('.') + 1) + "_key_ix";
+      return
+         "create materialized view " + viewName + " as\n" +
+         query + ";\n\n" +
+         "create unique index " + indexName + " on " + viewName + " (" + String.join(", ", keyColumns) + ");\n";
+   }
+
+   @Override
+   public int getMaxIdentifierLength()
+   {
+      return 63; // NAMEDATALEN - 1 in standard builds
+   }
+
+   @Override
+   public String getRowNumberExpression
+      (
+         List<String> partitionByExpressions,
+         @Nullable String orderBy
+      )
+   {
+      String partitionBy =
+         partitionByExpressions.isEmpty() ? "" : "partition by " + String.join(", ", partitionByExpressions);
+      String windowSpec = partitionBy + (orderBy != null ? (partitionBy.isEmpty() ? "" : " ") + "order by " + orderBy : "");
+      return "row_number() over (" + windowSpec + ")";
+   }
+
+   @Override
+   public String getRowChunkNumberExpression
+      (
+         String rowNumberExpression,
+         int chunkSize
+      )
+   {
+      // Row numbers are bigints, so the division is integral.
+      return "(" + rowNumberExpression + " - 1) / " + chunkSize;
+   }
+}
@@ -5,25 +5,37 @@ import java.util.List;
 import org.checkerframework.checker.nullness.qual.Nullable;
 
 import org.sqljson.dbmd.DatabaseMetadata;
+import org.sqljson.query_specs.JsonType;
 
 
 public interface SqlDialect
 {
    enum DbmsType { PG, ORA, ISO }
 
+   /// Expression building a json object from the columns of a row under the given alias. The maximum length of
+   /// the serialized object is given when it's known to be bounded, which allows databases that construct json as
+   /// text to use a bounded string type instead of a LOB for the object.
    String getRowObjectExpression
       (
          List<String> columnNames,
-         String fromAlias
+         String fromAlias,
+         @Nullable Integer maxJsonLength
       );
 
+   /// Largest maximum json length for which getRowObjectExpression() builds objects of a bounded type, or null if
+   /// the database builds json objects of the same type regardless of their size, in which case the maximum
+   /// lengths of objects need not be computed.
+   @Nullable Integer getBoundedJsonMaxLength();
+
    /// Select expression part of a simple aggregate objects query. This expression should be an aggregate function
    /// which builds an array of json objects from a source relation having the given column names and table alias.
+   /// The maximum serialized length of the row objects is given if known, as for getRowObjectExpression().
    String getAggregatedRowObjectsExpression
       (
          List<String> columnNames,
          @Nullable String orderBy,
-         String fromAlias
+         String fromAlias,
+         @Nullable Integer rowObjectMaxJsonLength
       );
 
    String getAggregatedColumnValuesExpression
@@ -33,16 +45,104 @@ public interface SqlDialect
          String fromAlias
       );
 
+   /// From clause entry joining the given query laterally under the given alias, so that the query may refer to
+   /// the aliases of preceding from clause entries. The query is expected to yield exactly one row.
+   String getLateralJoinFromEntry
+      (
+         String query,
+         String alias
+      );
+
+   /// Child collection value expression for a column of separately aggregated collection values, which is null for
+   /// parent rows having no child rows (as when left joining to child rows pre-aggregated by parent). The expression
+   /// should yield the same value as the aggregate expressions above do when aggregating no rows.
+   String getPreAggregatedCollectionExpression
+      (
+         String aggregateColumn,
+         boolean columnValuesAggregated
+      );
+
+   /// Condition selecting rows whose key, made of the given key expressions, follows the key given by the
+   /// corresponding value expressions in ascending (or else descending) key order. The condition should be usable
+   /// by the database for an index range scan on the key fields.
+   String getKeysetSeekCondition
+      (
+         List<String> keyExpressions,
+         List<String> valueExpressions,
+         boolean descending
+      );
+
+   /// Clause following the order by clause of a query, limiting the number of rows to that given by the limit
+   /// expression, after skipping the number of rows given by the offset expression if any.
+   String getRowLimitClause
+      (
+         String limitExpression,
+         @Nullable String offsetExpression
+      );
+
+   /// Names of the parameters passing the keys selected by getKeysInParamsCondition(), for keys made of the given
+   /// key fields.
+   List<String> getKeysParamNames(List<String> keyFieldNames);
+
+   /// Condition selecting rows whose key, made of the given key expressions, is among the keys passed in the
+   /// parameters with the given expressions, which are those named as by getKeysParamNames().
+   String getKeysInParamsCondition
+      (
+         List<String> keyExpressions,
+         List<String> keysParamExpressions
+      );
+
+   /// DDL creating a materialized view of the given name storing the results of the given query, with a unique index
+   /// on the given key columns of the query which supports refreshing the view and reading its rows by key.
+   String getMaterializedViewDdl
+      (
+         String viewName,
+         String query,
+         List<String> keyColumns
+      );
+
+   /// Maximum length in bytes of identifiers such as view names. Longer names may be truncated silently by the
+   /// database, as Postgres does, so generated names should not exceed this length.
+   int getMaxIdentifierLength();
+
+   /// Expression numbering the rows of a query from 1 in the given order, or in an arbitrary order if none is given,
+   /// with rows numbered separately for each combination of values of any given partition expressions.
+   String getRowNumberExpression
+      (
+         List<String> partitionByExpressions,
+         @Nullable String orderBy
+      );
+
+   /// Expression for the zero-based number of the chunk containing a row when the rows are divided in order into
+   /// chunks of the given size, from the row's number as given by getRowNumberExpression().
+   String getRowChunkNumberExpression
+      (
+         String rowNumberExpression,
+         int chunkSize
+      );
+
    static SqlDialect fromDatabaseMetadata
       (
          DatabaseMetadata dbmd,
          int indentSpaces
       )
+   {
+      return fromDatabaseMetadata(dbmd, indentSpaces, JsonType.JSONB);
+   }
+
+   /// Make the dialect for the database described by the given metadata, building json values of the given type
+   /// where the database supports a choice of json types.
+   static SqlDialect fromDatabaseMetadata
+      (
+         DatabaseMetadata dbmd,
+         int indentSpaces,
+         JsonType jsonType
+      )
    {
       DbmsType dbmsType = getDbmsType(dbmd.getDbmsName());
       switch ( dbmsType )
       {
-         case PG: return new PostgresDialect(indentSpaces);
+         case PG: return new PostgresDialect(indentSpaces, jsonType);
          case ORA: return new OracleDialect(indentSpaces);
          default: throw new RuntimeException("dbms type " + dbmsType + " is currently not supported");
       }
@@ -0,0 +1,197 @@
+package org.sqljson;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.*;
+import java.util.Map;
+import java.util.Random;
+import static java.util.Collections.singleton;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.yaml.YAMLFactory;
+
+import org.sqljson.dbmd.DatabaseMetadata;
+import org.sqljson.query_specs.QueryGroupSpec;
+import org.sqljson.query_specs.QuerySpec;
+import org.sqljson.query_specs.ResultRepr;
+
+
+/// Schema population, SQL generation and timing shared by the query benchmarks, which run against the drugs schema
+/// created as schema drugs_bench in the test database.
+final class BenchmarkSupport
+{
+   private static final String SCHEMA = "drugs_bench";
+   private static final Path SCHEMA_OBJECTS_SCRIPT = Paths.get("src/test/db/init/create-schema-objects.sql");
+
+   private BenchmarkSupport() {}
+
+   /// Runs a prepared benchmark query once.
+   interface QueryRunner
+   {
+      void run(PreparedStatement stmt) throws SQLException;
+   }
+
+   /// Populate schema drugs_bench with the given number of drugs, with one brand and one advisory per drug and four
+   /// drugs per compound, unless already populated at that size.
+   static void populateSchema
+      (
+         Connection conn,
+         int drugs
+      )
+      throws SQLException, IOException
+   {
+      try ( Statement stmt = conn.createStatement() )
+      {
+         stmt.execute("create schema if not exists " + SCHEMA);
+         stmt.execute("set search_path to " + SCHEMA);
+
+         try ( ResultSet rs = stmt.executeQuery(
+                  "select count(*) from pg_tables where schemaname = '" + SCHEMA + "' and tablename = 'drug'") )
+         {
+            rs.next();
+            if ( rs.getInt(1) > 0 )
+            {
+               try ( ResultSet drugsRs = stmt.executeQuery("select count(*) from drug") )
+               {
+                  drugsRs.next();
+                  if ( drugsRs.getInt(1) == drugs )
+                     return;
+               }
+            }
+         }
+
+         System.out.println("Populating schema " + SCHEMA + " with " + drugs + " drugs.");
+
+         stmt.execute("drop schema " + SCHEMA + " cascade");
+         stmt.execute("create schema " + SCHEMA);
+         stmt.execute("set search_path to " + SCHEMA);
+
+         for ( String ddl : Files.readString(SCHEMA_OBJECTS_SCRIPT).split(";") )
+         {
+            if ( !ddl.isBlank() )
+               stmt.execute(ddl);
+         }
+
+         int compounds = drugs / 4;
+         stmt.execute("insert into analyst select i, 'analyst ' || i from generate_series(1, 100) i");
+         stmt.execute("insert into manufacturer select i, 'manufacturer ' || i from generate_series(1, 1000) i");
+         stmt.execute("insert into authority(id, name) select i, 'authority ' || i from generate_series(1, 10) i");
+         stmt.execute("insert into advisory_type select i, 'advisory type ' || i, i from generate_series(1, 10) i");
+         stmt.execute(
+            "insert into compound(id, display_name, entered_by) " +
+            "select i, 'compound ' || i, i % 100 + 1 from generate_series(1, " + compounds + ") i"
+         );
+         stmt.execute(
+            "insert into drug(id, name, compound_id, category_code, registered_by) " +
+            "select i, 'drug ' || i, (i - 1) / 4 + 1, 'A', i % 100 + 1 from generate_series(1, " + drugs + ") i"
+         );
+         stmt.execute(
+            "insert into brand(drug_id, brand_name, manufacturer_id) " +
+            "select i, 'brand ' || i, i % 1000 + 1 from generate_series(1, " + drugs + ") i"
+         );
+         stmt.execute(
+            "insert into advisory(id, drug_id, advisory_type_id, text) " +
+            "select i, i, i % 10 + 1, 'advisory concerning drug ' || i from generate_series(1, " + drugs + ") i"
+         );
+         stmt.execute("analyze");
+      }
+   }
+
+   /// Generate the SQL for the given result representation of the first query in the given query specifications,
+   /// which should use default schema drugs.
+   static String generateSql
+      (
+         DatabaseMetadata dbmd,
+         String querySpecsYaml,
+         ResultRepr resultRepr
+      )
+      throws IOException
+   {
+      var yamlMapper = new ObjectMapper(new YAMLFactory());
+      QueryGroupSpec queryGroupSpec = yamlMapper.readValue(querySpecsYaml, QueryGroupSpec.class);
+      QuerySpec querySpec = queryGroupSpec.getQuerySpecs().get(0);
+
+      var sqlGenerator = new QuerySqlGenerator(
+         dbmd,
+         queryGroupSpec.getDefaultSchema(),
+         singleton("drugs"),
+         queryGroupSpec.getPropertyNameDefault().toFunctionOfFieldName()
+      );
+
+      Map<ResultRepr,String> sqls = sqlGenerator.generateSqls(querySpec);
+      return sqls.get(resultRepr);
+   }
+
+   /// Time the given query as run by the runner, returning the mean milliseconds per measured run.
+   static double timeQueries
+      (
+         Connection conn,
+         String sql,
+         int warmups,
+         int iterations,
+         QueryRunner runner
+      )
+      throws SQLException
+   {
+      try ( PreparedStatement stmt = conn.prepareStatement(sql) )
+      {
+         stmt.setFetchSize(100); // results are fetched incrementally if autocommit is off
+
+         for ( int i = 0; i < warmups; ++i )
+            runner.run(stmt);
+
+         long start = System.nanoTime();
+         for ( int i = 0; i < iterations; ++i )
+            runner.run(stmt);
+
+         return (System.nanoTime() - start) / 1e6 / iterations;
+      }
+   }
+
+   /// Time a query whose two parameters are the first and last ids of a range of ids, for random ranges of the
+   /// given size within ids 1 through maxId, checking that each query yields a row for each id in its range.
+   static double timeRandomRangeQueries
+      (
+         Connection conn,
+         String sql,
+         int maxId,
+         int idsPerQuery,
+         int warmups,
+         int iterations
+      )
+      throws SQLException
+   {
+      Random random = new Random(1);
+
+      return timeQueries(conn, sql, warmups, iterations, stmt ->
+         runRangeQuery(stmt, random.nextInt(maxId - idsPerQuery + 1) + 1, idsPerQuery)
+      );
+   }
+
+   private static void runRangeQuery
+      (
+         PreparedStatement stmt,
+         int firstId,
+         int idsPerQuery
+      )
+      throws SQLException
+   {
+      stmt.setInt(1, firstId);
+      stmt.setInt(2, firstId + idsPerQuery - 1);
+
+      int rows = 0;
+      try ( ResultSet rs = stmt.executeQuery() )
+      {
+         while ( rs.next() )
+         {
+            rs.getString(1);
+            ++rows;
+         }
+      }
+
+      if ( rows != idsPerQuery )
+         throw new RuntimeException("Expected " + idsPerQuery + " rows, got " + rows + ".");
+   }
+}
@@ -0,0 +1,81 @@
+package org.sqljson;
+
+import java.sql.*;
+
+import org.sqljson.dbmd.DatabaseMetadata;
+import org.sqljson.query_specs.ChildCollectionStrategy;
+import static org.sqljson.query_specs.ResultRepr.JSON_OBJECT_ROWS;
+
+
+/// Compares query latencies of the child collection strategies, for a query of compounds with nested drug, brand
+/// and advisory collections. The drugs schema is created as schema drugs_bench in the test database and populated
+/// with the given number of drugs (default 1,000,000), with one brand and one advisory per drug and four drugs per
+/// compound, unless already populated at that size. Each measured query reads a random range of compounds (default
+/// 250). Run manually from the project directory, with optional arguments for the number of drugs, warmup and
+/// measured iterations, compounds per query, and a work_mem setting for the queries (which matters for the sorts
+/// done by GROUPED_AGGREGATION).
+public class ChildCollectionStrategyBenchmark
+{
+   private static final String QUERY_SPECS =
+      "defaultSchema: drugs\n" +
+      "generateUnqualifiedNamesForSchemas: [drugs]\n" +
+      "querySpecs:\n" +
+      "  - queryName: compounds\n" +
+      "    childCollectionStrategy: STRATEGY\n" +
+      "    tableJson:\n" +
+      "      table: compound\n" +
+      "      fieldExpressions: [id, display_name]\n" +
+      "      childTableCollections:\n" +
+      "        - collectionName: drugs\n" +
+      "          tableJson:\n" +
+      "            table: drug\n" +
+      "            fieldExpressions: [id, name]\n" +
+      "            childTableCollections:\n" +
+      "              - collectionName: brands\n" +
+      "                tableJson:\n" +
+      "                  table: brand\n" +
+      "                  fieldExpressions: [brand_name]\n" +
+      "                  parentTables:\n" +
+      "                    - tableJson: { table: manufacturer, fieldExpressions: [{ field: name, jsonProperty: manufacturer }] }\n" +
+      "              - collectionName: advisories\n" +
+      "                tableJson:\n" +
+      "                  table: advisory\n" +
+      "                  fieldExpressions: [id, text]\n" +
+      "      recordCondition:\n" +
+      "        sql: '$$.id between ? and ?'\n";
+
+   public static void main(String[] args) throws Exception
+   {
+      int drugs = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+      int warmups = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+      int iterations = args.length > 2 ? Integer.parseInt(args[2]) : 50;
+      int compoundsPerQuery = args.length > 3 ? Integer.parseInt(args[3]) : 250;
+      String workMem = args.length > 4 ? args[4] : null;
+
+      DatabaseMetadata dbmd = new TestsBase().getDatabaseMetadata("dbmd-pg.yaml");
+
+      try ( Connection conn = TestsBase.getTestDatabaseConnection() )
+      {
+         conn.setAutoCommit(true);
+         BenchmarkSupport.populateSchema(conn, drugs);
+
+         if ( workMem != null )
+         {
+            try ( Statement stmt = conn.createStatement() )
+            {
+               stmt.execute("set work_mem = '" + workMem + "'");
+            }
+         }
+
+         int compounds = drugs / 4;
+         for ( ChildCollectionStrategy strategy : ChildCollectionStrategy.values() )
+         {
+            String querySpecs = QUERY_SPECS.replace("STRATEGY", strategy.name());
+            String sql = BenchmarkSupport.generateSql(dbmd, querySpecs, JSON_OBJECT_ROWS);
+            double ms =
+               BenchmarkSupport.timeRandomRangeQueries(conn, sql, compounds, compoundsPerQuery, warmups, iterations);
+            System.out.println(strategy + ": " + ms + " ms/query");
+         }
+      }
+   }
+}
@@ -0,0 +1,70 @@
+package org.sqljson;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.sqljson.dbmd.*;
+
+
+@SuppressWarnings("nullness")
+class DatabaseMetadataBinaryFormatTests extends TestsBase
+{
+   @Test
+   @DisplayName("Metadata converted to the binary format and loaded back is identical to the original.")
+   void binaryFormatRoundTrips() throws IOException
+   {
+      DatabaseMetadata dbmd = getDatabaseMetadata("dbmd-pg.yaml");
+
+      Path binPath = Files.createTempFile("dbmd", "." + DatabaseMetadataBinaryFormat.FILE_EXTENSION);
+      try
+      {
+         DatabaseMetadataFiles.write(dbmd, binPath);
+
+         DatabaseMetadata loadedDbmd = DatabaseMetadataFiles.read(binPath);
+
+         assertEquals(yamlMapper.writeValueAsString(dbmd), yamlMapper.writeValueAsString(loadedDbmd));
+      }
+      finally
+      {
+         Files.delete(binPath);
+      }
+   }
+
+   @Test
+   @DisplayName("Relations are looked up by id in binary format metadata without decoding all relations.")
+   void binaryFormatLooksUpRelations() throws IOException
+   {
+      DatabaseMetadata dbmd = getDatabaseMetadata("dbmd-pg.yaml");
+
+      Path binPath = Files.createTempFile("dbmd", "." + DatabaseMetadataBinaryFormat.FILE_EXTENSION);
+      try
+      {
+         DatabaseMetadataFiles.write(dbmd, binPath);
+
+         DatabaseMetadata loadedDbmd = DatabaseMetadataFiles.read(binPath);
+
+         for ( RelMetadata relMd : dbmd.getRelationMetadatas() )
+         {
+            RelId relId = relMd.getRelationId();
+            assertEquals(
+               yamlMapper.writeValueAsString(relMd),
+               yamlMapper.writeValueAsString(loadedDbmd.getRelationMetadata(relId))
+            );
+            assertEquals(dbmd.getPrimaryKeyFieldNames(relId), loadedDbmd.getPrimaryKeyFieldNames(relId));
+         }
+
+         assertNull(loadedDbmd.getRelationMetadata(new RelId("drugs", "no_such_table")));
+         assertNull(loadedDbmd.getRelationMetadata(new RelId(null, "drug")));
+         assertNull(loadedDbmd.getRelationMetadata(new RelId("zzz", "drug")));
+      }
+      finally
+      {
+         Files.delete(binPath);
+      }
+   }
+}
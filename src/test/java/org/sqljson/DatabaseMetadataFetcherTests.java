@@ -0,0 +1,229 @@
+package org.sqljson;
+
+import java.sql.DatabaseMetaData;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.Arrays;
+import java.util.List;
+import static java.util.Arrays.asList;
+import static java.util.Collections.emptyList;
+import static java.util.stream.Collectors.toList;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.sqljson.JdbcStubs.RecordingDatabaseMetaData;
+import org.sqljson.dbmd.DatabaseMetadata;
+import org.sqljson.dbmd.DatabaseMetadataFetcher;
+import org.sqljson.dbmd.FetchMetrics.PhaseMetrics;
+import org.sqljson.dbmd.Index;
+import org.sqljson.dbmd.RelId;
+import org.sqljson.dbmd.RelMetadata;
+import org.sqljson.dbmd.RelStatistics;
+import static org.sqljson.JdbcStubs.resultSet;
+import static org.sqljson.dbmd.DatabaseMetadataFetcher.DateMapping.DATES_AS_DRIVER_REPORTED;
+
+
+@SuppressWarnings("nullness")
+class DatabaseMetadataFetcherTests
+{
+   private static final List<String> TABLES_COLS = asList("TABLE_SCHEM", "TABLE_NAME", "TABLE_TYPE", "REMARKS");
+   private static final List<String> COLUMNS_COLS =
+      asList("TABLE_CAT", "TABLE_SCHEM", "TABLE_NAME", "COLUMN_NAME", "DATA_TYPE", "TYPE_NAME", "COLUMN_SIZE",
+             "DECIMAL_DIGITS", "NULLABLE");
+   private static final List<String> PKS_COLS = asList("TABLE_CAT", "TABLE_SCHEM", "TABLE_NAME", "COLUMN_NAME", "KEY_SEQ");
+   private static final List<String> INDEXES_COLS =
+      asList("TABLE_SCHEM", "TABLE_NAME", "NON_UNIQUE", "INDEX_NAME", "TYPE", "COLUMN_NAME", "FILTER_CONDITION",
+         "CARDINALITY");
+
+   @Test
+   @DisplayName("Primary keys are fetched in one schema-wide call, not once per column.")
+   void fetchPrimaryKeysOncePerSchema() throws SQLException
+   {
+      RecordingDatabaseMetaData rdbmd = new RecordingDatabaseMetaData((method, args) ->
+         stubMetadataResult(method, args, true)
+      );
+
+      DatabaseMetadata dbmd =
+         new DatabaseMetadataFetcher(DATES_AS_DRIVER_REPORTED)
+         .fetchMetadata(rdbmd.dbmd, "drugs", true, true, false, null);
+
+      assertEquals(1, rdbmd.callCount("getPrimaryKeys"));
+      assertEquals(1, rdbmd.callCount("getColumns"));
+      assertExpectedPrimaryKeys(dbmd);
+   }
+
+   @Test
+   @DisplayName("Indexes are fetched for each table, with their fields in index order.")
+   void fetchIndexesPerTable() throws SQLException
+   {
+      RecordingDatabaseMetaData rdbmd = new RecordingDatabaseMetaData((method, args) ->
+         stubMetadataResult(method, args, true)
+      );
+
+      DatabaseMetadata dbmd =
+         new DatabaseMetadataFetcher(DATES_AS_DRIVER_REPORTED)
+         .fetchMetadata(rdbmd.dbmd, "drugs", true, true, false, null);
+
+      // One call for each of the two tables, none for the view.
+      assertEquals(2, rdbmd.callCount("getIndexInfo"));
+
+      RelMetadata drugMd = dbmd.getRelationMetadata(new RelId("drugs", "drug"));
+      assertEquals(asList("drug_meshid_ix", "drug_pk"), drugMd.getIndexes().stream().map(Index::getName).collect(toList()));
+      assertEquals("(mesh_id IS NOT NULL)", drugMd.getIndexes().get(0).getPredicate());
+      assertFalse(drugMd.hasIndexSupportingLookupOn(asList("mesh_id"))); // partial index only
+
+      RelMetadata drugRefMd = dbmd.getRelationMetadata(new RelId("drugs", "drug_reference"));
+      Index drugRefPkIndex = drugRefMd.getIndexes().get(0);
+      assertEquals(asList("drug_id", "reference_id"), drugRefPkIndex.getFieldNames());
+      assertTrue(drugRefPkIndex.isUnique());
+      assertFalse(drugRefMd.hasIndexSupportingLookupOn(asList("reference_id")));
+      assertNull(drugMd.getStatistics()); // not included by default
+   }
+
+   @Test
+   @DisplayName("Table statistics are recorded only when requested, from the driver's table statistic rows.")
+   void fetchStatisticsWhenIncluded() throws SQLException
+   {
+      RecordingDatabaseMetaData rdbmd = new RecordingDatabaseMetaData((method, args) ->
+         stubMetadataResult(method, args, true)
+      );
+
+      var fetcher = new DatabaseMetadataFetcher(DATES_AS_DRIVER_REPORTED);
+      fetcher.setIncludeStatistics(true);
+      DatabaseMetadata dbmd = fetcher.fetchMetadata(rdbmd.dbmd, "drugs", true, true, false, null);
+
+      RelStatistics drugStats = dbmd.getRelationMetadata(new RelId("drugs", "drug")).getStatistics();
+      assertEquals(1200L, drugStats.getEstimatedRowCount());
+      assertNull(drugStats.getEstimatedSizeBytes());
+      assertNull(dbmd.getRelationMetadata(new RelId("drugs", "drug_reference")).getStatistics());
+
+      // The table statistic row is not taken as an index.
+      assertEquals(2, dbmd.getRelationMetadata(new RelId("drugs", "drug")).getIndexes().size());
+   }
+
+   @Test
+   @DisplayName("Primary keys are fetched once per table when the driver requires a table name.")
+   void fetchPrimaryKeysOncePerTableWhenSchemaWideCallUnsupported() throws SQLException
+   {
+      RecordingDatabaseMetaData rdbmd = new RecordingDatabaseMetaData((method, args) ->
+         stubMetadataResult(method, args, false)
+      );
+
+      DatabaseMetadata dbmd =
+         new DatabaseMetadataFetcher(DATES_AS_DRIVER_REPORTED)
+         .fetchMetadata(rdbmd.dbmd, "drugs", true, true, false, null);
+
+      // One schema-wide attempt, then one call for each of the two tables (none for the view).
+      assertEquals(3, rdbmd.callCount("getPrimaryKeys"));
+      assertExpectedPrimaryKeys(dbmd);
+   }
+
+   @Test
+   @DisplayName("Fetch metrics record the calls made and rows read in each phase.")
+   void recordPhaseMetrics() throws SQLException
+   {
+      RecordingDatabaseMetaData rdbmd = new RecordingDatabaseMetaData((method, args) ->
+         stubMetadataResult(method, args, false)
+      );
+
+      var fetcher = new DatabaseMetadataFetcher(DATES_AS_DRIVER_REPORTED);
+      fetcher.fetchMetadata(rdbmd.dbmd, "drugs", true, true, false, null);
+
+      List<PhaseMetrics> phaseMetrics = fetcher.getMetrics().getPhaseMetrics();
+      // phase order: relation descriptions, columns, primary keys, indexes, statistics, foreign keys, change markers
+      assertEquals(asList(1L, 1L, 3L, 2L, 0L, 0L, 0L), phaseMetrics.stream().map(PhaseMetrics::getJdbcCalls).collect(toList()));
+      assertEquals(asList(3L, 7L, 3L, 5L, 0L, 0L, 0L), phaseMetrics.stream().map(PhaseMetrics::getRowsRead).collect(toList()));
+
+      fetcher.getMetrics().reset();
+      assertTrue(fetcher.getMetrics().getPhaseMetrics().stream().allMatch(pm -> pm.getJdbcCalls() == 0));
+   }
+
+   private static void assertExpectedPrimaryKeys(DatabaseMetadata dbmd)
+   {
+      RelMetadata drugMd = dbmd.getRelationMetadata(new RelId("drugs", "drug"));
+      assertEquals(asList("id"), drugMd.getPrimaryKeyFieldNames());
+      assertEquals(3, drugMd.getFields().size());
+
+      RelMetadata drugRefMd = dbmd.getRelationMetadata(new RelId("drugs", "drug_reference"));
+      assertEquals(asList("drug_id", "reference_id"), drugRefMd.getPrimaryKeyFieldNames());
+
+      RelMetadata viewMd = dbmd.getRelationMetadata(new RelId("drugs", "drug_view"));
+      assertEquals(emptyList(), viewMd.getPrimaryKeyFieldNames());
+   }
+
+   private static Object stubMetadataResult
+      (
+         String method,
+         Object[] args,
+         boolean supportsSchemaWidePrimaryKeys
+      )
+   {
+      switch ( method )
+      {
+         case "storesLowerCaseIdentifiers": return true;
+         case "getDatabaseProductName": return "PostgreSQL";
+         case "getDatabaseProductVersion": return "14";
+         case "getTables":
+            return resultSet(TABLES_COLS, asList(
+               new Object[]{"drugs", "drug", "TABLE", null},
+               new Object[]{"drugs", "drug_reference", "TABLE", null},
+               new Object[]{"drugs", "drug_view", "VIEW", null}
+            ));
+         case "getColumns":
+            return resultSet(COLUMNS_COLS, asList(
+               new Object[]{null, "drugs", "drug", "id", Types.INTEGER, "int4", 10, 0, 0},
+               new Object[]{null, "drugs", "drug", "name", Types.VARCHAR, "varchar", 500, null, 0},
+               new Object[]{null, "drugs", "drug", "mesh_id", Types.VARCHAR, "varchar", 7, null, 1},
+               new Object[]{null, "drugs", "drug_reference", "drug_id", Types.INTEGER, "int4", 10, 0, 0},
+               new Object[]{null, "drugs", "drug_reference", "reference_id", Types.INTEGER, "int4", 10, 0, 0},
+               new Object[]{null, "drugs", "drug_reference", "priority", Types.INTEGER, "int4", 10, 0, 1},
+               new Object[]{null, "drugs", "drug_view", "id", Types.INTEGER, "int4", 10, 0, 1}
+            ));
+         case "getPrimaryKeys":
+         {
+            List<Object[]> drugPks = Arrays.<Object[]>asList(new Object[]{null, "drugs", "drug", "id", 1});
+            List<Object[]> drugRefPks = asList(
+               new Object[]{null, "drugs", "drug_reference", "reference_id", 2},
+               new Object[]{null, "drugs", "drug_reference", "drug_id", 1}
+            );
+            String table = (String) args[2];
+            if ( table == null )
+               return resultSet(PKS_COLS, supportsSchemaWidePrimaryKeys ? concat(drugPks, drugRefPks) : emptyList());
+            else if ( table.equals("drug") )
+               return resultSet(PKS_COLS, drugPks);
+            else if ( table.equals("drug_reference") )
+               return resultSet(PKS_COLS, drugRefPks);
+            else
+               return resultSet(PKS_COLS, emptyList());
+         }
+         case "getIndexInfo":
+         {
+            String table = (String) args[2];
+            if ( table.equals("drug") )
+               return resultSet(INDEXES_COLS, asList(
+                  new Object[]{"drugs", "drug", false, null, DatabaseMetaData.tableIndexStatistic, null, null, 1200L},
+                  new Object[]{"drugs", "drug", false, "drug_pk", DatabaseMetaData.tableIndexOther, "id", null, null},
+                  new Object[]{"drugs", "drug", true, "drug_meshid_ix", DatabaseMetaData.tableIndexOther, "mesh_id", "(mesh_id IS NOT NULL)", null}
+               ));
+            else if ( table.equals("drug_reference") )
+               return resultSet(INDEXES_COLS, asList(
+                  new Object[]{"drugs", "drug_reference", false, "drug_reference_pk", DatabaseMetaData.tableIndexOther, "drug_id", null, null},
+                  new Object[]{"drugs", "drug_reference", false, "drug_reference_pk", DatabaseMetaData.tableIndexOther, "reference_id", null, null}
+               ));
+            else
+               return resultSet(INDEXES_COLS, emptyList());
+         }
+         default:
+            throw new UnsupportedOperationException("DatabaseMetaData." + method + " not stubbed.");
+      }
+   }
+
+   private static List<Object[]> concat(List<Object[]> l1, List<Object[]> l2)
+   {
+      List<Object[]> res = new java.util.ArrayList<>(l1);
+      res.addAll(l2);
+      return res;
+   }
+}
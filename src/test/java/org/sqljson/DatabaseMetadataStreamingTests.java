@@ -0,0 +1,91 @@
+package org.sqljson;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jdk8.Jdk8Module;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.sqljson.dbmd.*;
+
+
+@SuppressWarnings("nullness")
+class DatabaseMetadataStreamingTests extends TestsBase
+{
+   @Test
+   @DisplayName("Metadata written one relation at a time is identical to the serialized metadata.")
+   void streamedOutputMatchesSerializedMetadata() throws IOException
+   {
+      DatabaseMetadata dbmd = getDatabaseMetadata("dbmd-pg.yaml");
+
+      for ( ObjectMapper mapper : List.of(yamlMapper, indentingJsonMapper()) )
+         assertEquals(mapper.writeValueAsString(dbmd), writeStreamed(dbmd, mapper));
+   }
+
+   @Test
+   @DisplayName("Metadata read one relation at a time round-trips the written metadata.")
+   void streamedReadRoundTrips() throws IOException
+   {
+      DatabaseMetadata dbmd = getDatabaseMetadata("dbmd-pg.yaml");
+
+      for ( ObjectMapper mapper : List.of(yamlMapper, indentingJsonMapper()) )
+      {
+         byte[] bytes = mapper.writeValueAsBytes(dbmd);
+
+         try ( var reader = new DatabaseMetadataReader(new ByteArrayInputStream(bytes), mapper) )
+         {
+            List<RelMetadata> relMds = new ArrayList<>();
+            for ( RelMetadata relMd = reader.nextRelationMetadata(); relMd != null; relMd = reader.nextRelationMetadata() )
+               relMds.add(relMd);
+
+            DatabaseMetadata readDbmd =
+               new DatabaseMetadata(
+                  relMds,
+                  reader.getForeignKeys(),
+                  reader.getCaseSensitivity(),
+                  reader.getDbmsName(),
+                  reader.getDbmsVersion()
+               );
+
+            assertEquals(dbmd.getRelationMetadatas().size(), relMds.size());
+            assertEquals(new String(bytes, StandardCharsets.UTF_8), mapper.writeValueAsString(readDbmd));
+         }
+      }
+   }
+
+   private static String writeStreamed
+      (
+         DatabaseMetadata dbmd,
+         ObjectMapper mapper
+      )
+      throws IOException
+   {
+      var os = new ByteArrayOutputStream();
+
+      try ( var writer = new DatabaseMetadataWriter(os, mapper) )
+      {
+         writer.writeHeader(dbmd.getDbmsName(), dbmd.getDbmsVersion(), dbmd.getCaseSensitivity());
+         for ( RelMetadata relMd : dbmd.getRelationMetadatas() )
+            writer.writeRelationMetadata(relMd);
+         writer.writeForeignKeys(dbmd.getForeignKeys());
+      }
+
+      return os.toString(StandardCharsets.UTF_8);
+   }
+
+   private static ObjectMapper indentingJsonMapper()
+   {
+      var mapper = new ObjectMapper();
+      mapper.registerModule(new Jdk8Module());
+      mapper.enable(SerializationFeature.INDENT_OUTPUT);
+      return mapper;
+   }
+}
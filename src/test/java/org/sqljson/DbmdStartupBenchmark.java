@@ -0,0 +1,89 @@
+package org.sqljson;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jdk8.Jdk8Module;
+
+import org.sqljson.dbmd.*;
+import static org.sqljson.dbmd.ForeignKeyScope.REGISTERED_TABLES_ONLY;
+
+
+/// Compares the time to load a synthetic database metadata file for a very large catalog from YAML, JSON and the
+/// binary format, and to then look up a relation and its foreign keys as query generation would. Run manually,
+/// with optional arguments for the number of tables (default 50000) and of measured loads per format (default 5).
+/// The first load of each format is reported separately, being closest to the cost at application startup.
+public class DbmdStartupBenchmark
+{
+   public static void main(String[] args) throws IOException
+   {
+      int tables = args.length > 0 ? Integer.parseInt(args[0]) : 50000;
+      int iterations = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+
+      ObjectMapper jsonMapper = new ObjectMapper();
+      jsonMapper.registerModule(new Jdk8Module());
+
+      Path dir = Files.createTempDirectory("dbmd-benchmark");
+      Path jsonPath = dir.resolve("dbmd.json");
+      Path yamlPath = dir.resolve("dbmd.yaml");
+      Path binPath = dir.resolve("dbmd." + DatabaseMetadataBinaryFormat.FILE_EXTENSION);
+      try
+      {
+         DbmdStreamingBenchmark.writeSyntheticMetadata(jsonPath, tables, jsonMapper);
+         DatabaseMetadata dbmd = DatabaseMetadataFiles.read(jsonPath);
+         DatabaseMetadataFiles.write(dbmd, yamlPath);
+         DatabaseMetadataFiles.write(dbmd, binPath);
+
+         RelId relId = new RelId("bench", String.format("table_%06d", tables / 2));
+
+         for ( Path path : new Path[]{ yamlPath, jsonPath, binPath } )
+         {
+            long firstNanos;
+            try
+            {
+               firstNanos = timeLoad(path, relId);
+            }
+            catch (IOException e)
+            {
+               // Large YAML documents exceed the YAML parser's default document size limit.
+               System.out.println(path.getFileName() + ": load failed: " + e.getMessage());
+               continue;
+            }
+
+            long start = System.nanoTime();
+            for ( int i = 0; i < iterations; ++i )
+               timeLoad(path, relId);
+            long meanNanos = (System.nanoTime() - start) / iterations;
+
+            System.out.println(
+               path.getFileName() + ": " + Files.size(path) / (1024 * 1024) + " MB, first load " +
+               firstNanos / 1000000 + " ms, mean load " + meanNanos / 1000000 + " ms"
+            );
+         }
+      }
+      finally
+      {
+         for ( Path path : new Path[]{ yamlPath, jsonPath, binPath, dir } )
+            Files.deleteIfExists(path);
+      }
+   }
+
+   private static long timeLoad
+      (
+         Path dbmdPath,
+         RelId relId
+      )
+      throws IOException
+   {
+      long start = System.nanoTime();
+
+      DatabaseMetadata dbmd = DatabaseMetadataFiles.read(dbmdPath);
+      if ( dbmd.getRelationMetadata(relId) == null ||
+           dbmd.getForeignKeysFromTo(relId, null, REGISTERED_TABLES_ONLY).isEmpty() )
+         throw new RuntimeException("Relation " + relId + " or its foreign keys not found.");
+
+      return System.nanoTime() - start;
+   }
+}
@@ -0,0 +1,157 @@
+package org.sqljson;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.ref.Reference;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.List;
+import static java.util.Collections.singletonList;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.yaml.YAMLFactory;
+import com.fasterxml.jackson.datatype.jdk8.Jdk8Module;
+
+import org.sqljson.dbmd.*;
+import static org.sqljson.dbmd.CaseSensitivity.INSENSITIVE_STORED_LOWER;
+
+
+/// Compares peak and retained heap usage of reading a synthetic database metadata file for a very large catalog
+/// fully into a DatabaseMetadata instance versus reading it one relation at a time with DatabaseMetadataReader.
+/// Run manually, with optional arguments for the number of tables (default 50000) and the output format ("json"
+/// or "yaml"). A fixed heap such as -Xmx1g makes the peak figures more comparable between runs.
+public class DbmdStreamingBenchmark
+{
+   public static void main(String[] args) throws IOException
+   {
+      int tables = args.length > 0 ? Integer.parseInt(args[0]) : 50000;
+      String format = args.length > 1 ? args[1] : "json";
+
+      ObjectMapper mapper = format.equals("yaml") ? new ObjectMapper(new YAMLFactory()) : new ObjectMapper();
+      mapper.registerModule(new Jdk8Module());
+
+      Path dbmdPath = Files.createTempFile("dbmd-benchmark", "." + format);
+      try
+      {
+         writeSyntheticMetadata(dbmdPath, tables, mapper);
+         System.out.println(tables + " tables, " + Files.size(dbmdPath) / (1024 * 1024) + " MB " + format);
+
+         measure("full read:     ", () -> {
+            try ( InputStream is = Files.newInputStream(dbmdPath) )
+            {
+               return mapper.readValue(is, DatabaseMetadata.class);
+            }
+         });
+
+         measure("streamed read: ", () -> {
+            try ( InputStream is = Files.newInputStream(dbmdPath);
+                  var reader = new DatabaseMetadataReader(is, mapper) )
+            {
+               long fields = 0;
+               for ( RelMetadata relMd = reader.nextRelationMetadata(); relMd != null; relMd = reader.nextRelationMetadata() )
+                  fields += relMd.getFields().size();
+               return fields;
+            }
+         });
+      }
+      finally
+      {
+         Files.delete(dbmdPath);
+      }
+   }
+
+   private interface Read
+   {
+      Object read() throws IOException;
+   }
+
+   private static void measure
+      (
+         String label,
+         Read read
+      )
+      throws IOException
+   {
+      System.gc();
+      long baseline = usedHeap();
+      List<MemoryPoolMXBean> heapPools = heapPools();
+      heapPools.forEach(MemoryPoolMXBean::resetPeakUsage);
+
+      long start = System.nanoTime();
+      Object result = read.read();
+      long elapsedMillis = (System.nanoTime() - start) / 1000000;
+
+      long peak = heapPools.stream().mapToLong(pool -> pool.getPeakUsage().getUsed()).sum();
+      System.gc();
+      long retained = usedHeap() - baseline;
+      Reference.reachabilityFence(result);
+
+      System.out.println(
+         label + "peak heap " + mb(peak - baseline) + " MB, retained " + mb(retained) + " MB, " + elapsedMillis + " ms"
+      );
+   }
+
+   static void writeSyntheticMetadata
+      (
+         Path dbmdPath,
+         int tables,
+         ObjectMapper mapper
+      )
+      throws IOException
+   {
+      try ( OutputStream os = Files.newOutputStream(dbmdPath);
+            var writer = new DatabaseMetadataWriter(os, mapper) )
+      {
+         writer.writeHeader("PostgreSQL", "14", INSENSITIVE_STORED_LOWER);
+
+         List<ForeignKey> fks = new ArrayList<>();
+         for ( int i = 0; i < tables; ++i )
+         {
+            RelId relId = new RelId("bench", String.format("table_%06d", i));
+
+            List<Field> fields = new ArrayList<>();
+            fields.add(new Field("id", Types.INTEGER, "int4", null, 10, 2, 0, false, 1));
+            fields.add(new Field("parent_id", Types.INTEGER, "int4", null, 10, 2, 0, true, null));
+            for ( int f = 0; f < 8; ++f )
+               fields.add(new Field("field_" + f, Types.VARCHAR, "varchar", 100, null, null, null, true, null));
+
+            writer.writeRelationMetadata(new RelMetadata(relId, RelMetadata.RelType.Table, fields));
+
+            if ( i > 0 )
+               fks.add(new ForeignKey(
+                  null,
+                  relId,
+                  new RelId("bench", String.format("table_%06d", i - 1)),
+                  singletonList(new ForeignKey.Component("parent_id", "id"))
+               ));
+         }
+
+         writer.writeForeignKeys(fks);
+      }
+   }
+
+   private static List<MemoryPoolMXBean> heapPools()
+   {
+      List<MemoryPoolMXBean> pools = new ArrayList<>();
+      for ( MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans() )
+         if ( pool.getType() == MemoryType.HEAP )
+            pools.add(pool);
+      return pools;
+   }
+
+   private static long usedHeap()
+   {
+      return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+   }
+
+   private static long mb(long bytes)
+   {
+      return bytes / (1024 * 1024);
+   }
+}
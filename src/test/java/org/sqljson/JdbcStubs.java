@@ -0,0 +1,168 @@
+package org.sqljson;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.*;
+import java.util.function.Function;
+
+
+/// Minimal in-memory stand-ins for JDBC objects, for tests that don't need a live database.
+@SuppressWarnings("nullness")
+class JdbcStubs
+{
+   /// Make a forward-only result set over the given rows, with column names given by the first argument.
+   static ResultSet resultSet
+      (
+         List<String> columnNames,
+         List<Object[]> rows
+      )
+   {
+      int[] rowIx = { -1 };
+      Object[] lastValue = { null };
+
+      return (ResultSet) Proxy.newProxyInstance(
+         ResultSet.class.getClassLoader(),
+         new Class<?>[]{ ResultSet.class },
+         (proxy, method, args) -> {
+            switch ( method.getName() )
+            {
+               case "next": return ++rowIx[0] < rows.size();
+               case "close": return null;
+               case "wasNull": return lastValue[0] == null;
+               case "getString":
+               case "getBoolean":
+               case "getInt":
+               case "getShort":
+               case "getLong":
+               case "getObject":
+               {
+                  int colIx = args[0] instanceof Integer ? (Integer) args[0] - 1
+                     : columnNames.indexOf(((String) args[0]).toUpperCase());
+                  if ( colIx < 0 )
+                     throw new IllegalArgumentException("No column " + args[0] + " in stub result set.");
+                  Object v = rows.get(rowIx[0])[colIx];
+                  lastValue[0] = v;
+                  switch ( method.getName() )
+                  {
+                     case "getString": return v != null ? v.toString() : null;
+                     case "getBoolean": return v != null && (Boolean) v;
+                     case "getInt": return v != null ? ((Number) v).intValue() : 0;
+                     case "getShort": return v != null ? ((Number) v).shortValue() : (short) 0;
+                     case "getLong": return v != null ? ((Number) v).longValue() : 0L;
+                     default: return v;
+                  }
+               }
+               default:
+                  throw new UnsupportedOperationException("ResultSet." + method.getName() + " not stubbed.");
+            }
+         }
+      );
+   }
+
+   /// A DatabaseMetaData stand-in which records the names of all methods called on it, delegating
+   /// to the passed handler for results.
+   static class RecordingDatabaseMetaData
+   {
+      final List<String> calls = new ArrayList<>();
+      final DatabaseMetaData dbmd;
+
+      interface Handler { Object handle(String methodName, Object[] args) throws Exception; }
+
+      RecordingDatabaseMetaData(Handler handler)
+      {
+         dbmd = (DatabaseMetaData) Proxy.newProxyInstance(
+            DatabaseMetaData.class.getClassLoader(),
+            new Class<?>[]{ DatabaseMetaData.class },
+            (proxy, method, args) -> {
+               calls.add(method.getName());
+               return handler.handle(method.getName(), args != null ? args : new Object[0]);
+            }
+         );
+      }
+
+      long callCount(String methodName)
+      {
+         return calls.stream().filter(methodName::equals).count();
+      }
+   }
+
+   /// Make a Connection stand-in providing the given metadata, which records whether it has been closed.
+   static Connection connection(DatabaseMetaData dbmd)
+   {
+      boolean[] closed = { false };
+
+      return (Connection) Proxy.newProxyInstance(
+         Connection.class.getClassLoader(),
+         new Class<?>[]{ Connection.class },
+         (proxy, method, args) -> {
+            switch ( method.getName() )
+            {
+               case "getMetaData": return dbmd;
+               case "close": closed[0] = true; return null;
+               case "isClosed": return closed[0];
+               default:
+                  throw new UnsupportedOperationException("Connection." + method.getName() + " not stubbed.");
+            }
+         }
+      );
+   }
+
+   /// A Connection stand-in whose prepared statements produce the result sets given by the passed function of the
+   /// statement's SQL, recording the SQL and fetch size of each statement executed.
+   static class StubConnection
+   {
+      final List<String> executedSqls = new ArrayList<>();
+      final List<Integer> fetchSizes = new ArrayList<>();
+      final Connection conn;
+
+      StubConnection(Function<String,ResultSet> resultsBySql)
+      {
+         conn = (Connection) Proxy.newProxyInstance(
+            Connection.class.getClassLoader(),
+            new Class<?>[]{ Connection.class },
+            (proxy, method, args) -> {
+               switch ( method.getName() )
+               {
+                  case "prepareStatement": return preparedStatement((String) args[0], resultsBySql);
+                  case "close": return null;
+                  default:
+                     throw new UnsupportedOperationException("Connection." + method.getName() + " not stubbed.");
+               }
+            }
+         );
+      }
+
+      private PreparedStatement preparedStatement
+         (
+            String sql,
+            Function<String,ResultSet> resultsBySql
+         )
+      {
+         int[] fetchSize = { 0 };
+
+         return (PreparedStatement) Proxy.newProxyInstance(
+            PreparedStatement.class.getClassLoader(),
+            new Class<?>[]{ PreparedStatement.class },
+            (proxy, method, args) -> {
+               switch ( method.getName() )
+               {
+                  case "setFetchSize": fetchSize[0] = (Integer) args[0]; return null;
+                  case "setString": return null;
+                  case "close": return null;
+                  case "executeQuery":
+                     executedSqls.add(sql);
+                     fetchSizes.add(fetchSize[0]);
+                     return resultsBySql.apply(sql);
+                  default:
+                     throw new UnsupportedOperationException("PreparedStatement." + method.getName() + " not stubbed.");
+               }
+            }
+         );
+      }
+   }
+
+   private JdbcStubs() {}
+}
@@ -0,0 +1,91 @@
+package org.sqljson;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import static java.util.Arrays.asList;
+import static java.util.stream.Collectors.toList;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.sqljson.JoinIndexChecker.UnindexedJoin;
+import org.sqljson.dbmd.DatabaseMetadata;
+import org.sqljson.dbmd.RelId;
+import org.sqljson.query_specs.QueryGroupSpec;
+import org.sqljson.query_specs.QuerySpec;
+
+
+@SuppressWarnings("nullness")
+class JoinIndexCheckerTests extends TestsBase
+{
+   @Test
+   @DisplayName("Joins of the test query specifications are all supported by indexes.")
+   void testQueriesHaveNoUnindexedJoins() throws IOException
+   {
+      DatabaseMetadata dbmd = getDatabaseMetadata("dbmd-pg.yaml");
+      QueryGroupSpec queryGroupSpec = yamlMapper.readValue(getResourceStream("query-specs.yaml"), QueryGroupSpec.class);
+
+      var checker = new JoinIndexChecker(dbmd, queryGroupSpec.getDefaultSchema());
+
+      List<UnindexedJoin> unindexedJoins = new ArrayList<>();
+      for ( QuerySpec querySpec : queryGroupSpec.getQuerySpecs() )
+         unindexedJoins.addAll(checker.findUnindexedJoins(querySpec));
+
+      assertTrue(checker.isIndexMetadataFound());
+      assertEquals(List.of(), unindexedJoins);
+   }
+
+   @Test
+   @DisplayName("Child collections and parents joined on fields without a supporting index are reported.")
+   void reportUnindexedJoins() throws IOException
+   {
+      DatabaseMetadata dbmd = getDatabaseMetadata("dbmd-pg.yaml");
+      QueryGroupSpec queryGroupSpec = yamlMapper.readValue(
+         "defaultSchema: drugs\n" +
+         "querySpecs:\n" +
+         "  - queryName: analyst query\n" +
+         "    tableJson:\n" +
+         "      table: analyst\n" +
+         "      fieldExpressions: [{ field: id }]\n" +
+         "      childTableCollections:\n" +
+         "        - collectionName: registeredDrugs\n" +
+         "          tableJson:\n" +
+         "            table: drug\n" +
+         "            fieldExpressions: [{ field: id }]\n" +
+         "            parentTables:\n" +
+         "              - tableJson: { table: compound, fieldExpressions: [{ field: display_name }] }\n" +
+         "        - collectionName: enteredCompounds\n" +
+         "          customJoinCondition:\n" +
+         "            equatedFields: [{ childField: entered_by, parentPrimaryKeyField: id }]\n" +
+         "          tableJson:\n" +
+         "            table: compound\n" +
+         "            fieldExpressions: [{ field: id }]\n" +
+         "            parentTables:\n" +
+         "              - referenceName: approver\n" +
+         "                customJoinCondition:\n" +
+         "                  equatedFields: [{ childField: approved_by, parentPrimaryKeyField: short_name }]\n" +
+         "                tableJson: { table: analyst, fieldExpressions: [{ field: id }] }\n",
+         QueryGroupSpec.class
+      );
+
+      List<UnindexedJoin> unindexedJoins =
+         new JoinIndexChecker(dbmd, queryGroupSpec.getDefaultSchema())
+         .findUnindexedJoins(queryGroupSpec.getQuerySpecs().get(0));
+
+      // The inline parent compound is joined on its primary key, which is indexed.
+      assertEquals(
+         asList(
+            "child collection 'registeredDrugs'",
+            "child collection 'enteredCompounds'",
+            "child collection 'enteredCompounds' / parentTables entry #1, 'analyst' table"
+         ),
+         unindexedJoins.stream().map(uj -> uj.getSpecLocation().getQueryPart()).collect(toList())
+      );
+      assertEquals(new RelId("drugs", "drug"), unindexedJoins.get(0).getJoinedRelationId());
+      assertEquals(asList("registered_by"), unindexedJoins.get(0).getJoinFieldNames());
+      assertEquals(asList("entered_by"), unindexedJoins.get(1).getJoinFieldNames());
+      assertEquals(asList("short_name"), unindexedJoins.get(2).getJoinFieldNames());
+   }
+}
@@ -0,0 +1,114 @@
+package org.sqljson;
+
+import java.io.IOException;
+import java.sql.*;
+
+import org.sqljson.dbmd.DatabaseMetadata;
+import org.sqljson.query_specs.ResultRepr;
+import static org.sqljson.query_specs.ResultRepr.*;
+
+
+/// Compares the JSON_OBJECT_ROWS, JSON_ARRAY_ROW and JSON_ARRAY_CHUNKS (for several chunk sizes) result
+/// representations when reading a range of drugs (default 200,000) with their brands from schema drugs_bench, as
+/// populated by BenchmarkSupport. Reported for each are the time to read all results and the size of the largest
+/// json value received, which bounds the memory needed to hold a single result value on the server and client.
+/// Run manually from the project directory, with optional arguments for the number of drugs, warmup and measured
+/// iterations, and drugs per query.
+public class JsonArrayChunksBenchmark
+{
+   public static void main(String[] args) throws Exception
+   {
+      int drugs = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+      int warmups = args.length > 1 ? Integer.parseInt(args[1]) : 1;
+      int iterations = args.length > 2 ? Integer.parseInt(args[2]) : 5;
+      int drugsPerQuery = args.length > 3 ? Integer.parseInt(args[3]) : 200_000;
+
+      DatabaseMetadata dbmd = new TestsBase().getDatabaseMetadata("dbmd-pg.yaml");
+
+      try ( Connection conn = TestsBase.getTestDatabaseConnection() )
+      {
+         conn.setAutoCommit(false); // allows fetching results incrementally
+         BenchmarkSupport.populateSchema(conn, drugs);
+         conn.commit();
+
+         time(conn, "JSON_OBJECT_ROWS", generateSql(dbmd, JSON_OBJECT_ROWS, 1), drugsPerQuery, warmups, iterations);
+         time(conn, "JSON_ARRAY_ROW", generateSql(dbmd, JSON_ARRAY_ROW, 1), drugsPerQuery, warmups, iterations);
+         for ( int chunkSize : new int[]{ 100, 1000, 10_000 } )
+         {
+            String sql = generateSql(dbmd, JSON_ARRAY_CHUNKS, chunkSize);
+            time(conn, "JSON_ARRAY_CHUNKS(" + chunkSize + ")", sql, drugsPerQuery, warmups, iterations);
+         }
+      }
+   }
+
+   private static String generateSql
+      (
+         DatabaseMetadata dbmd,
+         ResultRepr resultRepr,
+         int chunkSize
+      )
+      throws IOException
+   {
+      String querySpecs =
+         "defaultSchema: drugs\n" +
+         "generateUnqualifiedNamesForSchemas: [drugs]\n" +
+         "querySpecs:\n" +
+         "  - queryName: drugs\n" +
+         "    resultRepresentations: [" + resultRepr + "]\n" +
+         "    jsonArrayChunkSize: " + chunkSize + "\n" +
+         "    orderBy: '$$.id'\n" +
+         "    tableJson:\n" +
+         "      table: drug\n" +
+         "      fieldExpressions: [id, name, compound_id, drugbank_id, registered_by, cid, mesh_id]\n" +
+         "      childTableCollections:\n" +
+         "        - collectionName: brands\n" +
+         "          tableJson:\n" +
+         "            table: brand\n" +
+         "            fieldExpressions: [brand_name, manufacturer_id]\n" +
+         "      recordCondition:\n" +
+         "        sql: '$$.id between ? and ?'\n";
+
+      return BenchmarkSupport.generateSql(dbmd, querySpecs, resultRepr);
+   }
+
+   private static void time
+      (
+         Connection conn,
+         String label,
+         String sql,
+         int drugsPerQuery,
+         int warmups,
+         int iterations
+      )
+      throws SQLException
+   {
+      long[] maxValueLength = { 0 };
+      double ms = BenchmarkSupport.timeQueries(conn, sql, warmups, iterations, stmt ->
+         maxValueLength[0] = Math.max(maxValueLength[0], runQuery(stmt, drugsPerQuery))
+      );
+      conn.commit();
+
+      System.out.println(label + ": " + ms + " ms/query, largest json value " + maxValueLength[0] + " chars");
+   }
+
+   /// Read all results of the query, returning the length of the largest json value.
+   private static long runQuery
+      (
+         PreparedStatement stmt,
+         int drugsPerQuery
+      )
+      throws SQLException
+   {
+      stmt.setInt(1, 1);
+      stmt.setInt(2, drugsPerQuery);
+
+      long maxValueLength = 0;
+      try ( ResultSet rs = stmt.executeQuery() )
+      {
+         while ( rs.next() )
+            maxValueLength = Math.max(maxValueLength, rs.getString(1).length());
+      }
+
+      return maxValueLength;
+   }
+}
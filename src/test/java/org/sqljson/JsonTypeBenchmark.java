@@ -0,0 +1,82 @@
+package org.sqljson;
+
+import java.sql.*;
+
+import org.sqljson.dbmd.DatabaseMetadata;
+import org.sqljson.query_specs.JsonType;
+import static org.sqljson.query_specs.ResultRepr.JSON_OBJECT_ROWS;
+
+
+/// Compares query latencies when building json versus jsonb values, for a query of wide drug rows (the drug
+/// table's fields plus a number of text expressions, default 40) with a nested brands collection. The drugs schema
+/// is populated in schema drugs_bench by BenchmarkSupport, and each measured query reads a random range of drugs
+/// (default 50,000). Since the queries are limited by the database's cpu time in building and serializing the json
+/// values, the latencies stand in for the cpu costs. Run manually from the project directory, with optional
+/// arguments for the number of drugs, warmup and measured iterations, drugs per query, and the number of extra
+/// text fields.
+public class JsonTypeBenchmark
+{
+   public static void main(String[] args) throws Exception
+   {
+      int drugs = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+      int warmups = args.length > 1 ? Integer.parseInt(args[1]) : 2;
+      int iterations = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+      int drugsPerQuery = args.length > 3 ? Integer.parseInt(args[3]) : 50_000;
+      int textFields = args.length > 4 ? Integer.parseInt(args[4]) : 40;
+
+      DatabaseMetadata dbmd = new TestsBase().getDatabaseMetadata("dbmd-pg.yaml");
+
+      try ( Connection conn = TestsBase.getTestDatabaseConnection() )
+      {
+         conn.setAutoCommit(true);
+         BenchmarkSupport.populateSchema(conn, drugs);
+
+         for ( JsonType jsonType : JsonType.values() )
+         {
+            String sql = BenchmarkSupport.generateSql(dbmd, querySpecs(jsonType, textFields), JSON_OBJECT_ROWS);
+            double ms = BenchmarkSupport.timeRandomRangeQueries(conn, sql, drugs, drugsPerQuery, warmups, iterations);
+            System.out.println(jsonType + ": " + ms + " ms/query");
+         }
+      }
+   }
+
+   private static String querySpecs
+      (
+         JsonType jsonType,
+         int textFields
+      )
+   {
+      var fieldExprs = new StringBuilder(
+         "        - id\n" +
+         "        - name\n" +
+         "        - compound_id\n" +
+         "        - drugbank_id\n" +
+         "        - registered_by\n" +
+         "        - cid\n" +
+         "        - mesh_id\n" +
+         "        - therapeutic_indications\n"
+      );
+      for ( int i = 1; i <= textFields; ++i )
+         fieldExprs.append(
+            "        - { expression: \"'text value ' || $$.id || ' #" + i + "'\", jsonProperty: text" + i + ", fieldTypeInGeneratedSource: String }\n"
+         );
+
+      return
+         "defaultSchema: drugs\n" +
+         "generateUnqualifiedNamesForSchemas: [drugs]\n" +
+         "querySpecs:\n" +
+         "  - queryName: drugs\n" +
+         "    jsonType: " + jsonType + "\n" +
+         "    tableJson:\n" +
+         "      table: drug\n" +
+         "      fieldExpressions:\n" +
+         fieldExprs +
+         "      childTableCollections:\n" +
+         "        - collectionName: brands\n" +
+         "          tableJson:\n" +
+         "            table: brand\n" +
+         "            fieldExpressions: [brand_name, manufacturer_id]\n" +
+         "      recordCondition:\n" +
+         "        sql: '$$.id between ? and ?'\n";
+   }
+}
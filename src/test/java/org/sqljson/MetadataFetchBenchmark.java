@@ -0,0 +1,48 @@
+package org.sqljson;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+import org.sqljson.dbmd.DatabaseMetadataFetcher;
+import org.sqljson.dbmd.PostgresCatalogMetadataFetcher;
+import static org.sqljson.dbmd.DatabaseMetadataFetcher.DateMapping.DATES_AS_DRIVER_REPORTED;
+
+
+/// Compares wall times of the JDBC and native catalog metadata fetchers against the test (drugs) database.
+/// Run manually, with optional arguments for the number of warmup and measured iterations.
+public class MetadataFetchBenchmark
+{
+   public static void main(String[] args) throws SQLException
+   {
+      int warmups = args.length > 0 ? Integer.parseInt(args[0]) : 5;
+      int iterations = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+
+      try ( Connection conn = TestsBase.getTestDatabaseConnection() )
+      {
+         var jdbcFetcher = new DatabaseMetadataFetcher(DATES_AS_DRIVER_REPORTED);
+         var catalogFetcher = new PostgresCatalogMetadataFetcher(DATES_AS_DRIVER_REPORTED);
+
+         System.out.println("jdbc:    " + timeFetches(jdbcFetcher, conn, warmups, iterations) + " ms/fetch");
+         System.out.println("catalog: " + timeFetches(catalogFetcher, conn, warmups, iterations) + " ms/fetch");
+      }
+   }
+
+   private static double timeFetches
+      (
+         DatabaseMetadataFetcher fetcher,
+         Connection conn,
+         int warmups,
+         int iterations
+      )
+      throws SQLException
+   {
+      for ( int i = 0; i < warmups; ++i )
+         fetcher.fetchMetadata(conn.getMetaData(), "drugs", true, true, true, null);
+
+      long start = System.nanoTime();
+      for ( int i = 0; i < iterations; ++i )
+         fetcher.fetchMetadata(conn.getMetaData(), "drugs", true, true, true, null);
+
+      return (System.nanoTime() - start) / 1e6 / iterations;
+   }
+}
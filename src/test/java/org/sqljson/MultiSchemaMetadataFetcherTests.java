@@ -0,0 +1,175 @@
+package org.sqljson;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import static java.util.Arrays.asList;
+import static java.util.Collections.emptyList;
+import static java.util.stream.Collectors.toList;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.sqljson.JdbcStubs.RecordingDatabaseMetaData;
+import org.sqljson.dbmd.*;
+import org.sqljson.dbmd.MultiSchemaMetadataFetcher.SchemaFetchStats;
+import static org.sqljson.JdbcStubs.resultSet;
+import static org.sqljson.dbmd.DatabaseMetadataFetcher.DateMapping.DATES_AS_DRIVER_REPORTED;
+
+
+@SuppressWarnings("nullness")
+class MultiSchemaMetadataFetcherTests
+{
+   private static final List<String> TABLES_COLS = asList("TABLE_SCHEM", "TABLE_NAME", "TABLE_TYPE", "REMARKS");
+   private static final List<String> COLUMNS_COLS =
+      asList("TABLE_CAT", "TABLE_SCHEM", "TABLE_NAME", "COLUMN_NAME", "DATA_TYPE", "TYPE_NAME", "COLUMN_SIZE",
+             "DECIMAL_DIGITS", "NULLABLE");
+   private static final List<String> PKS_COLS = asList("TABLE_CAT", "TABLE_SCHEM", "TABLE_NAME", "COLUMN_NAME", "KEY_SEQ");
+   private static final List<String> FKS_COLS =
+      asList("PKTABLE_CAT", "PKTABLE_SCHEM", "PKTABLE_NAME", "PKCOLUMN_NAME", "FKTABLE_CAT", "FKTABLE_SCHEM",
+             "FKTABLE_NAME", "FKCOLUMN_NAME", "KEY_SEQ");
+   private static final List<String> INDEXES_COLS =
+      asList("TABLE_SCHEM", "TABLE_NAME", "NON_UNIQUE", "INDEX_NAME", "TYPE", "COLUMN_NAME", "FILTER_CONDITION");
+
+   @Test
+   @DisplayName("Metadata for multiple schemas is fetched over a bounded number of connections and merged.")
+   void fetchMultipleSchemas() throws SQLException
+   {
+      List<Connection> conns = Collections.synchronizedList(new ArrayList<>());
+      List<SchemaFetchStats> stats = Collections.synchronizedList(new ArrayList<>());
+
+      DatabaseMetadata dbmd =
+         new MultiSchemaMetadataFetcher(new DatabaseMetadataFetcher(DATES_AS_DRIVER_REPORTED), 2)
+         .fetchMetadata(
+            () -> {
+               Connection conn = JdbcStubs.connection(new RecordingDatabaseMetaData(
+                  MultiSchemaMetadataFetcherTests::stubMetadataResult
+               ).dbmd);
+               conns.add(conn);
+               return conn;
+            },
+            asList("s3", "s1", "s2"),
+            true,
+            true,
+            true,
+            null,
+            null,
+            stats::add
+         );
+
+      assertEquals(2, conns.size());
+      for ( Connection conn : conns )
+         assertTrue(conn.isClosed());
+
+      assertEquals(
+         asList("s1", "s2", "s3"),
+         stats.stream().map(SchemaFetchStats::getSchema).sorted().collect(toList())
+      );
+
+      // Merged metadata is in the same sorted order as that of a single schema fetch.
+      assertEquals(
+         asList(new RelId("s1", "a"), new RelId("s2", "a"), new RelId("s2", "b"), new RelId("s3", "a")),
+         dbmd.getRelationMetadatas().stream().map(RelMetadata::getRelationId).collect(toList())
+      );
+      assertEquals(asList("id"), dbmd.getRelationMetadata(new RelId("s2", "b")).getPrimaryKeyFieldNames());
+
+      assertEquals(1, dbmd.getForeignKeys().size());
+      ForeignKey fk = dbmd.getForeignKeys().get(0);
+      assertEquals(new RelId("s2", "b"), fk.getForeignKeyRelationId());
+      assertEquals(new RelId("s1", "a"), fk.getPrimaryKeyRelationId());
+   }
+
+   @Test
+   @DisplayName("A failure fetching one schema fails the whole fetch and closes all connections.")
+   void fetchFailureClosesConnections()
+   {
+      List<Connection> conns = Collections.synchronizedList(new ArrayList<>());
+
+      assertThrows(SQLException.class, () ->
+         new MultiSchemaMetadataFetcher(new DatabaseMetadataFetcher(DATES_AS_DRIVER_REPORTED), 4)
+         .fetchMetadata(
+            () -> {
+               Connection conn = JdbcStubs.connection(new RecordingDatabaseMetaData((method, args) -> {
+                  if ( method.equals("getTables") && "bad".equals(args[1]) )
+                     throw new SQLException("schema bad is not accessible");
+                  return stubMetadataResult(method, args);
+               }).dbmd);
+               conns.add(conn);
+               return conn;
+            },
+            asList("s1", "bad"),
+            true,
+            true,
+            true,
+            null,
+            null,
+            stats -> {}
+         )
+      );
+
+      assertEquals(2, conns.size());
+      for ( Connection conn : conns )
+         assertTrue(assertDoesNotThrow(conn::isClosed));
+   }
+
+   private static Object stubMetadataResult
+      (
+         String method,
+         Object[] args
+      )
+   {
+      switch ( method )
+      {
+         case "storesLowerCaseIdentifiers": return true;
+         case "getDatabaseProductName": return "PostgreSQL";
+         case "getDatabaseProductVersion": return "14";
+         case "getTables":
+         {
+            String schema = (String) args[1];
+            return resultSet(TABLES_COLS,
+               schema.equals("s2") ?
+                  asList(new Object[]{schema, "b", "TABLE", null}, new Object[]{schema, "a", "TABLE", null})
+                  : asList(new Object[][]{{schema, "a", "TABLE", null}})
+            );
+         }
+         case "getColumns":
+         {
+            String schema = (String) args[1];
+            List<Object[]> rows = new ArrayList<>();
+            rows.add(new Object[]{null, schema, "a", "id", Types.INTEGER, "int4", 10, 0, 0});
+            if ( schema.equals("s2") )
+            {
+               rows.add(new Object[]{null, schema, "b", "id", Types.INTEGER, "int4", 10, 0, 0});
+               rows.add(new Object[]{null, schema, "b", "a_id", Types.INTEGER, "int4", 10, 0, 1});
+            }
+            return resultSet(COLUMNS_COLS, rows);
+         }
+         case "getPrimaryKeys":
+         {
+            String schema = (String) args[1];
+            List<Object[]> rows = new ArrayList<>();
+            rows.add(new Object[]{null, schema, "a", "id", 1});
+            if ( schema.equals("s2") )
+               rows.add(new Object[]{null, schema, "b", "id", 1});
+            return resultSet(PKS_COLS, rows);
+         }
+         case "getIndexInfo":
+            return resultSet(INDEXES_COLS, emptyList());
+         case "getImportedKeys":
+         {
+            String schema = (String) args[1];
+            return resultSet(FKS_COLS,
+               schema.equals("s2") ?
+                  asList(new Object[][]{{null, "s1", "a", "id", null, "s2", "b", "a_id", (short) 1}})
+                  : emptyList()
+            );
+         }
+         default:
+            throw new UnsupportedOperationException("DatabaseMetaData." + method + " not stubbed.");
+      }
+   }
+}
@@ -0,0 +1,187 @@
+package org.sqljson;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.List;
+import static java.util.Arrays.asList;
+import static java.util.Collections.nCopies;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.sqljson.JdbcStubs.RecordingDatabaseMetaData;
+import org.sqljson.JdbcStubs.StubConnection;
+import org.sqljson.dbmd.DatabaseMetadata;
+import org.sqljson.dbmd.OracleDictionaryMetadataFetcher;
+import org.sqljson.dbmd.RelId;
+import static org.sqljson.JdbcStubs.resultSet;
+import static org.sqljson.dbmd.DatabaseMetadataFetcher.DateMapping.DATES_AS_DATES;
+import static org.sqljson.dbmd.DatabaseMetadataFetcher.DateMapping.DATES_AS_DRIVER_REPORTED;
+import static org.sqljson.dbmd.OracleDictionaryMetadataFetcher.DEFAULT_FETCH_SIZE;
+
+
+/// Golden-output tests of the Oracle dictionary metadata fetcher, run against dictionary view rows recorded from
+/// an Oracle database so that no Oracle instance is needed.
+@SuppressWarnings("nullness")
+class OracleDictionaryMetadataFetcherTests extends TestsBase
+{
+   private static final List<String> TAB_COMMENTS_COLS = asList("OWNER", "TABLE_NAME", "TABLE_TYPE", "COMMENTS");
+   private static final List<Object[]> TAB_COMMENTS_ROWS = asList(
+      new Object[]{"DRUGS", "AUTHORITY", "TABLE", null},
+      new Object[]{"DRUGS", "DRUG", "TABLE", "Drugs registered with an authority."},
+      new Object[]{"DRUGS", "ADVISORY", "TABLE", null},
+      new Object[]{"DRUGS", "BRAND", "TABLE", null},
+      new Object[]{"DRUGS", "DRUG_NAMES", "VIEW", null}
+   );
+
+   private static final List<String> TAB_COLUMNS_COLS =
+      asList("OWNER", "TABLE_NAME", "COLUMN_NAME", "DATA_TYPE", "DATA_LENGTH", "CHAR_LENGTH", "DATA_PRECISION",
+             "DATA_SCALE", "NULLABLE", "TYPE_TYPECODE");
+   private static final List<Object[]> TAB_COLUMNS_ROWS = asList(
+      new Object[]{"DRUGS", "ADVISORY", "ID", "NUMBER", 22, 0, null, 0, "N", null},
+      new Object[]{"DRUGS", "ADVISORY", "DRUG_ID", "NUMBER", 22, 0, null, 0, "N", null},
+      new Object[]{"DRUGS", "ADVISORY", "TEXT", "VARCHAR2", 2000, 2000, null, null, "N", null},
+      new Object[]{"DRUGS", "AUTHORITY", "ID", "NUMBER", 22, 0, null, 0, "N", null},
+      new Object[]{"DRUGS", "AUTHORITY", "NAME", "VARCHAR2", 200, 200, null, null, "N", null},
+      new Object[]{"DRUGS", "AUTHORITY", "DESCRIPTION", "CLOB", 4000, 0, null, null, "Y", null},
+      new Object[]{"DRUGS", "AUTHORITY", "WEIGHT", "NUMBER", 22, 0, null, null, "Y", null},
+      new Object[]{"DRUGS", "BRAND", "DRUG_ID", "NUMBER", 22, 0, null, 0, "N", null},
+      new Object[]{"DRUGS", "BRAND", "BRAND_NAME", "VARCHAR2", 200, 200, null, null, "N", null},
+      new Object[]{"DRUGS", "DRUG", "ID", "NUMBER", 22, 0, null, 0, "N", null},
+      new Object[]{"DRUGS", "DRUG", "NAME", "NVARCHAR2", 1000, 500, null, null, "N", null},
+      new Object[]{"DRUGS", "DRUG", "CATEGORY_CODE", "CHAR", 1, 1, null, null, "N", null},
+      new Object[]{"DRUGS", "DRUG", "PRICE", "NUMBER", 22, 0, 9, 2, "Y", null},
+      new Object[]{"DRUGS", "DRUG", "RATING", "FLOAT", 22, 0, 126, null, "Y", null},
+      new Object[]{"DRUGS", "DRUG", "AUTHORITY_ID", "NUMBER", 22, 0, null, 0, "Y", null},
+      new Object[]{"DRUGS", "DRUG", "MARKET_ENTRY_DATE", "DATE", 7, 0, null, null, "Y", null},
+      new Object[]{"DRUGS", "DRUG", "REGISTERED", "TIMESTAMP(6) WITH TIME ZONE", 13, 0, null, 6, "Y", null},
+      new Object[]{"DRUGS", "DRUG", "ENTERED", "TIMESTAMP(6)", 11, 0, null, 6, "Y", null},
+      new Object[]{"DRUGS", "DRUG", "SPL", "XMLTYPE", 2000, 0, null, null, "Y", "OBJECT"},
+      new Object[]{"DRUGS", "DRUG", "LABEL_ADDRESS", "ADDRESS_T", 1, 0, null, null, "Y", "OBJECT"},
+      new Object[]{"DRUGS", "DRUG_NAMES", "ID", "NUMBER", 22, 0, null, 0, "N", null},
+      new Object[]{"DRUGS", "DRUG_NAMES", "NAME", "NVARCHAR2", 1000, 500, null, null, "N", null},
+      // Relation not reported in ALL_TAB_COMMENTS for the schema, which should be skipped.
+      new Object[]{"DRUGS", "SYS_TEMP_REL", "ID", "NUMBER", 22, 0, null, 0, "N", null}
+   );
+
+   private static final List<String> PK_COLS = asList("OWNER", "TABLE_NAME", "COLUMN_NAME", "POSITION");
+   private static final List<Object[]> PK_ROWS = asList(
+      new Object[]{"DRUGS", "ADVISORY", "ID", 1},
+      new Object[]{"DRUGS", "AUTHORITY", "ID", 1},
+      new Object[]{"DRUGS", "BRAND", "DRUG_ID", 1},
+      new Object[]{"DRUGS", "BRAND", "BRAND_NAME", 2},
+      new Object[]{"DRUGS", "DRUG", "ID", 1}
+   );
+
+   private static final List<String> IND_COLS =
+      asList("TABLE_OWNER", "TABLE_NAME", "INDEX_NAME", "UNIQUENESS", "COLUMN_NAME");
+   private static final List<Object[]> IND_ROWS = asList(
+      new Object[]{"DRUGS", "ADVISORY", "ADVISORY_DRUG_IX", "NONUNIQUE", "DRUG_ID"},
+      new Object[]{"DRUGS", "ADVISORY", "ADVISORY_PK", "UNIQUE", "ID"},
+      new Object[]{"DRUGS", "AUTHORITY", "AUTHORITY_PK", "UNIQUE", "ID"},
+      new Object[]{"DRUGS", "BRAND", "BRAND_PK", "UNIQUE", "DRUG_ID"},
+      new Object[]{"DRUGS", "BRAND", "BRAND_PK", "UNIQUE", "BRAND_NAME"},
+      new Object[]{"DRUGS", "DRUG", "DRUG_AUTHORITY_NAME_UN", "UNIQUE", "AUTHORITY_ID"},
+      new Object[]{"DRUGS", "DRUG", "DRUG_AUTHORITY_NAME_UN", "UNIQUE", "NAME"},
+      new Object[]{"DRUGS", "DRUG", "DRUG_PK", "UNIQUE", "ID"}
+   );
+
+   private static final List<String> FK_COLS =
+      asList("FK_OWNER", "FK_TABLE_NAME", "PK_OWNER", "PK_TABLE_NAME", "FK_COLUMN_NAME", "PK_COLUMN_NAME",
+             "COMP_NUM");
+   private static final List<Object[]> FK_ROWS = asList(
+      new Object[]{"DRUGS", "ADVISORY", "DRUGS", "DRUG", "DRUG_ID", "ID", 1},
+      new Object[]{"DRUGS", "BRAND", "DRUGS", "DRUG", "DRUG_ID", "ID", 1},
+      new Object[]{"DRUGS", "DRUG", "DRUGS", "AUTHORITY", "AUTHORITY_ID", "ID", 1}
+   );
+
+   @Test
+   @DisplayName("Metadata fetched from recorded dictionary view rows matches the expected output.")
+   void dictionaryMetadataMatchesGoldenOutput() throws SQLException, IOException
+   {
+      StubConnection stubConn = new StubConnection(OracleDictionaryMetadataFetcherTests::recordedDictionaryRows);
+      RecordingDatabaseMetaData rdbmd = new RecordingDatabaseMetaData((method, args) ->
+         stubMetadataResult(method, stubConn)
+      );
+
+      DatabaseMetadata dbmd =
+         new OracleDictionaryMetadataFetcher(DATES_AS_DRIVER_REPORTED)
+         .fetchMetadata(rdbmd.dbmd, "drugs", true, true, true, null);
+
+      assertEquals(getGoldenOutput("dbmd-ora-dictionary.yaml"), yamlMapper.writeValueAsString(dbmd));
+
+      // Relations, columns, primary keys, indexes and foreign keys are each fetched in a single query.
+      assertEquals(5, stubConn.executedSqls.size());
+      assertEquals(nCopies(5, DEFAULT_FETCH_SIZE), stubConn.fetchSizes);
+   }
+
+   @Test
+   @DisplayName("Date columns are mapped according to the configured date mapping.")
+   void dictionaryMetadataAppliesDateMapping() throws SQLException
+   {
+      StubConnection stubConn = new StubConnection(OracleDictionaryMetadataFetcherTests::recordedDictionaryRows);
+      RecordingDatabaseMetaData rdbmd = new RecordingDatabaseMetaData((method, args) ->
+         stubMetadataResult(method, stubConn)
+      );
+
+      DatabaseMetadata dbmd =
+         new OracleDictionaryMetadataFetcher(DATES_AS_DATES)
+         .fetchMetadata(rdbmd.dbmd, "drugs", true, true, false, null);
+
+      int dateTypeCode =
+         dbmd.getRelationMetadata(new RelId("DRUGS", "DRUG")).getFields().stream()
+         .filter(f -> f.getName().equals("MARKET_ENTRY_DATE"))
+         .findAny().get()
+         .getJdbcTypeCode();
+
+      assertEquals(Types.DATE, dateTypeCode);
+   }
+
+   private static ResultSet recordedDictionaryRows(String sql)
+   {
+      if ( sql.contains("from all_tab_comments") )
+         return resultSet(TAB_COMMENTS_COLS, TAB_COMMENTS_ROWS);
+      else if ( sql.contains("from all_tab_columns") )
+         return resultSet(TAB_COLUMNS_COLS, TAB_COLUMNS_ROWS);
+      else if ( sql.contains("constraint_type = 'P'") )
+         return resultSet(PK_COLS, PK_ROWS);
+      else if ( sql.contains("from all_indexes") )
+         return resultSet(IND_COLS, IND_ROWS);
+      else if ( sql.contains("constraint_type = 'R'") )
+         return resultSet(FK_COLS, FK_ROWS);
+      else
+         throw new UnsupportedOperationException("No recorded rows for query: " + sql);
+   }
+
+   private static Object stubMetadataResult
+      (
+         String method,
+         StubConnection stubConn
+      )
+   {
+      switch ( method )
+      {
+         case "storesLowerCaseIdentifiers": return false;
+         case "storesUpperCaseIdentifiers": return true;
+         case "getDatabaseProductName": return "Oracle";
+         case "getDatabaseProductVersion": return "Oracle Database 19c Enterprise Edition Release 19.0.0.0.0";
+         case "getConnection": return stubConn.conn;
+         default:
+            throw new UnsupportedOperationException("DatabaseMetaData." + method + " not stubbed.");
+      }
+   }
+
+   private String getGoldenOutput(String resource) throws IOException
+   {
+      try ( InputStream is = getResourceStream(resource) )
+      {
+         return IOUtils.toString(is, StandardCharsets.UTF_8);
+      }
+   }
+}
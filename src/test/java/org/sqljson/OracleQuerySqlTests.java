@@ -0,0 +1,96 @@
+package org.sqljson;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.Map;
+import static java.util.Collections.singletonList;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.sqljson.dbmd.DatabaseMetadata;
+import org.sqljson.query_specs.QueryGroupSpec;
+import org.sqljson.query_specs.QuerySpec;
+import org.sqljson.query_specs.ResultRepr;
+
+
+/// Golden-output tests of the SQL generated for Oracle, from the Oracle metadata recorded in dbmd-ora-dictionary.yaml
+/// so that no Oracle instance is needed. The expected SQL for each query of oracle-query-specs.yaml is in directory
+/// golden-sql/oracle.
+@SuppressWarnings("nullness")
+class OracleQuerySqlTests extends TestsBase
+{
+   @Test
+   @DisplayName("Generated Oracle SQL builds objects of bounded size as varchar2 and others as clobs.")
+   void generatedSqlMatchesGoldenSql() throws IOException
+   {
+      QueryGroupSpec queryGroupSpec = getQueryGroupSpec();
+      var sqlGenerator = getSqlGenerator(queryGroupSpec);
+
+      assertEquals(6, queryGroupSpec.getQuerySpecs().size());
+
+      for ( QuerySpec querySpec : queryGroupSpec.getQuerySpecs() )
+         assertSqlsMatchGoldenSqls(querySpec, sqlGenerator.generateSqls(querySpec), "");
+   }
+
+   @Test
+   @DisplayName("Generated Oracle by-keys SQL reads each composite key from a single json array element.")
+   void generatedByKeysSqlMatchesGoldenSql() throws IOException
+   {
+      QueryGroupSpec queryGroupSpec = getQueryGroupSpec();
+      var sqlGenerator = getSqlGenerator(queryGroupSpec);
+
+      QuerySpec querySpec =
+         queryGroupSpec.getQuerySpecs().stream()
+         .filter(QuerySpec::getByKeysVariantOrDefault)
+         .findAny().get();
+
+      assertEquals(singletonList("keys"), sqlGenerator.getByKeysParamNames(querySpec));
+      assertSqlsMatchGoldenSqls(querySpec, sqlGenerator.generateByKeysSqls(querySpec), ", by keys");
+   }
+
+   private QueryGroupSpec getQueryGroupSpec() throws IOException
+   {
+      return yamlMapper.readValue(getResourceStream("oracle-query-specs.yaml"), QueryGroupSpec.class);
+   }
+
+   private QuerySqlGenerator getSqlGenerator(QueryGroupSpec queryGroupSpec) throws IOException
+   {
+      DatabaseMetadata dbmd = getDatabaseMetadata("dbmd-ora-dictionary.yaml");
+      return
+         new QuerySqlGenerator(
+            dbmd,
+            queryGroupSpec.getDefaultSchema(),
+            new HashSet<>(queryGroupSpec.getGenerateUnqualifiedNamesForSchemas()),
+            queryGroupSpec.getPropertyNameDefault().toFunctionOfFieldName()
+         );
+   }
+
+   private void assertSqlsMatchGoldenSqls
+      (
+         QuerySpec querySpec,
+         Map<ResultRepr,String> sqls,
+         String variantDescr
+      )
+      throws IOException
+   {
+      for ( var reprSql : sqls.entrySet() )
+      {
+         String reprDescr = reprSql.getKey().toString().toLowerCase().replace('_', ' ') + variantDescr;
+         String goldenSql = getGoldenSql(querySpec.getQueryName() + "(" + reprDescr + ").sql");
+         assertEquals(goldenSql, reprSql.getValue(), querySpec.getQueryName());
+      }
+   }
+
+   private String getGoldenSql(String fileName) throws IOException
+   {
+      try ( InputStream is = getResourceStream("golden-sql/oracle/" + fileName) )
+      {
+         return IOUtils.toString(is, StandardCharsets.UTF_8);
+      }
+   }
+}
@@ -0,0 +1,148 @@
+package org.sqljson;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import static java.util.Collections.emptyList;
+import static java.util.Collections.singletonList;
+import static java.util.stream.Collectors.toList;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.sqljson.dbmd.DatabaseMetadata;
+import org.sqljson.dbmd.DatabaseMetadataFetcher;
+import org.sqljson.dbmd.Index;
+import org.sqljson.dbmd.PostgresCatalogMetadataFetcher;
+import org.sqljson.dbmd.RelId;
+import org.sqljson.dbmd.RelMetadata;
+import static org.sqljson.dbmd.DatabaseMetadataFetcher.DateMapping.DATES_AS_DRIVER_REPORTED;
+
+
+@SuppressWarnings("nullness")
+class PostgresCatalogMetadataFetcherTests extends TestsBase
+{
+   @BeforeAll
+   @DisplayName("Check that the testing database is available.")
+   static void checkDatabaseConnection()
+   {
+      assertTestDatabaseAvailable();
+   }
+
+   @Test
+   @DisplayName("Metadata fetched from the Postgres catalog matches that fetched via JDBC metadata.")
+   void catalogMetadataMatchesJdbcMetadata() throws SQLException, JsonProcessingException
+   {
+      try ( Connection conn = getTestDatabaseConnection() )
+      {
+         DatabaseMetadata jdbcDbmd =
+            new DatabaseMetadataFetcher(DATES_AS_DRIVER_REPORTED)
+            .fetchMetadata(conn.getMetaData(), "drugs", true, true, true, null);
+
+         DatabaseMetadata catalogDbmd =
+            new PostgresCatalogMetadataFetcher(DATES_AS_DRIVER_REPORTED)
+            .fetchMetadata(conn.getMetaData(), "drugs", true, true, true, null);
+
+         assertFalse(catalogDbmd.getRelationMetadatas().isEmpty());
+         assertFalse(catalogDbmd.getForeignKeys().isEmpty());
+         assertEquals(yamlMapper.writeValueAsString(jdbcDbmd), yamlMapper.writeValueAsString(catalogDbmd));
+      }
+   }
+
+   @Test
+   @DisplayName("Incremental fetch re-fetches only relations whose change markers differ from the previous metadata.")
+   void incrementalFetchRefetchesChangedRelations() throws SQLException, JsonProcessingException
+   {
+      try ( Connection conn = getTestDatabaseConnection() )
+      {
+         var fetcher = new PostgresCatalogMetadataFetcher(DATES_AS_DRIVER_REPORTED);
+
+         DatabaseMetadata fullDbmd = fetcher.fetchMetadata(conn.getMetaData(), "drugs", true, true, true, null);
+
+         DatabaseMetadata initialDbmd =
+            fetcher.fetchMetadataIncrementally(conn.getMetaData(), "drugs", true, true, true, null, null);
+
+         assertTrue(initialDbmd.getRelationMetadatas().stream().allMatch(relMd -> relMd.getChangeMarker() != null));
+         assertEquals(yamlMapper.writeValueAsString(fullDbmd), yamlMapper.writeValueAsString(withoutChangeMarkers(initialDbmd)));
+
+         // Previous metadata in which the drug relation has no fields but a current change marker, and the compound
+         // relation has its fields but an outdated change marker.
+         RelId drugRelId = new RelId("drugs", "drug");
+         RelId compoundRelId = new RelId("drugs", "compound");
+         DatabaseMetadata prevDbmd =
+            new DatabaseMetadata(
+               initialDbmd.getRelationMetadatas().stream()
+               .map(relMd ->
+                  relMd.getRelationId().equals(drugRelId) ?
+                     new RelMetadata(drugRelId, relMd.getRelationType(), emptyList(), relMd.getChangeMarker())
+                  : relMd.getRelationId().equals(compoundRelId) ? relMd.withChangeMarker("outdated")
+                  : relMd
+               )
+               .collect(toList()),
+               initialDbmd.getForeignKeys(),
+               initialDbmd.getCaseSensitivity(),
+               initialDbmd.getDbmsName(),
+               initialDbmd.getDbmsVersion()
+            );
+
+         DatabaseMetadata incrDbmd =
+            fetcher.fetchMetadataIncrementally(conn.getMetaData(), "drugs", true, true, true, null, prevDbmd);
+
+         // The unchanged drug relation was taken from the previous metadata, the compound relation re-fetched.
+         assertEquals(emptyList(), incrDbmd.getRelationMetadata(drugRelId).getFields());
+         assertEquals(
+            initialDbmd.getRelationMetadata(compoundRelId).getChangeMarker(),
+            incrDbmd.getRelationMetadata(compoundRelId).getChangeMarker()
+         );
+         assertEquals(
+            initialDbmd.getRelationMetadata(compoundRelId).getFields().size(),
+            incrDbmd.getRelationMetadata(compoundRelId).getFields().size()
+         );
+         assertEquals(fullDbmd.getForeignKeys().size(), incrDbmd.getForeignKeys().size());
+      }
+   }
+
+   @Test
+   @DisplayName("Only the key columns of a covering index are recorded as its fields, not its included columns.")
+   void coveringIndexFieldsExcludeIncludedColumns() throws SQLException
+   {
+      // The table is created within a transaction which is rolled back after its metadata is read.
+      try ( Connection conn = getTestDatabaseConnection() )
+      {
+         try ( Statement stmt = conn.createStatement() )
+         {
+            stmt.execute("create table drugs.covered (id int primary key, code varchar(20), descr varchar(200))");
+            stmt.execute("create index covered_code_ix on drugs.covered (code) include (descr)");
+         }
+
+         DatabaseMetadata dbmd =
+            new PostgresCatalogMetadataFetcher(DATES_AS_DRIVER_REPORTED)
+            .fetchMetadata(conn.getMetaData(), "drugs", true, false, false, null);
+
+         RelMetadata relMd = dbmd.getRelationMetadata(new RelId("drugs", "covered"));
+         Index index =
+            relMd.getIndexes().stream().filter(idx -> idx.getName().equals("covered_code_ix")).findFirst().get();
+
+         assertEquals(singletonList("code"), index.getFieldNames());
+         assertTrue(relMd.hasIndexSupportingLookupOn(singletonList("code")));
+         assertFalse(relMd.hasIndexSupportingLookupOn(singletonList("descr")));
+
+         conn.rollback();
+      }
+   }
+
+   private static DatabaseMetadata withoutChangeMarkers(DatabaseMetadata dbmd)
+   {
+      return
+         new DatabaseMetadata(
+            dbmd.getRelationMetadatas().stream().map(relMd -> relMd.withChangeMarker(null)).collect(toList()),
+            dbmd.getForeignKeys(),
+            dbmd.getCaseSensitivity(),
+            dbmd.getDbmsName(),
+            dbmd.getDbmsVersion()
+         );
+   }
+}
@@ -1,13 +1,33 @@
 package org.sqljson;
 
 import java.io.IOException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.stream.Collectors.counting;
+import static java.util.stream.Collectors.groupingBy;
 import static java.util.stream.Collectors.toSet;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.springframework.jdbc.core.SqlTypeValue;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.springframework.jdbc.core.support.AbstractSqlTypeValue;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
@@ -15,7 +35,11 @@ import static org.junit.jupiter.api.Assertions.*;
 
 import static org.sqljson.TestsBase.Params.params;
 import org.sqljson.dbmd.DatabaseMetadata;
+import org.sqljson.dbmd.DatabaseMetadataFetcher;
 import org.sqljson.query_specs.QueryGroupSpec;
+import org.sqljson.query_specs.QuerySpec;
+import static org.sqljson.dbmd.DatabaseMetadataFetcher.DateMapping.DATES_AS_DRIVER_REPORTED;
+import static org.sqljson.query_specs.ResultRepr.JSON_OBJECT_ROWS;
 
 import generated.query.*;
 
@@ -312,6 +336,574 @@ class QueryGeneratorTests extends TestsBase
       });
    }
 
+   @Test
+   @DisplayName("Child collections joined laterally yield the same results as when selected via subqueries.")
+   void lateralJoinedChildCollectionsMatchSubqueryResults() throws Exception
+   {
+      assertSameResults("compounds with drugs query", "compounds with drugs lateral query", params());
+   }
+
+   @Test
+   @DisplayName("Referenced parents joined to their child table yield the same results as when selected via subqueries.")
+   void joinedReferencedParentsMatchSubqueryResults() throws Exception
+   {
+      List<String> subqueryRows =
+         assertSameResults("drugs with referenced parents query", "drugs with joined referenced parents query", params());
+
+      assertEquals(5, subqueryRows.size());
+      assertTrue(subqueryRows.get(2).contains("\"compound\": null"));
+   }
+
+   @Test
+   @DisplayName("Queries building text json values yield the same json as those building jsonb values.")
+   void jsonTypeQueryMatchesJsonbResults() throws Exception
+   {
+      String jsonSql = getGeneratedQuerySql("compounds with drugs json query(json object rows).sql");
+      assertTrue(jsonSql.contains("json_build_object(") && !jsonSql.contains("jsonb"));
+
+      assertSameResults("compounds with drugs query", "compounds with drugs json query", params());
+   }
+
+   @Test
+   @DisplayName("Inline parents having only simple fields are joined directly, others via a query for the parent.")
+   void joinSimpleInlineParentsDirectly() throws Exception
+   {
+      String simpleParentSql = getGeneratedQuerySql("compounds with drugs query(json object rows).sql");
+      assertTrue(simpleParentSql.contains("left join manufacturer m on b.manufacturer_id = m.id"));
+
+      // This parent includes a general expression, which must be evaluated within the parent query.
+      String exprParentSql = getGeneratedQuerySql("advisory with inline advisory type query(json object rows).sql");
+      assertTrue(exprParentSql.contains("\"_id\""));
+   }
+
+   @Test
+   @DisplayName("Child collections pre-aggregated by parent yield the same results as when selected via subqueries.")
+   void groupedChildCollectionsMatchSubqueryResults() throws Exception
+   {
+      assertSameResults("compounds with drugs query", "compounds with drugs grouped query", params());
+   }
+
+   @Test
+   @DisplayName("Limited child collections have the child rows in the limit and offset window, for all strategies.")
+   void limitedChildCollectionsHaveRowsInWindow() throws Exception
+   {
+      ObjectMapper mapper = new ObjectMapper();
+
+      List<String> subqueryRows =
+         assertSameResults("drugs with limited advisories query", "drugs with limited advisories lateral query", params());
+      assertSameResults("drugs with limited advisories query", "drugs with limited advisories grouped query", params());
+
+      boolean someLimited = false;
+      for ( String row : subqueryRows )
+      {
+         List<JsonNode> allIds = new ArrayList<>();
+         readTree(mapper, row).get("advisoryIds").forEach(allIds::add);
+         List<JsonNode> limitedIds = new ArrayList<>();
+         readTree(mapper, row).get("limitedAdvisoryIds").forEach(limitedIds::add);
+         assertEquals(allIds.subList(Math.min(1, allIds.size()), Math.min(2, allIds.size())), limitedIds);
+         someLimited = someLimited || allIds.size() > 2;
+      }
+      assertTrue(someLimited);
+   }
+
+   @Test
+   @DisplayName("A child collection limit whose window extends beyond the int range includes all rows after the offset.")
+   void maximallyLimitedChildCollectionsHaveRowsAfterOffset() throws Exception
+   {
+      ObjectMapper mapper = new ObjectMapper();
+
+      List<String> rows = new ArrayList<>();
+      doQuery(getGeneratedQuerySql("drugs with maximally limited advisories grouped query(json object rows).sql"),
+              params(), rs -> {
+         rows.add(rs.getString(1));
+      });
+
+      assertFalse(rows.isEmpty());
+      for ( String row : rows )
+      {
+         List<JsonNode> allIds = new ArrayList<>();
+         readTree(mapper, row).get("advisoryIds").forEach(allIds::add);
+         List<JsonNode> limitedIds = new ArrayList<>();
+         readTree(mapper, row).get("limitedAdvisoryIds").forEach(limitedIds::add);
+         assertEquals(allIds.subList(Math.min(1, allIds.size()), allIds.size()), limitedIds);
+      }
+   }
+
+   @Test
+   @DisplayName("Child collection filters, with or without parameters, restrict the child rows for all strategies.")
+   void filteredChildCollectionsHaveMatchingRows() throws Exception
+   {
+      ObjectMapper mapper = new ObjectMapper();
+
+      List<String> subqueryRows =
+         assertSameResults(
+            "drugs with filtered advisories query",
+            "drugs with filtered advisories grouped query",
+            params(DrugsWithFilteredAdvisoriesQuery.advisoryTypeIdParam, 2)
+         );
+
+      assertEquals(5, subqueryRows.size());
+      for ( String row : subqueryRows )
+      {
+         JsonNode advisories = readTree(mapper, row).get("advisories");
+         assertEquals(1, advisories.size());
+         assertEquals(2, advisories.get(0).get("advisoryTypeId").asInt());
+         assertEquals(2, readTree(mapper, row).get("advisoryIds").size());
+      }
+   }
+
+   @Test
+   @DisplayName("Reading a keyset paginated query a page at a time yields all of its rows in key order.")
+   void readKeysetPagesInKeyOrder() throws Exception
+   {
+      ObjectMapper mapper = new ObjectMapper();
+
+      List<JsonNode> allRows = new ArrayList<>();
+      doQuery(getGeneratedQuerySql(DrugsPagedQuery.sqlResourceJsonObjectRows), params(), rs -> {
+         allRows.add(readTree(mapper, rs.getString(1)));
+      });
+      allRows.sort(
+         Comparator.comparing((JsonNode row) -> row.get("name").asText())
+         .thenComparing(row -> row.get("id").asLong())
+      );
+
+      List<JsonNode> pagedRows = new ArrayList<>();
+      List<JsonNode> page = new ArrayList<>();
+      int pages = 0;
+      doQuery(getGeneratedQuerySql(DrugsPagedQuery.sqlResourceJsonObjectRowsFirstPage),
+              params(DrugsPagedQuery.limitParamFirstPage, 2), rs -> {
+         page.add(readTree(mapper, rs.getString(1)));
+      });
+      while ( !page.isEmpty() )
+      {
+         ++pages;
+         pagedRows.addAll(page);
+         JsonNode lastRow = page.get(page.size() - 1);
+         page.clear();
+         doQuery(getGeneratedQuerySql(DrugsPagedQuery.sqlResourceJsonObjectRowsNextPage),
+                 params(
+                    DrugsPagedQuery.afterNameParamNextPage, lastRow.get("name").asText(),
+                    DrugsPagedQuery.afterIdParamNextPage, lastRow.get("id").asLong(),
+                    DrugsPagedQuery.limitParamNextPage, 2
+                 ),
+                 rs -> {
+            page.add(readTree(mapper, rs.getString(1)));
+         });
+      }
+
+      assertEquals(5, allRows.size());
+      assertEquals(3, pages);
+      assertEquals(allRows, pagedRows);
+   }
+
+   @Test
+   @DisplayName("Json array chunks contain the json objects of the json object rows representation, in order.")
+   void readJsonArrayChunks() throws Exception
+   {
+      ObjectMapper mapper = new ObjectMapper();
+
+      List<JsonNode> objectRows = new ArrayList<>();
+      doQuery(getGeneratedQuerySql("drugs chunked query(json object rows).sql"), params(), rs -> {
+         objectRows.add(readTree(mapper, rs.getString(1)));
+      });
+
+      List<Integer> chunkSizes = new ArrayList<>();
+      List<JsonNode> chunkedObjects = new ArrayList<>();
+      doQuery(getGeneratedQuerySql("drugs chunked query(json array chunks).sql"), params(), rs -> {
+         JsonNode chunk = readTree(mapper, rs.getString(1));
+         chunkSizes.add(chunk.size());
+         chunk.forEach(chunkedObjects::add);
+      });
+
+      assertEquals(Arrays.asList(2, 2, 1), chunkSizes);
+      assertEquals(objectRows, chunkedObjects);
+   }
+
+   @Test
+   @DisplayName("Sharing repeated subqueries via common table expressions yields the same results as repeating them.")
+   void sharedSubqueriesMatchRepeatedSubqueryResults() throws Exception
+   {
+      String sharedSql = getGeneratedQuerySql("drugs with shared subqueries query(json object rows).sql");
+      assertTrue(sharedSql.contains("analyst_objects as (") && sharedSql.contains("brand_collections as ("));
+
+      List<String> repeatedRows =
+         assertSameResults("drugs with repeated subqueries query", "drugs with shared subqueries query", params());
+
+      List<String> sharedArrayRows = new ArrayList<>();
+      doQuery(getGeneratedQuerySql("drugs with shared subqueries query(json array row).sql"), params(), rs -> {
+         sharedArrayRows.add(rs.getString(1));
+      });
+
+      assertEquals(5, repeatedRows.size());
+      assertEquals(1, sharedArrayRows.size());
+   }
+
+   @Test
+   @DisplayName("By keys query variants read the rows having keys in array parameters, including their keys.")
+   void readRowsByKeys() throws Exception
+   {
+      Map<Long,String> drugJsonsByKey = new HashMap<>();
+      doQuery(getGeneratedQuerySql(DrugsByKeysQuery.sqlResourceJsonObjectRowsByKeys),
+              params(DrugsByKeysQuery.idsParamByKeys, sqlArray("int4", 2, 4, 99)), rs -> {
+         drugJsonsByKey.put(rs.getLong("_key_id"), rs.getString("json"));
+      });
+      assertEquals(new HashSet<>(Arrays.asList(2L, 4L)), drugJsonsByKey.keySet());
+      assertTrue(drugJsonsByKey.get(4L).contains("\"id\": 4"));
+
+      Set<Long> multiColumnRowKeys = new HashSet<>();
+      doQuery(getGeneratedQuerySql(DrugsByKeysQuery.sqlResourceMultiColumnRowsByKeys),
+              params(DrugsByKeysQuery.idsParamByKeys, sqlArray("int4", 2, 4, 99)), rs -> {
+         assertEquals(rs.getLong("id"), rs.getLong("_key_id"));
+         multiColumnRowKeys.add(rs.getLong("_key_id"));
+      });
+      assertEquals(drugJsonsByKey.keySet(), multiColumnRowKeys);
+
+      List<Object[]> brandKeys = new ArrayList<>();
+      doQuery(getGeneratedQuerySql(BrandsByKeysQuery.sqlResource), params(), rs -> {
+         BrandsByKeysQuery.Brand brand = readJson(rs.getString(1), BrandsByKeysQuery.Brand.class);
+         if ( brandKeys.size() < 2 )
+            brandKeys.add(new Object[]{ brand.drugId, brand.brandName });
+      });
+      assertEquals(2, brandKeys.size());
+
+      Set<String> brandKeyStrings = new HashSet<>();
+      doQuery(getGeneratedQuerySql(BrandsByKeysQuery.sqlResourceByKeys),
+              params(
+                 BrandsByKeysQuery.drugIdsParamByKeys, sqlArray("int4", brandKeys.get(0)[0], brandKeys.get(1)[0]),
+                 BrandsByKeysQuery.brandNamesParamByKeys, sqlArray("varchar", brandKeys.get(0)[1], brandKeys.get(1)[1])
+              ), rs -> {
+         brandKeyStrings.add(rs.getLong("_key_drug_id") + ":" + rs.getString("_key_brand_name"));
+      });
+      assertEquals(
+         new HashSet<>(Arrays.asList(brandKeys.get(0)[0] + ":" + brandKeys.get(0)[1],
+                                     brandKeys.get(1)[0] + ":" + brandKeys.get(1)[1])),
+         brandKeyStrings
+      );
+   }
+
+   @Test
+   @DisplayName("A query's materialized view, refreshed concurrently, is read by keys with the query's results.")
+   void readMaterializedViewByKeys() throws Exception
+   {
+      ObjectMapper mapper = new ObjectMapper();
+
+      Map<Long,String> queryJsonsByKey = new HashMap<>();
+      doQuery(getGeneratedQuerySql(DrugsWithBrandsMaterializedQuery.sqlResource), params(), rs -> {
+         queryJsonsByKey.put(readTree(mapper, rs.getString(1)).get("id").asLong(), rs.getString(1));
+      });
+
+      // The view is created within a transaction which is rolled back after it is read.
+      try ( Connection conn = getTestDatabaseConnection() )
+      {
+         try ( Statement stmt = conn.createStatement() )
+         {
+            stmt.execute(getGeneratedQuerySql(DrugsWithBrandsMaterializedQuery.sqlResourceMaterializedView));
+            stmt.execute("refresh materialized view concurrently drugs_with_brands_mv");
+         }
+
+         var jdbc = new NamedParameterJdbcTemplate(new SingleConnectionDataSource(conn, true));
+         Map<Long,String> viewJsonsByKey = new HashMap<>();
+         jdbc.query(
+            getGeneratedQuerySql(DrugsWithBrandsMaterializedQuery.sqlResourceMaterializedViewByKeys),
+            params(DrugsWithBrandsMaterializedQuery.idsParamMaterializedViewByKeys, sqlArray("int4", 2, 4, 99)),
+            rs -> { viewJsonsByKey.put(rs.getLong("_key_id"), rs.getString("json")); }
+         );
+
+         assertEquals(new HashSet<>(Arrays.asList(2L, 4L)), viewJsonsByKey.keySet());
+         assertEquals(queryJsonsByKey.get(2L), viewJsonsByKey.get(2L));
+         assertEquals(queryJsonsByKey.get(4L), viewJsonsByKey.get(4L));
+
+         conn.rollback();
+      }
+   }
+
+   @Test
+   @DisplayName("Sharing subqueries repeated across queries via views yields the same results as repeating them.")
+   void sharedViewsMatchRepeatedSubqueryResults() throws Exception
+   {
+      QueryGroupSpec queryGroupSpec = yamlMapper.readValue(getResourceStream("query-specs.yaml"), QueryGroupSpec.class);
+      QuerySqlGenerator sqlGenerator = sharingSqlGenerator(dbmd, queryGroupSpec, queryGroupSpec.getQuerySpecs());
+
+      List<String> queryNames = Arrays.asList(
+         "compounds with drugs query",
+         "compounds with drugs grouped query",
+         "drugs with referenced parents query",
+         "drugs with joined referenced parents query",
+         "drugs with shared subqueries query"
+      );
+      Map<String,String> viewQuerySqls = new HashMap<>();
+      for ( QuerySpec querySpec : queryGroupSpec.getQuerySpecs() )
+      {
+         if ( queryNames.contains(querySpec.getQueryName()) )
+            viewQuerySqls.put(querySpec.getQueryName(), sqlGenerator.generateSqls(querySpec).get(JSON_OBJECT_ROWS));
+      }
+
+      String viewsDdl = sqlGenerator.getSharedViewsDdl();
+      assertTrue(viewsDdl.contains("create or replace view analyst_objects_"));
+      assertTrue(viewsDdl.contains("create or replace view brand_collections_"));
+
+      // View names depend only on the shared subqueries, not on the order of the query specifications.
+      List<QuerySpec> reversedQuerySpecs = new ArrayList<>(queryGroupSpec.getQuerySpecs());
+      Collections.reverse(reversedQuerySpecs);
+      QuerySqlGenerator reversedSqlGenerator = sharingSqlGenerator(dbmd, queryGroupSpec, reversedQuerySpecs);
+      for ( QuerySpec querySpec : reversedQuerySpecs )
+      {
+         if ( queryNames.contains(querySpec.getQueryName()) )
+            assertEquals(
+               viewQuerySqls.get(querySpec.getQueryName()),
+               reversedSqlGenerator.generateSqls(querySpec).get(JSON_OBJECT_ROWS),
+               querySpec.getQueryName()
+            );
+      }
+
+      // The views are created within a transaction which is rolled back after the queries are compared.
+      try ( Connection conn = getTestDatabaseConnection() )
+      {
+         try ( Statement stmt = conn.createStatement() )
+         {
+            stmt.execute(viewsDdl);
+         }
+
+         var jdbc = new NamedParameterJdbcTemplate(new SingleConnectionDataSource(conn, true));
+         for ( String queryName : queryNames )
+         {
+            List<String> repeatedRows = new ArrayList<>();
+            doQuery(getGeneratedQuerySql(queryName + "(json object rows).sql"), params(), rs -> {
+               repeatedRows.add(rs.getString(1));
+            });
+
+            String viewSql = viewQuerySqls.get(queryName);
+            assertTrue(viewSql.contains("_objects_") || viewSql.contains("_collections_"), queryName);
+            List<String> viewRows = jdbc.query(viewSql, params(), (rs, rowNum) -> rs.getString(1));
+
+            assertFalse(repeatedRows.isEmpty(), queryName);
+            Collections.sort(repeatedRows);
+            Collections.sort(viewRows);
+            assertEquals(repeatedRows, viewRows, queryName);
+         }
+
+         conn.rollback();
+      }
+   }
+
+   @Test
+   @DisplayName("Shared views of different subqueries of a table with a long name get distinct names of allowed length.")
+   void sharedViewNamesFitIdentifierLengthLimit() throws Exception
+   {
+      // The table name is too long for the view names to fit the identifier length limit without shortening it.
+      String table = "drug_annotation_with_a_long_descriptive_table_name_for_tests";
+
+      // The table is created within a transaction which is rolled back after the queries are compared.
+      try ( Connection conn = getTestDatabaseConnection() )
+      {
+         try ( Statement stmt = conn.createStatement() )
+         {
+            stmt.execute(
+               "create table drugs." + table +
+               " (id int primary key, drug_id int not null references drugs.drug, text varchar(100) not null)"
+            );
+            stmt.execute("insert into drugs." + table + " select id, id, 'annotation ' || id from drugs.drug");
+         }
+
+         DatabaseMetadata tableDbmd =
+            new DatabaseMetadataFetcher(DATES_AS_DRIVER_REPORTED)
+            .fetchMetadata(conn.getMetaData(), "drugs", true, false, true, null);
+
+         // Two pairs of queries, each pair sharing a different subquery of the table.
+         StringBuilder querySpecsYaml = new StringBuilder(
+            "defaultSchema: drugs\n" +
+            "generateUnqualifiedNamesForSchemas: [drugs]\n" +
+            "querySpecs:\n"
+         );
+         for ( int i = 1; i <= 4; ++i )
+            querySpecsYaml.append(
+               "  - queryName: annotated drugs query " + i + "\n" +
+               "    resultRepresentations: [JSON_OBJECT_ROWS]\n" +
+               "    generateResultTypes: false\n" +
+               "    childCollectionStrategy: GROUPED_AGGREGATION\n" +
+               "    tableJson:\n" +
+               "      table: drug\n" +
+               "      fieldExpressions: [id]\n" +
+               "      childTableCollections:\n" +
+               "        - collectionName: annotations\n" +
+               "          tableJson:\n" +
+               "            table: " + table + "\n" +
+               "            fieldExpressions: " + (i <= 2 ? "[id]" : "[id, text]") + "\n"
+            );
+         QueryGroupSpec queryGroupSpec = yamlMapper.readValue(querySpecsYaml.toString(), QueryGroupSpec.class);
+
+         QuerySqlGenerator sqlGenerator = sharingSqlGenerator(tableDbmd, queryGroupSpec, queryGroupSpec.getQuerySpecs());
+         Map<String,String> viewQuerySqls = new HashMap<>();
+         for ( QuerySpec querySpec : queryGroupSpec.getQuerySpecs() )
+            viewQuerySqls.put(querySpec.getQueryName(), sqlGenerator.generateSqls(querySpec).get(JSON_OBJECT_ROWS));
+
+         String viewsDdl = sqlGenerator.getSharedViewsDdl();
+         Set<String> viewNames = new HashSet<>();
+         Matcher viewNameMatcher = Pattern.compile("create or replace view (\\S+) as").matcher(viewsDdl);
+         while ( viewNameMatcher.find() )
+            viewNames.add(viewNameMatcher.group(1));
+
+         assertEquals(2, viewNames.size());
+         for ( String viewName : viewNames )
+         {
+            assertTrue(viewName.getBytes(UTF_8).length <= 63, viewName);
+            assertTrue(viewName.startsWith(table.substring(0, 20)), viewName);
+         }
+
+         try ( Statement stmt = conn.createStatement() )
+         {
+            stmt.execute(viewsDdl);
+         }
+
+         var jdbc = new NamedParameterJdbcTemplate(new SingleConnectionDataSource(conn, true));
+         var unsharedSqlGenerator =
+            new QuerySqlGenerator(
+               tableDbmd,
+               queryGroupSpec.getDefaultSchema(),
+               new HashSet<>(queryGroupSpec.getGenerateUnqualifiedNamesForSchemas()),
+               queryGroupSpec.getPropertyNameDefault().toFunctionOfFieldName()
+            );
+         for ( QuerySpec querySpec : queryGroupSpec.getQuerySpecs() )
+         {
+            String unsharedSql = unsharedSqlGenerator.generateSqls(querySpec).get(JSON_OBJECT_ROWS);
+            List<String> unsharedRows = jdbc.query(unsharedSql, params(), (rs, rowNum) -> rs.getString(1));
+            List<String> viewRows =
+               jdbc.query(viewQuerySqls.get(querySpec.getQueryName()), params(), (rs, rowNum) -> rs.getString(1));
+
+            assertFalse(unsharedRows.isEmpty(), querySpec.getQueryName());
+            Collections.sort(unsharedRows);
+            Collections.sort(viewRows);
+            assertEquals(unsharedRows, viewRows, querySpec.getQueryName());
+         }
+
+         conn.rollback();
+      }
+   }
+
+   @Test
+   @DisplayName("Compact SQL yields the same results as the generated SQL and has the same fingerprint.")
+   void compactSqlMatchesGeneratedSqlResults() throws Exception
+   {
+      String sql = getGeneratedQuerySql(DrugWithBrandsAndAdvisoriesQuery.sqlResource);
+      String compactSql = QuerySqlGenerator.compactSql(sql);
+      assertFalse(compactSql.contains("--") || compactSql.contains("\n"));
+      assertTrue(compactSql.length() < sql.length() / 2);
+
+      assertEquals(DrugWithBrandsAndAdvisoriesQuery.sqlFingerprint, QuerySqlGenerator.sqlFingerprint(sql));
+      assertEquals(DrugWithBrandsAndAdvisoriesQuery.sqlFingerprint, QuerySqlGenerator.sqlFingerprint(compactSql));
+
+      List<String> rows = new ArrayList<>();
+      doQuery(sql, params(DrugWithBrandsAndAdvisoriesQuery.idParam, 2L), rs -> {
+         rows.add(rs.getString(1));
+      });
+      List<String> compactSqlRows = new ArrayList<>();
+      doQuery(compactSql, params(DrugWithBrandsAndAdvisoriesQuery.idParam, 2L), rs -> {
+         compactSqlRows.add(rs.getString(1));
+      });
+
+      assertEquals(1, rows.size());
+      assertEquals(rows, compactSqlRows);
+   }
+
+   @Test
+   @DisplayName("Compact SQL removes only generated comment lines and leaves quoted text unchanged.")
+   void compactSqlPreservesQuotedText()
+   {
+      String sql =
+         "select\n" +
+         "  -- base query for table 'drug'\n" +
+         "  d.id,\n" +
+         "  'a -- not a comment\n" +
+         "    second line' note,\n" +
+         "  \"odd\n" +
+         "  name\" x, -- user comment\n" +
+         "  $q$\n" +
+         "  -- kept\n" +
+         "$q$ y\n" +
+         "from drug d";
+
+      String expectedCompactSql =
+         "select d.id, 'a -- not a comment\n" +
+         "    second line' note, \"odd\n" +
+         "  name\" x, -- user comment\n" +
+         "$q$\n" +
+         "  -- kept\n" +
+         "$q$ y from drug d";
+
+      assertEquals(expectedCompactSql, QuerySqlGenerator.compactSql(sql));
+      assertEquals(expectedCompactSql, QuerySqlGenerator.compactSql(expectedCompactSql));
+   }
+
+   private static QuerySqlGenerator sharingSqlGenerator
+      (
+         DatabaseMetadata dbmd,
+         QueryGroupSpec queryGroupSpec,
+         List<QuerySpec> querySpecs
+      )
+   {
+      QuerySqlGenerator sqlGenerator =
+         new QuerySqlGenerator(
+            dbmd,
+            queryGroupSpec.getDefaultSchema(),
+            new HashSet<>(queryGroupSpec.getGenerateUnqualifiedNamesForSchemas()),
+            queryGroupSpec.getPropertyNameDefault().toFunctionOfFieldName(),
+            queryGroupSpec.getJsonType()
+         );
+      sqlGenerator.shareSubqueriesAcrossQueries(querySpecs);
+      return sqlGenerator;
+   }
+
+   /// Assert that the JSON_OBJECT_ROWS SQL generated for two queries yields the same non-empty results, as json
+   /// values compared without regard to row order or json formatting, and return the rows of the first query.
+   private List<String> assertSameResults
+      (
+         String queryNameA,
+         String queryNameB,
+         SqlParameterSource params
+      )
+      throws IOException
+   {
+      List<String> rowsA = new ArrayList<>();
+      doQuery(getGeneratedQuerySql(queryNameA + "(json object rows).sql"), params, rs -> {
+         rowsA.add(rs.getString(1));
+      });
+
+      List<String> rowsB = new ArrayList<>();
+      doQuery(getGeneratedQuerySql(queryNameB + "(json object rows).sql"), params, rs -> {
+         rowsB.add(rs.getString(1));
+      });
+
+      assertFalse(rowsA.isEmpty(), queryNameA);
+      assertEquals(jsonValueCounts(rowsA), jsonValueCounts(rowsB), queryNameA + " vs " + queryNameB);
+
+      return rowsA;
+   }
+
+   /// Count the occurrences of each of the given json values, where json objects are equal regardless of the order
+   /// of their properties.
+   private static Map<JsonNode,Long> jsonValueCounts(List<String> jsons)
+   {
+      ObjectMapper mapper = new ObjectMapper();
+      return jsons.stream().collect(groupingBy(json -> readTree(mapper, json), counting()));
+   }
+
+   private static SqlTypeValue sqlArray(String elementType, Object... values)
+   {
+      return new AbstractSqlTypeValue() {
+         @Override
+         protected Object createTypeValue(Connection conn, int sqlType, @Nullable String typeName) throws SQLException
+         {
+            return conn.createArrayOf(elementType, values);
+         }
+      };
+   }
+
+   private static JsonNode readTree(ObjectMapper mapper, String json)
+   {
+      try { return mapper.readTree(json); }
+      catch(IOException e) { throw new RuntimeException(e); }
+   }
+
    @Test
    void rejectBadForeignKeyReferenceInQuerySpec()
    {
@@ -0,0 +1,55 @@
+select
+  -- row object builder for table 'advisory'
+  json_object(
+    'id' value q."id",
+    'drug' value q."drug"
+    returning clob
+  ) json
+from (
+  -- base query for table 'advisory'
+  select
+    a.id "id",
+    -- parent table 'drug' referenced as 'drug'
+    (
+      select
+        -- row object builder for table 'drug'
+        json_object(
+          'id' value q."id",
+          'name' value q."name",
+          'authority' value q."authority"
+          returning clob
+        ) json
+      from (
+        -- base query for table 'drug'
+        select
+          d.id "id",
+          d.name "name",
+          -- parent table 'authority' referenced as 'authority'
+          (
+            select
+              -- row object builder for table 'authority'
+              json_object(
+                'name' value q."name"
+                returning varchar2(1231)
+              ) json
+            from (
+              -- base query for table 'authority'
+              select
+                a.name "name"
+              from
+                AUTHORITY a
+              where (
+                d.AUTHORITY_ID = a.ID
+              )
+            ) q
+          ) "authority"
+        from
+          DRUG d
+        where (
+          a.DRUG_ID = d.ID
+        )
+      ) q
+    ) "drug"
+  from
+    ADVISORY a
+) q
\ No newline at end of file
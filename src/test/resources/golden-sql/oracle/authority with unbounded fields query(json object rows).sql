@@ -0,0 +1,17 @@
+select
+  -- row object builder for table 'authority'
+  json_object(
+    'id' value q."id",
+    'description' value q."description",
+    'lowerName' value q."lowerName"
+    returning clob
+  ) json
+from (
+  -- base query for table 'authority'
+  select
+    a.id "id",
+    a.description "description",
+    lower(a.name) "lowerName"
+  from
+    AUTHORITY a
+) q
\ No newline at end of file
@@ -0,0 +1,15 @@
+select
+  -- row object builder for table 'brand'
+  json_object(
+    'drugId' value q."drugId",
+    'brandName' value q."brandName"
+    returning varchar2(1365)
+  ) json
+from (
+  -- base query for table 'brand'
+  select
+    b.drug_id "drugId",
+    b.brand_name "brandName"
+  from
+    BRAND b
+) q
\ No newline at end of file
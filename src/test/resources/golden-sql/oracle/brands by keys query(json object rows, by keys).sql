@@ -0,0 +1,22 @@
+select
+  -- row object builder for table 'brand'
+  json_object(
+    'drugId' value q."drugId",
+    'brandName' value q."brandName"
+    returning varchar2(1365)
+  ) json,
+  q."_key_DRUG_ID",
+  q."_key_BRAND_NAME"
+from (
+  -- base query for table 'brand'
+  select
+    b.drug_id "drugId",
+    b.brand_name "brandName",
+    b.DRUG_ID "_key_DRUG_ID",
+    b.BRAND_NAME "_key_BRAND_NAME"
+  from
+    BRAND b
+  where (
+    (b.DRUG_ID, b.BRAND_NAME) in (select k.k1, k.k2 from json_table(:keys, '$[*]' columns (k1 path '$[0]', k2 path '$[1]')) k)
+  )
+) q
\ No newline at end of file
@@ -0,0 +1,33 @@
+select
+  -- row object builder for table 'drug'
+  json_object(
+    'id' value q."id",
+    'advisories' value q."advisories"
+    returning clob
+  ) json
+from (
+  -- base query for table 'drug'
+  select
+    d.id "id",
+    -- records from child table 'advisory' as collection 'advisories'
+    (
+      select
+        -- aggregated row objects builder for table 'advisory'
+        treat(coalesce(json_arrayagg(json_object(
+          'id' value q."id"
+          returning varchar2(81)
+        ) returning clob), to_clob('[]')) as json) json
+      from (
+        -- base query for table 'advisory'
+        select
+          a.id "id"
+        from
+          ADVISORY a
+        where (
+          a.DRUG_ID = d.ID
+        )
+      ) q
+    ) "advisories"
+  from
+    DRUG d
+) q
\ No newline at end of file
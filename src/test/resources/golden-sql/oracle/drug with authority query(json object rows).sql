@@ -0,0 +1,41 @@
+select
+  -- row object builder for table 'drug'
+  json_object(
+    'id' value q."id",
+    'categoryCode' value q."categoryCode",
+    'price' value q."price",
+    'marketEntryDate' value q."marketEntryDate",
+    'authority' value q."authority"
+    returning varchar2(1790)
+  ) json
+from (
+  -- base query for table 'drug'
+  select
+    d.id "id",
+    d.category_code "categoryCode",
+    d.price "price",
+    d.market_entry_date "marketEntryDate",
+    -- parent table 'authority' referenced as 'authority'
+    (
+      select
+        -- row object builder for table 'authority'
+        json_object(
+          'id' value q."id",
+          'name' value q."name"
+          returning varchar2(1311)
+        ) json
+      from (
+        -- base query for table 'authority'
+        select
+          a.id "id",
+          a.name "name"
+        from
+          AUTHORITY a
+        where (
+          d.AUTHORITY_ID = a.ID
+        )
+      ) q
+    ) "authority"
+  from
+    DRUG d
+) q
\ No newline at end of file
@@ -0,0 +1,54 @@
+select
+  -- row object builder for table 'drug'
+  json_object(
+    'id' value q."id",
+    'advisories' value q."advisories",
+    'advisoryIds' value q."advisoryIds"
+    returning clob
+  ) json
+from (
+  -- base query for table 'drug'
+  select
+    d.id "id",
+    coalesce(cc.json, treat(to_clob('[]') as json)) "advisories",
+    coalesce(cc1.json, treat(to_clob('[]') as json)) "advisoryIds"
+  from
+    DRUG d
+    -- records from child table 'advisory' as collection 'advisories'
+    left join (
+      select
+        q."_fk_DRUG_ID",
+        -- aggregated row objects builder for table 'advisory'
+        treat(coalesce(json_arrayagg(json_object(
+          'id' value q."id",
+          'text' value q."text"
+          returning clob
+        ) returning clob), to_clob('[]')) as json) json
+      from (
+        -- base query for table 'advisory'
+        select
+          a.DRUG_ID "_fk_DRUG_ID",
+          a.id "id",
+          a.text "text"
+        from
+          ADVISORY a
+      ) q
+      group by q."_fk_DRUG_ID"
+    ) cc on cc."_fk_DRUG_ID" = d.ID
+    -- records from child table 'advisory' as collection 'advisoryIds'
+    left join (
+      select
+        q."_fk_DRUG_ID",
+        -- aggregated row objects builder for table 'advisory'
+        treat(coalesce(json_arrayagg(q."id" returning clob), to_clob('[]')) as json) json
+      from (
+        -- base query for table 'advisory'
+        select
+          a.DRUG_ID "_fk_DRUG_ID",
+          a.id "id"
+        from
+          ADVISORY a
+      ) q
+      group by q."_fk_DRUG_ID"
+    ) cc1 on cc1."_fk_DRUG_ID" = d.ID
+) q
\ No newline at end of file